@@ -0,0 +1,314 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.SauvolaBinarizer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>Compares {@link SauvolaBinarizer}, used when glare-resistant scanning is on, with
+ * {@link HybridBinarizer}, the default. Each frame is decoded once, as the first preview frame of
+ * a scan is, and for each binarizer it reports how many frames decoded, and the time per frame
+ * spent binarizing and in all. The binarizers are kept from frame to frame as the app keeps them,
+ * and are timed in turns over the whole set, so that neither gets a quieter stretch of the run.</p>
+ *
+ * <p>Given a directory, it reads the frames recorded there, cropped to the framing rectangle as
+ * {@code CameraManager} crops preview frames: 3/4 of the frame in each direction, but at most
+ * {@link #MAX_FRAME_SIZE} pixels. NV21 preview frames, as the camera hands them to
+ * {@code PreviewCallback}, are named with their size, such as {@code till-3-1280x720.yuv}; any
+ * other file is read as an image. Every format is tried, and a frame counts as read if anything
+ * decodes in it.</p>
+ *
+ * <p>Without a directory, it makes {@link #SYNTHETIC_FRAMES} frames of a QR Code shown on a phone
+ * screen, filling the largest framing rectangle: a symbol of random size, position and contrast
+ * under a brightness gradient, a glare spot and some blur, with sensor noise of
+ * {@link #NOISE_SIGMAS}. The frames come from a fixed seed, so runs are repeatable, and a frame
+ * counts as read only if it decodes to the text drawn in it.</p>
+ *
+ * <p>It fails, exiting with status 1, if Sauvola reads fewer frames than Hybrid, or decodes text
+ * which was not drawn.</p>
+ *
+ * <p>This is not part of the library and is not built with it. From src/android/LibraryProject,
+ * compile it with the core sources, which are those outside com/google/zxing/client/android apart
+ * from FakeR.java, and run it, optionally on a directory of recorded frames:</p>
+ *
+ * <pre>
+ * mkdir -p /tmp/zxing
+ * find src -name '*.java' ! -path '*client/android*' ! -name FakeR.java &gt; /tmp/zxing/sources
+ * javac -encoding UTF-8 -d /tmp/zxing @/tmp/zxing/sources \
+ *     benchmark/com/google/zxing/BinarizerBenchmark.java
+ * java -cp /tmp/zxing com.google.zxing.BinarizerBenchmark [frames directory]
+ * </pre>
+ */
+public final class BinarizerBenchmark {
+
+  private static final int SYNTHETIC_FRAMES = 150;
+  private static final int[] NOISE_SIGMAS = {2, 6};
+  // Largest framing rectangle, on either side
+  private static final int MAX_FRAME_SIZE = 600;
+  // Passes over the frames before measuring, so that scratch space has been sized and the JIT has
+  // settled
+  private static final int WARM_UP_ROUNDS = 2;
+  private static final int ROUNDS = 5;
+
+  private static final Pattern NV21_NAME = Pattern.compile(".*-(\\d+)x(\\d+)\\.(yuv|nv21)");
+
+  private BinarizerBenchmark() {
+  }
+
+  public static void main(String[] args) throws IOException, WriterException {
+    List<String> failures = new ArrayList<String>();
+    if (args.length > 0) {
+      File[] files = new File(args[0]).listFiles();
+      if (files == null) {
+        System.err.println("Not a directory: " + args[0]);
+        System.exit(2);
+      }
+      Arrays.sort(files);
+      List<LuminanceSource> frames = new ArrayList<LuminanceSource>();
+      for (File file : files) {
+        LuminanceSource frame = readFrame(file);
+        if (frame == null) {
+          System.err.println("Skipped " + file);
+        } else {
+          frames.add(frame);
+        }
+      }
+      compare(args[0], frames, null, failures);
+    } else {
+      for (int sigma : NOISE_SIGMAS) {
+        List<LuminanceSource> frames = new ArrayList<LuminanceSource>();
+        List<String> texts = new ArrayList<String>();
+        Random random = new Random(42L);
+        for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+          String text = "https://example.com/coupon?id=" + i + "&code=ABCDEFG";
+          frames.add(screenFrame(random, text, sigma));
+          texts.add(text);
+        }
+        compare("noise sigma " + sigma, frames, texts, failures);
+      }
+    }
+    if (!failures.isEmpty()) {
+      for (String failure : failures) {
+        System.err.println("FAILED: " + failure);
+      }
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @param texts text drawn in each frame, or null to count any decode as a read
+   */
+  private static void compare(String name,
+                              List<LuminanceSource> frames,
+                              List<String> texts,
+                              List<String> failures) {
+    if (frames.isEmpty()) {
+      failures.add(name + " has no frames");
+      return;
+    }
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    if (texts != null) {
+      hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(BarcodeFormat.QR_CODE));
+    }
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(hints);
+    Binarizer[] binarizers = new Binarizer[2];
+    String[] names = {"hybrid", "sauvola"};
+    int[] read = new int[2];
+    long[] binarizeNanos = new long[2];
+    long[] totalNanos = new long[2];
+    for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+      boolean measured = round >= WARM_UP_ROUNDS;
+      for (int i = 0; i < binarizers.length; i++) {
+        for (int frame = 0; frame < frames.size(); frame++) {
+          binarizers[i] = rebind(binarizers[i], i == 1, frames.get(frame));
+          BinaryBitmap bitmap = new BinaryBitmap(binarizers[i]);
+          long start = System.nanoTime();
+          // Stays 0 if binarizing fails
+          long binarized = 0L;
+          String text = null;
+          try {
+            bitmap.getBlackMatrix();
+            binarized = System.nanoTime();
+            text = reader.decodeWithState(bitmap).getText();
+          } catch (ReaderException re) {
+            // not read
+          } finally {
+            reader.reset();
+          }
+          long end = System.nanoTime();
+          if (measured) {
+            binarizeNanos[i] += (binarized == 0L ? end : binarized) - start;
+            totalNanos[i] += end - start;
+          }
+          if (round == 0 && text != null) {
+            if (texts == null || texts.get(frame).equals(text)) {
+              read[i]++;
+            } else {
+              failures.add(name + " frame " + frame + " decoded " + text + " with " + names[i]);
+            }
+          }
+        }
+      }
+    }
+    long measuredFrames = (long) ROUNDS * frames.size();
+    for (int i = 0; i < binarizers.length; i++) {
+      System.out.println(String.format(Locale.ENGLISH,
+          "%-16s %-8s read %4d/%-4d %5.1f%%  binarize %6.2f ms/frame  total %6.2f ms/frame",
+          name, names[i], read[i], frames.size(), 100.0 * read[i] / frames.size(),
+          binarizeNanos[i] / 1.0e6 / measuredFrames, totalNanos[i] / 1.0e6 / measuredFrames));
+    }
+    if (read[1] < read[0]) {
+      failures.add(name + ": sauvola read " + read[1] + " frames, hybrid " + read[0]);
+    }
+  }
+
+  /**
+   * Points a binarizer kept from an earlier frame at a new one, as {@code DecodeHandler} does.
+   */
+  private static Binarizer rebind(Binarizer binarizer, boolean sauvola, LuminanceSource source) {
+    if (binarizer == null) {
+      return sauvola ? new SauvolaBinarizer(source) : new HybridBinarizer(source);
+    }
+    if (sauvola) {
+      ((SauvolaBinarizer) binarizer).reset(source);
+    } else {
+      ((HybridBinarizer) binarizer).reset(source);
+    }
+    return binarizer;
+  }
+
+  /**
+   * @return the framing rectangle of a recorded frame, or null if the file is not a frame
+   */
+  private static LuminanceSource readFrame(File file) throws IOException {
+    int width;
+    int height;
+    byte[] luminance;
+    Matcher nv21 = NV21_NAME.matcher(file.getName());
+    if (nv21.matches()) {
+      width = Integer.parseInt(nv21.group(1));
+      height = Integer.parseInt(nv21.group(2));
+      // The luminance plane comes first; the chroma after it is not read.
+      luminance = new byte[width * height];
+      RandomAccessFile in = new RandomAccessFile(file, "r");
+      try {
+        in.readFully(luminance);
+      } finally {
+        in.close();
+      }
+    } else {
+      BufferedImage image = ImageIO.read(file);
+      if (image == null) {
+        return null;
+      }
+      width = image.getWidth();
+      height = image.getHeight();
+      luminance = new byte[width * height];
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int pixel = image.getRGB(x, y);
+          // Weighted as RGBLuminanceSource does.
+          int r = (pixel >> 16) & 0xff;
+          int g = (pixel >> 8) & 0xff;
+          int b = pixel & 0xff;
+          luminance[y * width + x] = (byte) ((r + 2 * g + b) / 4);
+        }
+      }
+    }
+    int cropWidth = Math.min(width * 3 / 4, MAX_FRAME_SIZE);
+    int cropHeight = Math.min(height * 3 / 4, MAX_FRAME_SIZE);
+    return new PlanarYUVLuminanceSource(luminance, width, height, (width - cropWidth) / 2,
+        (height - cropHeight) / 2, cropWidth, cropHeight, false);
+  }
+
+  /**
+   * @return a QR Code on a phone screen filling the largest framing rectangle, under a brightness
+   *  gradient, a glare spot, blur and sensor noise of the given deviation
+   */
+  private static LuminanceSource screenFrame(Random random, String text, int sigma)
+      throws WriterException {
+    int width = MAX_FRAME_SIZE;
+    int height = MAX_FRAME_SIZE;
+    int size = 250 + random.nextInt(200);
+    BitMatrix code = new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, size, size);
+    int left = random.nextInt(width - size);
+    int top = random.nextInt(height - size);
+    double gradientX = (random.nextDouble() - 0.5) * 0.6;
+    double gradientY = (random.nextDouble() - 0.5) * 0.6;
+    double glareX = random.nextInt(width);
+    double glareY = random.nextInt(height);
+    double glareRadius = 60 + random.nextInt(150);
+    double glare = 80 + random.nextInt(140);
+    double contrast = 0.4 + random.nextDouble() * 0.6;
+    double[] values = new double[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        boolean black = x >= left && y >= top && x < left + size && y < top + size &&
+            code.get(x - left, y - top);
+        double brightness = 1 + gradientX * (x - width / 2.0) / width * 2 +
+            gradientY * (y - height / 2.0) / height * 2;
+        double value = (black ? 200 - 170 * contrast : 200) * brightness;
+        double distance = ((x - glareX) * (x - glareX) + (y - glareY) * (y - glareY)) /
+            (glareRadius * glareRadius);
+        values[y * width + x] = value + glare * Math.exp(-distance);
+      }
+    }
+    int blurPasses = random.nextInt(3);
+    for (int pass = 0; pass < blurPasses; pass++) {
+      double[] blurred = new double[width * height];
+      for (int y = 1; y < height - 1; y++) {
+        for (int x = 1; x < width - 1; x++) {
+          double sum = 0;
+          for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+              sum += values[(y + dy) * width + x + dx];
+            }
+          }
+          blurred[y * width + x] = sum / 9;
+        }
+      }
+      values = blurred;
+    }
+    byte[] luminance = new byte[width * height];
+    for (int i = 0; i < luminance.length; i++) {
+      double value = values[i] + random.nextGaussian() * sigma;
+      luminance[i] = (byte) Math.max(0, Math.min(255, (int) value));
+    }
+    return new PlanarYUVLuminanceSource(luminance, width, height, 0, 0, width, height, false);
+  }
+
+}
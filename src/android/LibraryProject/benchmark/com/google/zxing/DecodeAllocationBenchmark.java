@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p>Measures the garbage a continuous scan leaves per preview frame: the bytes the decoding
+ * thread allocates while decoding the same 640x480 frame over and over, the way
+ * {@code DecodeHandler} does, with the binarizer and the reader kept from frame to frame. Frames
+ * hold no barcode, a QR Code, or a Code 128 barcode, and are decoded with default hints, with
+ * TRY_HARDER, and with scanlines at angles.</p>
+ *
+ * <p>It fails, exiting with status 1, if any of them leaves more than
+ * {@link #BUDGET_BYTES_PER_FRAME} of garbage per frame, or no longer decodes its barcode. The
+ * budget is not zero: the PDF417 and Aztec detectors still allocate for every candidate they find
+ * in noise, and the 1D readers once a row gets as far as their start pattern. That comes to at
+ * most 24 KB per frame, against up to 6.8 MB before the decoders kept their scratch space.</p>
+ *
+ * <p>This is not part of the library and is not built with it: it reads per-thread allocation
+ * counts from {@code com.sun.management.ThreadMXBean}, which only desktop JVMs have. From
+ * src/android/LibraryProject, compile it with the core sources, which are those outside
+ * com/google/zxing/client/android apart from FakeR.java, and run it:</p>
+ *
+ * <pre>
+ * mkdir -p /tmp/zxing
+ * find src -name '*.java' ! -path '*client/android*' ! -name FakeR.java &gt; /tmp/zxing/sources
+ * javac -encoding UTF-8 -d /tmp/zxing @/tmp/zxing/sources \
+ *     benchmark/com/google/zxing/DecodeAllocationBenchmark.java
+ * java -cp /tmp/zxing com.google.zxing.DecodeAllocationBenchmark
+ * </pre>
+ */
+public final class DecodeAllocationBenchmark {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  // Frames decoded before measuring, so that scratch space has been sized and the JIT has settled
+  private static final int WARM_UP_FRAMES = 30;
+  private static final int MEASURED_FRAMES = 50;
+  // Most garbage a steady continuous scan may leave per frame
+  private static final long BUDGET_BYTES_PER_FRAME = 32L * 1024L;
+
+  private DecodeAllocationBenchmark() {
+  }
+
+  public static void main(String[] args) throws WriterException {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    Map<String,byte[]> frames = new LinkedHashMap<String,byte[]>();
+    Map<String,String> expected = new HashMap<String,String>();
+    frames.put("empty", frame(null, 1, 1L));
+    frames.put("qr", frame(new MultiFormatWriter().encode("https://example.com/x?id=1234",
+        BarcodeFormat.QR_CODE, 0, 0), 4, 2L));
+    expected.put("qr", "https://example.com/x?id=1234");
+    frames.put("code128", frame(stretch(new MultiFormatWriter().encode("TICKET-4711",
+        BarcodeFormat.CODE_128, 0, 1), 80), 2, 3L));
+    expected.put("code128", "TICKET-4711");
+
+    Map<String,Map<DecodeHintType,Object>> modes =
+        new LinkedHashMap<String,Map<DecodeHintType,Object>>();
+    modes.put("default", new EnumMap<DecodeHintType,Object>(DecodeHintType.class));
+    Map<DecodeHintType,Object> tryHarder = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    tryHarder.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    modes.put("tryHarder", tryHarder);
+    Map<DecodeHintType,Object> scanlines = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    scanlines.put(DecodeHintType.SCANLINE_ANGLES, new int[] {30, 60, 120, 150});
+    modes.put("scanlines", scanlines);
+
+    Collection<String> failures = new ArrayList<String>();
+    for (Map.Entry<String,Map<DecodeHintType,Object>> mode : modes.entrySet()) {
+      MultiFormatReader reader = new MultiFormatReader();
+      reader.setHints(mode.getValue());
+      for (Map.Entry<String,byte[]> frame : frames.entrySet()) {
+        LuminanceSource source = new PlanarYUVLuminanceSource(frame.getValue(),
+            WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+        HybridBinarizer binarizer = new HybridBinarizer(source);
+        String text = null;
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+          text = decode(reader, binarizer, source);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+          decode(reader, binarizer, source);
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+        long bytesPerFrame = (after - before) / MEASURED_FRAMES;
+        String name = mode.getKey() + ' ' + frame.getKey();
+        System.out.println(name + ": " + bytesPerFrame + " bytes/frame, decoded " + text);
+        if (bytesPerFrame > BUDGET_BYTES_PER_FRAME) {
+          failures.add(name + " leaves " + bytesPerFrame + " bytes/frame, over the budget of " +
+              BUDGET_BYTES_PER_FRAME);
+        }
+        String expectedText = expected.get(frame.getKey());
+        if (expectedText == null ? text != null : !expectedText.equals(text)) {
+          failures.add(name + " decoded " + text + " instead of " + expectedText);
+        }
+      }
+    }
+    if (!failures.isEmpty()) {
+      for (String failure : failures) {
+        System.err.println("FAILED: " + failure);
+      }
+      System.exit(1);
+    }
+  }
+
+  private static String decode(MultiFormatReader reader,
+                               HybridBinarizer binarizer,
+                               LuminanceSource source) {
+    binarizer.reset(source);
+    try {
+      return reader.decodeWithState(new BinaryBitmap(binarizer)).getText();
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  /**
+   * @return a 1D barcode's one-pixel-high matrix repeated to the given height
+   */
+  private static BitMatrix stretch(BitMatrix barcode, int height) {
+    BitMatrix tall = new BitMatrix(barcode.getWidth(), height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < barcode.getWidth(); x++) {
+        if (barcode.get(x, 0)) {
+          tall.set(x, y);
+        }
+      }
+    }
+    return tall;
+  }
+
+  /**
+   * @param code barcode to draw in the middle of the frame, with a quiet zone, or null
+   * @param scale pixels per module
+   * @return luminance of a frame with a textured, noisy background
+   */
+  private static byte[] frame(BitMatrix code, int scale, long seed) {
+    Random random = new Random(seed);
+    byte[] luminance = new byte[WIDTH * HEIGHT];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        double value = 128 + 60 * Math.sin(x / 17.0) * Math.cos(y / 23.0) +
+            random.nextGaussian() * 8;
+        if ((x / 9 + y / 13) % 7 == 0) {
+          value -= 70;
+        }
+        luminance[y * WIDTH + x] = (byte) Math.max(0, Math.min(255, (int) value));
+      }
+    }
+    if (code != null) {
+      int quietZone = 20;
+      int codeWidth = code.getWidth() * scale;
+      int codeHeight = code.getHeight() * scale;
+      int left = (WIDTH - codeWidth) / 2;
+      int top = (HEIGHT - codeHeight) / 2;
+      for (int y = -quietZone; y < codeHeight + quietZone; y++) {
+        for (int x = -quietZone; x < codeWidth + quietZone; x++) {
+          boolean black = x >= 0 && y >= 0 && x < codeWidth && y < codeHeight &&
+              code.get(x / scale, y / scale);
+          luminance[(top + y) * WIDTH + left + x] = (byte) (black ? 20 : 230);
+        }
+      }
+    }
+    return luminance;
+  }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * One stage of decoding a preview frame, which {@link DecodeStageBenchmark} runs over and over.
+ * A stage works on inputs prepared once, so that it is timed alone.
+ */
+public interface DecodeStage {
+
+  /**
+   * @return what the stage made, which the benchmark keeps so that the work is not optimized away
+   * @throws ReaderException if the stage fails, which ends the benchmark
+   */
+  Object run() throws ReaderException;
+
+}
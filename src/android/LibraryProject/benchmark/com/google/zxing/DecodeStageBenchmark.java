@@ -0,0 +1,662 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.aztec.AztecDetectorResult;
+import com.google.zxing.aztec.decoder.AztecStages;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.common.GridSampler;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.RunLengthMatrix;
+import com.google.zxing.datamatrix.decoder.DataMatrixStages;
+import com.google.zxing.maxicode.MaxiCodeSampleStage;
+import com.google.zxing.maxicode.decoder.MaxiCodeStages;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.pdf417.decoder.PDF417Stages;
+import com.google.zxing.qrcode.decoder.QRCodeStages;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p>Times each stage of decoding a preview frame on its own, for every format: making the
+ * luminance source and reading it, binarizing, detecting, sampling the grid, Reed-Solomon error
+ * correction and parsing the data codewords. For each it reports operations per second and the
+ * bytes allocated per operation, and from those the allocation rate.</p>
+ *
+ * <p>Frames are NV21 preview frames of 640x480 and 1280x720 with a textured, noisy background,
+ * and the symbol in the middle. Stages see what the app gives the decoder: the framing rectangle,
+ * 3/4 of the frame in each direction, cropped by {@link PlanarYUVLuminanceSource}. Every stage
+ * works on the output of the one before it, prepared once; its result is checked once before it
+ * is timed, and the benchmark fails, exiting with status 1, if a symbol no longer decodes.</p>
+ *
+ * <ul>
+ *   <li>"detect" is each format's detector. The Data Matrix, Aztec and PDF417 detectors sample the
+ *   grid as part of detecting, so for them it includes what "sample" measures again on its own.
+ *   The QR Code detector is timed with building the run-length view it reads.</li>
+ *   <li>"sample" is {@link GridSampler} over the drawn position of the symbol, at the size the
+ *   detector found; for PDF417, over the data columns between the corners its detector found.
+ *   MaxiCode is only read from pure images, which are sampled without detecting, so it has no
+ *   "detect". Its frames are plain white, and so are those of PDF417, which this library's
+ *   detector does not find against a textured background.</li>
+ *   <li>"rs" makes {@link #ERRORS} codewords of each block wrong and corrects them.</li>
+ *   <li>1D formats have no grid: "row" binarizes the row through the barcode, "decodeRow" reads
+ *   it, forwards and then, if need be, backwards, and "missRow" is a row of background, which is
+ *   what most rows are. This library's Code 39 writer draws barcodes that read backwards.</li>
+ * </ul>
+ *
+ * <p>This library has no Data Matrix, Aztec or MaxiCode writer, so those symbols are kept here
+ * as grids of modules. The Data Matrix and Aztec grids were made with the ZXing 3.2.1 writers;
+ * the MaxiCode one holds a mode 4 message and its error correction, and only its data modules.</p>
+ *
+ * <p>This is not part of the library and is not built with it: it reads per-thread allocation
+ * counts from {@code com.sun.management.ThreadMXBean}, which only desktop JVMs have. From
+ * src/android/LibraryProject, compile it with the core sources, which are those outside
+ * com/google/zxing/client/android apart from FakeR.java, and run it:</p>
+ *
+ * <pre>
+ * mkdir -p /tmp/zxing
+ * find src -name '*.java' ! -path '*client/android*' ! -name FakeR.java &gt; /tmp/zxing/sources
+ * find benchmark -name '*.java' &gt;&gt; /tmp/zxing/sources
+ * javac -encoding UTF-8 -d /tmp/zxing @/tmp/zxing/sources
+ * java -cp /tmp/zxing com.google.zxing.DecodeStageBenchmark
+ * </pre>
+ */
+public final class DecodeStageBenchmark {
+
+  private static final int[][] FRAME_SIZES = { {640, 480}, {1280, 720} };
+  private static final long WARM_UP_NANOS = 200L * 1000L * 1000L;
+  private static final long MEASURE_NANOS = 500L * 1000L * 1000L;
+  // Codewords made wrong in each Reed-Solomon block
+  private static final int ERRORS = 2;
+  // Pixels of white around symbols
+  private static final int QUIET_ZONE = 20;
+
+  private static final String TEXT = "https://example.com/x?id=1234";
+  private static final String PDF417_TEXT = "TICKET-4711";
+  private static final String MAXICODE_TEXT = "MAXICODE 4711";
+
+  private static final String[] DATA_MATRIX = {
+      "X X X X X X X X X X X ",
+      "X XX XXX      XX  XXXX",
+      "XXX  X  XX   XXX XX   ",
+      "XX XXX X  X X XX XXXXX",
+      "XX  X  X   X    XXXXX ",
+      "XXXXX XXXXXXX  XX  XXX",
+      "X  XX X    XXX X  XX  ",
+      "XX  XXXX  XX X XX   XX",
+      "X  XX X     X   XXXX  ",
+      "XXXXX  X XXXX X X X  X",
+      "XX X  XX XXXXXXXXX    ",
+      "XXXX  XX XX X X X X XX",
+      "X  X  X   XXXX X X X  ",
+      "X XX X   X   XXXXX X X",
+      "XXXXXX  XX  XXX    X  ",
+      "X XX X    X   XX  X  X",
+      "XX   XX X  XXX XX XXX ",
+      "XXXXX XX   X X XX X  X",
+      "XXXX X X XXXX  XX X   ",
+      "XXX  X  XXX     X  XXX",
+      "X XX  XXX  X XXXX X   ",
+      "XXXXXXXXXXXXXXXXXXXXXX"
+  };
+
+  private static final String[] AZTEC = {
+      "XXX X        XX    X XX",
+      "X X  X  XX XX  X  X X  ",
+      "  XXX X XXX  XX  XX X  ",
+      "X    XX  X XX XXXXX X  ",
+      " X X X       X XX      ",
+      "X X X X   XX XX      XX",
+      "X X XXXXX  X XX XXXXXX ",
+      "XX    XXXXXXXXXXX XX   ",
+      " XX X XX       XXXXXX  ",
+      " XX  XXX XXXXX XX    X ",
+      "X XX   X X   X X X  X X",
+      "   XX XX X X X XXXX    ",
+      "XXXXX  X X   X XX X XXX",
+      " XXX   X XXXXX XX X X  ",
+      "  XXX XX       X X X X ",
+      "       XXXXXXXXXX      ",
+      "  XXXX  X XXXX     XX  ",
+      " X  X  X XXX  XXXXXXX X",
+      " XXX X X  X  XX   XXXX ",
+      " XXX           X XX   X",
+      "    XX  XXXX XX  X    X",
+      " XX   X   X X    XXX X ",
+      "       XX  XX X X X  X "
+  };
+
+  // Odd rows are half a module to the right
+  private static final String[] MAXICODE = {
+      "XXXXXXXX X X X X X X X X X X  ",
+      "X X                         X ",
+      "  XXX X X X X X X X X X X X X ",
+      " X X X X X X X X X X X X X X  ",
+      "                            X ",
+      "X X X X X X X X X X X X X X   ",
+      " X X X X X X X X X X X X X XXX",
+      "                              ",
+      "X X X X X X X X X X X X X X  X",
+      " X X X X X           X X X X  ",
+      "        X X   XXX  XX       X ",
+      "X X X X X X         XXX X X   ",
+      " X X X X X        XXX  X X X  ",
+      "                              ",
+      "X X X               X X X X X ",
+      " X X X              X  X X X  ",
+      "                            XX",
+      "X X X X               X X X X ",
+      " X X XXXX          X X X X X  ",
+      "       X X          X         ",
+      "X X X     X        X  X X X X ",
+      " X X X XX          XXX X X XX ",
+      "              XXX             ",
+      "X X X X XX  XX    X X X X X   ",
+      " X X X X X X X X X X XX X     ",
+      "                    XX X   X  ",
+      "X X X X X X X X X X X XX X X X",
+      "XXXXX XXX X X        X  X     ",
+      "XX X XXXX  X X  XXX X X   XX  ",
+      "XX X X X  X   X  X XX  X    X ",
+      "X    XXX X X X     XX X X  XXX",
+      "X X   XXX XXXXX X XXXX XXX X  ",
+      "X XX   XXXX X    XXX X  X   XX"
+  };
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // Where stage results go, so that they are not optimized away
+  private static volatile Object sink;
+
+  private DecodeStageBenchmark() {
+  }
+
+  public static void main(String[] args) throws WriterException {
+    MultiFormatWriter writer = new MultiFormatWriter();
+    BitMatrix qrCode = trim(writer.encode(TEXT, BarcodeFormat.QR_CODE, 0, 0));
+    // As wide as the framing rectangle of a 640x480 frame allows
+    BitMatrix pdf417 = trim(writer.encode(PDF417_TEXT, BarcodeFormat.PDF_417, 0, 0));
+    Collection<String> failures = new ArrayList<String>();
+    for (int[] size : FRAME_SIZES) {
+      int width = size[0];
+      int height = size[1];
+      System.out.println(width + "x" + height);
+      benchmark2D(BarcodeFormat.QR_CODE, qrCode, 4, TEXT, width, height, failures);
+      benchmark2D(BarcodeFormat.DATA_MATRIX, grid(DATA_MATRIX), 6, TEXT, width, height, failures);
+      benchmark2D(BarcodeFormat.PDF_417, pdf417, 2, PDF417_TEXT, width, height, failures);
+      benchmark2D(BarcodeFormat.AZTEC, grid(AZTEC), 6, TEXT, width, height, failures);
+      benchmark2D(BarcodeFormat.MAXICODE, grid(MAXICODE), 6, MAXICODE_TEXT, width, height,
+          failures);
+      benchmark1D(BarcodeFormat.EAN_13, "5901234123457", "5901234123457", width, height, failures);
+      benchmark1D(BarcodeFormat.UPC_A, "036000291452", "036000291452", width, height, failures);
+      benchmark1D(BarcodeFormat.EAN_8, "96385074", "96385074", width, height, failures);
+      benchmark1D(BarcodeFormat.CODE_39, "TICKET-4711", "TICKET-4711", width, height, failures);
+      benchmark1D(BarcodeFormat.CODE_128, "TICKET-4711", "TICKET-4711", width, height, failures);
+      benchmark1D(BarcodeFormat.ITF, "00012345678905", "00012345678905", width, height, failures);
+      // Read without its start and stop characters
+      benchmark1D(BarcodeFormat.CODABAR, "A40156T", "40156", width, height, failures);
+    }
+    if (!failures.isEmpty()) {
+      for (String failure : failures) {
+        System.err.println("FAILED: " + failure);
+      }
+      System.exit(1);
+    }
+  }
+
+  private static void benchmark2D(BarcodeFormat format,
+                                  BitMatrix symbol,
+                                  int scale,
+                                  String text,
+                                  int width,
+                                  int height,
+                                  Collection<String> failures) {
+    try {
+      benchmark2D(format, symbol, scale, text, width, height);
+    } catch (ReaderException re) {
+      failures.add(format + " in " + width + "x" + height + ": " + re);
+    } catch (IllegalStateException ise) {
+      failures.add(format + " in " + width + "x" + height + ": " + ise.getMessage());
+    }
+  }
+
+  private static void benchmark1D(BarcodeFormat format,
+                                  String contents,
+                                  String text,
+                                  int width,
+                                  int height,
+                                  Collection<String> failures) throws WriterException {
+    try {
+      benchmark1D(format, contents, text, width, height);
+    } catch (ReaderException re) {
+      failures.add(format + " in " + width + "x" + height + ": " + re);
+    } catch (IllegalStateException ise) {
+      failures.add(format + " in " + width + "x" + height + ": " + ise.getMessage());
+    }
+  }
+
+  private static void benchmark2D(BarcodeFormat format,
+                                  BitMatrix symbol,
+                                  int scale,
+                                  String text,
+                                  int width,
+                                  int height) throws ReaderException {
+    boolean maxiCode = format == BarcodeFormat.MAXICODE;
+    int symbolWidth = symbol.getWidth() * scale;
+    int symbolHeight = symbol.getHeight() * scale;
+    int symbolLeft = (width - symbolWidth) / 2;
+    int symbolTop = (height - symbolHeight) / 2;
+    // This library's PDF417 detector, like the MaxiCode reader, only finds symbols on white
+    boolean textured = !maxiCode && format != BarcodeFormat.PDF_417;
+    byte[] yuv = frame(width, height, format.ordinal(), textured);
+    draw(yuv, width, symbol, scale, QUIET_ZONE, QUIET_ZONE, symbolLeft, symbolTop, maxiCode);
+
+    int[] crop = framingRect(width, height);
+    PlanarYUVLuminanceSource source = luminanceSource(yuv, width, height, crop);
+    measure(format, "luminance", luminance(yuv, width, height, crop));
+    HybridBinarizer binarizer = new HybridBinarizer(source);
+    measure(format, "binarize", binarize(binarizer, source));
+    final BitMatrix image = new HybridBinarizer(source).getBlackMatrix();
+
+    DetectorResult detected = null;
+    DecodeStage sample;
+    if (maxiCode) {
+      sample = new MaxiCodeSampleStage(image);
+    } else {
+      DecodeStage detect = detect(format, image, new BinaryBitmap(new HybridBinarizer(source)));
+      detected = (DetectorResult) detect.run();
+      measure(format, "detect", detect);
+      ResultPoint[] corners;
+      if (format == BarcodeFormat.PDF_417) {
+        // Sampled between the start and stop patterns, at the corners the detector found
+        ResultPoint[] points = detected.getPoints();
+        corners = new ResultPoint[] {points[1], points[2], points[3], points[0]};
+      } else {
+        // The whole symbol, where it was drawn in the crop
+        float left = symbolLeft - crop[0];
+        float top = symbolTop - crop[1];
+        float right = left + symbolWidth;
+        float bottom = top + symbolHeight;
+        corners = new ResultPoint[] {new ResultPoint(left, top), new ResultPoint(right, top),
+            new ResultPoint(right, bottom), new ResultPoint(left, bottom)};
+      }
+      // As many samples across and down as the detector took
+      sample = sample(image, detected.getBits().getWidth(), detected.getBits().getHeight(),
+          corners);
+    }
+    BitMatrix bits = (BitMatrix) sample.run();
+    measure(format, "sample", sample);
+
+    DecodeStage reedSolomon;
+    DecodeStage parse;
+    switch (format) {
+      case QR_CODE:
+        QRCodeStages qrCodeStages = new QRCodeStages(bits);
+        reedSolomon = qrCodeStages.reedSolomon(ERRORS);
+        parse = qrCodeStages.parse();
+        break;
+      case DATA_MATRIX:
+        DataMatrixStages dataMatrixStages = new DataMatrixStages(bits);
+        reedSolomon = dataMatrixStages.reedSolomon(ERRORS);
+        parse = dataMatrixStages.parse();
+        break;
+      case PDF_417:
+        PDF417Stages pdf417Stages = new PDF417Stages(bits);
+        reedSolomon = pdf417Stages.reedSolomon(ERRORS);
+        parse = pdf417Stages.parse();
+        break;
+      case AZTEC:
+        AztecDetectorResult aztec = (AztecDetectorResult) detected;
+        AztecStages aztecStages = new AztecStages(new AztecDetectorResult(bits, aztec.getPoints(),
+            aztec.isCompact(), aztec.getNbDatablocks(), aztec.getNbLayers()));
+        reedSolomon = aztecStages.reedSolomon(ERRORS);
+        parse = aztecStages.parse();
+        break;
+      case MAXICODE:
+        MaxiCodeStages maxiCodeStages = new MaxiCodeStages(bits);
+        reedSolomon = maxiCodeStages.reedSolomon(ERRORS);
+        parse = maxiCodeStages.parse();
+        break;
+      default:
+        throw new IllegalArgumentException(format.toString());
+    }
+    measure(format, "rs", reedSolomon);
+    String decoded = ((DecoderResult) parse.run()).getText();
+    if (!text.equals(decoded)) {
+      throw new IllegalStateException(format + " decoded " + decoded + " instead of " + text);
+    }
+    measure(format, "parse", parse);
+  }
+
+  private static void benchmark1D(BarcodeFormat format,
+                                  String contents,
+                                  String text,
+                                  int width,
+                                  int height) throws ReaderException, WriterException {
+    int[] crop = framingRect(width, height);
+    BitMatrix barcode = new MultiFormatWriter().encode(contents, format, 0, 1);
+    // Held so that it fills most of the framing rectangle, as a barcode is scanned
+    int scale = Math.max(2, crop[2] * 2 / 3 / barcode.getWidth());
+    int barcodeHeight = crop[3] / 3;
+    int barcodeLeft = (width - barcode.getWidth() * scale) / 2;
+    int barcodeTop = (height - barcodeHeight) / 2;
+    byte[] yuv = frame(width, height, format.ordinal(), true);
+    BitMatrix bars = new BitMatrix(barcode.getWidth(), barcodeHeight / scale);
+    for (int y = 0; y < bars.getHeight(); y++) {
+      for (int x = 0; x < bars.getWidth(); x++) {
+        if (barcode.get(x, 0)) {
+          bars.set(x, y);
+        }
+      }
+    }
+    // On a white label as wide as the framing rectangle: the ITF reader, for one, does not find
+    // the end of a barcode with anything but white after it in the row
+    draw(yuv, width, bars, scale, barcodeLeft - crop[0], QUIET_ZONE, barcodeLeft, barcodeTop,
+        false);
+
+    PlanarYUVLuminanceSource source = luminanceSource(yuv, width, height, crop);
+    measure(format, "luminance", luminance(yuv, width, height, crop));
+    Binarizer binarizer = new HybridBinarizer(source);
+    int hitRowNumber = height / 2 - crop[1];
+    // Above the barcode's quiet zone, in the background
+    int missRowNumber = hitRowNumber - barcodeHeight / 2 - 2 * QUIET_ZONE;
+    final BitArray hitRow = binarizer.getBlackRow(hitRowNumber, null);
+    final BitArray missRow = binarizer.getBlackRow(missRowNumber, null);
+    measure(format, "row", row(binarizer, hitRowNumber));
+
+    final Map<DecodeHintType,Object> hints =
+        new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singleton(format));
+    final MultiFormatOneDReader reader = new MultiFormatOneDReader(hints);
+    DecodeStage decodeRow = decodeRow(reader, hitRowNumber, hitRow, hints);
+    String decoded = ((Result) decodeRow.run()).getText();
+    if (!text.equals(decoded)) {
+      throw new IllegalStateException(format + " decoded " + decoded + " instead of " + text);
+    }
+    measure(format, "decodeRow", decodeRow);
+    measure(format, "missRow", new DecodeStage() {
+      @Override
+      public Object run() {
+        try {
+          reader.decodeRow(0, missRow, hints);
+          throw new IllegalStateException("decoded a barcode in the background");
+        } catch (NotFoundException nfe) {
+          return missRow;
+        } catch (ReaderException re) {
+          return re;
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs a stage until it settles, then as often as it can for {@link #MEASURE_NANOS}, and prints
+   * how fast it ran and how much it allocated.
+   */
+  private static void measure(BarcodeFormat format,
+                              String name,
+                              DecodeStage stage) throws ReaderException {
+    long threadId = Thread.currentThread().getId();
+    long start = System.nanoTime();
+    while (System.nanoTime() - start < WARM_UP_NANOS) {
+      sink = stage.run();
+    }
+    long operations = 0;
+    long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+    start = System.nanoTime();
+    long elapsed;
+    do {
+      sink = stage.run();
+      operations++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < MEASURE_NANOS);
+    long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+    double seconds = elapsed / 1.0e9;
+    System.out.println(String.format(Locale.ENGLISH,
+        "  %-12s %-10s %,12.0f ops/s %,10d bytes/op %,10.1f MB/s",
+        format, name, operations / seconds, bytes / operations, bytes / seconds / 1.0e6));
+  }
+
+  private static DecodeStage luminance(final byte[] yuv,
+                                       final int width,
+                                       final int height,
+                                       final int[] crop) {
+    return new DecodeStage() {
+      @Override
+      public byte[] run() {
+        return luminanceSource(yuv, width, height, crop).getMatrix();
+      }
+    };
+  }
+
+  private static DecodeStage binarize(final HybridBinarizer binarizer,
+                                      final LuminanceSource source) {
+    return new DecodeStage() {
+      @Override
+      public BitMatrix run() throws NotFoundException {
+        binarizer.reset(source);
+        return binarizer.getBlackMatrix();
+      }
+    };
+  }
+
+  private static DecodeStage detect(BarcodeFormat format,
+                                    final BitMatrix image,
+                                    final BinaryBitmap bitmap) {
+    switch (format) {
+      case QR_CODE:
+        return new DecodeStage() {
+          private RunLengthMatrix runs;
+          @Override
+          public DetectorResult run() throws ReaderException {
+            runs = new RunLengthMatrix(image, runs);
+            return new com.google.zxing.qrcode.detector.Detector(image, runs).detect();
+          }
+        };
+      case DATA_MATRIX:
+        return new DecodeStage() {
+          @Override
+          public DetectorResult run() throws NotFoundException {
+            return new com.google.zxing.datamatrix.detector.Detector(image).detect();
+          }
+        };
+      case PDF_417:
+        return new DecodeStage() {
+          @Override
+          public DetectorResult run() throws NotFoundException {
+            return new com.google.zxing.pdf417.detector.Detector(bitmap).detect();
+          }
+        };
+      case AZTEC:
+        return new DecodeStage() {
+          @Override
+          public DetectorResult run() throws NotFoundException {
+            return new com.google.zxing.aztec.detector.Detector(image).detect();
+          }
+        };
+      default:
+        throw new IllegalArgumentException(format.toString());
+    }
+  }
+
+  /**
+   * @param corners top left, top right, bottom right and bottom left corners of the grid
+   */
+  private static DecodeStage sample(final BitMatrix image,
+                                    final int dimensionX,
+                                    final int dimensionY,
+                                    final ResultPoint[] corners) {
+    final GridSampler sampler = GridSampler.getInstance();
+    return new DecodeStage() {
+      @Override
+      public BitMatrix run() throws NotFoundException {
+        return sampler.sampleGrid(image, dimensionX, dimensionY,
+            0.0f, 0.0f, dimensionX, 0.0f, dimensionX, dimensionY, 0.0f, dimensionY,
+            corners[0].getX(), corners[0].getY(), corners[1].getX(), corners[1].getY(),
+            corners[2].getX(), corners[2].getY(), corners[3].getX(), corners[3].getY());
+      }
+    };
+  }
+
+  private static DecodeStage row(final Binarizer binarizer, final int rowNumber) {
+    return new DecodeStage() {
+      private BitArray row;
+      @Override
+      public BitArray run() throws NotFoundException {
+        row = binarizer.getBlackRow(rowNumber, row);
+        return row;
+      }
+    };
+  }
+
+  private static DecodeStage decodeRow(final MultiFormatOneDReader reader,
+                                       final int rowNumber,
+                                       final BitArray row,
+                                       final Map<DecodeHintType,?> hints) {
+    return new DecodeStage() {
+      @Override
+      public Result run() throws ReaderException {
+        try {
+          return reader.decodeRow(rowNumber, row, hints);
+        } catch (NotFoundException nfe) {
+          // Then backwards, as OneDReader tries each row
+          row.reverse();
+          try {
+            return reader.decodeRow(rowNumber, row, hints);
+          } finally {
+            row.reverse();
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * @return left, top, width and height of the framing rectangle in a frame
+   */
+  private static int[] framingRect(int width, int height) {
+    int cropWidth = width * 3 / 4;
+    int cropHeight = height * 3 / 4;
+    return new int[] {(width - cropWidth) / 2, (height - cropHeight) / 2, cropWidth, cropHeight};
+  }
+
+  private static PlanarYUVLuminanceSource luminanceSource(byte[] yuv,
+                                                          int width,
+                                                          int height,
+                                                          int[] crop) {
+    return new PlanarYUVLuminanceSource(yuv, width, height, crop[0], crop[1], crop[2], crop[3],
+        false);
+  }
+
+  /**
+   * @return a writer's symbol without the quiet zone around it
+   */
+  private static BitMatrix trim(BitMatrix symbol) {
+    int[] topLeft = symbol.getTopLeftOnBit();
+    int[] bottomRight = symbol.getBottomRightOnBit();
+    BitMatrix trimmed =
+        new BitMatrix(bottomRight[0] - topLeft[0] + 1, bottomRight[1] - topLeft[1] + 1);
+    for (int y = 0; y < trimmed.getHeight(); y++) {
+      for (int x = 0; x < trimmed.getWidth(); x++) {
+        if (symbol.get(topLeft[0] + x, topLeft[1] + y)) {
+          trimmed.set(x, y);
+        }
+      }
+    }
+    return trimmed;
+  }
+
+  private static BitMatrix grid(String[] rows) {
+    BitMatrix grid = new BitMatrix(rows[0].length(), rows.length);
+    for (int y = 0; y < rows.length; y++) {
+      for (int x = 0; x < rows[y].length(); x++) {
+        if (rows[y].charAt(x) == 'X') {
+          grid.set(x, y);
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * @param textured whether to give the frame a textured, noisy background, or leave it white
+   * @return an NV21 frame: the luminance plane, then the chroma plane of interleaved V and U
+   */
+  private static byte[] frame(int width, int height, long seed, boolean textured) {
+    Random random = new Random(seed);
+    byte[] yuv = new byte[width * height * 3 / 2];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double value = 230;
+        if (textured) {
+          value = 128 + 60 * Math.sin(x / 17.0) * Math.cos(y / 23.0) + random.nextGaussian() * 8;
+          if ((x / 9 + y / 13) % 7 == 0) {
+            value -= 70;
+          }
+        }
+        yuv[y * width + x] = (byte) Math.max(0, Math.min(255, (int) value));
+      }
+    }
+    for (int i = width * height; i < yuv.length; i++) {
+      yuv[i] = (byte) (128 + random.nextInt(16) - 8);
+    }
+    return yuv;
+  }
+
+  /**
+   * Draws a symbol into the luminance plane of a frame, with a white quiet zone around it.
+   *
+   * @param quietZoneX pixels of white left and right of the symbol
+   * @param quietZoneY pixels of white above and below the symbol
+   * @param hexagonal whether odd rows of modules are half a module to the right, as in MaxiCode
+   */
+  private static void draw(byte[] yuv,
+                           int width,
+                           BitMatrix symbol,
+                           int scale,
+                           int quietZoneX,
+                           int quietZoneY,
+                           int left,
+                           int top,
+                           boolean hexagonal) {
+    int symbolWidth = symbol.getWidth() * scale;
+    int symbolHeight = symbol.getHeight() * scale;
+    for (int y = -quietZoneY; y < symbolHeight + quietZoneY; y++) {
+      for (int x = -quietZoneX; x < symbolWidth + quietZoneX; x++) {
+        boolean black = false;
+        if (x >= 0 && y >= 0 && x < symbolWidth && y < symbolHeight) {
+          int moduleY = y / scale;
+          int moduleX = x - (hexagonal && (moduleY & 0x01) != 0 ? scale / 2 : 0);
+          black = moduleX >= 0 && symbol.get(moduleX / scale, moduleY);
+        }
+        yuv[(top + y) * width + left + x] = (byte) (black ? 20 : 230);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p>Compares decoding QR Codes with and without {@link DecodeHintType#PYRAMID_DETECTION}, the
+ * way a continuous scan does: the same preview frame over and over, with the reader and the
+ * binarizer kept from frame to frame. Frames are 640x480 and 1280x720, cropped to the framing
+ * rectangle as {@code CameraManager} makes it: 3/4 of the frame in each direction, but at most
+ * {@link #MAX_FRAME_SIZE} pixels. They hold no symbol, a small QR Code of 3 pixels per module, or
+ * a large one that fills 7/10 of the height of the framing rectangle. For each it reports the time
+ * and the bytes allocated per frame, and whether the symbol was decoded.</p>
+ *
+ * <p>It fails, exiting with status 1, if the pyramid loses a symbol that the full resolution
+ * search decodes, or decodes anything in a frame without a symbol.</p>
+ *
+ * <p>This is not part of the library and is not built with it: it reads per-thread allocation
+ * counts from {@code com.sun.management.ThreadMXBean}, which only desktop JVMs have. From
+ * src/android/LibraryProject, compile it with the core sources, which are those outside
+ * com/google/zxing/client/android apart from FakeR.java, and run it:</p>
+ *
+ * <pre>
+ * mkdir -p /tmp/zxing
+ * find src -name '*.java' ! -path '*client/android*' ! -name FakeR.java &gt; /tmp/zxing/sources
+ * javac -encoding UTF-8 -d /tmp/zxing @/tmp/zxing/sources \
+ *     benchmark/com/google/zxing/PyramidDetectionBenchmark.java
+ * java -cp /tmp/zxing com.google.zxing.PyramidDetectionBenchmark
+ * </pre>
+ */
+public final class PyramidDetectionBenchmark {
+
+  private static final int[][] FRAME_SIZES = { {640, 480}, {1280, 720} };
+  // Frames decoded before measuring, so that scratch space has been sized and the JIT has settled
+  private static final int WARM_UP_FRAMES = 200;
+  // Both readers are measured in turns, so that neither gets a quieter stretch of the run
+  private static final int ROUNDS = 5;
+  private static final int FRAMES_PER_ROUND = 200;
+  private static final int SMALL_SCALE = 3;
+  // Largest framing rectangle, on either side
+  private static final int MAX_FRAME_SIZE = 600;
+
+  private static final String TEXT = "https://example.com/x?id=1234";
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private PyramidDetectionBenchmark() {
+  }
+
+  public static void main(String[] args) throws WriterException {
+    BitMatrix qrCode = new MultiFormatWriter().encode(TEXT, BarcodeFormat.QR_CODE, 0, 0);
+    Collection<String> failures = new ArrayList<String>();
+    for (int[] size : FRAME_SIZES) {
+      int width = size[0];
+      int height = size[1];
+      int cropWidth = Math.min(width * 3 / 4, MAX_FRAME_SIZE);
+      int cropHeight = Math.min(height * 3 / 4, MAX_FRAME_SIZE);
+      int largeScale = cropHeight * 7 / 10 / qrCode.getHeight();
+      benchmark(width + "x" + height + " none", frame(width, height, null, 0), width, height,
+          cropWidth, cropHeight, false, failures);
+      benchmark(width + "x" + height + " small", frame(width, height, qrCode, SMALL_SCALE), width,
+          height, cropWidth, cropHeight, true, failures);
+      benchmark(width + "x" + height + " large", frame(width, height, qrCode, largeScale), width,
+          height, cropWidth, cropHeight, true, failures);
+    }
+    if (!failures.isEmpty()) {
+      for (String failure : failures) {
+        System.err.println("FAILED: " + failure);
+      }
+      System.exit(1);
+    }
+  }
+
+  private static void benchmark(String name,
+                                byte[] frame,
+                                int width,
+                                int height,
+                                int cropWidth,
+                                int cropHeight,
+                                boolean hasSymbol,
+                                Collection<String> failures) {
+    LuminanceSource source = new PlanarYUVLuminanceSource(frame, width, height,
+        (width - cropWidth) / 2, (height - cropHeight) / 2, cropWidth, cropHeight, false);
+    MultiFormatReader[] readers = { reader(false), reader(true) };
+    HybridBinarizer[] binarizers = { new HybridBinarizer(source), new HybridBinarizer(source) };
+    String[] texts = new String[2];
+    long[] nanos = new long[2];
+    long[] bytes = new long[2];
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < readers.length; i++) {
+      for (int frames = 0; frames < WARM_UP_FRAMES; frames++) {
+        texts[i] = decode(readers[i], binarizers[i], source);
+      }
+    }
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int i = 0; i < readers.length; i++) {
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int frames = 0; frames < FRAMES_PER_ROUND; frames++) {
+          decode(readers[i], binarizers[i], source);
+        }
+        nanos[i] += System.nanoTime() - start;
+        bytes[i] += THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+      }
+    }
+    int frames = ROUNDS * FRAMES_PER_ROUND;
+    System.out.println(String.format(Locale.ENGLISH,
+        "%-15s full %6.2f ms %,8d bytes/frame %-5s pyramid %6.2f ms %,8d bytes/frame %s",
+        name, nanos[0] / 1.0e6 / frames, bytes[0] / frames, texts[0] != null,
+        nanos[1] / 1.0e6 / frames, bytes[1] / frames, texts[1] != null));
+    if (!hasSymbol && (texts[0] != null || texts[1] != null)) {
+      failures.add(name + " decoded " + (texts[0] != null ? texts[0] : texts[1]));
+    }
+    if (hasSymbol && texts[0] != null && !TEXT.equals(texts[1])) {
+      failures.add(name + " decoded " + texts[1] + " on the pyramid instead of " + texts[0]);
+    }
+  }
+
+  private static MultiFormatReader reader(boolean pyramid) {
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(BarcodeFormat.QR_CODE));
+    if (pyramid) {
+      hints.put(DecodeHintType.PYRAMID_DETECTION, Boolean.TRUE);
+    }
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(hints);
+    return reader;
+  }
+
+  private static String decode(MultiFormatReader reader,
+                               HybridBinarizer binarizer,
+                               LuminanceSource source) {
+    binarizer.reset(source);
+    try {
+      return reader.decodeWithState(new BinaryBitmap(binarizer)).getText();
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      reader.reset();
+    }
+  }
+
+  /**
+   * @param code symbol to draw in the middle of the frame, with a quiet zone, or null
+   * @param scale pixels per module
+   * @return luminance of a frame with a textured, noisy background
+   */
+  private static byte[] frame(int width, int height, BitMatrix code, int scale) {
+    Random random = new Random(1L);
+    byte[] luminance = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double value = 128 + 60 * Math.sin(x / 17.0) * Math.cos(y / 23.0) +
+            random.nextGaussian() * 8;
+        if ((x / 9 + y / 13) % 7 == 0) {
+          value -= 70;
+        }
+        luminance[y * width + x] = (byte) Math.max(0, Math.min(255, (int) value));
+      }
+    }
+    if (code != null) {
+      int quietZone = 20;
+      int codeWidth = code.getWidth() * scale;
+      int codeHeight = code.getHeight() * scale;
+      int left = (width - codeWidth) / 2;
+      int top = (height - codeHeight) / 2;
+      for (int y = -quietZone; y < codeHeight + quietZone; y++) {
+        for (int x = -quietZone; x < codeWidth + quietZone; x++) {
+          boolean black = x >= 0 && y >= 0 && x < codeWidth && y < codeHeight &&
+              code.get(x / scale, y / scale);
+          luminance[(top + y) * width + left + x] = (byte) (black ? 20 : 230);
+        }
+      }
+    }
+    return luminance;
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.aztec.decoder;
+
+import com.google.zxing.DecodeStage;
+import com.google.zxing.FormatException;
+import com.google.zxing.aztec.AztecDetectorResult;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+
+import java.util.Arrays;
+
+/**
+ * The error correction and parsing stages of {@link Decoder}, each on its own, for an Aztec code
+ * as its detector sampled it. Error correction here includes packing the bits read from the
+ * symbol into codewords and unpacking the corrected ones, which the decoder does in one step.
+ */
+public final class AztecStages {
+
+  // Bits apart that are made wrong, so that no two fall in the same codeword
+  private static final int ERROR_SPACING = 29;
+
+  private final Decoder decoder = new Decoder();
+  private final boolean[] rawbits;
+  private final boolean[] correctedBits;
+
+  public AztecStages(AztecDetectorResult detectorResult) throws FormatException {
+    // The decoder keeps what it learns about the symbol for the stages that follow
+    decoder.decode(detectorResult);
+    BitMatrix matrix = detectorResult.getBits();
+    if (!detectorResult.isCompact()) {
+      matrix = Decoder.removeDashedLines(matrix);
+    }
+    rawbits = decoder.extractBits(matrix);
+    correctedBits = decoder.correctBits(rawbits);
+  }
+
+  /**
+   * @param errors number of codewords to make wrong
+   */
+  public DecodeStage reedSolomon(final int errors) {
+    final boolean[] received = new boolean[rawbits.length];
+    return new DecodeStage() {
+      @Override
+      public boolean[] run() throws FormatException {
+        System.arraycopy(rawbits, 0, received, 0, rawbits.length);
+        for (int j = 0; j < errors; j++) {
+          int i = received.length - 1 - ERROR_SPACING * j;
+          received[i] = !received[i];
+        }
+        boolean[] corrected = decoder.correctBits(received);
+        if (!Arrays.equals(corrected, correctedBits)) {
+          throw FormatException.getFormatInstance();
+        }
+        return corrected;
+      }
+    };
+  }
+
+  public DecodeStage parse() {
+    return new DecodeStage() {
+      @Override
+      public DecoderResult run() throws FormatException {
+        return new DecoderResult(null, decoder.getEncodedData(correctedBits), null, null);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common.reedsolomon;
+
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeStage;
+
+/**
+ * Corrects the Reed-Solomon blocks of a symbol with {@link InPlaceReedSolomonDecoder}, the way the
+ * QR Code, Data Matrix and MaxiCode decoders do. Each run starts from the codewords read from the
+ * symbol, makes some of them wrong in every block, and checks that they are all put right.
+ */
+public final class ReedSolomonStage implements DecodeStage {
+
+  private final InPlaceReedSolomonDecoder rsDecoder;
+  private final int[][] blocks;
+  private final int[] numECCodewords;
+  private final int errors;
+  // Reused from run to run, rather than allocated for each
+  private final int[][] received;
+
+  /**
+   * @param field field the symbol's codewords are in
+   * @param blocks data and error-correction codewords of each block, as read from the symbol
+   * @param numECCodewords number of error-correction codewords in each block
+   * @param errors number of codewords to make wrong in each block
+   */
+  public ReedSolomonStage(GenericGF field, int[][] blocks, int[] numECCodewords, int errors) {
+    rsDecoder = new InPlaceReedSolomonDecoder(field);
+    this.blocks = blocks;
+    this.numECCodewords = numECCodewords;
+    this.errors = errors;
+    received = new int[blocks.length][];
+    for (int i = 0; i < blocks.length; i++) {
+      received[i] = new int[blocks[i].length];
+    }
+  }
+
+  @Override
+  public Object run() throws ChecksumException {
+    for (int i = 0; i < blocks.length; i++) {
+      int[] block = blocks[i];
+      int[] codewords = received[i];
+      System.arraycopy(block, 0, codewords, 0, block.length);
+      for (int j = 0; j < errors; j++) {
+        codewords[(1 + 7 * j) % codewords.length] ^= 1;
+      }
+      try {
+        rsDecoder.decode(codewords, numECCodewords[i]);
+      } catch (ReedSolomonException rse) {
+        throw ChecksumException.getChecksumInstance();
+      }
+      for (int j = 0; j < block.length; j++) {
+        if (codewords[j] != block[j]) {
+          throw ChecksumException.getChecksumInstance();
+        }
+      }
+    }
+    return received;
+  }
+
+}
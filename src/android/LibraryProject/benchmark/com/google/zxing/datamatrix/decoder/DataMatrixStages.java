@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.datamatrix.decoder;
+
+import com.google.zxing.DecodeStage;
+import com.google.zxing.FormatException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.reedsolomon.GenericGF;
+import com.google.zxing.common.reedsolomon.ReedSolomonStage;
+
+/**
+ * The error correction and parsing stages of {@link Decoder}, each on its own, for a Data Matrix
+ * sampled to one bit per module.
+ */
+public final class DataMatrixStages {
+
+  private final int[][] blocks;
+  private final int[] numECCodewords;
+  private final byte[] resultBytes;
+
+  public DataMatrixStages(BitMatrix bits) throws FormatException {
+    BitMatrixParser parser = new BitMatrixParser(bits);
+    DataBlock[] dataBlocks = DataBlock.getDataBlocks(parser.readCodewords(), parser.getVersion());
+    int dataBlocksCount = dataBlocks.length;
+    blocks = new int[dataBlocksCount][];
+    numECCodewords = new int[dataBlocksCount];
+    int totalBytes = 0;
+    for (DataBlock dataBlock : dataBlocks) {
+      totalBytes += dataBlock.getNumDataCodewords();
+    }
+    resultBytes = new byte[totalBytes];
+    for (int j = 0; j < dataBlocksCount; j++) {
+      byte[] codewordBytes = dataBlocks[j].getCodewords();
+      int numDataCodewords = dataBlocks[j].getNumDataCodewords();
+      blocks[j] = new int[codewordBytes.length];
+      for (int i = 0; i < codewordBytes.length; i++) {
+        blocks[j][i] = codewordBytes[i] & 0xFF;
+      }
+      numECCodewords[j] = codewordBytes.length - numDataCodewords;
+      // The symbol is read without errors, so its data codewords are already right
+      for (int i = 0; i < numDataCodewords; i++) {
+        resultBytes[i * dataBlocksCount + j] = codewordBytes[i];
+      }
+    }
+  }
+
+  /**
+   * @param errors number of codewords to make wrong in each block
+   */
+  public DecodeStage reedSolomon(int errors) {
+    return new ReedSolomonStage(GenericGF.DATA_MATRIX_FIELD_256, blocks, numECCodewords, errors);
+  }
+
+  public DecodeStage parse() {
+    return new DecodeStage() {
+      @Override
+      public DecoderResult run() throws FormatException {
+        return DecodedBitStreamParser.decode(resultBytes);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.maxicode;
+
+import com.google.zxing.DecodeStage;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Samples a MaxiCode as {@link MaxiCodeReader} does. The reader only reads pure images, so this is
+ * all it does to find the symbol too.
+ */
+public final class MaxiCodeSampleStage implements DecodeStage {
+
+  private final BitMatrix image;
+
+  public MaxiCodeSampleStage(BitMatrix image) {
+    this.image = image;
+  }
+
+  @Override
+  public BitMatrix run() throws NotFoundException {
+    return MaxiCodeReader.extractPureBits(image);
+  }
+
+}
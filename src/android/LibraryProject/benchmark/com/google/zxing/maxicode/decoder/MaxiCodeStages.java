@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.maxicode.decoder;
+
+import com.google.zxing.DecodeStage;
+import com.google.zxing.FormatException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.reedsolomon.GenericGF;
+import com.google.zxing.common.reedsolomon.ReedSolomonStage;
+
+/**
+ * The error correction and parsing stages of {@link Decoder}, each on its own, for a MaxiCode
+ * sampled to one bit per module. The secondary message is corrected as the decoder does it, as
+ * two blocks of alternate codewords.
+ */
+public final class MaxiCodeStages {
+
+  private static final int PRIMARY_CODEWORDS = 20;
+  private static final int PRIMARY_DATA_CODEWORDS = 10;
+
+  private final int[][] blocks;
+  private final int[] numECCodewords;
+  private final byte[] datawords;
+  private final int mode;
+
+  public MaxiCodeStages(BitMatrix bits) throws FormatException {
+    byte[] codewords = new BitMatrixParser(bits).readCodewords();
+    mode = codewords[0] & 0x0F;
+    int secondaryData;
+    int secondaryEC;
+    switch (mode) {
+      case 2:
+      case 3:
+      case 4:
+        secondaryData = 84;
+        secondaryEC = 40;
+        break;
+      case 5:
+        secondaryData = 68;
+        secondaryEC = 56;
+        break;
+      default:
+        throw FormatException.getFormatInstance();
+    }
+    int half = (secondaryData + secondaryEC) / 2;
+    blocks = new int[][] { new int[PRIMARY_CODEWORDS], new int[half], new int[half] };
+    numECCodewords =
+        new int[] { PRIMARY_CODEWORDS - PRIMARY_DATA_CODEWORDS, secondaryEC / 2, secondaryEC / 2 };
+    for (int i = 0; i < PRIMARY_CODEWORDS; i++) {
+      blocks[0][i] = codewords[i] & 0xFF;
+    }
+    for (int i = 0; i < 2 * half; i++) {
+      blocks[1 + i % 2][i / 2] = codewords[PRIMARY_CODEWORDS + i] & 0xFF;
+    }
+    // The symbol is read without errors, so its data codewords are already right
+    datawords = new byte[PRIMARY_DATA_CODEWORDS + secondaryData];
+    System.arraycopy(codewords, 0, datawords, 0, PRIMARY_DATA_CODEWORDS);
+    System.arraycopy(codewords, PRIMARY_CODEWORDS, datawords, PRIMARY_DATA_CODEWORDS,
+        secondaryData);
+  }
+
+  /**
+   * @param errors number of codewords to make wrong in each block
+   */
+  public DecodeStage reedSolomon(int errors) {
+    return new ReedSolomonStage(GenericGF.MAXICODE_FIELD_64, blocks, numECCodewords, errors);
+  }
+
+  public DecodeStage parse() {
+    return new DecodeStage() {
+      @Override
+      public DecoderResult run() {
+        return DecodedBitStreamParser.decode(datawords, mode);
+      }
+    };
+  }
+
+}
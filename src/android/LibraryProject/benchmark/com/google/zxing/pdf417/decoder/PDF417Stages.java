@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.pdf417.decoder;
+
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeStage;
+import com.google.zxing.FormatException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.pdf417.decoder.ec.ErrorCorrection;
+
+/**
+ * The error correction and parsing stages of {@link Decoder}, each on its own, for a PDF417
+ * sampled the way its detector samples it.
+ */
+public final class PDF417Stages {
+
+  // PDF417 codewords are numbers modulo 929
+  private static final int NUMBER_OF_CODEWORDS = 929;
+
+  private final int[] codewords;
+  private final int numECCodewords;
+  private final int[] erasures;
+
+  public PDF417Stages(BitMatrix bits) throws FormatException {
+    BitMatrixParser parser = new BitMatrixParser(bits);
+    codewords = parser.readCodewords();
+    numECCodewords = 1 << (parser.getECLevel() + 1);
+    erasures = parser.getErasures();
+  }
+
+  /**
+   * @param errors number of codewords to make wrong
+   */
+  public DecodeStage reedSolomon(final int errors) {
+    final ErrorCorrection errorCorrection = new ErrorCorrection();
+    final int[] received = new int[codewords.length];
+    return new DecodeStage() {
+      @Override
+      public int[] run() throws ChecksumException {
+        System.arraycopy(codewords, 0, received, 0, codewords.length);
+        for (int j = 0; j < errors; j++) {
+          int i = (1 + 7 * j) % received.length;
+          received[i] = (received[i] + 1) % NUMBER_OF_CODEWORDS;
+        }
+        errorCorrection.decode(received, numECCodewords, erasures);
+        for (int i = 0; i < codewords.length; i++) {
+          if (received[i] != codewords[i]) {
+            throw ChecksumException.getChecksumInstance();
+          }
+        }
+        return received;
+      }
+    };
+  }
+
+  public DecodeStage parse() {
+    return new DecodeStage() {
+      @Override
+      public DecoderResult run() throws FormatException {
+        return DecodedBitStreamParser.decode(codewords);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode.decoder;
+
+import com.google.zxing.DecodeStage;
+import com.google.zxing.FormatException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.reedsolomon.GenericGF;
+import com.google.zxing.common.reedsolomon.ReedSolomonStage;
+
+/**
+ * The error correction and parsing stages of {@link Decoder}, each on its own, for a QR Code
+ * sampled to one bit per module.
+ */
+public final class QRCodeStages {
+
+  private final Version version;
+  private final ErrorCorrectionLevel ecLevel;
+  private final int[][] blocks;
+  private final int[] numECCodewords;
+  private final byte[] resultBytes;
+
+  public QRCodeStages(BitMatrix bits) throws FormatException {
+    BitMatrixParser parser = new BitMatrixParser(bits);
+    version = parser.readVersion();
+    ecLevel = parser.readFormatInformation().getErrorCorrectionLevel();
+    DataBlock[] dataBlocks = DataBlock.getDataBlocks(parser.readCodewords(), version, ecLevel);
+    blocks = new int[dataBlocks.length][];
+    numECCodewords = new int[dataBlocks.length];
+    int totalBytes = 0;
+    for (DataBlock dataBlock : dataBlocks) {
+      totalBytes += dataBlock.getNumDataCodewords();
+    }
+    resultBytes = new byte[totalBytes];
+    int resultOffset = 0;
+    for (int i = 0; i < dataBlocks.length; i++) {
+      byte[] codewordBytes = dataBlocks[i].getCodewords();
+      int numDataCodewords = dataBlocks[i].getNumDataCodewords();
+      blocks[i] = new int[codewordBytes.length];
+      for (int j = 0; j < codewordBytes.length; j++) {
+        blocks[i][j] = codewordBytes[j] & 0xFF;
+      }
+      numECCodewords[i] = codewordBytes.length - numDataCodewords;
+      // The symbol is read without errors, so its data codewords are already right
+      System.arraycopy(codewordBytes, 0, resultBytes, resultOffset, numDataCodewords);
+      resultOffset += numDataCodewords;
+    }
+  }
+
+  /**
+   * @param errors number of codewords to make wrong in each block
+   */
+  public DecodeStage reedSolomon(int errors) {
+    return new ReedSolomonStage(GenericGF.QR_CODE_FIELD_256, blocks, numECCodewords, errors);
+  }
+
+  public DecodeStage parse() {
+    return new DecodeStage() {
+      @Override
+      public DecoderResult run() throws FormatException {
+        return DecodedBitStreamParser.decode(resultBytes, version, ecLevel, null);
+      }
+    };
+  }
+
+}
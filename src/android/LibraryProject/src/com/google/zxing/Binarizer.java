@@ -29,7 +29,7 @@ import com.google.zxing.common.BitMatrix;
  */
 public abstract class Binarizer {
 
-  private final LuminanceSource source;
+  private LuminanceSource source;
 
   protected Binarizer(LuminanceSource source) {
     this.source = source;
@@ -39,6 +39,16 @@ public abstract class Binarizer {
     return source;
   }
 
+  /**
+   * Points this Binarizer at new luminance data. Only subclasses which know how to discard their
+   * cached 1 bit data should call this; everyone else should use createBinarizer().
+   *
+   * @param source The LuminanceSource this Binarizer will operate on from now on.
+   */
+  protected final void setLuminanceSource(LuminanceSource source) {
+    this.source = source;
+  }
+
   /**
    * Converts one row of luminance data to 1 bit data. May actually do the conversion, or return
    * cached data. Callers should assume this method is expensive and call it as seldom as possible.
@@ -18,6 +18,8 @@ package com.google.zxing;
 
 import com.google.zxing.common.BitArray;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.RunLengthMatrix;
 
 /**
  * This class is the core bitmap class used by ZXing to represent 1 bit data. Reader objects
@@ -27,14 +29,32 @@ import com.google.zxing.common.BitMatrix;
  */
 public final class BinaryBitmap {
 
+  private static final Object RUN_LENGTH_OWNER_KEY = new Object();
+  private static final Object RUN_LENGTH_MATRIX_KEY = new Object();
+  private static final Object ROTATED_BINARIZER_KEY = new Object();
+
   private final Binarizer binarizer;
+  private final boolean rowsFromMatrix;
   private BitMatrix matrix;
+  private RunLengthMatrix runLengthMatrix;
 
   public BinaryBitmap(Binarizer binarizer) {
+    this(binarizer, false);
+  }
+
+  /**
+   * @param binarizer The Binarizer to convert luminance data with.
+   * @param rowsFromMatrix If true, {@link #getBlackRow(int, BitArray)} returns rows of the black
+   *  matrix instead of asking the Binarizer for a separately thresholded row. When 1D and 2D
+   *  readers both look at the image, it is then binarized only once. Crops keep this mode;
+   *  rotations do not, as only 1D readers look at them, a row at a time.
+   */
+  public BinaryBitmap(Binarizer binarizer, boolean rowsFromMatrix) {
     if (binarizer == null) {
       throw new IllegalArgumentException("Binarizer must be non-null.");
     }
     this.binarizer = binarizer;
+    this.rowsFromMatrix = rowsFromMatrix;
   }
 
   /**
@@ -51,6 +71,13 @@ public final class BinaryBitmap {
     return binarizer.getHeight();
   }
 
+  /**
+   * @return The luminance data this bitmap is binarized from.
+   */
+  public LuminanceSource getLuminanceSource() {
+    return binarizer.getLuminanceSource();
+  }
+
   /**
    * Converts one row of luminance data to 1 bit data. May actually do the conversion, or return
    * cached data. Callers should assume this method is expensive and call it as seldom as possible.
@@ -62,6 +89,14 @@ public final class BinaryBitmap {
    * @return The array of bits for this row (true means black).
    */
   public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+    if (rowsFromMatrix) {
+      BitMatrix blackMatrix = getBlackMatrix();
+      // The matrix copies whole words, so bits past the width of a larger row must be cleared.
+      if (row != null && row.getSize() > blackMatrix.getWidth()) {
+        row.clear();
+      }
+      return blackMatrix.getRow(y, row);
+    }
     return binarizer.getBlackRow(y, row);
   }
 
@@ -85,6 +120,61 @@ public final class BinaryBitmap {
     return matrix;
   }
 
+  /**
+   * Returns the black matrix as runs of black and white pixels along each row and column, which
+   * is how finder pattern detectors look at it. Like the matrix, it is built on first use and
+   * shared by all readers.
+   *
+   * @return The run-length view of {@link #getBlackMatrix()}.
+   */
+  public synchronized RunLengthMatrix getRunLengthMatrix() throws NotFoundException {
+    if (runLengthMatrix == null) {
+      runLengthMatrix = new RunLengthMatrix(getBlackMatrix());
+    }
+    return runLengthMatrix;
+  }
+
+  /**
+   * Like {@link #getRunLengthMatrix()}, but if the matrix has to be built, builds it in the arrays
+   * of the one last built with the same context, for another image. That image gives up its
+   * matrix, and builds it again if it is ever asked for it.
+   *
+   * @param context scratch space of the thread decoding this image
+   * @return The run-length view of {@link #getBlackMatrix()}.
+   */
+  public RunLengthMatrix getRunLengthMatrix(DecodeContext context) throws NotFoundException {
+    synchronized (this) {
+      if (runLengthMatrix != null) {
+        return runLengthMatrix;
+      }
+    }
+    // Taken from the other image before locking this one, so that no thread holds both locks
+    RunLengthMatrix recycled = (RunLengthMatrix) context.get(RUN_LENGTH_MATRIX_KEY);
+    BinaryBitmap owner = (BinaryBitmap) context.get(RUN_LENGTH_OWNER_KEY);
+    if (recycled != null && (owner == this || !owner.releaseRunLengthMatrix(recycled))) {
+      recycled = null;
+    }
+    synchronized (this) {
+      if (runLengthMatrix == null) {
+        runLengthMatrix = new RunLengthMatrix(getBlackMatrix(), recycled);
+        context.put(RUN_LENGTH_MATRIX_KEY, runLengthMatrix);
+        context.put(RUN_LENGTH_OWNER_KEY, this);
+      }
+      return runLengthMatrix;
+    }
+  }
+
+  /**
+   * @return true if this bitmap's matrix was the given one, and has been dropped
+   */
+  private synchronized boolean releaseRunLengthMatrix(RunLengthMatrix expected) {
+    if (runLengthMatrix != expected) {
+      return false;
+    }
+    runLengthMatrix = null;
+    return true;
+  }
+
   /**
    * @return Whether this bitmap can be cropped.
    */
@@ -104,7 +194,7 @@ public final class BinaryBitmap {
    */
   public BinaryBitmap crop(int left, int top, int width, int height) {
     LuminanceSource newSource = binarizer.getLuminanceSource().crop(left, top, width, height);
-    return new BinaryBitmap(binarizer.createBinarizer(newSource));
+    return new BinaryBitmap(binarizer.createBinarizer(newSource), rowsFromMatrix);
   }
 
   /**
@@ -125,6 +215,30 @@ public final class BinaryBitmap {
     return new BinaryBitmap(binarizer.createBinarizer(newSource));
   }
 
+  /**
+   * Like {@link #rotateCounterClockwise()}, but if this bitmap is binarized by a
+   * {@link HybridBinarizer}, the rotated one is binarized by the one kept in the context, which is
+   * reset for it. The bitmap last rotated with the same context must no longer be in use.
+   *
+   * @param context scratch space of the thread decoding this image
+   * @return A rotated version of this object.
+   */
+  public BinaryBitmap rotateCounterClockwise(DecodeContext context) {
+    if (!(binarizer instanceof HybridBinarizer)) {
+      return rotateCounterClockwise();
+    }
+    LuminanceSource newSource = binarizer.getLuminanceSource().rotateCounterClockwise();
+    HybridBinarizer rotatedBinarizer = (HybridBinarizer) context.get(ROTATED_BINARIZER_KEY);
+    if (rotatedBinarizer == null) {
+      rotatedBinarizer = new HybridBinarizer(newSource);
+      context.put(ROTATED_BINARIZER_KEY, rotatedBinarizer);
+    } else {
+      rotatedBinarizer.reset(newSource);
+    }
+    // Rows of a rotated source are read lazily; a black matrix would read the whole of it.
+    return new BinaryBitmap(rotatedBinarizer);
+  }
+
   /**
    * Returns a new object with rotated image data by 45 degrees counterclockwise.
    * Only callable if {@link #isRotateSupported()} is true.
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Scratch space which readers reuse from one image to the next, rather than allocating it for
+ * every image. A continuous scan decodes frame after frame, most of them holding no barcode, and
+ * the buffers allocated for each would otherwise keep the garbage collector busy.
+ *
+ * {@link MultiFormatReader} keeps one and passes it to {@link TryDecodeReader}s. Each user of the
+ * context keeps its scratch under a key of its own, typically a private static final Object, and
+ * sizes it on demand.
+ *
+ * A context belongs to one thread at a time. Anything a reader takes from it, and anything built
+ * in its buffers, is only valid until the next image is decoded with the same context.
+ */
+public final class DecodeContext {
+
+  private final Map<Object,Object> scratch;
+
+  public DecodeContext() {
+    scratch = new IdentityHashMap<Object,Object>();
+  }
+
+  /**
+   * @param key the key scratch was stored under, compared by identity
+   * @return the scratch stored under key, or null if there is none
+   */
+  public Object get(Object key) {
+    return scratch.get(key);
+  }
+
+  /**
+   * @param key key to store scratch under, compared by identity
+   * @param value scratch to keep for later images
+   */
+  public void put(Object key, Object value) {
+    scratch.put(key, value);
+  }
+
+  /**
+   * @param key the key of the array
+   * @param size size the array must have
+   * @return the array stored under key, cleared, or a new one if there is none of that size
+   */
+  public BitArray getBitArray(Object key, int size) {
+    BitArray array = (BitArray) scratch.get(key);
+    if (array == null || array.getSize() != size) {
+      array = new BitArray(size);
+      scratch.put(key, array);
+    } else {
+      array.clear();
+    }
+    return array;
+  }
+
+}
@@ -71,4 +71,39 @@ public enum DecodeHintType {
    */
   NEED_RESULT_POINT_CALLBACK,
 
+  /**
+   * Look for QR Codes on a downsampled copy of the image first, and only search the full
+   * resolution image if none is found there. Faster for symbols which fill much of the image.
+   * A reader which finds nothing on the downsampled copy skips it for the next few images.
+   * Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  PYRAMID_DETECTION,
+
+  /**
+   * When 1D readers find nothing on the rows of the image, also try scanlines at these angles, in
+   * degrees counterclockwise from left to right, sampled from the image without rotating it. For a
+   * barcode held at an angle; every 15 degrees from 15 to 165 covers all angles, as each scanline
+   * is read both ways. Maps to an int[].
+   */
+  SCANLINE_ANGLES,
+
+  /**
+   * The most scanlines at {@link #SCANLINE_ANGLES} to try per image, across all the angles.
+   * Maps to an {@link Integer}.
+   */
+  SCANLINE_BUDGET,
+
+  /**
+   * Accept a 1D barcode only once this many rows, or scanlines, have decoded to the same text, to
+   * guard against misreads. Maps to an {@link Integer}.
+   */
+  ROWS_TO_AGREE,
+
+  /**
+   * When a row of the image fails to decode, 1D readers also try a row made by a majority vote per
+   * pixel of this many rows centered on it, spread over the gap between the rows scanned. For
+   * barcodes damaged in different places on different rows. Maps to an odd {@link Integer}.
+   */
+  ROWS_TO_VOTE,
+
 }
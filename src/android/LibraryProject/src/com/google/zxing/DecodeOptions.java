@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The hints of a {@link Reader#decode(BinaryBitmap, Map)} call, looked up once. A 1D reader
+ * consults the hints on every row it tries and a 2D reader several times per image, and each of
+ * those is a map lookup and a cast; with this object they are field reads.
+ *
+ * {@link MultiFormatReader#setHints(Map)} builds one, and {@link TryDecodeReader}s take it in place
+ * of the map. Instances are immutable: the hints are copied, and later changes to the map passed in
+ * are not seen.
+ */
+public final class DecodeOptions {
+
+  /**
+   * Options for no hints at all.
+   */
+  public static final DecodeOptions DEFAULT = new DecodeOptions(null);
+
+  private static final int ALL_FORMATS = -1;
+  private static final int DEFAULT_SCANLINE_BUDGET = 48;
+
+  private final Map<DecodeHintType,?> hints;
+  private final boolean tryHarder;
+  private final boolean pureBarcode;
+  private final boolean pyramidDetection;
+  private final int formats;
+  private final int[] allowedLengths;
+  private final String characterSet;
+  private final ResultPointCallback resultPointCallback;
+  private final int[] scanlineAngles;
+  private final int scanlineBudget;
+  private final int rowsToAgree;
+  private final int rowsToVote;
+  private final DecodeOptions withoutResultPointCallback;
+
+  /**
+   * @param hints decode hints, or null for none
+   */
+  public DecodeOptions(Map<DecodeHintType,?> hints) {
+    Map<DecodeHintType,Object> copy = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    if (hints != null) {
+      copy.putAll(hints);
+    }
+    this.hints = Collections.unmodifiableMap(copy);
+    tryHarder = copy.containsKey(DecodeHintType.TRY_HARDER);
+    pureBarcode = copy.containsKey(DecodeHintType.PURE_BARCODE);
+    pyramidDetection = copy.containsKey(DecodeHintType.PYRAMID_DETECTION);
+    @SuppressWarnings("unchecked")
+    Collection<BarcodeFormat> possibleFormats =
+        (Collection<BarcodeFormat>) copy.get(DecodeHintType.POSSIBLE_FORMATS);
+    formats = possibleFormats == null ? ALL_FORMATS : toMask(possibleFormats);
+    int[] lengths = (int[]) copy.get(DecodeHintType.ALLOWED_LENGTHS);
+    allowedLengths = lengths == null ? null : lengths.clone();
+    characterSet = (String) copy.get(DecodeHintType.CHARACTER_SET);
+    resultPointCallback = (ResultPointCallback) copy.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+    int[] angles = (int[]) copy.get(DecodeHintType.SCANLINE_ANGLES);
+    scanlineAngles = angles == null || angles.length == 0 ? null : angles.clone();
+    Integer budget = (Integer) copy.get(DecodeHintType.SCANLINE_BUDGET);
+    scanlineBudget = budget == null ? DEFAULT_SCANLINE_BUDGET : budget;
+    Integer agree = (Integer) copy.get(DecodeHintType.ROWS_TO_AGREE);
+    rowsToAgree = agree == null ? 1 : Math.max(1, agree);
+    Integer vote = (Integer) copy.get(DecodeHintType.ROWS_TO_VOTE);
+    rowsToVote = vote == null ? 1 : Math.max(1, vote);
+    if (resultPointCallback == null) {
+      withoutResultPointCallback = this;
+    } else {
+      copy.remove(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+      withoutResultPointCallback = new DecodeOptions(copy);
+    }
+  }
+
+  private static int toMask(Collection<BarcodeFormat> possibleFormats) {
+    int mask = 0;
+    for (BarcodeFormat format : possibleFormats) {
+      mask |= 1 << format.ordinal();
+    }
+    return mask;
+  }
+
+  /**
+   * @return the hints these options were built from, as an unmodifiable map; for readers and
+   *  decoders which still take a map
+   */
+  public Map<DecodeHintType,?> getHints() {
+    return hints;
+  }
+
+  /**
+   * @see DecodeHintType#TRY_HARDER
+   */
+  public boolean isTryHarder() {
+    return tryHarder;
+  }
+
+  /**
+   * @see DecodeHintType#PURE_BARCODE
+   */
+  public boolean isPureBarcode() {
+    return pureBarcode;
+  }
+
+  /**
+   * @see DecodeHintType#PYRAMID_DETECTION
+   */
+  public boolean isPyramidDetection() {
+    return pyramidDetection;
+  }
+
+  /**
+   * @return true if format is among {@link DecodeHintType#POSSIBLE_FORMATS}, or that hint is not
+   *  given
+   */
+  public boolean isPossibleFormat(BarcodeFormat format) {
+    return (formats & (1 << format.ordinal())) != 0;
+  }
+
+  /**
+   * @return {@link DecodeHintType#ALLOWED_LENGTHS}, or null; callers must not modify the array
+   */
+  public int[] getAllowedLengths() {
+    return allowedLengths;
+  }
+
+  /**
+   * @return {@link DecodeHintType#CHARACTER_SET}, or null
+   */
+  public String getCharacterSet() {
+    return characterSet;
+  }
+
+  /**
+   * @return {@link DecodeHintType#NEED_RESULT_POINT_CALLBACK}, or null
+   */
+  public ResultPointCallback getResultPointCallback() {
+    return resultPointCallback;
+  }
+
+  /**
+   * @return {@link DecodeHintType#SCANLINE_ANGLES}, or null if there are none; callers must not
+   *  modify the array
+   */
+  public int[] getScanlineAngles() {
+    return scanlineAngles;
+  }
+
+  /**
+   * @return {@link DecodeHintType#SCANLINE_BUDGET}, or 48 scanlines if that hint is not given
+   */
+  public int getScanlineBudget() {
+    return scanlineBudget;
+  }
+
+  /**
+   * @return {@link DecodeHintType#ROWS_TO_AGREE}, or 1 if that hint is not given
+   */
+  public int getRowsToAgree() {
+    return rowsToAgree;
+  }
+
+  /**
+   * @return {@link DecodeHintType#ROWS_TO_VOTE}, or 1, for no voting, if that hint is not given
+   */
+  public int getRowsToVote() {
+    return rowsToVote;
+  }
+
+  /**
+   * @return these options without the result point callback, built once up front; 1D readers use
+   *  them for reversed rows, whose points would be drawn in the wrong place
+   */
+  public DecodeOptions withoutResultPointCallback() {
+    return withoutResultPointCallback;
+  }
+
+  /**
+   * 1D readers scan rows from the middle of the image outward. We've somewhat arbitrarily decided
+   * that moving up and down by about 1/32 of the image is pretty good; when trying harder the rows
+   * are 1/256 of the image apart.
+   *
+   * @param height height of the image
+   * @return the number of rows between successive rows scanned, at least 1
+   */
+  public int getRowStep(int height) {
+    return Math.max(1, height >> (tryHarder ? 8 : 5));
+  }
+
+  /**
+   * @param height height of the image
+   * @return the most rows to scan: the whole image when trying harder, otherwise 15 rows, which
+   *  spaced 1/32 apart is roughly the middle half of the image
+   */
+  public int getMaxRows(int height) {
+    return tryHarder ? height : 15;
+  }
+
+}
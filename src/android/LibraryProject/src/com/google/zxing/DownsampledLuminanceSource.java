@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A smaller copy of another LuminanceSource, each pixel the average of a square of factor x factor
+ * pixels. It is one level of an image pyramid: a detector can find a symbol on it quickly, then go
+ * back to the full resolution image to sample it. Pixels left over at the right and bottom edges
+ * are dropped.
+ *
+ * The downsampled pixels are computed once, up front, into an array the caller may pass in again
+ * for the next frame.
+ */
+public final class DownsampledLuminanceSource extends LuminanceSource {
+
+  private final byte[] luminances;
+  private final int factor;
+
+  /**
+   * @param source The full resolution source.
+   * @param factor How many source pixels along each side make one pixel here, typically 2 or 4.
+   * @param buffer An optional preallocated array, such as {@link #getMatrix()} of the previous
+   *               frame's level. If null or too small, it will be ignored.
+   */
+  public DownsampledLuminanceSource(LuminanceSource source, int factor, byte[] buffer) {
+    super(source.getWidth() / factor, source.getHeight() / factor);
+    if (factor < 2 || getWidth() == 0 || getHeight() == 0) {
+      throw new IllegalArgumentException("Cannot downsample " + source.getWidth() + 'x' +
+          source.getHeight() + " by " + factor);
+    }
+    int width = getWidth();
+    int height = getHeight();
+    this.factor = factor;
+    luminances =
+        buffer != null && buffer.length >= width * height ? buffer : new byte[width * height];
+    downsample(source);
+  }
+
+  /**
+   * Adds up each block on its own, so there is no row of partial sums to allocate per frame. The
+   * factor source rows under a row of blocks are read together and stay in cache.
+   */
+  private void downsample(LuminanceSource source) {
+    byte[] input = source.getStridedMatrix();
+    int stride = source.getMatrixStride();
+    int width = getWidth();
+    int height = getHeight();
+    int rowStep = factor * stride;
+    int outputOffset = 0;
+    if (factor == 2) {
+      // The common case, unrolled, and divided by 4 with a shift
+      for (int y = 0, rowStart = source.getMatrixOffset(); y < height; y++, rowStart += rowStep) {
+        for (int x = 0, offset = rowStart; x < width; x++, offset += 2) {
+          int sum = (input[offset] & 0xFF) + (input[offset + 1] & 0xFF) +
+              (input[offset + stride] & 0xFF) + (input[offset + stride + 1] & 0xFF);
+          luminances[outputOffset++] = (byte) (sum >> 2);
+        }
+      }
+      return;
+    }
+    int area = factor * factor;
+    for (int y = 0, rowStart = source.getMatrixOffset(); y < height; y++, rowStart += rowStep) {
+      for (int x = 0, blockStart = rowStart; x < width; x++, blockStart += factor) {
+        int sum = 0;
+        for (int yy = 0, offset = blockStart; yy < factor; yy++, offset += stride) {
+          for (int xx = 0; xx < factor; xx++) {
+            sum += input[offset + xx] & 0xFF;
+          }
+        }
+        luminances[outputOffset++] = (byte) (sum / area);
+      }
+    }
+  }
+
+  /**
+   * @return How many source pixels along each side make one pixel here.
+   */
+  public int getFactor() {
+    return factor;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    System.arraycopy(luminances, y * width, row, 0, width);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    return luminances;
+  }
+
+}
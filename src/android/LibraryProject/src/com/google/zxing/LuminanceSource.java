@@ -59,6 +59,36 @@ public abstract class LuminanceSource {
    */
   public abstract byte[] getMatrix();
 
+  /**
+   * Like {@link #getMatrix()}, but lets a source hand out the array its luminance data already
+   * lives in, such as a camera frame it is cropped from, instead of copying its rows together
+   * first. Values should be fetched using:
+   * int luminance = array[getMatrixOffset() + y * getMatrixStride() + x] & 0xff;
+   *
+   * The default returns getMatrix(), with an offset of 0 and a stride of the width. Subclasses
+   * which override this must override {@link #getMatrixOffset()} and {@link #getMatrixStride()}
+   * to match.
+   *
+   * @return An array of luminance values. Do not modify the contents of the result.
+   */
+  public byte[] getStridedMatrix() {
+    return getMatrix();
+  }
+
+  /**
+   * @return The index of the top left pixel in {@link #getStridedMatrix()}.
+   */
+  public int getMatrixOffset() {
+    return 0;
+  }
+
+  /**
+   * @return The distance between the starts of two rows in {@link #getStridedMatrix()}.
+   */
+  public int getMatrixStride() {
+    return width;
+  }
+
   /**
    * @return The width of the bitmap.
    */
@@ -25,7 +25,14 @@ import com.google.zxing.qrcode.QRCodeReader;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * MultiFormatReader is a convenience class and the main entry point into the library for most uses.
@@ -37,8 +44,11 @@ import java.util.Map;
  */
 public final class MultiFormatReader implements Reader {
 
-  private Map<DecodeHintType,?> hints;
+  private DecodeOptions options;
   private Reader[] readers;
+  private DecodeContext context;
+  private ExecutorService executor;
+  private ReaderTask[] readerTasks;
 
   /**
    * This version of decode honors the intent of Reader.decode(BinaryBitmap) in that it
@@ -88,14 +98,16 @@ public final class MultiFormatReader implements Reader {
   /**
    * This method adds state to the MultiFormatReader. By setting the hints once, subsequent calls
    * to decodeWithState(image) can reuse the same set of readers without reallocating memory. This
-   * is important for performance in continuous scan clients.
+   * is important for performance in continuous scan clients. The hints are looked up once here,
+   * into the {@link DecodeOptions} readers are given; changing the map afterwards has no effect.
    *
    * @param hints The set of hints to use for subsequent calls to decode(image)
    */
   public void setHints(Map<DecodeHintType,?> hints) {
-    this.hints = hints;
+    options = new DecodeOptions(hints);
+    readerTasks = null;
 
-    boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
+    boolean tryHarder = options.isTryHarder();
     Collection<BarcodeFormat> formats =
         hints == null ? null : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
     Collection<Reader> readers = new ArrayList<Reader>();
@@ -154,6 +166,23 @@ public final class MultiFormatReader implements Reader {
     this.readers = readers.toArray(new Reader[readers.size()]);
   }
 
+  /**
+   * Lets decodeWithState() try all installed readers on an image at the same time, using the given
+   * executor, instead of one after another on the calling thread. The first reader in the usual
+   * order which succeeds wins, readers which have not started yet are cancelled, and result point
+   * callbacks are replayed in the same order the sequential path would have made them. The call
+   * still returns only after every reader which did start is done with the image, so the caller
+   * may reuse the image, its binarizer and this object straight away.
+   *
+   * The executor should be bounded; there is no point in giving it more threads than there are
+   * readers or processor cores.
+   *
+   * @param executor The executor to run readers on, or null to decode sequentially again.
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
   @Override
   public void reset() {
     if (readers != null) {
@@ -164,10 +193,19 @@ public final class MultiFormatReader implements Reader {
   }
 
   private Result decodeInternal(BinaryBitmap image) throws NotFoundException {
+    if (executor != null && readers != null && readers.length > 1 && prepareSharedMatrix(image)) {
+      return decodeInParallel(image);
+    }
     if (readers != null) {
+      if (context == null) {
+        context = new DecodeContext();
+      }
       for (Reader reader : readers) {
         try {
-          return reader.decode(image, hints);
+          Result result = decode(reader, image, options, context);
+          if (result != null) {
+            return result;
+          }
         } catch (ReaderException re) {
           // continue
         }
@@ -176,4 +214,190 @@ public final class MultiFormatReader implements Reader {
     throw NotFoundException.getNotFoundInstance();
   }
 
+  /**
+   * @return what the reader found, or null if it found nothing and can say so without throwing
+   */
+  private static Result decode(Reader reader,
+                               BinaryBitmap image,
+                               DecodeOptions options,
+                               DecodeContext context) throws ReaderException {
+    if (reader instanceof TryDecodeReader) {
+      return ((TryDecodeReader) reader).tryDecode(image, options, context);
+    }
+    return reader.decode(image, options.getHints());
+  }
+
+  /**
+   * 2D readers all start from the black matrix, which BinaryBitmap computes on first use. Compute
+   * it here, before any reader runs, so that readers only ever share it read-only.
+   *
+   * @return false if the matrix cannot be computed, in which case the image is decoded sequentially
+   */
+  private boolean prepareSharedMatrix(BinaryBitmap image) {
+    for (Reader reader : readers) {
+      if (!(reader instanceof MultiFormatOneDReader)) {
+        try {
+          image.getBlackMatrix();
+        } catch (NotFoundException nfe) {
+          return false;
+        }
+        break;
+      }
+    }
+    return true;
+  }
+
+  private Result decodeInParallel(BinaryBitmap image) throws NotFoundException {
+    ReaderTask[] tasks = readerTasks;
+    if (tasks == null) {
+      tasks = new ReaderTask[readers.length];
+      for (int i = 0; i < tasks.length; i++) {
+        tasks[i] = new ReaderTask(readers[i], options);
+      }
+      readerTasks = tasks;
+    }
+
+    List<Future<Result>> futures = new ArrayList<Future<Result>>(tasks.length);
+    for (ReaderTask task : tasks) {
+      task.image = image;
+      futures.add(executor.submit(task));
+    }
+
+    Result result = null;
+    RuntimeException failure = null;
+    int last = tasks.length - 1;
+    try {
+      for (int i = 0; i < tasks.length; i++) {
+        try {
+          result = futures.get(i).get();
+          if (result == null) {
+            // Found nothing: try the next reader's result
+            continue;
+          }
+          last = i;
+          break;
+        } catch (ExecutionException ee) {
+          Throwable cause = ee.getCause();
+          if (cause instanceof RuntimeException) {
+            failure = (RuntimeException) cause;
+            last = i;
+            break;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          // ReaderException: try the next reader's result
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      last = -1;
+    } finally {
+      for (Future<Result> future : futures) {
+        future.cancel(false);
+      }
+      awaitAll(futures);
+      for (int i = 0; i < tasks.length; i++) {
+        if (i <= last) {
+          tasks[i].replayResultPoints();
+        }
+        tasks[i].clear();
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  /**
+   * Cancelled readers which were already running cannot be stopped, so wait for them to finish
+   * before anybody touches the readers or the image again.
+   */
+  private static void awaitAll(List<Future<Result>> futures) {
+    boolean interrupted = false;
+    for (Future<Result> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (CancellationException ce) {
+          // Never started, or the result was not wanted. Either way the reader is done.
+          break;
+        } catch (ExecutionException ee) {
+          break;
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs one reader on the executor. Result points the reader reports are held back, so they can
+   * be passed on in reader order once it is known which readers the sequential path would have run.
+   * Each task has a context of its own, as tasks run at the same time on different threads.
+   */
+  private static final class ReaderTask implements Callable<Result>, ResultPointCallback {
+
+    private final Reader reader;
+    private final DecodeOptions options;
+    private final ResultPointCallback callback;
+    private final List<ResultPoint> resultPoints;
+    private final DecodeContext context;
+    private volatile BinaryBitmap image;
+
+    ReaderTask(Reader reader, DecodeOptions options) {
+      this.reader = reader;
+      callback = options.getResultPointCallback();
+      if (callback == null) {
+        this.options = options;
+      } else {
+        Map<DecodeHintType,Object> taskHints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+        taskHints.putAll(options.getHints());
+        taskHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, this);
+        this.options = new DecodeOptions(taskHints);
+      }
+      resultPoints = new ArrayList<ResultPoint>();
+      context = new DecodeContext();
+    }
+
+    @Override
+    public Result call() throws ReaderException {
+      return decode(reader, image, options, context);
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+      synchronized (resultPoints) {
+        resultPoints.add(point);
+      }
+    }
+
+    void replayResultPoints() {
+      if (callback != null) {
+        synchronized (resultPoints) {
+          for (ResultPoint point : resultPoints) {
+            callback.foundPossibleResultPoint(point);
+          }
+        }
+      }
+    }
+
+    void clear() {
+      image = null;
+      synchronized (resultPoints) {
+        resultPoints.clear();
+      }
+    }
+
+  }
+
 }
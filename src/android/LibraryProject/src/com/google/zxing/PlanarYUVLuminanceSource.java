@@ -103,6 +103,21 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
     return matrix;
   }
 
+  @Override
+  public byte[] getStridedMatrix() {
+    return yuvData;
+  }
+
+  @Override
+  public int getMatrixOffset() {
+    return top * dataWidth + left;
+  }
+
+  @Override
+  public int getMatrixStride() {
+    return dataWidth;
+  }
+
   @Override
   public boolean isCropSupported() {
     return true;
@@ -120,10 +135,60 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
                                         false);
   }
 
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  /**
+   * Returns a rotated view of the crop. Nothing is copied; rows are read out of the frame only as
+   * they are fetched.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return unrotatedView().rotateCounterClockwise();
+  }
+
+  /**
+   * Returns a view of a square as wide as the larger side of the crop, around the same center,
+   * rotated by 45 degrees. Like {@link #rotateCounterClockwise()}, it is read lazily row by row.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return unrotatedView().rotateCounterClockwise45();
+  }
+
+  private RotatedPlanarYUVLuminanceSource unrotatedView() {
+    return new RotatedPlanarYUVLuminanceSource(yuvData,
+                                               dataWidth,
+                                               dataHeight,
+                                               left,
+                                               top,
+                                               1.0,
+                                               0.0,
+                                               0.0,
+                                               1.0,
+                                               getWidth(),
+                                               getHeight());
+  }
+
   public int[] renderCroppedGreyscaleBitmap() {
+    return renderCroppedGreyscaleBitmap(null);
+  }
+
+  /**
+   * Renders the cropped luminance as ARGB pixels, width pixels per row.
+   *
+   * @param pixels An optional preallocated array. If null or too small, it will be ignored.
+   *               Always use the returned object.
+   * @return The pixels, at least width * height of them.
+   */
+  public int[] renderCroppedGreyscaleBitmap(int[] pixels) {
     int width = getWidth();
     int height = getHeight();
-    int[] pixels = new int[width * height];
+    if (pixels == null || pixels.length < width * height) {
+      pixels = new int[width * height];
+    }
     byte[] yuv = yuvData;
     int inputOffset = top * dataWidth + left;
 
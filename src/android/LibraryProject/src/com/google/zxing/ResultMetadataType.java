@@ -77,4 +77,10 @@ public enum ResultMetadataType {
    */
   UPC_EAN_EXTENSION,
 
+  /**
+   * For 1D barcodes, how many rows or scanlines were read before the barcode was accepted, counting
+   * from the first of the pass over the image which found it. Maps to an {@link Integer}.
+   */
+  ROWS_SCANNED,
+
 }
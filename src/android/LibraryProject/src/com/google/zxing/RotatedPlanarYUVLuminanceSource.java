@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A rotated view of the Y plane of a camera frame, as returned by
+ * {@link PlanarYUVLuminanceSource#rotateCounterClockwise()} and
+ * {@link PlanarYUVLuminanceSource#rotateCounterClockwise45()}. Nothing is copied up front: pixel
+ * (x, y) of the view is read from frame position origin + x * u + y * v, one row at a time as rows
+ * are asked for. Rotating or cropping a view just changes the origin and the two step vectors.
+ *
+ * Positions are nearest-neighbour; positions outside the frame read as white.
+ */
+final class RotatedPlanarYUVLuminanceSource extends LuminanceSource {
+
+  private static final int FIXED_POINT_BITS = 16;
+  private static final double FIXED_POINT_ONE = 1 << FIXED_POINT_BITS;
+  private static final double HALF_SQRT_2 = Math.sqrt(2.0) / 2.0;
+  private static final byte WHITE = (byte) 0xFF;
+
+  private final byte[] yuvData;
+  private final int dataWidth;
+  private final int dataHeight;
+  // Frame position of the view's top left pixel, and the steps along its rows and columns.
+  private final double originX;
+  private final double originY;
+  private final double uX;
+  private final double uY;
+  private final double vX;
+  private final double vY;
+
+  RotatedPlanarYUVLuminanceSource(byte[] yuvData,
+                                  int dataWidth,
+                                  int dataHeight,
+                                  double originX,
+                                  double originY,
+                                  double uX,
+                                  double uY,
+                                  double vX,
+                                  double vY,
+                                  int width,
+                                  int height) {
+    super(width, height);
+    this.yuvData = yuvData;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.originX = originX;
+    this.originY = originY;
+    this.uX = uX;
+    this.uY = uY;
+    this.vX = vX;
+    this.vY = vY;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    fillRow(y, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    byte[] matrix = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      fillRow(y, matrix, y * width);
+    }
+    return matrix;
+  }
+
+  /**
+   * Walks row y of the view through the frame in fixed point. The half pixel added to the start
+   * makes truncation round to the nearest pixel.
+   */
+  private void fillRow(int y, byte[] output, int outputOffset) {
+    int fx = toFixedPoint(originX + y * vX + 0.5);
+    int fy = toFixedPoint(originY + y * vY + 0.5);
+    int stepX = toFixedPoint(uX);
+    int stepY = toFixedPoint(uY);
+    byte[] yuv = yuvData;
+    int width = getWidth();
+    for (int x = 0; x < width; x++, fx += stepX, fy += stepY) {
+      int dataX = fx >> FIXED_POINT_BITS;
+      int dataY = fy >> FIXED_POINT_BITS;
+      if (dataX >= 0 && dataX < dataWidth && dataY >= 0 && dataY < dataHeight) {
+        output[outputOffset + x] = yuv[dataY * dataWidth + dataX];
+      } else {
+        output[outputOffset + x] = WHITE;
+      }
+    }
+  }
+
+  private static int toFixedPoint(double value) {
+    return (int) Math.floor(value * FIXED_POINT_ONE);
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new RotatedPlanarYUVLuminanceSource(yuvData,
+                                               dataWidth,
+                                               dataHeight,
+                                               originX + left * uX + top * vX,
+                                               originY + left * uY + top * vY,
+                                               uX,
+                                               uY,
+                                               vX,
+                                               vY,
+                                               width,
+                                               height);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  /**
+   * Pixel (x, y) of the result is pixel (width - 1 - y, x) of this view.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    int width = getWidth();
+    return new RotatedPlanarYUVLuminanceSource(yuvData,
+                                               dataWidth,
+                                               dataHeight,
+                                               originX + (width - 1) * uX,
+                                               originY + (width - 1) * uY,
+                                               vX,
+                                               vY,
+                                               -uX,
+                                               -uY,
+                                               getHeight(),
+                                               width);
+  }
+
+  /**
+   * The result is a square as wide as the larger side of this view, around the same center, so
+   * its corners reach past this view into the rest of the frame.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    int width = getWidth();
+    int height = getHeight();
+    int dimension = Math.max(width, height);
+    // Pixel (x, y) of the result, relative to its center (c, c), is pixel
+    // ((dx - dy) / sqrt(2), (dx + dy) / sqrt(2)) of this view relative to its own center.
+    double halfDimension = (dimension - 1) / 2.0;
+    double startX = (width - 1) / 2.0;
+    double startY = (height - 1) / 2.0 - 2.0 * halfDimension * HALF_SQRT_2;
+    double stepU = HALF_SQRT_2;
+    return new RotatedPlanarYUVLuminanceSource(yuvData,
+                                               dataWidth,
+                                               dataHeight,
+                                               originX + startX * uX + startY * vX,
+                                               originY + startX * uY + startY * vY,
+                                               stepU * (uX + vX),
+                                               stepU * (uY + vY),
+                                               stepU * (vX - uX),
+                                               stepU * (vY - uY),
+                                               dimension,
+                                               dimension);
+  }
+
+}
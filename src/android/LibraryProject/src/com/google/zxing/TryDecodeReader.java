@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A {@link Reader} which can also say that an image holds no barcode by returning null, rather
+ * than by throwing {@link NotFoundException}. Most frames of a continuous scan hold no barcode, and
+ * unwinding an exception through the detector and reader frames on every one of them adds up; an
+ * implementation's decode methods are thin wrappers around this one which throw when it returns
+ * null.
+ *
+ * {@link MultiFormatReader} calls this method when a reader implements it, with the
+ * {@link DecodeOptions} it built from its hints once, and a {@link DecodeContext} it keeps from one
+ * image to the next, so that the reader's scratch buffers are only allocated once.
+ */
+public interface TryDecodeReader extends Reader {
+
+  /**
+   * Like {@link #decode(BinaryBitmap, java.util.Map)}, but returns null if no barcode is found,
+   * and takes hints already looked up.
+   *
+   * @param image image of barcode to decode
+   * @param options decode hints
+   * @param context scratch space to reuse, which no other thread uses during the call
+   * @return the barcode found, or null if there is none
+   * @throws ChecksumException if a barcode was found but error correction failed
+   * @throws FormatException if a barcode was found but could not be decoded
+   */
+  Result tryDecode(BinaryBitmap image, DecodeOptions options, DecodeContext context)
+      throws ChecksumException, FormatException;
+
+}
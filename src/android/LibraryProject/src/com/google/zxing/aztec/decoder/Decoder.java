@@ -21,7 +21,7 @@ import com.google.zxing.aztec.AztecDetectorResult;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.InPlaceReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 /**
@@ -112,7 +112,7 @@ public final class Decoder {
    * @return the decoded string
    * @throws FormatException if the input is not valid
    */
-  private String getEncodedData(boolean[] correctedBits) throws FormatException {
+  String getEncodedData(boolean[] correctedBits) throws FormatException {
 
     int endIndex = codewordSize * ddata.getNbDatablocks() - invertedBitCount;
     if (endIndex > correctedBits.length) {
@@ -269,7 +269,7 @@ public final class Decoder {
    * @return the corrected array
    * @throws FormatException if the input contains too many errors
    */
-  private boolean[] correctBits(boolean[] rawbits) throws FormatException {
+  boolean[] correctBits(boolean[] rawbits) throws FormatException {
     GenericGF gf;
 
     if (ddata.getNbLayers() <= 2) {
@@ -314,7 +314,7 @@ public final class Decoder {
     }
 
     try {
-      ReedSolomonDecoder rsDecoder = new ReedSolomonDecoder(gf);
+      InPlaceReedSolomonDecoder rsDecoder = new InPlaceReedSolomonDecoder(gf);
       rsDecoder.decode(dataWords, numECCodewords);
     } catch (ReedSolomonException rse) {
       throw FormatException.getFormatInstance();
@@ -371,7 +371,7 @@ public final class Decoder {
    * @return the array of bits
    * @throws FormatException if the matrix is not a valid aztec code
    */
-  private boolean[] extractBits(BitMatrix matrix) throws FormatException {
+  boolean[] extractBits(BitMatrix matrix) throws FormatException {
 
     boolean[] rawbits;
     if (ddata.isCompact()) {
@@ -423,7 +423,7 @@ public final class Decoder {
   /**
    * Transforms an Aztec code matrix by removing the control dashed lines
    */
-  private static BitMatrix removeDashedLines(BitMatrix matrix) {
+  static BitMatrix removeDashedLines(BitMatrix matrix) {
     int nbDashed = 1 + 2 * ((matrix.getWidth() - 1) / 2 / 16);
     BitMatrix newMatrix = new BitMatrix(matrix.getWidth() - nbDashed, matrix.getHeight() - nbDashed);
 
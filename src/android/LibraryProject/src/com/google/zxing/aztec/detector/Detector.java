@@ -24,7 +24,7 @@ import com.google.zxing.common.GridSampler;
 import com.google.zxing.common.detector.MathUtils;
 import com.google.zxing.common.detector.WhiteRectangleDetector;
 import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.InPlaceReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 /**
@@ -228,7 +228,7 @@ public final class Detector {
     }
 
     try {
-      ReedSolomonDecoder rsDecoder = new ReedSolomonDecoder(GenericGF.AZTEC_PARAM);
+      InPlaceReedSolomonDecoder rsDecoder = new InPlaceReedSolomonDecoder(GenericGF.AZTEC_PARAM);
       rsDecoder.decode(parameterWords, numECCodewords);
     } catch (ReedSolomonException rse) {
       throw NotFoundException.getNotFoundInstance();
@@ -22,6 +22,7 @@ import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.client.android.camera.CameraManager;
 import com.google.zxing.client.android.history.HistoryActivity;
+import com.google.zxing.client.android.history.HistoryCallback;
 import com.google.zxing.client.android.history.HistoryItem;
 import com.google.zxing.client.android.history.HistoryManager;
 import com.google.zxing.client.android.result.ResultButtonListener;
@@ -67,8 +68,11 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 import com.google.zxing.FakeR;
+import com.mobishift.http.CouponRequest;
+import com.mobishift.http.RejectedCheck;
 import com.phonegap.plugins.barcodescanner.BarcodeScanner;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -78,6 +82,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -96,6 +101,7 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
 
   private static final long DEFAULT_INTENT_RESULT_DURATION_MS = 1500L;
   private static final long BULK_MODE_SCAN_DELAY_MS = 1000L;
+  private static final String PENDING_COUPON_CHECKS_FILE = "pending_coupon_checks";
 
   private static final String PACKAGE_NAME = "com.google.zxing.client.android";
   private static final String PRODUCT_SEARCH_URL_PREFIX = "http://www.google";
@@ -166,6 +172,11 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
     inactivityTimer = new InactivityTimer(this);
     beepManager = new BeepManager(this);
     requestCode = this.getIntent().getIntExtra("requestCode", BarcodeScanner.REQUEST_CODE);
+    if (requestCode == BarcodeScanner.REQUEST_CODE) {
+      // Coupon checks made while offline wait here until the server can be reached.
+      CouponRequest.getCouponRequest().setPendingChecksFile(
+          new File(getFilesDir(), PENDING_COUPON_CHECKS_FILE));
+    }
     PreferenceManager.setDefaultValues(this, fakeR.getId("xml", "preferences"), false);
     //showHelpOnFirstLaunch();
   }
@@ -208,6 +219,24 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
 
     inactivityTimer.onResume();
 
+    if (requestCode == BarcodeScanner.REQUEST_CODE) {
+      // Coupons accepted while offline may be refused once the server is reached again, for
+      // instance when used at another lane meanwhile; the operator has to know.
+      showRejectedCouponChecks();
+      CouponRequest.getCouponRequest().setRejectedCheckListener(
+          new CouponRequest.RejectedCheckListener() {
+            @Override
+            public void rejected(RejectedCheck check) {
+              runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                  showRejectedCouponChecks();
+                }
+              });
+            }
+          });
+    }
+
     Intent intent = getIntent();
 
     SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
@@ -289,6 +318,9 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
       handler = null;
     }
     inactivityTimer.onPause();
+    if (requestCode == BarcodeScanner.REQUEST_CODE) {
+      CouponRequest.getCouponRequest().setRejectedCheckListener(null);
+    }
     cameraManager.closeDriver();
     if (!hasSurface) {
       SurfaceView surfaceView = (SurfaceView) findViewById(fakeR.getId("id", "preview_view"));
@@ -380,6 +412,28 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
     titleDivider.setBackgroundColor(Color.rgb(0xcc, 0xcc, 0xcc));
   }
 
+  /**
+   * Lists the coupon checks accepted while offline which the server has refused since, until the
+   * operator dismisses the list.
+   */
+  private void showRejectedCouponChecks() {
+    final CouponRequest couponRequest = CouponRequest.getCouponRequest();
+    final List<RejectedCheck> rejected = couponRequest.getRejectedChecks();
+    if (rejected.isEmpty()) {
+      return;
+    }
+    StringBuilder message = new StringBuilder("以下离线核销的抵扣券被服务器拒绝:\n");
+    for (RejectedCheck check : rejected) {
+      message.append(check.getCode()).append(" (").append(check.getStatus()).append(")\n");
+    }
+    showDialog(message.toString(), new DialogInterface.OnDismissListener() {
+      @Override
+      public void onDismiss(DialogInterface dialog) {
+        couponRequest.clearRejectedChecks(rejected);
+      }
+    });
+  }
+
   public void showDialog(String message, DialogInterface.OnDismissListener disminssListener){
     ContextThemeWrapper wrapper = new ContextThemeWrapper(this, fakeR.getId("style", "mbsAlertDialog"));
 //    ContextThemeWrapper wrapper = new ContextThemeWrapper(this, android.R.style.Theme_Holo_Light_Dialog);
@@ -506,8 +560,14 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
       if (requestCode == HISTORY_REQUEST_CODE) {
         int itemNumber = intent.getIntExtra(Intents.History.ITEM_NUMBER, -1);
         if (itemNumber >= 0) {
-          HistoryItem historyItem = historyManager.buildHistoryItem(itemNumber);
-          decodeOrStoreSavedBitmap(null, historyItem.getResult());
+          historyManager.loadHistoryItem(itemNumber, new HistoryCallback<HistoryItem>() {
+            @Override
+            public void onResult(HistoryItem historyItem) {
+              if (historyItem != null) {
+                decodeOrStoreSavedBitmap(null, historyItem.getResult());
+              }
+            }
+          });
         }
       }
     }
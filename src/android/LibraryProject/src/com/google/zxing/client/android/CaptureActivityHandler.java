@@ -27,11 +27,13 @@ import com.google.zxing.client.android.camera.CameraManager;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.preference.PreferenceManager;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -57,9 +59,23 @@ import retrofit.client.Response;
 public final class CaptureActivityHandler extends Handler {
 
   private static final String TAG = CaptureActivityHandler.class.getSimpleName();
+
+  // Decode workers fed from the frame queue; each one runs its readers on the cores left over.
+  private static final int MAX_DECODE_WORKERS = 2;
+  // Frames waiting for a worker. A newer frame pushes out the oldest one.
+  private static final int FRAME_QUEUE_CAPACITY = 1;
+  // In bulk mode, a code seen again within this long of its last sighting is ignored, unless the
+  // preference says otherwise.
+  private static final long DEFAULT_DUPLICATE_WINDOW_MS = 3000L;
+  // Distinct codes remembered for duplicate suppression.
+  private static final int DUPLICATE_CACHE_SIZE = 64;
+
   private final CaptureActivity activity;
-  private final DecodeThread decodeThread;
+  private final DecodeThread[] decodeThreads;
+  private final DecodeFrameQueue frameQueue;
+  private final DuplicateResultFilter duplicateFilter;
   private State state;
+  private int firstAcceptedSequence;
   private final CameraManager cameraManager;
   private String handleText = "";
 
@@ -77,14 +93,32 @@ public final class CaptureActivityHandler extends Handler {
                          CameraManager cameraManager) {
   fakeR = new FakeR(activity);
     this.activity = activity;
-    decodeThread = new DecodeThread(activity, decodeFormats, characterSet,
-        new ViewfinderResultPointCallback(activity.getViewfinderView()));
-    decodeThread.start();
+    this.cameraManager = cameraManager;
+    SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
+    duplicateFilter = prefs.getBoolean(PreferencesActivity.KEY_BULK_MODE, false) ?
+        new DuplicateResultFilter(getDuplicateWindow(prefs), DUPLICATE_CACHE_SIZE) : null;
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    int workers = Math.max(1, Math.min(cores / 2, MAX_DECODE_WORKERS));
+    frameQueue = new DecodeFrameQueue(FRAME_QUEUE_CAPACITY, workers, new DecodeFrameQueue.Recycler() {
+      @Override
+      public void recycle(byte[] data) {
+        CaptureActivityHandler.this.cameraManager.releasePreviewFrame(data);
+      }
+    });
+    ViewfinderResultPointCallback resultPointCallback =
+        new ViewfinderResultPointCallback(activity.getViewfinderView());
+    decodeThreads = new DecodeThread[workers];
+    for (int i = 0; i < workers; i++) {
+      decodeThreads[i] = new DecodeThread(activity, decodeFormats, characterSet, resultPointCallback,
+          frameQueue, cores / workers);
+      decodeThreads[i].start();
+    }
     state = State.SUCCESS;
 
     // Start ourselves capturing previews and decoding.
-    this.cameraManager = cameraManager;
     cameraManager.startPreview();
+    cameraManager.setPreviewFrameListener(frameQueue);
     restartPreviewAndDecode();
   }
 
@@ -94,16 +128,27 @@ public final class CaptureActivityHandler extends Handler {
         Log.d(TAG, "Got restart preview message");
         restartPreviewAndDecode();
     } else if (message.what == fakeR.getId("id", "decode_succeeded")) {
+        // Results from live frames carry the frame's sequence number. Another worker may already
+        // have won, or the frame may predate the last restart; either way the result is stale.
+        int sequence = message.arg1;
+        if (sequence != 0 && (state != State.PREVIEW || sequence < firstAcceptedSequence)) {
+          Log.d(TAG, "Discarding stale result of frame " + sequence);
+          return;
+        }
+        Result result = (Result) message.obj;
+        // A code still held in front of the camera in bulk mode would otherwise be beeped at,
+        // saved and looked up again every time scanning restarts. Just keep scanning.
+        if (sequence != 0 && duplicateFilter != null &&
+            duplicateFilter.isDuplicate(result, System.currentTimeMillis())) {
+          return;
+        }
         Log.d(TAG, "Got decode succeeded message");
         state = State.SUCCESS;
+        frameQueue.pause();
         Bundle bundle = message.getData();
         Bitmap barcode = bundle == null ? null :
             (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
-        activity.handleDecode((Result) message.obj, barcode);
-    } else if (message.what == fakeR.getId("id", "decode_failed")) {
-        // We're decoding as fast as possible, so when one decode fails, start another.
-        state = State.PREVIEW;
-        cameraManager.requestPreviewFrame(decodeThread.getHandler(), fakeR.getId("id", "decode"));
+        activity.handleDecode(result, barcode);
     } else if (message.what == fakeR.getId("id", "return_scan_result")) {
         Log.d(TAG, "Got return scan result message");
 //        activity.setResult(Activity.RESULT_OK, (Intent) message.obj);
@@ -198,28 +243,55 @@ public final class CaptureActivityHandler extends Handler {
 
   public void quitSynchronously() {
     state = State.DONE;
+    frameQueue.pause();
     cameraManager.stopPreview();
-    Message quit = Message.obtain(decodeThread.getHandler(), fakeR.getId("id", "quit"));
-    quit.sendToTarget();
+    for (DecodeThread decodeThread : decodeThreads) {
+      Message quit = Message.obtain(decodeThread.getHandler(), fakeR.getId("id", "quit"));
+      quit.sendToTarget();
+    }
     try {
       // Wait at most half a second; should be enough time, and onPause() will timeout quickly
-      decodeThread.join(500L);
+      long deadline = System.currentTimeMillis() + 500L;
+      for (DecodeThread decodeThread : decodeThreads) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0L) {
+          decodeThread.join(remaining);
+        }
+      }
     } catch (InterruptedException e) {
       // continue
     }
+    Log.d(TAG, "Frames decoded: " + frameQueue.getFramesDecoded() +
+        ", dropped: " + frameQueue.getFramesDropped() +
+        ", mean queue wait: " + frameQueue.getMeanQueueWaitMillis() + " ms");
+    if (duplicateFilter != null) {
+      Log.d(TAG, "Duplicate results suppressed: " + duplicateFilter.getHits() +
+          ", passed: " + duplicateFilter.getMisses());
+    }
 
     // Be absolutely sure we don't send any queued up messages
     removeMessages(fakeR.getId("id", "decode_succeeded"));
-    removeMessages(fakeR.getId("id", "decode_failed"));
   }
 
   private void restartPreviewAndDecode() {
     if (state == State.SUCCESS) {
       state = State.PREVIEW;
-      cameraManager.requestPreviewFrame(decodeThread.getHandler(), fakeR.getId("id", "decode"));
+      firstAcceptedSequence = frameQueue.resume();
       activity.drawViewfinder();
     }
 
   }
 
+  private static long getDuplicateWindow(SharedPreferences prefs) {
+    String window = prefs.getString(PreferencesActivity.KEY_DUPLICATE_WINDOW, null);
+    if (window != null) {
+      try {
+        return Long.parseLong(window);
+      } catch (NumberFormatException nfe) {
+        Log.w(TAG, "Bad duplicate window: " + window);
+      }
+    }
+    return DEFAULT_DUPLICATE_WINDOW_MS;
+  }
+
 }
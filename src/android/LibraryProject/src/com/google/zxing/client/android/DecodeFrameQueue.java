@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android;
+
+import com.google.zxing.client.android.camera.PreviewFrameListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hands preview frames to a pool of decode workers. A frame goes straight to an idle worker if
+ * there is one; otherwise it waits in a small bounded queue, where a newer frame pushes out the
+ * oldest one, so workers always pick up recent frames. Every frame gets a sequence number, which
+ * lets the capture state machine tell results of frames taken before a restart from fresh ones.
+ *
+ * This class does not depend on Android, so it can be driven without a camera.
+ */
+final class DecodeFrameQueue implements PreviewFrameListener {
+
+  /**
+   * A decode worker. It is handed one frame at a time and must call
+   * {@link DecodeFrameQueue#finished(Worker, Frame)} once it is done with it.
+   */
+  interface Worker {
+    /**
+     * Called on the camera thread or on another worker's thread, with the queue locked, so this
+     * should only schedule the work. Because of the lock, once {@link DecodeFrameQueue#pause()}
+     * has returned no worker is handed another frame until {@link DecodeFrameQueue#resume()}.
+     */
+    void decode(Frame frame);
+  }
+
+  /**
+   * Gives a frame buffer back to the camera.
+   */
+  interface Recycler {
+    void recycle(byte[] data);
+  }
+
+  /**
+   * One queued preview frame. Instances are owned by the queue and reused once a worker is done.
+   */
+  static final class Frame {
+    byte[] data;
+    int width;
+    int height;
+    int sequence;
+    long queuedAt;
+  }
+
+  private final Recycler recycler;
+  private final Frame[] pending;
+  private int pendingHead;
+  private int pendingCount;
+  private final Deque<Frame> spareFrames;
+  private final Deque<Worker> idleWorkers;
+  private boolean accepting;
+  private int nextSequence;
+
+  private long framesQueued;
+  private long framesDropped;
+  private long framesDecoded;
+  private long totalWaitNanos;
+
+  /**
+   * @param capacity how many frames may wait for a worker
+   * @param maxWorkers how many workers will be registered
+   * @param recycler where frames which are dropped before decoding go
+   */
+  DecodeFrameQueue(int capacity, int maxWorkers, Recycler recycler) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be at least 1");
+    }
+    this.recycler = recycler;
+    pending = new Frame[capacity];
+    spareFrames = new ArrayDeque<Frame>(capacity + maxWorkers);
+    for (int i = 0; i < capacity + maxWorkers; i++) {
+      spareFrames.add(new Frame());
+    }
+    idleWorkers = new ArrayDeque<Worker>(maxWorkers);
+    nextSequence = 1;
+  }
+
+  /**
+   * Registers a worker. It is handed the oldest waiting frame right away, if there is one.
+   */
+  synchronized void addWorker(Worker worker) {
+    handOut(worker);
+  }
+
+  @Override
+  public boolean offerFrame(byte[] data, int width, int height) {
+    byte[] dropped = null;
+    synchronized (this) {
+      if (!accepting) {
+        return false;
+      }
+      Worker worker = idleWorkers.poll();
+      if (worker == null && pendingCount == pending.length) {
+        Frame oldest = pollPending();
+        dropped = oldest.data;
+        oldest.data = null;
+        spareFrames.add(oldest);
+        framesDropped++;
+      }
+      Frame frame = spareFrames.poll();
+      if (frame == null) {
+        // More workers registered than announced; nothing sensible to do but skip the frame.
+        if (worker != null) {
+          idleWorkers.addFirst(worker);
+        }
+        return false;
+      }
+      frame.data = data;
+      frame.width = width;
+      frame.height = height;
+      frame.sequence = nextSequence++;
+      frame.queuedAt = System.nanoTime();
+      framesQueued++;
+      if (worker == null) {
+        pending[(pendingHead + pendingCount) % pending.length] = frame;
+        pendingCount++;
+      } else {
+        recordWait(frame);
+        worker.decode(frame);
+      }
+    }
+    if (dropped != null) {
+      recycler.recycle(dropped);
+    }
+    return true;
+  }
+
+  /**
+   * Called by a worker when it is done with a frame and has given the buffer back. The worker is
+   * handed the next waiting frame right away, if there is one.
+   */
+  synchronized void finished(Worker worker, Frame frame) {
+    framesDecoded++;
+    frame.data = null;
+    spareFrames.add(frame);
+    handOut(worker);
+  }
+
+  /**
+   * Stops taking frames, for instance while a result is shown, and gives the waiting ones back.
+   */
+  void pause() {
+    byte[][] dropped;
+    synchronized (this) {
+      accepting = false;
+      dropped = new byte[pendingCount][];
+      for (int i = 0; i < dropped.length; i++) {
+        Frame frame = pollPending();
+        dropped[i] = frame.data;
+        frame.data = null;
+        spareFrames.add(frame);
+        framesDropped++;
+      }
+    }
+    for (byte[] data : dropped) {
+      recycler.recycle(data);
+    }
+  }
+
+  /**
+   * Starts taking frames again.
+   *
+   * @return the sequence number of the first frame taken from now on; results for frames with
+   *         lower numbers were started before this call
+   */
+  synchronized int resume() {
+    accepting = true;
+    return nextSequence;
+  }
+
+  synchronized long getFramesQueued() {
+    return framesQueued;
+  }
+
+  synchronized long getFramesDropped() {
+    return framesDropped;
+  }
+
+  synchronized long getFramesDecoded() {
+    return framesDecoded;
+  }
+
+  /**
+   * @return mean time a frame spent waiting for a worker, in milliseconds
+   */
+  synchronized float getMeanQueueWaitMillis() {
+    long started = framesQueued - framesDropped - pendingCount;
+    return started <= 0 ? 0.0f : totalWaitNanos / (started * 1000000.0f);
+  }
+
+  private Frame pollPending() {
+    if (pendingCount == 0) {
+      return null;
+    }
+    Frame frame = pending[pendingHead];
+    pending[pendingHead] = null;
+    pendingHead = (pendingHead + 1) % pending.length;
+    pendingCount--;
+    return frame;
+  }
+
+  /**
+   * Gives a worker the oldest waiting frame, or makes it idle if there is none.
+   */
+  private void handOut(Worker worker) {
+    Frame next = accepting ? pollPending() : null;
+    if (next == null) {
+      idleWorkers.add(worker);
+    } else {
+      recordWait(next);
+      worker.decode(next);
+    }
+  }
+
+  private void recordWait(Frame frame) {
+    totalWaitNanos += System.nanoTime() - frame.queuedAt;
+  }
+
+}
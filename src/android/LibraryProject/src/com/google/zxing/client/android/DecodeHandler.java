@@ -17,6 +17,8 @@
 package com.google.zxing.client.android;
 
 import android.graphics.Bitmap;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.LuminanceSource;
@@ -24,7 +26,9 @@ import com.google.zxing.MultiFormatReader;
 import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
 import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.SauvolaBinarizer;
 
 import android.os.Bundle;
 import android.os.Handler;
@@ -33,58 +37,116 @@ import android.os.Message;
 import android.util.Log;
 import com.google.zxing.FakeR;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-final class DecodeHandler extends Handler {
+final class DecodeHandler extends Handler implements DecodeFrameQueue.Worker {
 
   private static final String TAG = DecodeHandler.class.getSimpleName();
 
   private final CaptureActivity activity;
   private final MultiFormatReader multiFormatReader;
+  private final DecodeFrameQueue frameQueue;
+  private final RegionTracker regionTracker;
+  private final ExecutorService readerExecutor;
+  private final FrameQualityGate qualityGate;
+  private final boolean adaptiveThreshold;
+  private final boolean rowsFromMatrix;
+  private Binarizer binarizer;
+  private Binarizer regionBinarizer;
+  private int[] thumbnailPixels;
   private boolean running = true;
 
   private static FakeR fakeR;
-  DecodeHandler(CaptureActivity activity, Map<DecodeHintType,Object> hints) {
+  DecodeHandler(CaptureActivity activity,
+                Map<DecodeHintType,Object> hints,
+                DecodeFrameQueue frameQueue,
+                RegionTracker regionTracker,
+                int readerThreads,
+                boolean adaptiveThreshold,
+                boolean rowsFromMatrix) {
 	fakeR = new FakeR(activity);
     multiFormatReader = new MultiFormatReader();
     multiFormatReader.setHints(hints);
+    this.frameQueue = frameQueue;
+    this.regionTracker = regionTracker;
+    if (readerThreads > 1) {
+      readerExecutor = Executors.newFixedThreadPool(readerThreads);
+      multiFormatReader.setExecutor(readerExecutor);
+    } else {
+      readerExecutor = null;
+    }
+    qualityGate = new FrameQualityGate();
+    this.adaptiveThreshold = adaptiveThreshold;
+    this.rowsFromMatrix = rowsFromMatrix && mixesOneDAndTwoD(hints);
     this.activity = activity;
   }
 
   @Override
   public void handleMessage(Message message) {
-    if (!running) {
-      return;
-    }
     if (message.what == fakeR.getId("id", "decode")) {
-        decode((byte[]) message.obj, message.arg1, message.arg2);
-    } else if (message.what == fakeR.getId("id", "quit")) {
+        DecodeFrameQueue.Frame frame = (DecodeFrameQueue.Frame) message.obj;
+        // Frames handed over before quitting still go back to the camera, undecoded.
+        if (running) {
+          decode(frame.data, frame.width, frame.height, frame.sequence);
+        }
+        activity.getCameraManager().releasePreviewFrame(frame.data);
+        frameQueue.finished(this, frame);
+    } else if (running && message.what == fakeR.getId("id", "quit")) {
         running = false;
+        Log.d(TAG, "Frames passed to the decoder: " + qualityGate.getFramesAccepted() +
+            ", skipped as blurry or flat: " + qualityGate.getFramesSkipped());
+        if (readerExecutor != null) {
+          readerExecutor.shutdown();
+        }
         Looper.myLooper().quit();
     }
   }
 
+  @Override
+  public void decode(DecodeFrameQueue.Frame frame) {
+    obtainMessage(fakeR.getId("id", "decode"), frame).sendToTarget();
+  }
+
   /**
    * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
-   * reuse the same reader objects from one decode to the next.
+   * reuse the same reader objects from one decode to the next, skip frames which look too blurry
+   * or flat to decode, and try the area where the last frames saw a symbol before the whole
+   * rectangle.
    *
-   * @param data   The YUV preview frame.
-   * @param width  The width of the preview frame.
-   * @param height The height of the preview frame.
+   * @param data     The YUV preview frame.
+   * @param width    The width of the preview frame.
+   * @param height   The height of the preview frame.
+   * @param sequence The frame's sequence number, passed along with a result.
    */
-  private void decode(byte[] data, int width, int height) {
+  private void decode(byte[] data, int width, int height, int sequence) {
     long start = System.currentTimeMillis();
     Result rawResult = null;
     PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
-    if (source != null) {
-      BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-      try {
-        rawResult = multiFormatReader.decodeWithState(bitmap);
-      } catch (ReaderException re) {
-        // continue
-      } finally {
-        multiFormatReader.reset();
+    if (source != null && qualityGate.accept(source)) {
+      regionTracker.beginFrame();
+      if (regionTracker.hasRegion()) {
+        int left = regionTracker.getLeft();
+        int top = regionTracker.getTop();
+        LuminanceSource region =
+            source.crop(left, top, regionTracker.getWidth(), regionTracker.getHeight());
+        // Keep one binarizer per thread so its scratch buffers survive from frame to frame.
+        regionBinarizer = rebind(regionBinarizer, region);
+        regionTracker.beginAttempt(left, top);
+        rawResult = tryDecode(new BinaryBitmap(regionBinarizer, rowsFromMatrix));
+        if (rawResult != null) {
+          rawResult = translate(rawResult, left, top);
+        }
+        regionTracker.beginAttempt(0, 0);
       }
+      if (rawResult == null) {
+        binarizer = rebind(binarizer, source);
+        rawResult = tryDecode(new BinaryBitmap(binarizer, rowsFromMatrix));
+      }
+      regionTracker.endFrame(rawResult == null ? null : rawResult.getResultPoints(),
+          source.getWidth(), source.getHeight());
     }
 
     Handler handler = activity.getHandler();
@@ -94,18 +156,85 @@ final class DecodeHandler extends Handler {
       Log.d(TAG, "Found barcode in " + (end - start) + " ms");
       if (handler != null) {
         Message message = Message.obtain(handler, fakeR.getId("id", "decode_succeeded"), rawResult);
+        message.arg1 = sequence;
         Bundle bundle = new Bundle();
-        Bitmap grayscaleBitmap = toBitmap(source, source.renderCroppedGreyscaleBitmap());
+        thumbnailPixels = source.renderCroppedGreyscaleBitmap(thumbnailPixels);
+        Bitmap grayscaleBitmap = toBitmap(source, thumbnailPixels);
         bundle.putParcelable(DecodeThread.BARCODE_BITMAP, grayscaleBitmap);
         message.setData(bundle);
         message.sendToTarget();
       }
-    } else {
-      if (handler != null) {
-        Message message = Message.obtain(handler, fakeR.getId("id", "decode_failed"));
-        message.sendToTarget();
+    }
+  }
+
+  /**
+   * When 1D and 2D formats are both on, the 2D readers need the black matrix of every frame anyway,
+   * so if the user asked for it the 1D readers take their rows from it rather than thresholding
+   * each row again. It is off by default: the matrix's local threshold loses noisy 1D barcodes
+   * which the per-row histogram still reads.
+   */
+  private static boolean mixesOneDAndTwoD(Map<DecodeHintType,Object> hints) {
+    @SuppressWarnings("unchecked")
+    Collection<BarcodeFormat> formats =
+        (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+    if (formats == null) {
+      return false;
+    }
+    boolean oneD = false;
+    boolean twoD = false;
+    for (BarcodeFormat format : formats) {
+      if (DecodeFormatManager.ONE_D_FORMATS.contains(format)) {
+        oneD = true;
+      } else {
+        twoD = true;
       }
     }
+    return oneD && twoD;
+  }
+
+  /**
+   * Points a binarizer kept from an earlier frame at a new source, or creates the first one: a
+   * SauvolaBinarizer if glare-resistant scanning is on, a HybridBinarizer otherwise.
+   */
+  private Binarizer rebind(Binarizer binarizer, LuminanceSource source) {
+    if (binarizer instanceof SauvolaBinarizer) {
+      ((SauvolaBinarizer) binarizer).reset(source);
+      return binarizer;
+    }
+    if (binarizer instanceof HybridBinarizer) {
+      ((HybridBinarizer) binarizer).reset(source);
+      return binarizer;
+    }
+    return adaptiveThreshold ? new SauvolaBinarizer(source) : new HybridBinarizer(source);
+  }
+
+  private Result tryDecode(BinaryBitmap bitmap) {
+    try {
+      return multiFormatReader.decodeWithState(bitmap);
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      multiFormatReader.reset();
+    }
+  }
+
+  /**
+   * Moves the points of a result found in a crop back into the coordinates of the whole source.
+   */
+  private static Result translate(Result result, int left, int top) {
+    ResultPoint[] points = result.getResultPoints();
+    if (points == null) {
+      return result;
+    }
+    ResultPoint[] translated = new ResultPoint[points.length];
+    for (int i = 0; i < points.length; i++) {
+      ResultPoint point = points[i];
+      translated[i] = point == null ? null : new ResultPoint(point.getX() + left, point.getY() + top);
+    }
+    Result newResult = new Result(result.getText(), result.getRawBytes(), translated,
+        result.getBarcodeFormat(), result.getTimestamp());
+    newResult.putAllMetadata(result.getResultMetadata());
+    return newResult;
   }
 
   private static Bitmap toBitmap(LuminanceSource source, int[] pixels) {
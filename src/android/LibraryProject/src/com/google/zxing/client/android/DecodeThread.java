@@ -42,22 +42,33 @@ final class DecodeThread extends Thread {
 
   private final CaptureActivity activity;
   private final Map<DecodeHintType,Object> hints;
+  private final DecodeFrameQueue frameQueue;
+  private final RegionTracker regionTracker;
+  private final int readerThreads;
+  private final boolean adaptiveThreshold;
+  private final boolean rowsFromMatrix;
   private Handler handler;
   private final CountDownLatch handlerInitLatch;
 
   DecodeThread(CaptureActivity activity,
                Collection<BarcodeFormat> decodeFormats,
                String characterSet,
-               ResultPointCallback resultPointCallback) {
+               ResultPointCallback resultPointCallback,
+               DecodeFrameQueue frameQueue,
+               int readerThreads) {
 
     this.activity = activity;
+    this.frameQueue = frameQueue;
+    this.readerThreads = readerThreads;
     handlerInitLatch = new CountDownLatch(1);
 
     hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
 
     // The prefs can't change while the thread is running, so pick them up once here.
+    SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
+    adaptiveThreshold = prefs.getBoolean(PreferencesActivity.KEY_ADAPTIVE_THRESHOLD, false);
+    rowsFromMatrix = prefs.getBoolean(PreferencesActivity.KEY_ROWS_FROM_MATRIX, false);
     if (decodeFormats == null || decodeFormats.isEmpty()) {
-      SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
       decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
       if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D, false)) {
         decodeFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
@@ -74,7 +85,12 @@ final class DecodeThread extends Thread {
     if (characterSet != null) {
       hints.put(DecodeHintType.CHARACTER_SET, characterSet);
     }
-    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+    // QR Codes held close fill most of the framing rectangle, and are found faster on a
+    // downsampled copy of it. After a frame without one, the copy is skipped for a few frames.
+    hints.put(DecodeHintType.PYRAMID_DETECTION, Boolean.TRUE);
+    // Each worker tracks where it last saw a symbol, and still passes points on to the viewfinder.
+    regionTracker = new RegionTracker(resultPointCallback);
+    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, regionTracker);
   }
 
   Handler getHandler() {
@@ -89,8 +105,11 @@ final class DecodeThread extends Thread {
   @Override
   public void run() {
     Looper.prepare();
-    handler = new DecodeHandler(activity, hints);
+    DecodeHandler decodeHandler = new DecodeHandler(activity, hints, frameQueue, regionTracker,
+        readerThreads, adaptiveThreshold, rowsFromMatrix);
+    handler = decodeHandler;
     handlerInitLatch.countDown();
+    frameQueue.addWorker(decodeHandler);
     Looper.loop();
   }
 
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android;
+
+import com.google.zxing.Result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recognizes a barcode which was already scanned a moment ago, so that continuous scanning does
+ * not beep, save to history and query the network for the same code over and over while it stays
+ * in front of the camera. A code counts as a duplicate while it keeps being seen with gaps no
+ * longer than the window. Only a 64-bit hash of format and text is remembered per code, and only
+ * for the most recently seen codes, so memory use is bounded.
+ */
+final class DuplicateResultFilter {
+
+  private final long windowMillis;
+  private final Map<Long,Long> lastSeen;
+  private long hits;
+  private long misses;
+
+  /**
+   * @param windowMillis how long after it was last seen a code is still a duplicate
+   * @param maxEntries how many distinct codes to remember at most
+   */
+  DuplicateResultFilter(long windowMillis, final int maxEntries) {
+    this.windowMillis = windowMillis;
+    lastSeen = new LinkedHashMap<Long,Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long,Long> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Records that a result was seen.
+   *
+   * @param result the decoded result
+   * @param now current time in milliseconds
+   * @return true if the same code was seen within the window before this
+   */
+  synchronized boolean isDuplicate(Result result, long now) {
+    Long key = hash(result);
+    Long previous = lastSeen.put(key, now);
+    if (previous != null && now - previous <= windowMillis) {
+      hits++;
+      return true;
+    }
+    misses++;
+    return false;
+  }
+
+  synchronized long getHits() {
+    return hits;
+  }
+
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  // FNV-1a over the text, seeded with the format.
+  private static long hash(Result result) {
+    long hash = 0xcbf29ce484222325L ^ result.getBarcodeFormat().ordinal();
+    String text = result.getText();
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Decides from a quick look at the luminance whether a preview frame is worth decoding. While
+ * autofocus is hunting, most frames are too blurry to decode, and a frame with next to no contrast
+ * has nothing to find either.
+ *
+ * A pair of nearby rows every few rows is sampled. Sharpness is the mean squared difference
+ * between nearby pixels, across and down; contrast is the spread between the darkest and
+ * brightest few percent of the samples. Sharpness is judged against the sharpest frame seen
+ * recently, so the gate adapts to the scene and the camera, and a run of rejected frames is always
+ * broken by one which gets decoded anyway.
+ */
+final class FrameQualityGate {
+
+  // Every ROW_STEP-th row is sampled at every COLUMN_STEP-th pixel, and compared with the pixels
+  // GRADIENT_DISTANCE to the right and below. Blur narrower than that hardly lowers the score.
+  private static final int ROW_STEP = 4;
+  private static final int COLUMN_STEP = 2;
+  private static final int GRADIENT_DISTANCE = 2;
+  // Frames whose middle 90% of samples span fewer grey levels than this have too little contrast.
+  private static final int MIN_DYNAMIC_RANGE = 24;
+  private static final int RANGE_PERCENTILE = 5;
+  // A frame must be at least this sharp relative to the recent peak.
+  private static final float MIN_RELATIVE_SHARPNESS = 0.25f;
+  // The recent peak fades by this factor per frame, so a scene which got softer is accepted again.
+  private static final float PEAK_DECAY = 0.9f;
+  private static final int MAX_CONSECUTIVE_SKIPS = 4;
+  private static final int LUMINANCE_BUCKETS = 64;
+  private static final int LUMINANCE_SHIFT = 2;
+
+  private final int[] buckets = new int[LUMINANCE_BUCKETS];
+  private byte[] row;
+  private byte[] nextRow;
+  private float peakSharpness;
+  private int consecutiveSkips;
+  private long framesAccepted;
+  private long framesSkipped;
+
+  /**
+   * Scores a frame and decides whether to decode it.
+   *
+   * @return false if the frame should be skipped
+   */
+  boolean accept(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+      nextRow = new byte[width];
+    }
+    for (int i = 0; i < LUMINANCE_BUCKETS; i++) {
+      buckets[i] = 0;
+    }
+
+    long energy = 0;
+    int samples = 0;
+    for (int y = 0; y + GRADIENT_DISTANCE < height; y += ROW_STEP) {
+      row = source.getRow(y, row);
+      nextRow = source.getRow(y + GRADIENT_DISTANCE, nextRow);
+      for (int x = 0; x + GRADIENT_DISTANCE < width; x += COLUMN_STEP) {
+        int pixel = row[x] & 0xff;
+        int dx = (row[x + GRADIENT_DISTANCE] & 0xff) - pixel;
+        int dy = (nextRow[x] & 0xff) - pixel;
+        energy += dx * dx + dy * dy;
+        buckets[pixel >> LUMINANCE_SHIFT]++;
+        samples++;
+      }
+    }
+    if (samples == 0) {
+      return true;
+    }
+    float sharpness = (float) energy / samples;
+    int range = dynamicRange(samples);
+
+    peakSharpness = Math.max(sharpness, peakSharpness * PEAK_DECAY);
+    boolean good = range >= MIN_DYNAMIC_RANGE && sharpness >= MIN_RELATIVE_SHARPNESS * peakSharpness;
+    if (good || consecutiveSkips >= MAX_CONSECUTIVE_SKIPS) {
+      consecutiveSkips = 0;
+      framesAccepted++;
+      return true;
+    }
+    consecutiveSkips++;
+    framesSkipped++;
+    return false;
+  }
+
+  long getFramesAccepted() {
+    return framesAccepted;
+  }
+
+  long getFramesSkipped() {
+    return framesSkipped;
+  }
+
+  private int dynamicRange(int samples) {
+    int cutoff = samples * RANGE_PERCENTILE / 100;
+    int low = 0;
+    int count = 0;
+    while (low < LUMINANCE_BUCKETS - 1 && (count += buckets[low]) <= cutoff) {
+      low++;
+    }
+    int high = LUMINANCE_BUCKETS - 1;
+    count = 0;
+    while (high > 0 && (count += buckets[high]) <= cutoff) {
+      high--;
+    }
+    return (high - low) << LUMINANCE_SHIFT;
+  }
+
+}
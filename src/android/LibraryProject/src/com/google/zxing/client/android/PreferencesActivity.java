@@ -45,6 +45,9 @@ public final class PreferencesActivity extends PreferenceActivity
   public static final String KEY_COPY_TO_CLIPBOARD = "preferences_copy_to_clipboard";
   public static final String KEY_FRONT_LIGHT = "preferences_front_light";
   public static final String KEY_BULK_MODE = "preferences_bulk_mode";
+  public static final String KEY_DUPLICATE_WINDOW = "preferences_duplicate_window";
+  public static final String KEY_ADAPTIVE_THRESHOLD = "preferences_adaptive_threshold";
+  public static final String KEY_ROWS_FROM_MATRIX = "preferences_rows_from_matrix";
   public static final String KEY_REMEMBER_DUPLICATES = "preferences_remember_duplicates";
   public static final String KEY_SUPPLEMENTAL = "preferences_supplemental";
   public static final String KEY_AUTO_FOCUS = "preferences_auto_focus";
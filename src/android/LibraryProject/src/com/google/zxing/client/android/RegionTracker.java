@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+/**
+ * Remembers where in the framing rectangle a symbol was last seen, from the result points readers
+ * report while decoding, so the next frames can try a tight crop around it first. A phone screen
+ * or ticket held up to the scanner hardly moves between frames, so most of the time the crop is
+ * all that needs to be decoded.
+ *
+ * Readers report points relative to the image they are given. Before decoding a crop, call
+ * {@link #beginAttempt(int, int)} with its offset; points are translated back into framing
+ * rectangle coordinates before they are recorded and passed on to the wrapped callback.
+ */
+final class RegionTracker implements ResultPointCallback {
+
+  // Frames in a row without any point before the region is forgotten.
+  private static final int MAX_MISSES = 3;
+  // The region grows by this fraction of its larger side in every direction.
+  private static final float MARGIN_FRACTION = 0.5f;
+  // Regions smaller than this on a side are grown to this size.
+  private static final int MIN_REGION_SIZE = 80;
+
+  private final ResultPointCallback delegate;
+
+  private int offsetX;
+  private int offsetY;
+  private float minX;
+  private float minY;
+  private float maxX;
+  private float maxY;
+  private boolean sawPoints;
+
+  private boolean hasRegion;
+  private int misses;
+  private int left;
+  private int top;
+  private int width;
+  private int height;
+
+  RegionTracker(ResultPointCallback delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Starts a new frame; points seen in the previous frame no longer count.
+   */
+  void beginFrame() {
+    sawPoints = false;
+    offsetX = 0;
+    offsetY = 0;
+  }
+
+  /**
+   * Announces that the next decode runs on a crop whose top left corner is at the given position.
+   */
+  void beginAttempt(int offsetX, int offsetY) {
+    this.offsetX = offsetX;
+    this.offsetY = offsetY;
+  }
+
+  /**
+   * Ends the current frame and updates the region from what was seen in it.
+   *
+   * @param resultPoints points of the decoded symbol in framing rectangle coordinates, or null if
+   *                     nothing was decoded
+   * @param sourceWidth width of the framing rectangle
+   * @param sourceHeight height of the framing rectangle
+   */
+  void endFrame(ResultPoint[] resultPoints, int sourceWidth, int sourceHeight) {
+    if (resultPoints != null && resultPoints.length > 0) {
+      // The decoded symbol's own corners beat anything the finders reported along the way.
+      sawPoints = false;
+      offsetX = 0;
+      offsetY = 0;
+      for (ResultPoint point : resultPoints) {
+        if (point != null) {
+          record(point.getX(), point.getY());
+        }
+      }
+    }
+    if (!sawPoints) {
+      if (++misses >= MAX_MISSES) {
+        hasRegion = false;
+      }
+      return;
+    }
+    misses = 0;
+
+    float margin = Math.max(maxX - minX, maxY - minY) * MARGIN_FRACTION;
+    int regionLeft = (int) (minX - margin);
+    int regionTop = (int) (minY - margin);
+    int regionRight = (int) (maxX + margin) + 1;
+    int regionBottom = (int) (maxY + margin) + 1;
+    if (regionRight - regionLeft < MIN_REGION_SIZE) {
+      int grow = (MIN_REGION_SIZE - (regionRight - regionLeft)) / 2;
+      regionLeft -= grow;
+      regionRight = regionLeft + MIN_REGION_SIZE;
+    }
+    if (regionBottom - regionTop < MIN_REGION_SIZE) {
+      int grow = (MIN_REGION_SIZE - (regionBottom - regionTop)) / 2;
+      regionTop -= grow;
+      regionBottom = regionTop + MIN_REGION_SIZE;
+    }
+    left = Math.max(regionLeft, 0);
+    top = Math.max(regionTop, 0);
+    width = Math.min(regionRight, sourceWidth) - left;
+    height = Math.min(regionBottom, sourceHeight) - top;
+    // Not worth it if the crop is most of the frame anyway.
+    hasRegion = width > 0 && height > 0 && width * height < sourceWidth * sourceHeight / 2;
+  }
+
+  boolean hasRegion() {
+    return hasRegion;
+  }
+
+  int getLeft() {
+    return left;
+  }
+
+  int getTop() {
+    return top;
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  @Override
+  public void foundPossibleResultPoint(ResultPoint point) {
+    float x = point.getX() + offsetX;
+    float y = point.getY() + offsetY;
+    record(x, y);
+    if (delegate != null) {
+      delegate.foundPossibleResultPoint(offsetX == 0 && offsetY == 0 ? point : new ResultPoint(x, y));
+    }
+  }
+
+  private void record(float x, float y) {
+    if (!sawPoints) {
+      minX = maxX = x;
+      minY = maxY = y;
+      sawPoints = true;
+    } else {
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+    }
+  }
+
+}
@@ -17,10 +17,10 @@
 package com.google.zxing.client.android.camera;
 
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
-import android.os.Handler;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import com.google.zxing.PlanarYUVLuminanceSource;
@@ -43,6 +43,8 @@ public final class CameraManager {
   private static final int MIN_FRAME_HEIGHT = 240;
   private static final int MAX_FRAME_WIDTH = 600;
   private static final int MAX_FRAME_HEIGHT = 600;
+  // Enough for two decode workers, one queued frame and one being filled by the camera.
+  private static final int PREVIEW_BUFFER_COUNT = 4;
 
   private final Context context;
   private final CameraConfigurationManager configManager;
@@ -55,15 +57,19 @@ public final class CameraManager {
   private int requestedFramingRectWidth;
   private int requestedFramingRectHeight;
   /**
-   * Preview frames are delivered here, which we pass on to the registered handler. Make sure to
-   * clear the handler so it will only receive one message.
+   * Preview frames are delivered here, which we pass on to the registered listener.
    */
   private final PreviewCallback previewCallback;
+  /**
+   * The camera fills these buffers in turn, so no garbage is created per preview frame.
+   */
+  private final PreviewBufferPool bufferPool;
 
   public CameraManager(Context context) {
     this.context = context;
     this.configManager = new CameraConfigurationManager(context);
-    previewCallback = new PreviewCallback(configManager);
+    bufferPool = new PreviewBufferPool(PREVIEW_BUFFER_COUNT);
+    previewCallback = new PreviewCallback(configManager, bufferPool);
   }
 
   /**
@@ -141,6 +147,14 @@ public final class CameraManager {
   public synchronized void startPreview() {
     Camera theCamera = camera;
     if (theCamera != null && !previewing) {
+      Camera.Parameters parameters = theCamera.getParameters();
+      Camera.Size previewSize = parameters.getPreviewSize();
+      int bitsPerPixel = ImageFormat.getBitsPerPixel(parameters.getPreviewFormat());
+      int bufferSize = previewSize.width * previewSize.height * bitsPerPixel / 8;
+      theCamera.setPreviewCallbackWithBuffer(previewCallback);
+      for (byte[] buffer : bufferPool.allocate(bufferSize)) {
+        theCamera.addCallbackBuffer(buffer);
+      }
       theCamera.startPreview();
       previewing = true;
       autoFocusManager = new AutoFocusManager(context, camera);
@@ -156,9 +170,12 @@ public final class CameraManager {
       autoFocusManager = null;
     }
     if (camera != null && previewing) {
+      camera.setPreviewCallbackWithBuffer(null);
       camera.stopPreview();
-      previewCallback.setHandler(null, 0);
+      previewCallback.setListener(null);
       previewing = false;
+      Log.d(TAG, "Preview frames decoded: " + bufferPool.getFramesDelivered() +
+          ", dropped: " + bufferPool.getFramesDropped());
     }
   }
 
@@ -178,18 +195,29 @@ public final class CameraManager {
   }
 
   /**
-   * A single preview frame will be returned to the handler supplied. The data will arrive as byte[]
-   * in the message.obj field, with width and height encoded as message.arg1 and message.arg2,
-   * respectively.
+   * Every preview frame will be offered to the listener supplied until the preview stops. A frame
+   * the listener takes belongs to the camera's preview buffer pool and must be handed back with
+   * {@link #releasePreviewFrame(byte[])} once the listener is done with it. Frames it refuses are
+   * dropped.
    *
-   * @param handler The handler to send the message to.
-   * @param message The what field of the message to be sent.
+   * @param listener The listener to offer frames to.
    */
-  public synchronized void requestPreviewFrame(Handler handler, int message) {
+  public synchronized void setPreviewFrameListener(PreviewFrameListener listener) {
     Camera theCamera = camera;
     if (theCamera != null && previewing) {
-      previewCallback.setHandler(handler, message);
-      theCamera.setOneShotPreviewCallback(previewCallback);
+      previewCallback.setListener(listener);
+    }
+  }
+
+  /**
+   * Returns a frame taken by the {@link PreviewFrameListener} to the camera, so it can be filled
+   * again.
+   *
+   * @param data The preview frame, which must not be touched after this call.
+   */
+  public synchronized void releasePreviewFrame(byte[] data) {
+    if (bufferPool.release(data) && camera != null && previewing) {
+      camera.addCallbackBuffer(data);
     }
   }
 
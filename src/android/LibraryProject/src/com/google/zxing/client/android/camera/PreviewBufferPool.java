@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Owns the small ring of preview buffers handed to the camera through
+ * {@code Camera.addCallbackBuffer()}, and remembers which of them the decoders are holding on to.
+ * A buffer is either queued in the camera driver or checked out by a decoder; once the decoder
+ * is done with a frame it is released and can be given back to the camera.
+ *
+ * This class deliberately has no Android dependencies, so the bookkeeping can be exercised
+ * without a device.
+ */
+final class PreviewBufferPool {
+
+  private final byte[][] buffers;
+  private final boolean[] checkedOut;
+  private int bufferSize;
+  private long framesDelivered;
+  private long framesDropped;
+
+  PreviewBufferPool(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Need at least one preview buffer");
+    }
+    buffers = new byte[capacity][];
+    checkedOut = new boolean[capacity];
+  }
+
+  /**
+   * Prepares the ring for frames of the given size. Buffers of the right size which the decoder
+   * does not currently hold are kept; the rest are replaced, so that a frame still being decoded
+   * is never handed to the camera again.
+   *
+   * @param bufferSize size in bytes of one preview frame
+   * @return all buffers in the ring, every one of which should be queued with the camera
+   */
+  synchronized byte[][] allocate(int bufferSize) {
+    for (int i = 0; i < buffers.length; i++) {
+      if (buffers[i] == null || checkedOut[i] || buffers[i].length != bufferSize) {
+        buffers[i] = new byte[bufferSize];
+      }
+      checkedOut[i] = false;
+    }
+    this.bufferSize = bufferSize;
+    return buffers.clone();
+  }
+
+  /**
+   * Marks a frame delivered by the camera as handed to a decoder.
+   *
+   * @param frame the preview frame
+   * @return false if the frame was not allocated by this pool
+   */
+  synchronized boolean checkOut(byte[] frame) {
+    int index = indexOf(frame);
+    if (index < 0) {
+      return false;
+    }
+    checkedOut[index] = true;
+    framesDelivered++;
+    return true;
+  }
+
+  /**
+   * Marks a frame as finished by its decoder.
+   *
+   * @param frame the preview frame
+   * @return true if the frame belongs to this pool and may be queued with the camera again
+   */
+  synchronized boolean release(byte[] frame) {
+    int index = indexOf(frame);
+    if (index < 0 || !checkedOut[index]) {
+      return false;
+    }
+    checkedOut[index] = false;
+    return true;
+  }
+
+  /**
+   * Records that a frame arrived while nobody could take it. Only a buffer of this pool which no
+   * decoder holds goes back to the camera; any other, such as one left over from before the
+   * preview size changed, is left to the garbage collector.
+   *
+   * @param frame the preview frame
+   * @return true if the frame may be queued with the camera again
+   */
+  synchronized boolean drop(byte[] frame) {
+    int index = indexOf(frame);
+    if (index < 0 || checkedOut[index]) {
+      return false;
+    }
+    framesDropped++;
+    return true;
+  }
+
+  synchronized int getBufferSize() {
+    return bufferSize;
+  }
+
+  synchronized int getCheckedOutCount() {
+    int count = 0;
+    for (boolean out : checkedOut) {
+      if (out) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  synchronized long getFramesDelivered() {
+    return framesDelivered;
+  }
+
+  synchronized long getFramesDropped() {
+    return framesDropped;
+  }
+
+  private int indexOf(byte[] frame) {
+    for (int i = 0; i < buffers.length; i++) {
+      if (buffers[i] == frame) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
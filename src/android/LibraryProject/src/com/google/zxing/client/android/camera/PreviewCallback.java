@@ -18,8 +18,6 @@ package com.google.zxing.client.android.camera;
 
 import android.graphics.Point;
 import android.hardware.Camera;
-import android.os.Handler;
-import android.os.Message;
 import android.util.Log;
 
 final class PreviewCallback implements Camera.PreviewCallback {
@@ -27,29 +25,33 @@ final class PreviewCallback implements Camera.PreviewCallback {
   private static final String TAG = PreviewCallback.class.getSimpleName();
 
   private final CameraConfigurationManager configManager;
-  private Handler previewHandler;
-  private int previewMessage;
+  private final PreviewBufferPool bufferPool;
+  private PreviewFrameListener listener;
 
-  PreviewCallback(CameraConfigurationManager configManager) {
+  PreviewCallback(CameraConfigurationManager configManager, PreviewBufferPool bufferPool) {
     this.configManager = configManager;
+    this.bufferPool = bufferPool;
   }
 
-  void setHandler(Handler previewHandler, int previewMessage) {
-    this.previewHandler = previewHandler;
-    this.previewMessage = previewMessage;
+  void setListener(PreviewFrameListener listener) {
+    this.listener = listener;
   }
 
   @Override
   public void onPreviewFrame(byte[] data, Camera camera) {
     Point cameraResolution = configManager.getCameraResolution();
-    Handler thePreviewHandler = previewHandler;
-    if (cameraResolution != null && thePreviewHandler != null) {
-      Message message = thePreviewHandler.obtainMessage(previewMessage, cameraResolution.x,
-          cameraResolution.y, data);
-      message.sendToTarget();
-      previewHandler = null;
-    } else {
-      Log.d(TAG, "Got preview callback, but no handler or resolution available");
+    PreviewFrameListener theListener = listener;
+    if (cameraResolution != null && theListener != null && bufferPool.checkOut(data)) {
+      if (theListener.offerFrame(data, cameraResolution.x, cameraResolution.y)) {
+        return;
+      }
+      bufferPool.release(data);
+    } else if (cameraResolution == null) {
+      Log.d(TAG, "Got preview callback, but no resolution available");
+    }
+    // Nobody wants this frame right now, so hand the buffer straight back, if it is one of ours.
+    if (bufferPool.drop(data)) {
+      camera.addCallbackBuffer(data);
     }
   }
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+/**
+ * Receives every preview frame the camera delivers while it is registered with
+ * {@link CameraManager#setPreviewFrameListener(PreviewFrameListener)}.
+ */
+public interface PreviewFrameListener {
+
+  /**
+   * Offers a preview frame. A listener which takes the frame owns the buffer until it hands it
+   * back through {@link CameraManager#releasePreviewFrame(byte[])}.
+   *
+   * @param data The YUV preview frame.
+   * @param width The width of the preview frame.
+   * @param height The height of the preview frame.
+   * @return false if the frame was not taken, in which case it goes straight back to the camera
+   */
+  boolean offerFrame(byte[] data, int width, int height);
+
+}
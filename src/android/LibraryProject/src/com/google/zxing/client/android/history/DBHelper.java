@@ -27,13 +27,13 @@ final class DBHelper extends SQLiteOpenHelper {
 
   private static final int DB_VERSION = 5;
   private static final String DB_NAME = "barcode_scanner_history.db";
-  static final String TABLE_NAME = "history";
-  static final String ID_COL = "id";
-  static final String TEXT_COL = "text";
-  static final String FORMAT_COL = "format";
-  static final String DISPLAY_COL = "display";
-  static final String TIMESTAMP_COL = "timestamp";
-  static final String DETAILS_COL = "details";
+  static final String TABLE_NAME = HistorySql.TABLE_NAME;
+  static final String ID_COL = HistorySql.ID_COL;
+  static final String TEXT_COL = HistorySql.TEXT_COL;
+  static final String FORMAT_COL = HistorySql.FORMAT_COL;
+  static final String DISPLAY_COL = HistorySql.DISPLAY_COL;
+  static final String TIMESTAMP_COL = HistorySql.TIMESTAMP_COL;
+  static final String DETAILS_COL = HistorySql.DETAILS_COL;
 
   DBHelper(Context context) {
     super(context, DB_NAME, null, DB_VERSION);
@@ -41,19 +41,12 @@ final class DBHelper extends SQLiteOpenHelper {
 
   @Override
   public void onCreate(SQLiteDatabase sqLiteDatabase) {
-    sqLiteDatabase.execSQL(
-            "CREATE TABLE " + TABLE_NAME + " (" +
-            ID_COL + " INTEGER PRIMARY KEY, " +
-            TEXT_COL + " TEXT, " +
-            FORMAT_COL + " TEXT, " +
-            DISPLAY_COL + " TEXT, " +
-            TIMESTAMP_COL + " INTEGER, " +
-            DETAILS_COL + " TEXT);");
+    sqLiteDatabase.execSQL(HistorySql.CREATE_TABLE_SQL);
   }
 
   @Override
   public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    sqLiteDatabase.execSQL(HistorySql.DROP_TABLE_SQL);
     onCreate(sqLiteDatabase);
   }
 
@@ -65,14 +65,18 @@ public final class HistoryActivity extends ListActivity {
   }
 
   private void reloadHistoryItems() {
-    List<HistoryItem> items = historyManager.buildHistoryItems();
-    adapter.clear();
-    for (HistoryItem item : items) {
-      adapter.add(item);
-    }
-    if (adapter.isEmpty()) {
-      adapter.add(new HistoryItem(null, null, null));
-    }
+    historyManager.loadHistoryItems(new HistoryCallback<List<HistoryItem>>() {
+      @Override
+      public void onResult(List<HistoryItem> items) {
+        adapter.clear();
+        for (HistoryItem item : items) {
+          adapter.add(item);
+        }
+        if (adapter.isEmpty()) {
+          adapter.add(new HistoryItem(null, null, null));
+        }
+      }
+    });
   }
 
   @Override
@@ -105,38 +109,30 @@ public final class HistoryActivity extends ListActivity {
 
   @Override
   public boolean onCreateOptionsMenu(Menu menu) {
-    if (historyManager.hasHistoryItems()) {
-      MenuInflater menuInflater = getMenuInflater();
-      menuInflater.inflate(fakeR.getId("menu", "history"), menu);
-    }
+    MenuInflater menuInflater = getMenuInflater();
+    menuInflater.inflate(fakeR.getId("menu", "history"), menu);
     return super.onCreateOptionsMenu(menu);
   }
 
+  @Override
+  public boolean onPrepareOptionsMenu(Menu menu) {
+    // The list holds a dummy "Empty" item, or nothing while it loads, when there is no history.
+    boolean hasHistoryItems = !adapter.isEmpty() && adapter.getItem(0).getResult() != null;
+    menu.findItem(fakeR.getId("id", "menu_history_send")).setVisible(hasHistoryItems);
+    menu.findItem(fakeR.getId("id", "menu_history_clear_text")).setVisible(hasHistoryItems);
+    return super.onPrepareOptionsMenu(menu);
+  }
+
   @Override
   public boolean onOptionsItemSelected(MenuItem item) {
     int itemId = item.getItemId();
     if (itemId == fakeR.getId("id", "menu_history_send")) {
-        CharSequence history = historyManager.buildHistory();
-        Uri historyFile = HistoryManager.saveHistory(history.toString());
-        if (historyFile == null) {
-          AlertDialog.Builder builder = new AlertDialog.Builder(this);
-          builder.setMessage(fakeR.getId("string", "msg_unmount_usb"));
-          builder.setPositiveButton(fakeR.getId("string", "button_ok"), null);
-          builder.show();
-        } else {
-          Intent intent = new Intent(Intent.ACTION_SEND, Uri.parse("mailto:"));
-          intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_WHEN_TASK_RESET);
-          String subject = getResources().getString(fakeR.getId("string", "history_email_title"));
-          intent.putExtra(Intent.EXTRA_SUBJECT, subject);
-          intent.putExtra(Intent.EXTRA_TEXT, subject);
-          intent.putExtra(Intent.EXTRA_STREAM, historyFile);
-          intent.setType("text/csv");
-          try {
-            startActivity(intent);
-          } catch (ActivityNotFoundException anfe) {
-            Log.w(TAG, anfe.toString());
+        historyManager.buildHistory(new HistoryCallback<CharSequence>() {
+          @Override
+          public void onResult(CharSequence history) {
+            sendHistory(history);
           }
-        }
+        });
     } else if (itemId == fakeR.getId("id", "menu_history_clear_text")) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setMessage(fakeR.getId("string", "msg_sure"));
@@ -157,4 +153,27 @@ public final class HistoryActivity extends ListActivity {
     return true;
   }
 
+  private void sendHistory(CharSequence history) {
+    Uri historyFile = HistoryManager.saveHistory(history.toString());
+    if (historyFile == null) {
+      AlertDialog.Builder builder = new AlertDialog.Builder(this);
+      builder.setMessage(fakeR.getId("string", "msg_unmount_usb"));
+      builder.setPositiveButton(fakeR.getId("string", "button_ok"), null);
+      builder.show();
+    } else {
+      Intent intent = new Intent(Intent.ACTION_SEND, Uri.parse("mailto:"));
+      intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_WHEN_TASK_RESET);
+      String subject = getResources().getString(fakeR.getId("string", "history_email_title"));
+      intent.putExtra(Intent.EXTRA_SUBJECT, subject);
+      intent.putExtra(Intent.EXTRA_TEXT, subject);
+      intent.putExtra(Intent.EXTRA_STREAM, historyFile);
+      intent.setType("text/csv");
+      try {
+        startActivity(intent);
+      } catch (ActivityNotFoundException anfe) {
+        Log.w(TAG, anfe.toString());
+      }
+    }
+  }
+
 }
@@ -34,6 +34,14 @@ public final class HistoryItem {
     return result;
   }
 
+  String getDisplay() {
+    return display;
+  }
+
+  String getDetails() {
+    return details;
+  }
+
   public String getDisplayAndDetails() {
     StringBuilder displayResult = new StringBuilder();
     if (display == null || display.length() == 0) {
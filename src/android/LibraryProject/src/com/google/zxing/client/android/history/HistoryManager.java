@@ -16,21 +16,18 @@
 
 package com.google.zxing.client.android.history;
 
-import android.database.sqlite.SQLiteException;
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 import com.google.zxing.client.android.Intents;
 import com.google.zxing.client.android.PreferencesActivity;
 import com.google.zxing.client.android.result.ResultHandler;
 
 import android.app.Activity;
-import android.content.ContentValues;
 import android.content.SharedPreferences;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.net.Uri;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
@@ -40,7 +37,6 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -55,99 +51,55 @@ public final class HistoryManager {
 
   private static final int MAX_ITEMS = 500;
 
-  private static final String[] COLUMNS = {
-      DBHelper.TEXT_COL,
-      DBHelper.DISPLAY_COL,
-      DBHelper.FORMAT_COL,
-      DBHelper.TIMESTAMP_COL,
-      DBHelper.DETAILS_COL,
-  };
-
-  private static final String[] COUNT_COLUMN = { "COUNT(1)" };
-
-  private static final String[] ID_COL_PROJECTION = { DBHelper.ID_COL };
-  private static final String[] ID_DETAIL_COL_PROJECTION = { DBHelper.ID_COL, DBHelper.DETAILS_COL };
+  // Only used on the writer thread.
   private static final DateFormat EXPORT_DATE_TIME_FORMAT =
       DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.MEDIUM);
 
+  // One connection and one writer for the whole process, shared by all instances.
+  private static SQLiteOpenHelper helper;
+  private static HistoryWriter writer;
+
   private final Activity activity;
+  private final Handler uiHandler;
 
   public HistoryManager(Activity activity) {
     this.activity = activity;
+    uiHandler = new Handler(Looper.getMainLooper());
+    synchronized (HistoryManager.class) {
+      if (helper == null) {
+        helper = new DBHelper(activity.getApplicationContext());
+        writer = new HistoryWriter(new SQLiteHistoryStore(helper), MAX_ITEMS);
+        writer.start();
+      }
+    }
   }
 
-  public boolean hasHistoryItems() {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getReadableDatabase();
-      cursor = db.query(DBHelper.TABLE_NAME, COUNT_COLUMN, null, null, null, null, null);
-      cursor.moveToFirst();
-      return cursor.getInt(0) > 0;
-    } finally {
-      close(cursor, db);
-    }
+  /**
+   * Reads every entry, newest first, after the writes made so far.
+   *
+   * @param callback called on the UI thread with the entries
+   */
+  public void loadHistoryItems(HistoryCallback<List<HistoryItem>> callback) {
+    writer.read(onUiThread(callback));
   }
 
-  public List<HistoryItem> buildHistoryItems() {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    List<HistoryItem> items = new ArrayList<HistoryItem>();
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getReadableDatabase();
-      cursor = db.query(DBHelper.TABLE_NAME, COLUMNS, null, null, null, null, DBHelper.TIMESTAMP_COL + " DESC");
-      while (cursor.moveToNext()) {
-        String text = cursor.getString(0);
-        String display = cursor.getString(1);
-        String format = cursor.getString(2);
-        long timestamp = cursor.getLong(3);
-        String details = cursor.getString(4);
-        Result result = new Result(text, null, null, BarcodeFormat.valueOf(format), timestamp);
-        items.add(new HistoryItem(result, display, details));
+  /**
+   * Reads one entry, counting from the newest, after the writes made so far.
+   *
+   * @param callback called on the UI thread with the entry, or null if there is none
+   */
+  public void loadHistoryItem(final int number, HistoryCallback<HistoryItem> callback) {
+    final HistoryCallback<HistoryItem> onUiThread = onUiThread(callback);
+    writer.read(new HistoryCallback<List<HistoryItem>>() {
+      @Override
+      public void onResult(List<HistoryItem> items) {
+        onUiThread.onResult(number >= 0 && number < items.size() ? items.get(number) : null);
       }
-    } finally {
-      close(cursor, db);
-    }
-    return items;
+    });
   }
 
-  public HistoryItem buildHistoryItem(int number) {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getReadableDatabase();
-      cursor = db.query(DBHelper.TABLE_NAME, COLUMNS, null, null, null, null, DBHelper.TIMESTAMP_COL + " DESC");
-      cursor.move(number + 1);
-      String text = cursor.getString(0);
-      String display = cursor.getString(1);
-      String format = cursor.getString(2);
-      long timestamp = cursor.getLong(3);
-      String details = cursor.getString(4);
-      Result result = new Result(text, null, null, BarcodeFormat.valueOf(format), timestamp);
-      return new HistoryItem(result, display, details);
-    } finally {
-      close(cursor, db);
-    }
-  }
-  
   public void deleteHistoryItem(int number) {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getWritableDatabase();      
-      cursor = db.query(DBHelper.TABLE_NAME,
-                        ID_COL_PROJECTION,
-                        null, null, null, null,
-                        DBHelper.TIMESTAMP_COL + " DESC");
-      cursor.move(number + 1);
-      db.delete(DBHelper.TABLE_NAME, DBHelper.ID_COL + '=' + cursor.getString(0), null);
-    } finally {
-      close(cursor, db);
-    }
+    writer.deleteAt(number);
   }
 
   public void addHistoryItem(Result result, ResultHandler handler) {
@@ -159,96 +111,22 @@ public final class HistoryManager {
     }
 
     SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
-    if (!prefs.getBoolean(PreferencesActivity.KEY_REMEMBER_DUPLICATES, false)) {
-      deletePrevious(result.getText());
-    }
-
-    ContentValues values = new ContentValues();
-    values.put(DBHelper.TEXT_COL, result.getText());
-    values.put(DBHelper.FORMAT_COL, result.getBarcodeFormat().toString());
-    values.put(DBHelper.DISPLAY_COL, handler.getDisplayContents().toString());
-    values.put(DBHelper.TIMESTAMP_COL, System.currentTimeMillis());
-
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    try {
-      db = helper.getWritableDatabase();      
-      // Insert the new entry into the DB.
-      db.insert(DBHelper.TABLE_NAME, DBHelper.TIMESTAMP_COL, values);
-    } finally {
-      close(null, db);
-    }
+    boolean replacePrevious = !prefs.getBoolean(PreferencesActivity.KEY_REMEMBER_DUPLICATES, false);
+    writer.insert(result.getText(),
+                  result.getBarcodeFormat().toString(),
+                  handler.getDisplayContents().toString(),
+                  System.currentTimeMillis(),
+                  replacePrevious);
   }
 
   public void addHistoryItemDetails(String itemID, String itemDetails) {
     // As we're going to do an update only we don't need need to worry
     // about the preferences; if the item wasn't saved it won't be udpated
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;    
-    Cursor cursor = null;
-    try {
-      db = helper.getWritableDatabase();
-      cursor = db.query(DBHelper.TABLE_NAME,
-                        ID_DETAIL_COL_PROJECTION,
-                        DBHelper.TEXT_COL + "=?",
-                        new String[] { itemID },
-                        null,
-                        null,
-                        DBHelper.TIMESTAMP_COL + " DESC",
-                        "1");
-      String oldID = null;
-      String oldDetails = null;
-      if (cursor.moveToNext()) {
-        oldID = cursor.getString(0);
-        oldDetails = cursor.getString(1);
-      }
-
-      if (oldID != null) {
-        String newDetails = oldDetails == null ? itemDetails : oldDetails + " : " + itemDetails;
-        ContentValues values = new ContentValues();
-        values.put(DBHelper.DETAILS_COL, newDetails);
-        db.update(DBHelper.TABLE_NAME, values, DBHelper.ID_COL + "=?", new String[] { oldID });
-      }
-
-    } finally {
-      close(cursor, db);
-    }
-  }
-
-  private void deletePrevious(String text) {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    try {
-      db = helper.getWritableDatabase();      
-      db.delete(DBHelper.TABLE_NAME, DBHelper.TEXT_COL + "=?", new String[] { text });
-    } finally {
-      close(null, db);
-    }
+    writer.appendDetails(itemID, itemDetails);
   }
 
   public void trimHistory() {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getWritableDatabase();      
-      cursor = db.query(DBHelper.TABLE_NAME,
-                        ID_COL_PROJECTION,
-                        null, null, null, null,
-                        DBHelper.TIMESTAMP_COL + " DESC");
-      cursor.move(MAX_ITEMS);
-      while (cursor.moveToNext()) {
-        db.delete(DBHelper.TABLE_NAME, DBHelper.ID_COL + '=' + cursor.getString(0), null);
-      }
-    } catch (SQLiteException sqle) {
-      // We're seeing an error here when called in CaptureActivity.onCreate() in rare cases
-      // and don't understand it. First theory is that it's transient so can be safely ignored.
-      // TODO revisit this after live in a future version to see if it 'worked'
-      Log.w(TAG, sqle);
-      // continue
-    } finally {
-      close(cursor, db);
-    }
+    writer.trim();
   }
 
   /**
@@ -265,49 +143,38 @@ public final class HistoryManager {
    *  <li>Formatted version of timestamp</li>
    * </ul>
    */
-  CharSequence buildHistory() {
-    StringBuilder historyText = new StringBuilder(1000);
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    Cursor cursor = null;
-    try {
-      db = helper.getWritableDatabase();
-      cursor = db.query(DBHelper.TABLE_NAME,
-                        COLUMNS,
-                        null, null, null, null,
-                        DBHelper.TIMESTAMP_COL + " DESC");
-
-      while (cursor.moveToNext()) {
-
-        historyText.append('"').append(massageHistoryField(cursor.getString(0))).append("\",");
-        historyText.append('"').append(massageHistoryField(cursor.getString(1))).append("\",");
-        historyText.append('"').append(massageHistoryField(cursor.getString(2))).append("\",");
-        historyText.append('"').append(massageHistoryField(cursor.getString(3))).append("\",");
-
-        // Add timestamp again, formatted
-        long timestamp = cursor.getLong(3);
-        historyText.append('"').append(massageHistoryField(
-            EXPORT_DATE_TIME_FORMAT.format(new Date(timestamp)))).append("\",");
-
-        // Above we're preserving the old ordering of columns which had formatted data in position 5
-
-        historyText.append('"').append(massageHistoryField(cursor.getString(4))).append("\"\r\n");
+  void buildHistory(HistoryCallback<CharSequence> callback) {
+    final HistoryCallback<CharSequence> onUiThread = onUiThread(callback);
+    writer.read(new HistoryCallback<List<HistoryItem>>() {
+      @Override
+      public void onResult(List<HistoryItem> items) {
+        StringBuilder historyText = new StringBuilder(1000);
+        for (HistoryItem item : items) {
+          Result result = item.getResult();
+          long timestamp = result.getTimestamp();
+
+          historyText.append('"').append(massageHistoryField(result.getText())).append("\",");
+          historyText.append('"').append(massageHistoryField(item.getDisplay())).append("\",");
+          historyText.append('"').append(massageHistoryField(
+              result.getBarcodeFormat().toString())).append("\",");
+          historyText.append('"').append(massageHistoryField(
+              String.valueOf(timestamp))).append("\",");
+
+          // Add timestamp again, formatted
+          historyText.append('"').append(massageHistoryField(
+              EXPORT_DATE_TIME_FORMAT.format(new Date(timestamp)))).append("\",");
+
+          // Above we're preserving the old ordering of columns which had formatted data in position 5
+
+          historyText.append('"').append(massageHistoryField(item.getDetails())).append("\"\r\n");
+        }
+        onUiThread.onResult(historyText);
       }
-      return historyText;
-    } finally {
-      close(cursor, db);
-    }
+    });
   }
-  
+
   void clearHistory() {
-    SQLiteOpenHelper helper = new DBHelper(activity);
-    SQLiteDatabase db = null;
-    try {
-      db = helper.getWritableDatabase();      
-      db.delete(DBHelper.TABLE_NAME, null, null);
-    } finally {
-      close(null, db);
-    }
+    writer.clear();
   }
 
   static Uri saveHistory(String history) {
@@ -341,13 +208,18 @@ public final class HistoryManager {
     return value == null ? "" : value.replace("\"","\"\"");
   }
   
-  private static void close(Cursor cursor, SQLiteDatabase database) {
-    if (cursor != null) {
-      cursor.close();
-    }
-    if (database != null) {
-      database.close();
-    }
+  private <T> HistoryCallback<T> onUiThread(final HistoryCallback<T> callback) {
+    return new HistoryCallback<T>() {
+      @Override
+      public void onResult(final T result) {
+        uiHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            callback.onResult(result);
+          }
+        });
+      }
+    };
   }
 
 }
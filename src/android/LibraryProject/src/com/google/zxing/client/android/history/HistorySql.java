@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+/**
+ * The history table and the statements {@link SQLiteHistoryStore} runs on it. This class does not
+ * depend on Android: the SQL is plain SQLite with positional parameters, so it can be prepared as
+ * is with a JDBC SQLite driver against a table made with {@link #CREATE_TABLE_SQL}.
+ */
+final class HistorySql {
+
+  static final String TABLE_NAME = "history";
+  static final String ID_COL = "id";
+  static final String TEXT_COL = "text";
+  static final String FORMAT_COL = "format";
+  static final String DISPLAY_COL = "display";
+  static final String TIMESTAMP_COL = "timestamp";
+  static final String DETAILS_COL = "details";
+
+  static final String CREATE_TABLE_SQL =
+      "CREATE TABLE " + TABLE_NAME + " (" +
+      ID_COL + " INTEGER PRIMARY KEY, " +
+      TEXT_COL + " TEXT, " +
+      FORMAT_COL + " TEXT, " +
+      DISPLAY_COL + " TEXT, " +
+      TIMESTAMP_COL + " INTEGER, " +
+      DETAILS_COL + " TEXT);";
+
+  static final String DROP_TABLE_SQL = "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+  // Inserting without duplicates runs this, ?1 being the text, then INSERT_SQL.
+  static final String DELETE_PREVIOUS_SQL =
+      "DELETE FROM " + TABLE_NAME + " WHERE " + TEXT_COL + "=?";
+
+  // ?1 text, ?2 format, ?3 display, ?4 timestamp.
+  static final String INSERT_SQL =
+      "INSERT INTO " + TABLE_NAME + " (" +
+      TEXT_COL + ", " +
+      FORMAT_COL + ", " +
+      DISPLAY_COL + ", " +
+      TIMESTAMP_COL + ") VALUES (?, ?, ?, ?)";
+
+  // ?1 is the new details, ?2 the text of the entry.
+  static final String APPEND_DETAILS_SQL =
+      "UPDATE " + TABLE_NAME + " SET " + DETAILS_COL + " = CASE WHEN " +
+      DETAILS_COL + " IS NULL THEN ?1 ELSE " + DETAILS_COL + " || ' : ' || ?1 END" +
+      " WHERE " + ID_COL + " = (SELECT " + ID_COL + " FROM " + TABLE_NAME +
+      " WHERE " + TEXT_COL + " = ?2 ORDER BY " + TIMESTAMP_COL + " DESC LIMIT 1)";
+
+  // ?1 is the number of newest entries to keep.
+  static final String TRIM_SQL =
+      "DELETE FROM " + TABLE_NAME + " WHERE " + ID_COL + " NOT IN (SELECT " +
+      ID_COL + " FROM " + TABLE_NAME + " ORDER BY " + TIMESTAMP_COL + " DESC LIMIT ?)";
+
+  // ?1 is the position of the entry, newest first.
+  static final String DELETE_AT_SQL =
+      "DELETE FROM " + TABLE_NAME + " WHERE " + ID_COL + " = (SELECT " + ID_COL + " FROM " +
+      TABLE_NAME + " ORDER BY " + TIMESTAMP_COL + " DESC LIMIT 1 OFFSET ?)";
+
+  static final String CLEAR_SQL = "DELETE FROM " + TABLE_NAME;
+
+  // Every entry, newest first.
+  static final String QUERY_SQL =
+      "SELECT " + TEXT_COL + ", " + DISPLAY_COL + ", " + FORMAT_COL + ", " + TIMESTAMP_COL + ", " +
+      DETAILS_COL + " FROM " + TABLE_NAME + " ORDER BY " + TIMESTAMP_COL + " DESC";
+
+  private HistorySql() {
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+import java.util.List;
+
+/**
+ * The writes {@link HistoryWriter} makes to the history table, and the one read it makes between
+ * them. Every call between {@link #beginBatch()} and {@link #commitBatch()} belongs to one
+ * transaction.
+ */
+interface HistoryStore {
+
+  void beginBatch();
+
+  void commitBatch();
+
+  /**
+   * Rolls back the current batch after one of its writes failed.
+   */
+  void abortBatch(RuntimeException cause);
+
+  /**
+   * @param replacePrevious if true, earlier entries with the same text are deleted first
+   */
+  void insert(String text, String format, String display, long timestamp, boolean replacePrevious);
+
+  /**
+   * Appends to the details of the most recent entry with the given text, if there is one.
+   */
+  void appendDetails(String text, String details);
+
+  /**
+   * Deletes all but the newest entries.
+   */
+  void trim(int maxItems);
+
+  /**
+   * Deletes the entry at the given position, newest first, if there is one.
+   */
+  void deleteAt(int position);
+
+  void clear();
+
+  /**
+   * Called outside of any batch.
+   *
+   * @return every entry, newest first, or an empty list if the table cannot be read
+   */
+  List<HistoryItem> query();
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Applies history writes on a background thread, so that saving a scan never touches the disk on
+ * the UI thread. Writes which pile up while a batch is being committed go into the next batch,
+ * one transaction each, and a batch containing inserts trims the history once at its end.
+ *
+ * Reads go through the same queue, so they see every write queued before them without anyone
+ * waiting for the queue to drain. A read ends the batch in front of it and runs on its own.
+ *
+ * This class only talks to a {@link HistoryStore}, so it does not depend on Android.
+ */
+final class HistoryWriter extends Thread {
+
+  // Upper bound on writes committed in one transaction.
+  private static final int MAX_BATCH_SIZE = 32;
+
+  private abstract static class Task {
+    boolean grows() {
+      return false;
+    }
+    boolean reads() {
+      return false;
+    }
+    abstract void applyTo(HistoryStore store);
+  }
+
+  private final HistoryStore store;
+  private final int maxItems;
+  private final BlockingQueue<Task> queue;
+
+  HistoryWriter(HistoryStore store, int maxItems) {
+    super("HistoryWriter");
+    setDaemon(true);
+    this.store = store;
+    this.maxItems = maxItems;
+    queue = new LinkedBlockingQueue<Task>();
+  }
+
+  void insert(final String text,
+              final String format,
+              final String display,
+              final long timestamp,
+              final boolean replacePrevious) {
+    queue.add(new Task() {
+      @Override
+      boolean grows() {
+        return true;
+      }
+      @Override
+      void applyTo(HistoryStore store) {
+        store.insert(text, format, display, timestamp, replacePrevious);
+      }
+    });
+  }
+
+  void appendDetails(final String text, final String details) {
+    queue.add(new Task() {
+      @Override
+      void applyTo(HistoryStore store) {
+        store.appendDetails(text, details);
+      }
+    });
+  }
+
+  void trim() {
+    queue.add(new Task() {
+      @Override
+      void applyTo(HistoryStore store) {
+        store.trim(maxItems);
+      }
+    });
+  }
+
+  void deleteAt(final int position) {
+    queue.add(new Task() {
+      @Override
+      void applyTo(HistoryStore store) {
+        store.deleteAt(position);
+      }
+    });
+  }
+
+  void clear() {
+    queue.add(new Task() {
+      @Override
+      void applyTo(HistoryStore store) {
+        store.clear();
+      }
+    });
+  }
+
+  /**
+   * Reads every entry, newest first, once the writes queued so far have been applied.
+   *
+   * @param callback called on this thread with the entries
+   */
+  void read(final HistoryCallback<List<HistoryItem>> callback) {
+    queue.add(new Task() {
+      @Override
+      boolean reads() {
+        return true;
+      }
+      @Override
+      void applyTo(HistoryStore store) {
+        callback.onResult(store.query());
+      }
+    });
+  }
+
+  @Override
+  public void run() {
+    List<Task> batch = new ArrayList<Task>(MAX_BATCH_SIZE);
+    try {
+      while (true) {
+        Task task = queue.take();
+        if (task.reads()) {
+          task.applyTo(store);
+          continue;
+        }
+        batch.add(task);
+        Task next;
+        while (batch.size() < MAX_BATCH_SIZE && (next = queue.peek()) != null && !next.reads()) {
+          batch.add(queue.poll());
+        }
+        try {
+          store.beginBatch();
+          boolean grew = false;
+          for (Task write : batch) {
+            write.applyTo(store);
+            grew |= write.grows();
+          }
+          if (grew) {
+            store.trim(maxItems);
+          }
+          store.commitBatch();
+        } catch (RuntimeException re) {
+          store.abortBatch(re);
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException ie) {
+      // stop
+    }
+  }
+
+}
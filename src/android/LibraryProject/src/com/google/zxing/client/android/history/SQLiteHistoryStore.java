@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link HistoryStore} on the app's history database. The statements in {@link HistorySql} are
+ * compiled once on the shared connection and reused.
+ */
+final class SQLiteHistoryStore implements HistoryStore {
+
+  private static final String TAG = SQLiteHistoryStore.class.getSimpleName();
+
+  private final SQLiteOpenHelper helper;
+  private SQLiteDatabase db;
+  private SQLiteStatement deletePrevious;
+  private SQLiteStatement insert;
+  private SQLiteStatement appendDetails;
+  private SQLiteStatement trim;
+  private SQLiteStatement deleteAt;
+  private SQLiteStatement clear;
+  private boolean inBatch;
+
+  SQLiteHistoryStore(SQLiteOpenHelper helper) {
+    this.helper = helper;
+  }
+
+  @Override
+  public void beginBatch() {
+    open();
+    db.beginTransaction();
+    inBatch = true;
+  }
+
+  @Override
+  public void commitBatch() {
+    db.setTransactionSuccessful();
+    inBatch = false;
+    db.endTransaction();
+  }
+
+  @Override
+  public void abortBatch(RuntimeException cause) {
+    Log.w(TAG, "Dropping history writes", cause);
+    if (inBatch) {
+      inBatch = false;
+      db.endTransaction();
+    }
+  }
+
+  @Override
+  public void insert(String text, String format, String display, long timestamp, boolean replacePrevious) {
+    if (replacePrevious) {
+      deletePrevious.bindString(1, text);
+      deletePrevious.execute();
+    }
+    insert.bindString(1, text);
+    insert.bindString(2, format);
+    insert.bindString(3, display);
+    insert.bindLong(4, timestamp);
+    insert.execute();
+  }
+
+  @Override
+  public void appendDetails(String text, String details) {
+    appendDetails.bindString(1, details);
+    appendDetails.bindString(2, text);
+    appendDetails.execute();
+  }
+
+  @Override
+  public void trim(int maxItems) {
+    trim.bindLong(1, maxItems);
+    trim.execute();
+  }
+
+  @Override
+  public void deleteAt(int position) {
+    deleteAt.bindLong(1, position);
+    deleteAt.execute();
+  }
+
+  @Override
+  public void clear() {
+    clear.execute();
+  }
+
+  @Override
+  public List<HistoryItem> query() {
+    Cursor cursor = null;
+    try {
+      open();
+      cursor = db.rawQuery(HistorySql.QUERY_SQL, null);
+      List<HistoryItem> items = new ArrayList<HistoryItem>(cursor.getCount());
+      while (cursor.moveToNext()) {
+        String text = cursor.getString(0);
+        String display = cursor.getString(1);
+        String format = cursor.getString(2);
+        long timestamp = cursor.getLong(3);
+        String details = cursor.getString(4);
+        Result result = new Result(text, null, null, BarcodeFormat.valueOf(format), timestamp);
+        items.add(new HistoryItem(result, display, details));
+      }
+      return items;
+    } catch (RuntimeException re) {
+      Log.w(TAG, "Couldn't read history", re);
+      return Collections.emptyList();
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  private void open() {
+    if (db == null) {
+      // Stays open for the life of the process; the helper hands out this same connection.
+      db = helper.getWritableDatabase();
+      deletePrevious = db.compileStatement(HistorySql.DELETE_PREVIOUS_SQL);
+      insert = db.compileStatement(HistorySql.INSERT_SQL);
+      appendDetails = db.compileStatement(HistorySql.APPEND_DETAILS_SQL);
+      trim = db.compileStatement(HistorySql.TRIM_SQL);
+      deleteAt = db.compileStatement(HistorySql.DELETE_AT_SQL);
+      clear = db.compileStatement(HistorySql.CLEAR_SQL);
+    }
+  }
+
+}
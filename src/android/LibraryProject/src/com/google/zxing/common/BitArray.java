@@ -166,6 +166,19 @@ public final class BitArray {
     }
   }
 
+  /**
+   * Makes this an array of the given size with every bit cleared, keeping the storage if it is
+   * large enough.
+   */
+  void reset(int size) {
+    if (size > bits.length << 5) {
+      bits = makeArray(size);
+    } else {
+      clear();
+    }
+    this.size = size;
+  }
+
   /**
    * Clears all bits (sets to false).
    */
@@ -289,17 +302,25 @@ public final class BitArray {
   }
 
   /**
-   * Reverses all bits in the array.
+   * Reverses all bits in the array, in place.
    */
   public void reverse() {
-    int[] newBits = new int[bits.length];
-    int size = this.size;
-    for (int i = 0; i < size; i++) {
-      if (get(size - i - 1)) {
-        newBits[i >> 5] |= 1 << (i & 0x1F);
+    int numInts = (size + 31) >> 5;
+    int[] bits = this.bits;
+    // Reversing the order of the ints and the bits in each reverses all numInts * 32 bits ...
+    for (int i = 0, j = numInts - 1; i <= j; i++, j--) {
+      int temp = Integer.reverse(bits[i]);
+      bits[i] = Integer.reverse(bits[j]);
+      bits[j] = temp;
+    }
+    // ... after which the array is offset by the unused bits at the end of the last int
+    int offset = (numInts << 5) - size;
+    if (offset != 0) {
+      for (int i = 0; i < numInts - 1; i++) {
+        bits[i] = (bits[i] >>> offset) | (bits[i + 1] << (32 - offset));
       }
+      bits[numInts - 1] >>>= offset;
     }
-    bits = newBits;
   }
 
   private static int[] makeArray(int size) {
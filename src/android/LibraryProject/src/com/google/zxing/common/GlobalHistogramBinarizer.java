@@ -108,9 +108,9 @@ public class GlobalHistogramBinarizer extends Binarizer {
     // We delay reading the entire image luminance until the black point estimation succeeds.
     // Although we end up reading four rows twice, it is consistent with our motto of
     // "fail quickly" which is necessary for continuous scanning.
-    byte[] localLuminances = source.getMatrix();
-    for (int y = 0; y < height; y++) {
-      int offset = y * width;
+    byte[] localLuminances = source.getStridedMatrix();
+    int stride = source.getMatrixStride();
+    for (int y = 0, offset = source.getMatrixOffset(); y < height; y++, offset += stride) {
       for (int x = 0; x< width; x++) {
         int pixel = localLuminances[offset + x] & 0xff;
         if (pixel < blackPoint) {
@@ -48,11 +48,29 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
   private static final int MIN_DYNAMIC_RANGE = 24;
 
   private BitMatrix matrix;
+  private BitMatrix recycledMatrix;
+  private int[] blackPoints;
 
   public HybridBinarizer(LuminanceSource source) {
     super(source);
   }
 
+  /**
+   * Rebinds this binarizer to a new frame, keeping the black point grid and the BitMatrix it
+   * allocated for earlier frames of the same size. This is meant for continuous scanning, where a
+   * single decode thread owns the binarizer: the BitMatrix handed out for the previous frame is
+   * overwritten by the next call to getBlackMatrix(), so it must not be kept beyond one decode.
+   *
+   * @param source The LuminanceSource for the next frame.
+   */
+  public void reset(LuminanceSource source) {
+    setLuminanceSource(source);
+    if (matrix != null) {
+      recycledMatrix = matrix;
+      matrix = null;
+    }
+  }
+
   /**
    * Calculates the final BitMatrix once for all requests. This could be called once from the
    * constructor instead, but there are some advantages to doing it lazily, such as making
@@ -67,7 +85,10 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
     int width = source.getWidth();
     int height = source.getHeight();
     if (width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
-      byte[] luminances = source.getMatrix();
+      // Read the luminance in place; for a crop of a camera frame, rows are stride bytes apart.
+      byte[] luminances = source.getStridedMatrix();
+      int offset = source.getMatrixOffset();
+      int stride = source.getMatrixStride();
       int subWidth = width >> BLOCK_SIZE_POWER;
       if ((width & BLOCK_SIZE_MASK) != 0) {
         subWidth++;
@@ -76,10 +97,21 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
       if ((height & BLOCK_SIZE_MASK) != 0) {
         subHeight++;
       }
-      int[][] blackPoints = calculateBlackPoints(luminances, subWidth, subHeight, width, height);
+      int blackPointsSize = subWidth * subHeight;
+      if (blackPoints == null || blackPoints.length < blackPointsSize) {
+        blackPoints = new int[blackPointsSize];
+      }
+      calculateBlackPoints(luminances, offset, stride, subWidth, subHeight, width, height, blackPoints);
 
-      BitMatrix newMatrix = new BitMatrix(width, height);
-      calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, newMatrix);
+      BitMatrix newMatrix = recycledMatrix;
+      recycledMatrix = null;
+      if (newMatrix != null && newMatrix.getWidth() == width && newMatrix.getHeight() == height) {
+        newMatrix.clear();
+      } else {
+        newMatrix = new BitMatrix(width, height);
+      }
+      calculateThresholdForBlock(luminances, offset, stride, subWidth, subHeight, width, height,
+                                 blackPoints, newMatrix);
       matrix = newMatrix;
     } else {
       // If the image is too small, fall back to the global histogram approach.
@@ -99,11 +131,13 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
    * on the last pixels in the row/column which are also used in the previous block).
    */
   private static void calculateThresholdForBlock(byte[] luminances,
+                                                 int offset,
+                                                 int stride,
                                                  int subWidth,
                                                  int subHeight,
                                                  int width,
                                                  int height,
-                                                 int[][] blackPoints,
+                                                 int[] blackPoints,
                                                  BitMatrix matrix) {
     for (int y = 0; y < subHeight; y++) {
       int yoffset = y << BLOCK_SIZE_POWER;
@@ -121,11 +155,12 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
         int top = cap(y, 2, subHeight - 3);
         int sum = 0;
         for (int z = -2; z <= 2; z++) {
-          int[] blackRow = blackPoints[top + z];
-          sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1] + blackRow[left + 2];
+          int blackRow = (top + z) * subWidth + left;
+          sum += blackPoints[blackRow - 2] + blackPoints[blackRow - 1] + blackPoints[blackRow] +
+              blackPoints[blackRow + 1] + blackPoints[blackRow + 2];
         }
         int average = sum / 25;
-        thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
+        thresholdBlock(luminances, offset, xoffset, yoffset, average, stride, matrix);
       }
     }
   }
@@ -138,12 +173,13 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
    * Applies a single threshold to a block of pixels.
    */
   private static void thresholdBlock(byte[] luminances,
+                                     int start,
                                      int xoffset,
                                      int yoffset,
                                      int threshold,
                                      int stride,
                                      BitMatrix matrix) {
-    for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+    for (int y = 0, offset = start + yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
       for (int x = 0; x < BLOCK_SIZE; x++) {
         // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
         if ((luminances[offset + x] & 0xFF) <= threshold) {
@@ -154,16 +190,19 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
   }
 
   /**
-   * Calculates a single black point for each block of pixels and saves it away.
+   * Calculates a single black point for each block of pixels and saves it away in a row-major
+   * grid of subWidth entries per row.
    * See the following thread for a discussion of this algorithm:
    *  http://groups.google.com/group/zxing/browse_thread/thread/d06efa2c35a7ddc0
    */
-  private static int[][] calculateBlackPoints(byte[] luminances,
-                                              int subWidth,
-                                              int subHeight,
-                                              int width,
-                                              int height) {
-    int[][] blackPoints = new int[subHeight][subWidth];
+  private static void calculateBlackPoints(byte[] luminances,
+                                           int start,
+                                           int stride,
+                                           int subWidth,
+                                           int subHeight,
+                                           int width,
+                                           int height,
+                                           int[] blackPoints) {
     for (int y = 0; y < subHeight; y++) {
       int yoffset = y << BLOCK_SIZE_POWER;
       int maxYOffset = height - BLOCK_SIZE;
@@ -179,7 +218,7 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
         int sum = 0;
         int min = 0xFF;
         int max = 0;
-        for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+        for (int yy = 0, offset = start + yoffset * stride + xoffset; yy < BLOCK_SIZE; yy++, offset += stride) {
           for (int xx = 0; xx < BLOCK_SIZE; xx++) {
             int pixel = luminances[offset + xx] & 0xFF;
             sum += pixel;
@@ -194,7 +233,7 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
           // short-circuit min/max tests once dynamic range is met
           if (max - min > MIN_DYNAMIC_RANGE) {
             // finish the rest of the rows quickly
-            for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+            for (yy++, offset += stride; yy < BLOCK_SIZE; yy++, offset += stride) {
               for (int xx = 0; xx < BLOCK_SIZE; xx++) {
                 sum += luminances[offset + xx] & 0xFF;
               }
@@ -221,17 +260,17 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
             // the boundaries is used for the interior.
 
             // The (min < bp) is arbitrary but works better than other heuristics that were tried.
-            int averageNeighborBlackPoint = (blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) +
-                blackPoints[y - 1][x - 1]) >> 2;
+            int above = (y - 1) * subWidth + x;
+            int averageNeighborBlackPoint = (blackPoints[above] + (2 * blackPoints[above + subWidth - 1]) +
+                blackPoints[above - 1]) >> 2;
             if (min < averageNeighborBlackPoint) {
               average = averageNeighborBlackPoint;
             }
           }
         }
-        blackPoints[y][x] = average;
+        blackPoints[y * subWidth + x] = average;
       }
     }
-    return blackPoints;
   }
 
 }
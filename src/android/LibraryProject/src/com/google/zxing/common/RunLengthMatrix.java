@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import java.util.Arrays;
+
+/**
+ * <p>A run-length view of a {@link BitMatrix}, for detectors which look for patterns in runs of
+ * black and white pixels along rows and columns. It is built once, from word-wide comparisons of
+ * the matrix's bits, and can then be shared by every detector looking at the same image.</p>
+ *
+ * <p>Each row is stored as its transitions: the x coordinates, in increasing order, of the pixels
+ * whose color differs from the pixel to their left, the pixel left of the row counting as white.
+ * The first transition of a row is therefore its first black pixel, the second the first white
+ * pixel after it, and so on. Columns are stored the same way, top to bottom.</p>
+ *
+ * <p>Instances are immutable, unless their arrays are handed on to build another with
+ * {@link #RunLengthMatrix(BitMatrix, RunLengthMatrix)}.</p>
+ *
+ * <p>The QR Code finder and alignment pattern searches use it. The Aztec detector cannot: it
+ * walks diagonals out from the bull's eye and samples along lines at any angle between corners,
+ * and runs only exist along rows and columns. The PDF417 detector could read its guard patterns
+ * from row runs, but it only reads about 128 rows of the image (512 when trying harder), so
+ * building the view would mean a pass over every row and column to save reading a few rows.</p>
+ */
+public final class RunLengthMatrix {
+
+  private final int width;
+  private final int height;
+  private final int[] rowOffsets;
+  private final int[] rowTransitions;
+  private final int[] columnOffsets;
+  private final int[] columnTransitions;
+  // Scratch for building, kept so that a matrix built in this one's arrays can use it too
+  private final int[] columnNext;
+  private final BitArray row;
+  private final BitArray previousRow;
+
+  public RunLengthMatrix(BitMatrix matrix) {
+    this(matrix, null);
+  }
+
+  /**
+   * @param matrix the matrix to build the runs of
+   * @param recycled a matrix no longer used by anyone, whose arrays are reused where they are large
+   *  enough, or null
+   */
+  public RunLengthMatrix(BitMatrix matrix, RunLengthMatrix recycled) {
+    width = matrix.getWidth();
+    height = matrix.getHeight();
+    rowOffsets = recycle(recycled == null ? null : recycled.rowOffsets, height + 1);
+    columnOffsets = recycle(recycled == null ? null : recycled.columnOffsets, width + 1);
+    columnNext = recycle(recycled == null ? null : recycled.columnNext, width);
+    row = recycle(recycled == null ? null : recycled.row, width);
+    previousRow = recycle(recycled == null ? null : recycled.previousRow, width);
+    // The first pass counts transitions, the second stores them.
+    Arrays.fill(columnNext, 0, width, 0);
+    int rowTotal = scan(matrix, rowOffsets, null, columnNext, null);
+    int columnTotal = 0;
+    for (int x = 0; x < width; x++) {
+      columnOffsets[x] = columnTotal;
+      columnTotal += columnNext[x];
+      columnNext[x] = columnOffsets[x];
+    }
+    columnOffsets[width] = columnTotal;
+    rowTransitions = recycle(recycled == null ? null : recycled.rowTransitions, rowTotal);
+    columnTransitions =
+        recycle(recycled == null ? null : recycled.columnTransitions, columnTotal);
+    scan(matrix, rowOffsets, rowTransitions, columnNext, columnTransitions);
+  }
+
+  /**
+   * Transitions are only ever read between offsets, so an array longer than needed will do. Its
+   * contents do not matter either, as every element used is written.
+   */
+  private static int[] recycle(int[] array, int size) {
+    return array != null && array.length >= size ? array : new int[size];
+  }
+
+  /**
+   * Rows are copied into a BitArray by {@link BitMatrix#getRow(int, BitArray)}, which only writes
+   * the words within the width, and only those are read.
+   */
+  private static BitArray recycle(BitArray array, int size) {
+    return array != null && array.getSize() >= size ? array : new BitArray(size);
+  }
+
+  /**
+   * Walks the matrix a word at a time. Within a row, a pixel differs from its left neighbour where
+   * the word differs from itself shifted by one; a pixel differs from the one above it where the
+   * word differs from the same word of the previous row.
+   *
+   * @param rowOffsets receives where each row's transitions start
+   * @param rowTransitions receives the row transitions, or null to only count them
+   * @param columnNext per column, a count of its transitions, or the index where its next
+   *                   transition goes if columnTransitions is not null
+   * @param columnTransitions receives the column transitions, or null to only count them
+   * @return the number of row transitions
+   */
+  private int scan(BitMatrix matrix,
+                   int[] rowOffsets,
+                   int[] rowTransitions,
+                   int[] columnNext,
+                   int[] columnTransitions) {
+    int rowSize = (width + 31) >> 5;
+    // Bits past the width in the last word of a row are never set, but mask them anyway.
+    int lastMask = (width & 0x1f) == 0 ? -1 : (1 << (width & 0x1f)) - 1;
+    BitArray row = this.row;
+    BitArray previousRow = this.previousRow;
+    int total = 0;
+    for (int y = 0; y < height; y++) {
+      rowOffsets[y] = total;
+      row = matrix.getRow(y, row);
+      int[] words = row.getBitArray();
+      int[] previousWords = previousRow.getBitArray();
+      int carry = 0;
+      for (int i = 0; i < rowSize; i++) {
+        int mask = i == rowSize - 1 ? lastMask : -1;
+        int word = words[i] & mask;
+        int flips = (word ^ ((word << 1) | carry)) & mask;
+        if (rowTransitions == null) {
+          total += Integer.bitCount(flips);
+        } else {
+          while (flips != 0) {
+            rowTransitions[total++] = (i << 5) + Integer.numberOfTrailingZeros(flips);
+            flips &= flips - 1;
+          }
+        }
+        carry = word >>> 31;
+
+        int columnFlips = y == 0 ? word : (word ^ previousWords[i]) & mask;
+        while (columnFlips != 0) {
+          int x = (i << 5) + Integer.numberOfTrailingZeros(columnFlips);
+          if (columnTransitions == null) {
+            columnNext[x]++;
+          } else {
+            columnTransitions[columnNext[x]++] = y;
+          }
+          columnFlips &= columnFlips - 1;
+        }
+      }
+      BitArray swap = previousRow;
+      previousRow = row;
+      row = swap;
+    }
+    rowOffsets[height] = total;
+    return total;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the transitions of all rows; those of row y are at indices
+   *         {@link #getRowStart(int)} (inclusive) to {@link #getRowEnd(int)} (exclusive)
+   */
+  public int[] getRowTransitions() {
+    return rowTransitions;
+  }
+
+  public int getRowStart(int y) {
+    return rowOffsets[y];
+  }
+
+  public int getRowEnd(int y) {
+    return rowOffsets[y + 1];
+  }
+
+  /**
+   * @return the transitions of all columns; those of column x are at indices
+   *         {@link #getColumnStart(int)} (inclusive) to {@link #getColumnEnd(int)} (exclusive)
+   */
+  public int[] getColumnTransitions() {
+    return columnTransitions;
+  }
+
+  public int getColumnStart(int x) {
+    return columnOffsets[x];
+  }
+
+  public int getColumnEnd(int x) {
+    return columnOffsets[x + 1];
+  }
+
+  /**
+   * @return true if the pixel at (x, y) is black
+   */
+  public boolean get(int x, int y) {
+    int start = rowOffsets[y];
+    return ((upperBound(rowTransitions, start, rowOffsets[y + 1], x) - start) & 0x01) != 0;
+  }
+
+  /**
+   * @return the number of pixels of the same color as (x, y) from x leftwards, including (x, y)
+   */
+  public int getRunLengthLeft(int x, int y) {
+    return x - runStart(rowTransitions, rowOffsets[y], rowOffsets[y + 1], x) + 1;
+  }
+
+  /**
+   * @return the number of pixels of the same color as (x, y) from x rightwards, including (x, y)
+   */
+  public int getRunLengthRight(int x, int y) {
+    return runEnd(rowTransitions, rowOffsets[y], rowOffsets[y + 1], x, width) - x;
+  }
+
+  /**
+   * @return the number of pixels of the same color as (x, y) from y upwards, including (x, y)
+   */
+  public int getRunLengthUp(int x, int y) {
+    return y - runStart(columnTransitions, columnOffsets[x], columnOffsets[x + 1], y) + 1;
+  }
+
+  /**
+   * @return the number of pixels of the same color as (x, y) from y downwards, including (x, y)
+   */
+  public int getRunLengthDown(int x, int y) {
+    return runEnd(columnTransitions, columnOffsets[x], columnOffsets[x + 1], y, height) - y;
+  }
+
+  private static int runStart(int[] transitions, int start, int end, int position) {
+    int index = upperBound(transitions, start, end, position);
+    return index == start ? 0 : transitions[index - 1];
+  }
+
+  private static int runEnd(int[] transitions, int start, int end, int position, int size) {
+    int index = upperBound(transitions, start, end, position);
+    return index == end ? size : transitions[index];
+  }
+
+  /**
+   * @return the index of the first transition in [start, end) greater than position, or end
+   */
+  private static int upperBound(int[] transitions, int start, int end, int position) {
+    int low = start;
+    int high = end;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (transitions[middle] <= position) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+}
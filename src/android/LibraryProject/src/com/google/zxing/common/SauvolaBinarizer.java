@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+
+/**
+ * A local thresholding algorithm after Sauvola and Pietikäinen. Each pixel is compared with a
+ * threshold taken from the mean m and standard deviation s of a square window around it:
+ * t = m * (1 + k * (s / R - 1)), with R = 128. Where the window has good contrast the threshold
+ * sits close to the mean; where it is flat, it drops well below it, so a plain background stays
+ * white instead of being split into noise.
+ *
+ * The mean and deviation come from summed-area tables of the luminance and of its square, so each
+ * pixel costs the same whatever the window size. Unlike the fixed 8x8 blocks of
+ * {@link HybridBinarizer}, the window follows each pixel, which copes better with glare and steep
+ * gradients, as on codes shown on a phone screen.
+ *
+ * Like HybridBinarizer, this class extends GlobalHistogramBinarizer and uses it for 1D rows.
+ */
+public final class SauvolaBinarizer extends GlobalHistogramBinarizer {
+
+  // Sums of squares over a window are computed in int arithmetic, which wraps around in the tables
+  // but is exact for any window whose own sum fits: 255 * 255 * 181 * 181 < 2^31.
+  private static final int MAX_WINDOW_SIZE = 181;
+  private static final int MIN_WINDOW_SIZE = 15;
+  // By default the window is this fraction of the smaller dimension of the image.
+  private static final int WINDOW_DIVISOR = 8;
+  private static final float DEFAULT_K = 0.2f;
+  private static final float DYNAMIC_RANGE = 128.0f;
+
+  private final int requestedWindowSize;
+  private final float k;
+  private BitMatrix matrix;
+  private BitMatrix recycledMatrix;
+  private int[] sums;
+  private int[] squares;
+
+  public SauvolaBinarizer(LuminanceSource source) {
+    this(source, 0, DEFAULT_K);
+  }
+
+  /**
+   * @param source The LuminanceSource to binarize.
+   * @param windowSize Side of the square window around each pixel, in pixels; an even size is
+   *  rounded up. 0 picks a size from the image dimensions.
+   * @param k How far below the local mean the threshold falls when the window has no contrast,
+   *  typically 0.2 to 0.5.
+   */
+  public SauvolaBinarizer(LuminanceSource source, int windowSize, float k) {
+    super(source);
+    if (windowSize < 0 || windowSize > MAX_WINDOW_SIZE) {
+      throw new IllegalArgumentException("Window size must be between 0 and " + MAX_WINDOW_SIZE);
+    }
+    if (k < 0.0f || k >= 1.0f) {
+      throw new IllegalArgumentException("k must be at least 0 and less than 1");
+    }
+    this.requestedWindowSize = windowSize;
+    this.k = k;
+  }
+
+  /**
+   * Rebinds this binarizer to a new frame, keeping the summed-area tables and the BitMatrix it
+   * allocated for earlier frames of the same size. As with {@link HybridBinarizer#reset}, the
+   * BitMatrix handed out for the previous frame is overwritten by the next call to
+   * getBlackMatrix(), so it must not be kept beyond one decode.
+   *
+   * @param source The LuminanceSource for the next frame.
+   */
+  public void reset(LuminanceSource source) {
+    setLuminanceSource(source);
+    if (matrix != null) {
+      recycledMatrix = matrix;
+      matrix = null;
+    }
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix != null) {
+      return matrix;
+    }
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int windowSize = getWindowSize(width, height);
+    if (width < windowSize || height < windowSize) {
+      // If the image is smaller than the window, fall back to the global histogram approach.
+      matrix = super.getBlackMatrix();
+      return matrix;
+    }
+    byte[] luminances = source.getStridedMatrix();
+    int offset = source.getMatrixOffset();
+    int stride = source.getMatrixStride();
+    int tableSize = (width + 1) * (height + 1);
+    if (sums == null || sums.length < tableSize) {
+      sums = new int[tableSize];
+      squares = new int[tableSize];
+    }
+    buildTables(luminances, offset, stride, width, height, sums, squares);
+
+    BitMatrix newMatrix = recycledMatrix;
+    recycledMatrix = null;
+    if (newMatrix != null && newMatrix.getWidth() == width && newMatrix.getHeight() == height) {
+      newMatrix.clear();
+    } else {
+      newMatrix = new BitMatrix(width, height);
+    }
+    threshold(luminances, offset, stride, width, height, windowSize >> 1, newMatrix);
+    matrix = newMatrix;
+    return matrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new SauvolaBinarizer(source, requestedWindowSize, k);
+  }
+
+  private int getWindowSize(int width, int height) {
+    if (requestedWindowSize > 0) {
+      return requestedWindowSize | 1;
+    }
+    int size = Math.min(width, height) / WINDOW_DIVISOR;
+    if (size < MIN_WINDOW_SIZE) {
+      size = MIN_WINDOW_SIZE;
+    } else if (size > MAX_WINDOW_SIZE) {
+      size = MAX_WINDOW_SIZE;
+    }
+    return size | 1;
+  }
+
+  /**
+   * Fills the tables so that entry (x, y), at y * (width + 1) + x, holds the sum of the luminance
+   * (and of its square) of all pixels above and to the left of (x, y). Row and column 0 are zero.
+   */
+  private static void buildTables(byte[] luminances,
+                                  int start,
+                                  int luminanceStride,
+                                  int width,
+                                  int height,
+                                  int[] sums,
+                                  int[] squares) {
+    int stride = width + 1;
+    for (int x = 0; x < stride; x++) {
+      sums[x] = 0;
+      squares[x] = 0;
+    }
+    for (int y = 0; y < height; y++) {
+      int offset = start + y * luminanceStride;
+      int above = y * stride;
+      int entry = above + stride;
+      sums[entry] = 0;
+      squares[entry] = 0;
+      int rowSum = 0;
+      int rowSquares = 0;
+      for (int x = 0; x < width; x++) {
+        int pixel = luminances[offset + x] & 0xFF;
+        rowSum += pixel;
+        rowSquares += pixel * pixel;
+        sums[entry + x + 1] = sums[above + x + 1] + rowSum;
+        squares[entry + x + 1] = squares[above + x + 1] + rowSquares;
+      }
+    }
+  }
+
+  /**
+   * Sets the pixels at or below t = m * (1 - k) + m * k * s / R. Above m * (1 - k), the test is
+   * done on squares so that no square root is needed for s.
+   */
+  private void threshold(byte[] luminances,
+                         int start,
+                         int luminanceStride,
+                         int width,
+                         int height,
+                         int radius,
+                         BitMatrix matrix) {
+    int stride = width + 1;
+    float base = 1.0f - k;
+    float scale = k / DYNAMIC_RANGE;
+    for (int y = 0; y < height; y++) {
+      int top = Math.max(y - radius, 0) * stride;
+      int bottom = Math.min(y + radius + 1, height) * stride;
+      int rows = (bottom - top) / stride;
+      int offset = start + y * luminanceStride;
+      for (int x = 0; x < width; x++) {
+        int left = x > radius ? x - radius : 0;
+        int right = x + radius < width ? x + radius + 1 : width;
+        float inverseArea = 1.0f / (rows * (right - left));
+        int sum = sums[bottom + right] - sums[bottom + left] - sums[top + right] + sums[top + left];
+        int sumOfSquares =
+            squares[bottom + right] - squares[bottom + left] - squares[top + right] + squares[top + left];
+        float mean = sum * inverseArea;
+        float variance = sumOfSquares * inverseArea - mean * mean;
+        // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
+        float excess = (luminances[offset + x] & 0xFF) - mean * base;
+        if (excess <= 0.0f) {
+          matrix.set(x, y);
+        } else if (variance > 0.0f) {
+          float limit = mean * scale;
+          if (excess * excess <= limit * limit * variance) {
+            matrix.set(x, y);
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.ResultPoint;
+
+/**
+ * <p>Samples a {@link BitMatrix} along straight lines at any angle, so that 1D readers can scan a
+ * barcode which is not level without the image being rotated. A scanline is stepped one pixel's
+ * length at a time, DDA style in fixed point, so bars keep the width they have in the image
+ * whatever the angle.</p>
+ *
+ * <p>Angles are in degrees counterclockwise, as the image is shown, from the direction left to
+ * right; 90 reads bottom to top. A scanline is placed by its offset from the center of the image,
+ * measured at right angles to it.</p>
+ *
+ * <p>An instance remembers where its last scanline lies, for {@link #toImagePoint(ResultPoint)},
+ * and samples every scanline into the same row, and so is not thread-safe. It can be kept from
+ * image to image with {@link #reset(BitMatrix)}.</p>
+ */
+public final class ScanlineSampler {
+
+  private static final int FIXED_SHIFT = 16;
+  private static final float FIXED_ONE = 1 << FIXED_SHIFT;
+
+  private final BitArray row;
+  private final float[] range;
+  private BitMatrix image;
+  private float startX;
+  private float startY;
+  private float stepX;
+  private float stepY;
+
+  public ScanlineSampler(BitMatrix image) {
+    this.image = image;
+    row = new BitArray();
+    range = new float[2];
+  }
+
+  /**
+   * Points this sampler at another image, keeping the row it samples into.
+   */
+  public void reset(BitMatrix image) {
+    this.image = image;
+  }
+
+  /**
+   * @param angle angle of the scanlines in degrees
+   * @return the width of the image measured at right angles to scanlines at that angle; scanlines
+   *  with offsets within half of it either side of 0 cross the image
+   */
+  public float getExtent(int angle) {
+    double radians = Math.toRadians(angle);
+    return (float) (Math.abs(Math.sin(radians)) * image.getWidth() +
+        Math.abs(Math.cos(radians)) * image.getHeight());
+  }
+
+  /**
+   * @param angle angle of the scanline in degrees
+   * @param offset distance of the scanline from the center of the image, in pixels; positive
+   *  offsets lie to the right of the direction the scanline is read in
+   * @return the pixels along the scanline where it crosses the image, in the order read, or null if
+   *  it misses the image; the same array is returned every time, overwritten by the next call
+   */
+  public BitArray sample(int angle, float offset) {
+    double radians = Math.toRadians(angle);
+    float dx = (float) Math.cos(radians);
+    float dy = (float) -Math.sin(radians);
+    int width = image.getWidth();
+    int height = image.getHeight();
+    float centerX = (width - 1) / 2.0f - offset * dy;
+    float centerY = (height - 1) / 2.0f + offset * dx;
+
+    // Clip centerX + t * dx, centerY + t * dy to the image
+    float[] range = this.range;
+    range[0] = -Float.MAX_VALUE;
+    range[1] = Float.MAX_VALUE;
+    if (!clip(centerX, dx, width - 1, range) || !clip(centerY, dy, height - 1, range)) {
+      return null;
+    }
+    int size = (int) (range[1] - range[0]) + 1;
+    startX = centerX + range[0] * dx;
+    startY = centerY + range[0] * dy;
+    stepX = dx;
+    stepY = dy;
+
+    BitArray row = this.row;
+    row.reset(size);
+    // Rounding to the nearest pixel is folded into the starting point.
+    int x = (int) (startX * FIXED_ONE) + (1 << (FIXED_SHIFT - 1));
+    int y = (int) (startY * FIXED_ONE) + (1 << (FIXED_SHIFT - 1));
+    int fixedStepX = Math.round(dx * FIXED_ONE);
+    int fixedStepY = Math.round(dy * FIXED_ONE);
+    for (int i = 0; i < size; i++) {
+      if (image.get(x >> FIXED_SHIFT, y >> FIXED_SHIFT)) {
+        row.set(i);
+      }
+      x += fixedStepX;
+      y += fixedStepY;
+    }
+    return row;
+  }
+
+  /**
+   * Narrows range, the interval of t for which start + t * step lies in [0, max].
+   *
+   * @return false if the interval is empty
+   */
+  private static boolean clip(float start, float step, int max, float[] range) {
+    if (step == 0.0f) {
+      return start >= 0.0f && start <= max;
+    }
+    float t1 = -start / step;
+    float t2 = (max - start) / step;
+    range[0] = Math.max(range[0], Math.min(t1, t2));
+    range[1] = Math.min(range[1], Math.max(t1, t2));
+    return range[0] <= range[1];
+  }
+
+  /**
+   * @param point a point on the last scanline sampled, whose x coordinate is its position along
+   *  the scanline as a 1D reader reports it; the y coordinate is ignored
+   * @return the point in image coordinates
+   */
+  public ResultPoint toImagePoint(ResultPoint point) {
+    float position = point.getX();
+    return new ResultPoint(startX + position * stepX, startY + position * stepY);
+  }
+
+}
@@ -42,11 +42,15 @@ public final class GenericGF {
 
   private int[] expTable;
   private int[] logTable;
+  private int[] productExpTable;
+  private int[] productLogTable;
   private GenericGFPoly zero;
   private GenericGFPoly one;
   private final int size;
   private final int primitive;
-  private boolean initialized = false;
+  // Volatile so that a thread which sees it set also sees the tables: the fields above may be
+  // shared by encoders and decoders on several threads.
+  private volatile boolean initialized = false;
 
   /**
    * Create a representation of GF(size) using the given primitive polynomial.
@@ -80,6 +84,16 @@ public final class GenericGF {
       logTable[expTable[i]] = i;
     }
     // logTable[0] == 0 but this should never be used
+    // The product tables multiply without a branch or a modulus: a log of 0 points far enough
+    // past the doubled exp table that any sum involving it lands in the zeros after it.
+    int order = size - 1;
+    productExpTable = new int[4 * order + 1];
+    for (int i = 0; i < 2 * order; i++) {
+      productExpTable[i] = expTable[i % order];
+    }
+    productLogTable = new int[size];
+    System.arraycopy(logTable, 0, productLogTable, 0, size);
+    productLogTable[0] = 2 * order;
     zero = new GenericGFPoly(this, new int[]{0});
     one = new GenericGFPoly(this, new int[]{1});
     initialized = true;
@@ -87,7 +101,11 @@ public final class GenericGF {
   
   private void checkInit(){
   	if (!initialized) {
-      initialize();
+      synchronized (this) {
+        if (!initialized) {
+          initialize();
+        }
+      }
     }
   }
   
@@ -174,6 +192,27 @@ public final class GenericGF {
     return expTable[(logTable[a] + logTable[b]) % (size - 1)];
   }
 
+  /**
+   * @return a table such that the product of a and b in GF(size) is
+   *  {@code productExpTable[productLogTable[a] + productLogTable[b]]}, including when either is 0
+   * @see #getProductLogTable()
+   */
+  int[] getProductExpTable() {
+    checkInit();
+
+    return productExpTable;
+  }
+
+  /**
+   * @return base 2 logs of the elements of GF(size), indices into {@link #getProductExpTable()};
+   *  the entry for 0 is out of range of the other logs
+   */
+  int[] getProductLogTable() {
+    checkInit();
+
+    return productLogTable;
+  }
+
   public int getSize() {
   	return size;
   }
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common.reedsolomon;
+
+/**
+ * <p>Implements Reed-Solomon decoding exactly as {@link ReedSolomonDecoder} does, with the same
+ * Euclidean algorithm, Chien search and Forney's formula, and the same results and exceptions for
+ * any input. The difference is that no {@link GenericGFPoly} is built: every polynomial lives in an
+ * {@code int[]} of a per-thread {@link Workspace}, indexed by power of x, and is updated in place.
+ * Once a thread has decoded its largest block, decoding allocates nothing.</p>
+ *
+ * <p>Multiplication uses {@link GenericGF#getProductExpTable()} and
+ * {@link GenericGF#getProductLogTable()}, which need no test for zero.</p>
+ *
+ * <p>Like ReedSolomonDecoder, an instance may be shared between threads.</p>
+ */
+public final class InPlaceReedSolomonDecoder {
+
+  private static final ThreadLocal<Workspace> WORKSPACES = new ThreadLocal<Workspace>() {
+    @Override
+    protected Workspace initialValue() {
+      return new Workspace();
+    }
+  };
+
+  private final GenericGF field;
+
+  public InPlaceReedSolomonDecoder(GenericGF field) {
+    this.field = field;
+  }
+
+  /**
+   * <p>Decodes given set of received codewords, which include both data and error-correction
+   * codewords. Really, this means it uses Reed-Solomon to detect and correct errors, in-place,
+   * in the input.</p>
+   *
+   * @param received data and error-correction codewords
+   * @param twoS number of error-correction codewords available
+   * @throws ReedSolomonException if decoding fails for any reason
+   */
+  public void decode(int[] received, int twoS) throws ReedSolomonException {
+    int[] exp = field.getProductExpTable();
+    int[] log = field.getProductLogTable();
+    Workspace workspace = WORKSPACES.get();
+    workspace.ensureCapacity(twoS);
+
+    int[] syndrome = workspace.r;
+    boolean dataMatrix = field.equals(GenericGF.DATA_MATRIX_FIELD_256);
+    boolean noError = true;
+    for (int i = 0; i < twoS; i++) {
+      // Thanks to sanfordsquires for this fix:
+      int eval = evaluateReceivedAt(received, exp[dataMatrix ? i + 1 : i], exp, log);
+      syndrome[i] = eval;
+      if (eval != 0) {
+        noError = false;
+      }
+    }
+    if (noError) {
+      return;
+    }
+
+    int numErrors = runEuclideanAlgorithm(workspace, twoS, exp, log);
+    int[] errorLocations = workspace.errorLocations;
+    findErrorLocations(workspace.sigma, numErrors, errorLocations, field.getSize(), exp, log);
+    int[] errorMagnitudes = workspace.errorMagnitudes;
+    findErrorMagnitudes(workspace.omega, workspace.omegaDegree, errorLocations, numErrors,
+        errorMagnitudes, dataMatrix, exp, log);
+    for (int i = 0; i < numErrors; i++) {
+      int position = received.length - 1 - log[errorLocations[i]];
+      if (position < 0) {
+        throw new ReedSolomonException("Bad error location");
+      }
+      received[position] ^= errorMagnitudes[i];
+    }
+  }
+
+  /**
+   * Runs the Euclidean algorithm on x^R and the syndrome polynomial, which the caller has left in
+   * {@code workspace.r}. On return {@code workspace.sigma} and {@code workspace.omega} hold the
+   * error locator and evaluator.
+   *
+   * @return degree of the error locator
+   */
+  private static int runEuclideanAlgorithm(Workspace workspace, int R, int[] exp, int[] log)
+      throws ReedSolomonException {
+    // a = x^R always has the larger degree than b, the syndrome
+    int[] rLast = workspace.rLast;
+    int[] r = workspace.r;
+    clear(rLast, R + 1);
+    rLast[R] = 1;
+    int rLastDegree = R;
+    r[R] = 0;
+    int rDegree = degree(r, R - 1);
+    int[] tLast = workspace.tLast;
+    int[] t = workspace.t;
+    int[] q = workspace.q;
+    clear(tLast, R + 1);
+    clear(t, R + 1);
+    t[0] = 1;
+    int tLastDegree = 0;
+    int tDegree = 0;
+
+    // Run Euclidean algorithm until r's degree is less than R/2
+    while (rDegree >= R / 2) {
+      // rLastLast and tLastLast take over the buffers of rLast and tLast, and are then worked down
+      // into the new r and t.
+      int[] rLastLast = rLast;
+      int rLastLastDegree = rLastDegree;
+      int[] tLastLast = tLast;
+      int tLastLastDegree = tLastDegree;
+      rLast = r;
+      rLastDegree = rDegree;
+      tLast = t;
+      tLastDegree = tDegree;
+
+      // Divide rLastLast by rLast, with quotient in q and remainder in r
+      if (rLastDegree == 0 && rLast[0] == 0) {
+        // Oops, Euclidean algorithm already terminated?
+        throw new ReedSolomonException("r_{i-1} was zero");
+      }
+      r = rLastLast;
+      rDegree = rLastLastDegree;
+      clear(q, rDegree + 1);
+      int qDegree = 0;
+      int dltInverseLog = log[inverse(rLast[rLastDegree], exp, log)];
+      while (rDegree >= rLastDegree && !(rDegree == 0 && r[0] == 0)) {
+        int degreeDiff = rDegree - rLastDegree;
+        int scaleLog = log[exp[log[r[rDegree]] + dltInverseLog]];
+        if (qDegree < degreeDiff) {
+          qDegree = degreeDiff;
+        }
+        q[degreeDiff] ^= exp[scaleLog];
+        for (int i = 0; i <= rLastDegree; i++) {
+          r[i + degreeDiff] ^= exp[log[rLast[i]] + scaleLog];
+        }
+        rDegree = degree(r, rDegree);
+      }
+
+      // t = q * tLast + tLastLast, accumulated into the buffer of tLastLast
+      t = tLastLast;
+      for (int i = 0; i <= qDegree; i++) {
+        int qLog = log[q[i]];
+        for (int j = 0; j <= tLastDegree; j++) {
+          t[i + j] ^= exp[qLog + log[tLast[j]]];
+        }
+      }
+      tDegree = degree(t, Math.max(qDegree + tLastDegree, tLastLastDegree));
+    }
+
+    int sigmaTildeAtZero = t[0];
+    if (sigmaTildeAtZero == 0) {
+      throw new ReedSolomonException("sigmaTilde(0) was zero");
+    }
+
+    int inverseLog = log[inverse(sigmaTildeAtZero, exp, log)];
+    for (int i = 0; i <= tDegree; i++) {
+      t[i] = exp[log[t[i]] + inverseLog];
+    }
+    for (int i = 0; i <= rDegree; i++) {
+      r[i] = exp[log[r[i]] + inverseLog];
+    }
+    workspace.sigma = t;
+    workspace.omega = r;
+    workspace.omegaDegree = rDegree;
+    // Multiplying by a non-zero constant leaves the degree of t as it was
+    return tDegree;
+  }
+
+  private static void findErrorLocations(int[] errorLocator,
+                                         int numErrors,
+                                         int[] result,
+                                         int size,
+                                         int[] exp,
+                                         int[] log) throws ReedSolomonException {
+    // This is a direct application of Chien's search
+    if (numErrors == 1) { // shortcut
+      result[0] = errorLocator[1];
+      return;
+    }
+    int e = 0;
+    for (int i = 1; i < size && e < numErrors; i++) {
+      if (evaluateAt(errorLocator, numErrors, i, exp, log) == 0) {
+        result[e] = inverse(i, exp, log);
+        e++;
+      }
+    }
+    if (e != numErrors) {
+      throw new ReedSolomonException("Error locator degree does not match number of roots");
+    }
+  }
+
+  private static void findErrorMagnitudes(int[] errorEvaluator,
+                                          int errorEvaluatorDegree,
+                                          int[] errorLocations,
+                                          int s,
+                                          int[] result,
+                                          boolean dataMatrix,
+                                          int[] exp,
+                                          int[] log) {
+    // This is directly applying Forney's Formula
+    for (int i = 0; i < s; i++) {
+      int xiInverse = inverse(errorLocations[i], exp, log);
+      int xiInverseLog = log[xiInverse];
+      int denominator = 1;
+      for (int j = 0; j < s; j++) {
+        if (i != j) {
+          // See ReedSolomonDecoder about this way of adding 1
+          int term = exp[log[errorLocations[j]] + xiInverseLog];
+          int termPlus1 = (term & 0x1) == 0 ? term | 1 : term & ~1;
+          denominator = exp[log[denominator] + log[termPlus1]];
+        }
+      }
+      int magnitude = evaluateAt(errorEvaluator, errorEvaluatorDegree, xiInverse, exp, log);
+      result[i] = exp[log[magnitude] + log[inverse(denominator, exp, log)]];
+      // Thanks to sanfordsquires for this fix:
+      if (dataMatrix) {
+        result[i] = exp[log[result[i]] + xiInverseLog];
+      }
+    }
+  }
+
+  /**
+   * Evaluates the received codewords, taken as a polynomial with the highest power first as in
+   * {@link GenericGFPoly}, at a by Horner's method.
+   */
+  private static int evaluateReceivedAt(int[] received, int a, int[] exp, int[] log) {
+    int aLog = log[a];
+    int result = 0;
+    for (int coefficient : received) {
+      result = exp[aLog + log[result]] ^ coefficient;
+    }
+    return result;
+  }
+
+  /**
+   * Evaluates a polynomial of the given degree, with the constant term first, at a by Horner's
+   * method.
+   */
+  private static int evaluateAt(int[] coefficients, int degree, int a, int[] exp, int[] log) {
+    int aLog = log[a];
+    int result = coefficients[degree];
+    for (int i = degree - 1; i >= 0; i--) {
+      result = exp[aLog + log[result]] ^ coefficients[i];
+    }
+    return result;
+  }
+
+  /**
+   * Like {@link GenericGF#inverse(int)}, including the ArithmeticException for 0.
+   */
+  private static int inverse(int a, int[] exp, int[] log) {
+    if (a == 0) {
+      throw new ArithmeticException();
+    }
+    return exp[(exp.length - 1) / 4 - log[a]];
+  }
+
+  /**
+   * @return the degree of the polynomial in the first maxDegree + 1 entries of coefficients, which
+   *  is 0 for the zero polynomial as in {@link GenericGFPoly}
+   */
+  private static int degree(int[] coefficients, int maxDegree) {
+    int degree = maxDegree;
+    while (degree > 0 && coefficients[degree] == 0) {
+      degree--;
+    }
+    return degree;
+  }
+
+  private static void clear(int[] array, int length) {
+    for (int i = 0; i < length; i++) {
+      array[i] = 0;
+    }
+  }
+
+  /**
+   * Working arrays for one thread, grown to the largest number of error-correction codewords seen.
+   */
+  private static final class Workspace {
+
+    int[] rLast;
+    int[] r;
+    int[] tLast;
+    int[] t;
+    int[] q;
+    int[] sigma;
+    int[] omega;
+    int omegaDegree;
+    int[] errorLocations;
+    int[] errorMagnitudes;
+
+    void ensureCapacity(int twoS) {
+      int length = twoS + 1;
+      if (rLast == null || rLast.length < length) {
+        rLast = new int[length];
+        r = new int[length];
+        tLast = new int[length];
+        t = new int[length];
+        q = new int[length];
+        errorLocations = new int[length];
+        errorMagnitudes = new int[length];
+      }
+    }
+
+  }
+
+}
@@ -16,41 +16,64 @@
 
 package com.google.zxing.common.reedsolomon;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>Implements Reed-Solomon enbcoding, as the name implies.</p>
  *
+ * <p>Any {@link GenericGF} field is supported. The generator polynomial has the same roots that
+ * {@link ReedSolomonDecoder} checks: 2^1 to 2^ecBytes for
+ * {@link GenericGF#DATA_MATRIX_FIELD_256}, 2^0 to 2^(ecBytes - 1) for the others.</p>
+ *
+ * <p>An instance may be shared between threads. Generators are cached in a table that is replaced,
+ * never modified, when a larger one is needed, so reading it takes no lock; two threads growing it
+ * at once merely build the same generators twice.</p>
+ *
  * @author Sean Owen
  * @author William Rucklidge
  */
 public final class ReedSolomonEncoder {
 
   private final GenericGF field;
-  private final List<GenericGFPoly> cachedGenerators;
+  private final int generatorBase;
+  // Entry d holds the coefficients of the generator of degree d, from x^d down to x^0
+  private volatile int[][] cachedGenerators;
 
   public ReedSolomonEncoder(GenericGF field) {
-    if (!GenericGF.QR_CODE_FIELD_256.equals(field)) {
-      throw new IllegalArgumentException("Only QR Code is supported at this time");
-    }
     this.field = field;
-    this.cachedGenerators = new ArrayList<GenericGFPoly>();
-    cachedGenerators.add(new GenericGFPoly(field, new int[]{1}));
+    this.generatorBase = GenericGF.DATA_MATRIX_FIELD_256.equals(field) ? 1 : 0;
+    this.cachedGenerators = new int[][] { { 1 } };
   }
 
-  private GenericGFPoly buildGenerator(int degree) {
-    if (degree >= cachedGenerators.size()) {
-      GenericGFPoly lastGenerator = cachedGenerators.get(cachedGenerators.size() - 1);
-      for (int d = cachedGenerators.size(); d <= degree; d++) {
-        GenericGFPoly nextGenerator = lastGenerator.multiply(new GenericGFPoly(field, new int[] { 1, field.exp(d - 1) }));
-        cachedGenerators.add(nextGenerator);
-        lastGenerator = nextGenerator;
+  private int[] buildGenerator(int degree) {
+    int[][] generators = cachedGenerators;
+    if (degree < generators.length) {
+      return generators[degree];
+    }
+    int[][] grown = new int[degree + 1][];
+    System.arraycopy(generators, 0, grown, 0, generators.length);
+    for (int d = generators.length; d <= degree; d++) {
+      // Multiply the last generator by (x - 2^(d - 1 + generatorBase))
+      int[] lastGenerator = grown[d - 1];
+      int root = field.exp(d - 1 + generatorBase);
+      int[] nextGenerator = new int[d + 1];
+      nextGenerator[0] = 1;
+      for (int i = 1; i < d; i++) {
+        nextGenerator[i] = lastGenerator[i] ^ field.multiply(lastGenerator[i - 1], root);
       }
+      nextGenerator[d] = field.multiply(lastGenerator[d - 1], root);
+      grown[d] = nextGenerator;
     }
-    return cachedGenerators.get(degree);
+    cachedGenerators = grown;
+    return grown[degree];
   }
 
+  /**
+   * Computes the error correction codewords as the remainder of the data, times x^ecBytes, divided
+   * by the generator. The division is done by a shift register running over the data one codeword
+   * at a time, with the remainder held in the error correction part of toEncode.
+   *
+   * @param toEncode data codewords, followed by room for ecBytes error correction codewords
+   * @param ecBytes number of error correction codewords to compute
+   */
   public void encode(int[] toEncode, int ecBytes) {
     if (ecBytes == 0) {
       throw new IllegalArgumentException("No error correction bytes");
@@ -59,18 +82,20 @@ public final class ReedSolomonEncoder {
     if (dataBytes <= 0) {
       throw new IllegalArgumentException("No data bytes provided");
     }
-    GenericGFPoly generator = buildGenerator(ecBytes);
-    int[] infoCoefficients = new int[dataBytes];
-    System.arraycopy(toEncode, 0, infoCoefficients, 0, dataBytes);
-    GenericGFPoly info = new GenericGFPoly(field, infoCoefficients);
-    info = info.multiplyByMonomial(ecBytes, 1);
-    GenericGFPoly remainder = info.divide(generator)[1];
-    int[] coefficients = remainder.getCoefficients();
-    int numZeroCoefficients = ecBytes - coefficients.length;
-    for (int i = 0; i < numZeroCoefficients; i++) {
-      toEncode[dataBytes + i] = 0;
+    int[] generator = buildGenerator(ecBytes);
+    int[] exp = field.getProductExpTable();
+    int[] log = field.getProductLogTable();
+    for (int i = dataBytes; i < toEncode.length; i++) {
+      toEncode[i] = 0;
+    }
+    int last = toEncode.length - 1;
+    for (int i = 0; i < dataBytes; i++) {
+      int feedbackLog = log[toEncode[i] ^ toEncode[dataBytes]];
+      for (int j = dataBytes, k = 1; j < last; j++, k++) {
+        toEncode[j] = toEncode[j + 1] ^ exp[log[generator[k]] + feedbackLog];
+      }
+      toEncode[last] = exp[log[generator[ecBytes]] + feedbackLog];
     }
-    System.arraycopy(coefficients, 0, toEncode, dataBytes + numZeroCoefficients, coefficients.length);
   }
 
 }
@@ -21,7 +21,7 @@ import com.google.zxing.FormatException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.InPlaceReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 /**
@@ -32,10 +32,10 @@ import com.google.zxing.common.reedsolomon.ReedSolomonException;
  */
 public final class Decoder {
 
-  private final ReedSolomonDecoder rsDecoder;
+  private final InPlaceReedSolomonDecoder rsDecoder;
 
   public Decoder() {
-    rsDecoder = new ReedSolomonDecoder(GenericGF.DATA_MATRIX_FIELD_256);
+    rsDecoder = new InPlaceReedSolomonDecoder(GenericGF.DATA_MATRIX_FIELD_256);
   }
 
   /**
@@ -96,7 +96,7 @@ public final class MaxiCodeReader implements Reader {
    * @see com.google.zxing.datamatrix.DataMatrixReader#extractPureBits(BitMatrix)
    * @see com.google.zxing.qrcode.QRCodeReader#extractPureBits(BitMatrix)
    */
-  private static BitMatrix extractPureBits(BitMatrix image) throws NotFoundException {
+  static BitMatrix extractPureBits(BitMatrix image) throws NotFoundException {
     
     int[] enclosingRectangle = image.getEnclosingRectangle();
     if (enclosingRectangle == null) {
@@ -22,7 +22,7 @@ import com.google.zxing.FormatException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.InPlaceReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 import java.util.Map;
@@ -39,10 +39,10 @@ public final class Decoder {
   private static final int EVEN = 1;
   private static final int ODD = 2;
 
-  private final ReedSolomonDecoder rsDecoder;
+  private final InPlaceReedSolomonDecoder rsDecoder;
 
   public Decoder() {
-    rsDecoder = new ReedSolomonDecoder(GenericGF.MAXICODE_FIELD_64);
+    rsDecoder = new InPlaceReedSolomonDecoder(GenericGF.MAXICODE_FIELD_64);
   }
 
   public DecoderResult decode(BitMatrix bits) throws ChecksumException, FormatException {
@@ -52,7 +52,8 @@ public final class QRCodeMultiReader extends QRCodeReader implements MultipleBar
   @Override
   public Result[] decodeMultiple(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
     List<Result> results = new ArrayList<Result>();
-    DetectorResult[] detectorResults = new MultiDetector(image.getBlackMatrix()).detectMulti(hints);
+    DetectorResult[] detectorResults =
+        new MultiDetector(image.getBlackMatrix(), image.getRunLengthMatrix()).detectMulti(hints);
     for (DetectorResult detectorResult : detectorResults) {
       try {
         DecoderResult decoderResult = getDecoder().decode(detectorResult.getBits(), hints);
@@ -22,6 +22,7 @@ import com.google.zxing.ReaderException;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DetectorResult;
+import com.google.zxing.common.RunLengthMatrix;
 import com.google.zxing.qrcode.detector.Detector;
 import com.google.zxing.qrcode.detector.FinderPatternInfo;
 
@@ -44,11 +45,15 @@ public final class MultiDetector extends Detector {
     super(image);
   }
 
+  public MultiDetector(BitMatrix image, RunLengthMatrix runs) {
+    super(image, runs);
+  }
+
   public DetectorResult[] detectMulti(Map<DecodeHintType,?> hints) throws NotFoundException {
     BitMatrix image = getImage();
     ResultPointCallback resultPointCallback =
         hints == null ? null : (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
-    MultiFinderPatternFinder finder = new MultiFinderPatternFinder(image, resultPointCallback);
+    MultiFinderPatternFinder finder = new MultiFinderPatternFinder(image, getRuns(), resultPointCallback);
     FinderPatternInfo[] infos = finder.findMulti(hints);
 
     if (infos.length == 0) {
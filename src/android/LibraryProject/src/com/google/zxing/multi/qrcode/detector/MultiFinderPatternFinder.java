@@ -21,6 +21,7 @@ import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.RunLengthMatrix;
 import com.google.zxing.qrcode.detector.FinderPattern;
 import com.google.zxing.qrcode.detector.FinderPatternFinder;
 import com.google.zxing.qrcode.detector.FinderPatternInfo;
@@ -97,6 +98,12 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
     super(image, resultPointCallback);
   }
 
+  MultiFinderPatternFinder(BitMatrix image,
+                           RunLengthMatrix runs,
+                           ResultPointCallback resultPointCallback) {
+    super(image, runs, resultPointCallback);
+  }
+
   /**
    * @return the 3 best {@link FinderPattern}s from our list of candidates. The "best" are
    *         those that have been detected at least {@link #CENTER_QUORUM} times, and whose module
@@ -230,9 +237,9 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
 
   public FinderPatternInfo[] findMulti(Map<DecodeHintType,?> hints) throws NotFoundException {
     boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
-    BitMatrix image = getImage();
-    int maxI = image.getHeight();
-    int maxJ = image.getWidth();
+    RunLengthMatrix runs = getRuns();
+    int maxI = runs.getHeight();
+    int maxJ = runs.getWidth();
     // We are looking for black/white/black/white/black modules in
     // 1:1:3:1:1 ratio; this tracks the number of such modules seen so far
 
@@ -246,53 +253,57 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
     }
 
     int[] stateCount = new int[5];
+    int[] transitions = runs.getRowTransitions();
     for (int i = iSkip - 1; i < maxI; i += iSkip) {
-      // Get a row of black/white values
+      // Walk the row's runs of black and white pixels
       stateCount[0] = 0;
       stateCount[1] = 0;
       stateCount[2] = 0;
       stateCount[3] = 0;
       stateCount[4] = 0;
       int currentState = 0;
-      for (int j = 0; j < maxJ; j++) {
-        if (image.get(j, i)) {
-          // Black pixel
+      int t = runs.getRowStart(i);
+      int rowEnd = runs.getRowEnd(i);
+      boolean black = false;
+      for (int j = 0; j < maxJ; t++, black = !black) {
+        int runEnd = t < rowEnd ? transitions[t] : maxJ;
+        int length = runEnd - j;
+        int runStart = j;
+        j = runEnd;
+        if (length == 0) {
+          // Row starts with a black pixel
+          continue;
+        }
+        if (black) {
           if ((currentState & 1) == 1) { // Counting white pixels
             currentState++;
           }
-          stateCount[currentState]++;
-        } else { // White pixel
-          if ((currentState & 1) == 0) { // Counting black pixels
-            if (currentState == 4) { // A winner?
-              if (foundPatternCross(stateCount)) { // Yes
-                boolean confirmed = handlePossibleCenter(stateCount, i, j);
-                if (!confirmed) {
-                  do { // Advance to next black pixel
-                    j++;
-                  } while (j < maxJ && !image.get(j, i));
-                  j--; // back up to that last white pixel
-                }
-                // Clear state to start looking again
-                currentState = 0;
-                stateCount[0] = 0;
-                stateCount[1] = 0;
-                stateCount[2] = 0;
-                stateCount[3] = 0;
-                stateCount[4] = 0;
-              } else { // No, shift counts back by two
-                stateCount[0] = stateCount[2];
-                stateCount[1] = stateCount[3];
-                stateCount[2] = stateCount[4];
-                stateCount[3] = 1;
-                stateCount[4] = 0;
-                currentState = 3;
-              }
-            } else {
-              stateCount[++currentState]++;
-            }
-          } else { // Counting white pixels
-            stateCount[currentState]++;
+          stateCount[currentState] += length;
+        } else if ((currentState & 1) == 1) { // Counting white pixels
+          stateCount[currentState] += length;
+        } else if (currentState != 4) {
+          stateCount[++currentState] += length;
+        } else if (foundPatternCross(stateCount)) { // A winner
+          boolean confirmed = handlePossibleCenter(stateCount, i, runStart);
+          // Clear state to start looking again
+          currentState = 0;
+          stateCount[0] = 0;
+          stateCount[1] = 0;
+          stateCount[2] = 0;
+          stateCount[3] = 0;
+          stateCount[4] = 0;
+          // If not confirmed, the rest of this white run is skipped
+          if (confirmed && length > 1) {
+            currentState = 1;
+            stateCount[1] = length - 1;
           }
+        } else { // No, shift counts back by two
+          stateCount[0] = stateCount[2];
+          stateCount[1] = stateCount[3];
+          stateCount[2] = stateCount[4];
+          stateCount[3] = length;
+          stateCount[4] = 0;
+          currentState = 3;
         }
       } // for j=...
 
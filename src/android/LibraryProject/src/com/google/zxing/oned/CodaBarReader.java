@@ -18,7 +18,9 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
@@ -50,6 +52,7 @@ public final class CodaBarReader extends OneDReader {
       0x003, 0x006, 0x009, 0x060, 0x012, 0x042, 0x021, 0x024, 0x030, 0x048, // 0-9
       0x00c, 0x018, 0x045, 0x051, 0x054, 0x015, 0x01A, 0x029, 0x00B, 0x00E, // -$:/.+ABCD
   };
+  private static final int[] CHARACTER_INDEX = PatternTable.indexByEncoding(CHARACTER_ENCODINGS, 7);
 
   // minimal number of characters that should be present (inclusing start and stop characters)
   // under normal circumstances this should be set to 3, but can be set higher
@@ -77,9 +80,53 @@ public final class CodaBarReader extends OneDReader {
 
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints) throws NotFoundException {
+    if (!setCounters(row)) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    int startOffset = findStartPattern();
+    if (startOffset < 0) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return decodeRow(rowNumber, startOffset);
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
+    if (!setCounters(row)) {
+      return null;
+    }
+    return tryDecodeCounters(rowNumber);
+  }
+
+  /**
+   * The runs of the reversed row are those of the row in reverse order, so they are recorded from
+   * there rather than from a reversed copy.
+   */
+  @Override
+  Result tryDecodeReversedRow(int rowNumber, ReversedRow reversed, DecodeOptions options) {
+    if (!setCounters(reversed)) {
+      return null;
+    }
+    return tryDecodeCounters(rowNumber);
+  }
 
-    setCounters(row);
+  private Result tryDecodeCounters(int rowNumber) {
     int startOffset = findStartPattern();
+    if (startOffset < 0) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, startOffset);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the row whose runs {@link #setCounters(BitArray)} has recorded, from the start pattern
+   * at counter startOffset.
+   */
+  private Result decodeRow(int rowNumber, int startOffset) throws NotFoundException {
     int nextStart = startOffset;
 
     decodeRowResult.setLength(0);
@@ -223,14 +270,15 @@ public final class CodaBarReader extends OneDReader {
    * This is just like recordPattern, except it records all the counters, and
    * uses our builtin "counters" member for storage.
    * @param row row to count from
+   * @return false if the row has no white pixels
    */
-  private void setCounters(BitArray row) throws NotFoundException {
+  private boolean setCounters(BitArray row) {
     counterLength = 0;
     // Start from the first white bit.
     int i = row.getNextUnset(0);
     int end = row.getSize();
     if (i >= end) {
-      throw NotFoundException.getNotFoundInstance();
+      return false;
     }
     boolean isWhite = true;
     int count = 0;
@@ -244,6 +292,32 @@ public final class CodaBarReader extends OneDReader {
       }
     }
     counterAppend(count);
+    return true;
+  }
+
+  /**
+   * Records the runs {@link #setCounters(BitArray)} would for the row reversed.
+   * @param reversed row to count from, right to left
+   * @return false if the row has no white pixels
+   */
+  private boolean setCounters(ReversedRow reversed) {
+    counterLength = 0;
+    int[] runs = reversed.getRuns();
+    // Start from the last white run, the first when reading right to left.
+    int i = reversed.getRunCount() - 1;
+    if ((i & 0x01) == 1) {
+      i--;
+    }
+    if (i < 0 || runs[i] == 0) {
+      return false;
+    }
+    for (; i >= 0; i--) {
+      // Only the first white run can be empty, when the row starts black
+      if (runs[i] > 0) {
+        counterAppend(runs[i]);
+      }
+    }
+    return true;
   }
 
   private void counterAppend(int e) {
@@ -256,7 +330,10 @@ public final class CodaBarReader extends OneDReader {
     }
   }
 
-  private int findStartPattern() throws NotFoundException {
+  /**
+   * @return offset of the counter the start pattern begins at, or -1 if there is none
+   */
+  private int findStartPattern() {
     for (int i = 1; i < counterLength; i += 2) {
       int charOffset = toNarrowWidePattern(i);
       if (charOffset != -1 && arrayContains(STARTEND_ENCODING, ALPHABET[charOffset])) {
@@ -271,7 +348,7 @@ public final class CodaBarReader extends OneDReader {
         }
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return -1;
   }
 
   static boolean arrayContains(char[] array, char key) {
@@ -291,39 +368,38 @@ public final class CodaBarReader extends OneDReader {
     if (end >= counterLength) {
       return -1;
     }
-    // First element is for bars, second is for spaces.
-    int[] maxes = {0, 0};
-    int[] mins = {Integer.MAX_VALUE, Integer.MAX_VALUE};
-    int[] thresholds = {0, 0};
-
-    for (int i = 0; i < 2; i++) {
-      for (int j = position + i; j < end; j += 2) {
-        if (counters[j] < mins[i]) {
-          mins[i] = counters[j];
-        }
-        if (counters[j] > maxes[i]) {
-          maxes[i] = counters[j];
-        }
-      }
-      thresholds[i] = (mins[i] + maxes[i]) / 2;
-    }
+    // This runs for nearly every run of every row, so the thresholds are kept in locals rather
+    // than in arrays allocated for each call.
+    int barThreshold = threshold(position, end);
+    int spaceThreshold = threshold(position + 1, end);
 
     int bitmask = 1 << 7;
     int pattern = 0;
     for (int i = 0; i < 7; i++) {
-      int barOrSpace = i & 1;
       bitmask >>= 1;
-      if (counters[position + i] > thresholds[barOrSpace]) {
+      if (counters[position + i] > ((i & 1) == 0 ? barThreshold : spaceThreshold)) {
         pattern |= bitmask;
       }
     }
 
-    for (int i = 0; i < CHARACTER_ENCODINGS.length; i++) {
-      if (CHARACTER_ENCODINGS[i] == pattern) {
-        return i;
+    return CHARACTER_INDEX[pattern];
+  }
+
+  /**
+   * @return the midpoint between the narrowest and widest of every other counter from start
+   */
+  private int threshold(int start, int end) {
+    int max = 0;
+    int min = Integer.MAX_VALUE;
+    for (int j = start; j < end; j += 2) {
+      if (counters[j] < min) {
+        min = counters[j];
+      }
+      if (counters[j] > max) {
+        max = counters[j];
       }
     }
-    return -1;
+    return (min + max) / 2;
   }
 
 }
@@ -19,13 +19,16 @@ package com.google.zxing.oned;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -146,6 +149,9 @@ public final class Code128Reader extends OneDReader {
       {2, 3, 3, 1, 1, 1, 2}
   };
 
+  // The STOP pattern is matched on its first 6 values, like the others.
+  private static final PatternTable CODE_PATTERN_TABLE = new PatternTable(CODE_PATTERNS, 6);
+
   private static final int MAX_AVG_VARIANCE = (int) (PATTERN_MATCH_RESULT_SCALE_FACTOR * 0.25f);
   private static final int MAX_INDIVIDUAL_VARIANCE = (int) (PATTERN_MATCH_RESULT_SCALE_FACTOR * 0.7f);
 
@@ -166,12 +172,21 @@ public final class Code128Reader extends OneDReader {
   private static final int CODE_START_C = 105;
   private static final int CODE_STOP = 106;
 
-  private static int[] findStartPattern(BitArray row) throws NotFoundException {
+  // Reused from row to row, rather than allocated for each
+  private final int[] counters = new int[6];
+  private final int[] startPatternInfo = new int[3];
+  private final StringBuilder decodeRowResult = new StringBuilder(20);
+
+  /**
+   * @return start and end of the start pattern and its start code, or null if there is none
+   */
+  private int[] findStartPattern(BitArray row) {
     int width = row.getSize();
     int rowOffset = row.getNextSet(0);
 
     int counterPosition = 0;
-    int[] counters = new int[6];
+    int[] counters = this.counters;
+    Arrays.fill(counters, 0);
     int patternStart = rowOffset;
     boolean isWhite = false;
     int patternLength = counters.length;
@@ -181,20 +196,14 @@ public final class Code128Reader extends OneDReader {
         counters[counterPosition]++;
       } else {
         if (counterPosition == patternLength - 1) {
-          int bestVariance = MAX_AVG_VARIANCE;
-          int bestMatch = -1;
-          for (int startCode = CODE_START_A; startCode <= CODE_START_C; startCode++) {
-            int variance = patternMatchVariance(counters, CODE_PATTERNS[startCode],
-                MAX_INDIVIDUAL_VARIANCE);
-            if (variance < bestVariance) {
-              bestVariance = variance;
-              bestMatch = startCode;
-            }
-          }
+          int bestMatch = matchStartCode(counters);
           // Look for whitespace before start pattern, >= 50% of width of start pattern
           if (bestMatch >= 0 &&
               row.isRange(Math.max(0, patternStart - (i - patternStart) / 2), patternStart, false)) {
-            return new int[]{patternStart, i, bestMatch};
+            startPatternInfo[0] = patternStart;
+            startPatternInfo[1] = i;
+            startPatternInfo[2] = bestMatch;
+            return startPatternInfo;
           }
           patternStart += counters[0] + counters[1];
           System.arraycopy(counters, 2, counters, 0, patternLength - 2);
@@ -208,22 +217,57 @@ public final class Code128Reader extends OneDReader {
         isWhite = !isWhite;
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return null;
   }
 
-  private static int decodeCode(BitArray row, int[] counters, int rowOffset)
-      throws NotFoundException {
-    recordPattern(row, rowOffset, counters);
-    int bestVariance = MAX_AVG_VARIANCE; // worst variance we'll accept
+  /**
+   * @return the start code counters match best, or -1 if none matches
+   */
+  private static int matchStartCode(int[] counters) {
+    int bestVariance = MAX_AVG_VARIANCE;
     int bestMatch = -1;
-    for (int d = 0; d < CODE_PATTERNS.length; d++) {
-      int[] pattern = CODE_PATTERNS[d];
-      int variance = patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE);
+    for (int startCode = CODE_START_A; startCode <= CODE_START_C; startCode++) {
+      int variance = patternMatchVariance(counters, CODE_PATTERNS[startCode],
+          MAX_INDIVIDUAL_VARIANCE);
       if (variance < bestVariance) {
         bestVariance = variance;
-        bestMatch = d;
+        bestMatch = startCode;
+      }
+    }
+    return bestMatch;
+  }
+
+  /**
+   * Looks for what {@link #findStartPattern(BitArray)} would find in the row reversed: a start
+   * pattern, mirrored, with whitespace after it.
+   */
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    BitArray row = reversed.getRow();
+    int width = row.getSize();
+    int[] runs = reversed.getRuns();
+    int runCount = reversed.getRunCount();
+    int patternEnd = 0;
+    for (int last = 0; last < runCount; last++) {
+      patternEnd += runs[last];
+      if ((last & 0x01) == 1 && reversed.recordReversedPattern(last, counters) &&
+          matchStartCode(counters) >= 0) {
+        int patternWidth = 0;
+        for (int counter : counters) {
+          patternWidth += counter;
+        }
+        if (row.isRange(patternEnd, Math.min(width, patternEnd + patternWidth / 2), false)) {
+          return true;
+        }
       }
     }
+    return false;
+  }
+
+  private static int decodeCode(BitArray row, int[] counters, int rowOffset)
+      throws NotFoundException {
+    recordPattern(row, rowOffset, counters);
+    int bestMatch = CODE_PATTERN_TABLE.match(counters, MAX_AVG_VARIANCE, MAX_INDIVIDUAL_VARIANCE);
     // TODO We're overlooking the fact that the STOP pattern has 7 values, not 6.
     if (bestMatch >= 0) {
       return bestMatch;
@@ -235,8 +279,29 @@ public final class Code128Reader extends OneDReader {
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws NotFoundException, FormatException, ChecksumException {
+    int[] startPatternInfo = findStartPattern(row);
+    if (startPatternInfo == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return decodeRow(rowNumber, row, startPatternInfo);
+  }
 
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
     int[] startPatternInfo = findStartPattern(row);
+    if (startPatternInfo == null) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, row, startPatternInfo);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRow(int rowNumber, BitArray row, int[] startPatternInfo)
+      throws NotFoundException, FormatException, ChecksumException {
+
     int startCode = startPatternInfo[2];
     int codeSet;
     switch (startCode) {
@@ -256,12 +321,12 @@ public final class Code128Reader extends OneDReader {
     boolean done = false;
     boolean isNextShifted = false;
 
-    StringBuilder result = new StringBuilder(20);
+    StringBuilder result = decodeRowResult;
+    result.setLength(0);
     List<Byte> rawCodes = new ArrayList<Byte>(20);
 
     int lastStart = startPatternInfo[0];
     int nextStart = startPatternInfo[1];
-    int[] counters = new int[6];
 
     int lastCode = 0;
     int code = 0;
@@ -19,12 +19,15 @@ package com.google.zxing.oned;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -52,9 +55,14 @@ public final class Code39Reader extends OneDReader {
   };
 
   private static final int ASTERISK_ENCODING = CHARACTER_ENCODINGS[39];
+  private static final int[] CHARACTER_INDEX = PatternTable.indexByEncoding(CHARACTER_ENCODINGS, 9);
 
   private final boolean usingCheckDigit;
   private final boolean extendedMode;
+  // Reused from row to row, rather than allocated for each
+  private final int[] counters = new int[9];
+  private final int[] start = new int[2];
+  private final StringBuilder decodeRowResult = new StringBuilder(20);
 
   /**
    * Creates a reader that assumes all encoded data is data, and does not treat the final
@@ -95,14 +103,35 @@ public final class Code39Reader extends OneDReader {
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException {
+    int[] start = findAsteriskPattern(row, counters, this.start);
+    if (start == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return decodeRow(rowNumber, row, counters, start);
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
+    int[] start = findAsteriskPattern(row, counters, this.start);
+    if (start == null) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, row, counters, start);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRow(int rowNumber, BitArray row, int[] counters, int[] start)
+      throws NotFoundException, ChecksumException, FormatException {
 
-    int[] counters = new int[9];
-    int[] start = findAsteriskPattern(row, counters);
     // Read off white space    
     int nextStart = row.getNextSet(start[1]);
     int end = row.getSize();
 
-    StringBuilder result = new StringBuilder(20);
+    StringBuilder result = decodeRowResult;
+    result.setLength(0);
     char decodedChar;
     int lastStart;
     do {
@@ -170,11 +199,16 @@ public final class Code39Reader extends OneDReader {
 
   }
 
-  private static int[] findAsteriskPattern(BitArray row, int[] counters) throws NotFoundException {
+  /**
+   * @param start array of two to fill in with the start and end of the asterisk
+   * @return start and end of the first asterisk with a quiet zone before it, or null if there is none
+   */
+  private static int[] findAsteriskPattern(BitArray row, int[] counters, int[] start) {
     int width = row.getSize();
     int rowOffset = row.getNextSet(0);
 
     int counterPosition = 0;
+    Arrays.fill(counters, 0);
     int patternStart = rowOffset;
     boolean isWhite = false;
     int patternLength = counters.length;
@@ -187,7 +221,9 @@ public final class Code39Reader extends OneDReader {
           // Look for whitespace before start pattern, >= 50% of width of start pattern
           if (toNarrowWidePattern(counters) == ASTERISK_ENCODING &&
               row.isRange(Math.max(0, patternStart - ((i - patternStart) >> 1)), patternStart, false)) {
-            return new int[]{patternStart, i};
+            start[0] = patternStart;
+            start[1] = i;
+            return start;
           }
           patternStart += counters[0] + counters[1];
           System.arraycopy(counters, 2, counters, 0, patternLength - 2);
@@ -201,7 +237,34 @@ public final class Code39Reader extends OneDReader {
         isWhite = !isWhite;
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return null;
+  }
+
+  /**
+   * Looks for what {@link #findAsteriskPattern(BitArray, int[], int[])} would find in the row reversed: an
+   * asterisk, mirrored, with whitespace after it.
+   */
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    BitArray row = reversed.getRow();
+    int width = row.getSize();
+    int[] runs = reversed.getRuns();
+    int runCount = reversed.getRunCount();
+    int patternEnd = 0;
+    for (int last = 0; last < runCount; last++) {
+      patternEnd += runs[last];
+      if ((last & 0x01) == 1 && reversed.recordReversedPattern(last, counters) &&
+          toNarrowWidePattern(counters) == ASTERISK_ENCODING) {
+        int patternWidth = 0;
+        for (int counter : counters) {
+          patternWidth += counter;
+        }
+        if (row.isRange(patternEnd, Math.min(width, patternEnd + (patternWidth >> 1)), false)) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   // For efficiency, returns -1 on failure. Not throwing here saved as many as 700 exceptions
@@ -250,12 +313,11 @@ public final class Code39Reader extends OneDReader {
   }
 
   private static char patternToChar(int pattern) throws NotFoundException {
-    for (int i = 0; i < CHARACTER_ENCODINGS.length; i++) {
-      if (CHARACTER_ENCODINGS[i] == pattern) {
-        return ALPHABET[i];
-      }
+    int i = pattern < CHARACTER_INDEX.length ? CHARACTER_INDEX[pattern] : -1;
+    if (i < 0) {
+      throw NotFoundException.getNotFoundInstance();
     }
-    throw NotFoundException.getNotFoundInstance();
+    return ALPHABET[i];
   }
 
   private static String decodeExtended(CharSequence encoded) throws FormatException {
@@ -19,12 +19,15 @@ package com.google.zxing.oned;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -52,18 +55,45 @@ public final class Code93Reader extends OneDReader {
       0x126, 0x1DA, 0x1D6, 0x132, 0x15E, // Control chars? $-*
   };
   private static final int ASTERISK_ENCODING = CHARACTER_ENCODINGS[47];
+  private static final int[] CHARACTER_INDEX = PatternTable.indexByEncoding(CHARACTER_ENCODINGS, 9);
+
+  // Reused from row to row, rather than allocated for each
+  private final int[] counters = new int[6];
+  private final int[] start = new int[2];
+  private final StringBuilder decodeRowResult = new StringBuilder(20);
 
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException {
+    int[] start = findAsteriskPattern(row);
+    if (start == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return decodeRow(rowNumber, row, start);
+  }
 
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
     int[] start = findAsteriskPattern(row);
+    if (start == null) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, row, start);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRow(int rowNumber, BitArray row, int[] start)
+      throws NotFoundException, ChecksumException, FormatException {
+
     // Read off white space    
     int nextStart = row.getNextSet(start[1]);
     int end = row.getSize();
 
-    StringBuilder result = new StringBuilder(20);
-    int[] counters = new int[6];
+    StringBuilder result = decodeRowResult;
+    result.setLength(0);
     char decodedChar;
     int lastStart;
     do {
@@ -111,12 +141,16 @@ public final class Code93Reader extends OneDReader {
 
   }
 
-  private static int[] findAsteriskPattern(BitArray row) throws NotFoundException {
+  /**
+   * @return start and end of the first asterisk, or null if there is none
+   */
+  private int[] findAsteriskPattern(BitArray row) {
     int width = row.getSize();
     int rowOffset = row.getNextSet(0);
 
     int counterPosition = 0;
-    int[] counters = new int[6];
+    int[] counters = this.counters;
+    Arrays.fill(counters, 0);
     int patternStart = rowOffset;
     boolean isWhite = false;
     int patternLength = counters.length;
@@ -127,7 +161,9 @@ public final class Code93Reader extends OneDReader {
       } else {
         if (counterPosition == patternLength - 1) {
           if (toPattern(counters) == ASTERISK_ENCODING) {
-            return new int[]{patternStart, i};
+            start[0] = patternStart;
+            start[1] = i;
+            return start;
           }
           patternStart += counters[0] + counters[1];
           System.arraycopy(counters, 2, counters, 0, patternLength - 2);
@@ -141,7 +177,23 @@ public final class Code93Reader extends OneDReader {
         isWhite = !isWhite;
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return null;
+  }
+
+  /**
+   * Looks for what {@link #findAsteriskPattern(BitArray)} would find in the row reversed: an
+   * asterisk, mirrored.
+   */
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    int runCount = reversed.getRunCount();
+    for (int last = 1; last < runCount; last += 2) {
+      if (reversed.recordReversedPattern(last, counters) &&
+          toPattern(counters) == ASTERISK_ENCODING) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private static int toPattern(int[] counters) {
@@ -172,12 +224,11 @@ public final class Code93Reader extends OneDReader {
   }
 
   private static char patternToChar(int pattern) throws NotFoundException {
-    for (int i = 0; i < CHARACTER_ENCODINGS.length; i++) {
-      if (CHARACTER_ENCODINGS[i] == pattern) {
-        return ALPHABET[i];
-      }
+    int i = pattern < CHARACTER_INDEX.length ? CHARACTER_INDEX[pattern] : -1;
+    if (i < 0) {
+      throw NotFoundException.getNotFoundInstance();
     }
-    throw NotFoundException.getNotFoundInstance();
+    return ALPHABET[i];
   }
 
   private static String decodeExtended(CharSequence encoded) throws FormatException {
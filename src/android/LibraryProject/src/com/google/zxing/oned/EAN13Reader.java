@@ -83,7 +83,7 @@ public final class EAN13Reader extends UPCEANReader {
     int lgPatternFound = 0;
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
-      int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERNS);
+      int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERN_TABLE);
       resultString.append((char) ('0' + bestMatch % 10));
       for (int counter : counters) {
         rowOffset += counter;
@@ -99,7 +99,7 @@ public final class EAN13Reader extends UPCEANReader {
     rowOffset = middleRange[1];
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
-      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERN_TABLE);
       resultString.append((char) ('0' + bestMatch));
       for (int counter : counters) {
         rowOffset += counter;
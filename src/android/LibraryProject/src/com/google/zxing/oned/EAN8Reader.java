@@ -46,7 +46,7 @@ public final class EAN8Reader extends UPCEANReader {
     int rowOffset = startRange[1];
 
     for (int x = 0; x < 4 && rowOffset < end; x++) {
-      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERN_TABLE);
       result.append((char) ('0' + bestMatch));
       for (int counter : counters) {
         rowOffset += counter;
@@ -57,7 +57,7 @@ public final class EAN8Reader extends UPCEANReader {
     rowOffset = middleRange[1];
 
     for (int x = 0; x < 4 && rowOffset < end; x++) {
-      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERN_TABLE);
       result.append((char) ('0' + bestMatch));
       for (int counter : counters) {
         rowOffset += counter;
@@ -18,12 +18,15 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -64,6 +67,16 @@ public final class ITFReader extends OneDReader {
   private static final int[] START_PATTERN = {N, N, N, N};
   private static final int[] END_PATTERN_REVERSED = {N, N, W};
 
+  // Reused from row to row, rather than allocated for each
+  private final int[] startCounters = new int[START_PATTERN.length];
+  private final int[] endCounters = new int[END_PATTERN_REVERSED.length];
+  private final int[] startRange = new int[2];
+  private final int[] endRange = new int[2];
+  private final int[] counterDigitPair = new int[10];
+  private final int[] counterBlack = new int[5];
+  private final int[] counterWhite = new int[5];
+  private final StringBuilder decodeRowResult = new StringBuilder(20);
+
   /**
    * Patterns of Wide / Narrow lines to indicate each digit
    */
@@ -80,23 +93,39 @@ public final class ITFReader extends OneDReader {
       {N, W, N, W, N}  // 9
   };
 
+  private static final PatternTable PATTERN_TABLE = new PatternTable(PATTERNS, 5);
+
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws FormatException, NotFoundException {
+    return decodeRow(rowNumber, row, decodeStart(row), new DecodeOptions(hints));
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
+    int[] startRange = tryDecodeStart(row);
+    if (startRange == null) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, row, startRange, options);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRow(int rowNumber, BitArray row, int[] startRange, DecodeOptions options)
+      throws FormatException, NotFoundException {
 
     // Find out where the Middle section (payload) starts & ends
-    int[] startRange = decodeStart(row);
     int[] endRange = decodeEnd(row);
 
-    StringBuilder result = new StringBuilder(20);
+    StringBuilder result = decodeRowResult;
+    result.setLength(0);
     decodeMiddle(row, startRange[1], endRange[0], result);
     String resultString = result.toString();
 
-    int[] allowedLengths = null;
-    if (hints != null) {
-      allowedLengths = (int[]) hints.get(DecodeHintType.ALLOWED_LENGTHS);
-
-    }
+    int[] allowedLengths = options.getAllowedLengths();
     if (allowedLengths == null) {
       allowedLengths = DEFAULT_ALLOWED_LENGTHS;
     }
@@ -129,19 +158,19 @@ public final class ITFReader extends OneDReader {
    * @param resultString {@link StringBuilder} to append decoded chars to
    * @throws NotFoundException if decoding could not complete successfully
    */
-  private static void decodeMiddle(BitArray row,
-                                   int payloadStart,
-                                   int payloadEnd,
-                                   StringBuilder resultString) throws NotFoundException {
+  private void decodeMiddle(BitArray row,
+                            int payloadStart,
+                            int payloadEnd,
+                            StringBuilder resultString) throws NotFoundException {
 
     // Digits are interleaved in pairs - 5 black lines for one digit, and the
     // 5
     // interleaved white lines for the second digit.
     // Therefore, need to scan 10 lines and then
     // split these into two arrays
-    int[] counterDigitPair = new int[10];
-    int[] counterBlack = new int[5];
-    int[] counterWhite = new int[5];
+    int[] counterDigitPair = this.counterDigitPair;
+    int[] counterBlack = this.counterBlack;
+    int[] counterWhite = this.counterWhite;
 
     while (payloadStart < payloadEnd) {
 
@@ -170,23 +199,70 @@ public final class ITFReader extends OneDReader {
    *
    * @param row row of black/white values to search
    * @return Array, containing index of start of 'start block' and end of
-   *         'start block'
+   *         'start block', which the next call fills in again
    * @throws NotFoundException
    */
   int[] decodeStart(BitArray row) throws NotFoundException {
-    int endStart = skipWhiteSpace(row);
-    int[] startPattern = findGuardPattern(row, endStart, START_PATTERN);
+    int[] startPattern = tryDecodeStart(row);
+    if (startPattern == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return startPattern;
+  }
+
+  /**
+   * Like {@link #decodeStart(BitArray)}, but returns null if there is no start pattern, or it has
+   * no quiet zone before it.
+   */
+  private int[] tryDecodeStart(BitArray row) {
+    int endStart = row.getNextSet(0);
+    if (endStart == row.getSize()) {
+      return null;
+    }
+    int[] startPattern = findGuardPattern(row, endStart, START_PATTERN, startCounters, startRange);
+    if (startPattern == null) {
+      return null;
+    }
 
     // Determine the width of a narrow line in pixels. We can do this by
     // getting the width of the start pattern and dividing by 4 because its
     // made up of 4 narrow lines.
     this.narrowLineWidth = (startPattern[1] - startPattern[0]) >> 2;
 
-    validateQuietZone(row, startPattern[0]);
+    if (!hasQuietZone(row, startPattern[0])) {
+      return null;
+    }
 
     return startPattern;
   }
 
+  /**
+   * Looks for what {@link #tryDecodeStart(BitArray)} would find in the row reversed: a start
+   * pattern with a quiet zone after it of 10 narrow lines.
+   */
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    BitArray row = reversed.getRow();
+    int width = row.getSize();
+    int[] runs = reversed.getRuns();
+    int runCount = reversed.getRunCount();
+    int[] counters = startCounters;
+    int patternEnd = 0;
+    for (int last = 0; last < runCount; last++) {
+      patternEnd += runs[last];
+      if ((last & 0x01) == 1 && reversed.recordReversedPattern(last, counters) &&
+          patternMatchVariance(counters, START_PATTERN, MAX_INDIVIDUAL_VARIANCE) <
+              MAX_AVG_VARIANCE) {
+        int narrowLineWidth = (counters[0] + counters[1] + counters[2] + counters[3]) >> 2;
+        int quietEnd = patternEnd + narrowLineWidth * 10;
+        if (quietEnd <= width && row.isRange(patternEnd, quietEnd, false)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * The start & end patterns must be pre/post fixed by a quiet zone. This
    * zone must be at least 10 times the width of a narrow line.  Scan back until
@@ -200,9 +276,9 @@ public final class ITFReader extends OneDReader {
    *
    * @param row bit array representing the scanned barcode.
    * @param startPattern index into row of the start or end pattern.
-   * @throws NotFoundException if the quiet zone cannot be found, a ReaderException is thrown.
+   * @return false if the quiet zone cannot be found
    */
-  private void validateQuietZone(BitArray row, int startPattern) throws NotFoundException {
+  private boolean hasQuietZone(BitArray row, int startPattern) {
 
     int quietCount = this.narrowLineWidth * 10;  // expect to find this many pixels of quiet zone
 
@@ -212,10 +288,8 @@ public final class ITFReader extends OneDReader {
       }
       quietCount--;
     }
-    if (quietCount != 0) {
-      // Unable to find the necessary number of quiet zone pixels.
-      throw NotFoundException.getNotFoundInstance();
-    }
+    // Unable to find the necessary number of quiet zone pixels otherwise.
+    return quietCount == 0;
   }
 
   /**
@@ -240,7 +314,7 @@ public final class ITFReader extends OneDReader {
    *
    * @param row row of black/white values to search
    * @return Array, containing index of start of 'end block' and end of 'end
-   *         block'
+   *         block', which the next call fills in again
    * @throws NotFoundException
    */
   int[] decodeEnd(BitArray row) throws NotFoundException {
@@ -250,12 +324,15 @@ public final class ITFReader extends OneDReader {
     row.reverse();
     try {
       int endStart = skipWhiteSpace(row);
-      int[] endPattern = findGuardPattern(row, endStart, END_PATTERN_REVERSED);
+      int[] endPattern =
+          findGuardPattern(row, endStart, END_PATTERN_REVERSED, endCounters, endRange);
 
       // The start & end patterns must be pre/post fixed by a quiet zone. This
       // zone must be at least 10 times the width of a narrow line.
       // ref: http://www.barcode-1.net/i25code.html
-      validateQuietZone(row, endPattern[0]);
+      if (endPattern == null || !hasQuietZone(row, endPattern[0])) {
+        throw NotFoundException.getNotFoundInstance();
+      }
 
       // Now recalculate the indices of where the 'endblock' starts & stops to
       // accommodate
@@ -276,18 +353,21 @@ public final class ITFReader extends OneDReader {
    * @param rowOffset position to start search
    * @param pattern   pattern of counts of number of black and white pixels that are
    *                  being searched for as a pattern
-   * @return start/end horizontal offset of guard pattern, as an array of two
-   *         ints
-   * @throws NotFoundException if pattern is not found
+   * @param counters  array of the pattern's length, to count runs in
+   * @param range     array of two to fill in with the start/end horizontal offset of the guard
+   *                  pattern
+   * @return range, or null if pattern is not found
    */
   private static int[] findGuardPattern(BitArray row,
                                         int rowOffset,
-                                        int[] pattern) throws NotFoundException {
+                                        int[] pattern,
+                                        int[] counters,
+                                        int[] range) {
 
     // TODO: This is very similar to implementation in UPCEANReader. Consider if they can be
     // merged to a single method.
     int patternLength = pattern.length;
-    int[] counters = new int[patternLength];
+    Arrays.fill(counters, 0);
     int width = row.getSize();
     boolean isWhite = false;
 
@@ -299,7 +379,9 @@ public final class ITFReader extends OneDReader {
       } else {
         if (counterPosition == patternLength - 1) {
           if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
-            return new int[]{patternStart, x};
+            range[0] = patternStart;
+            range[1] = x;
+            return range;
           }
           patternStart += counters[0] + counters[1];
           System.arraycopy(counters, 2, counters, 0, patternLength - 2);
@@ -313,7 +395,7 @@ public final class ITFReader extends OneDReader {
         isWhite = !isWhite;
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return null;
   }
 
   /**
@@ -325,18 +407,7 @@ public final class ITFReader extends OneDReader {
    * @throws NotFoundException if digit cannot be decoded
    */
   private static int decodeDigit(int[] counters) throws NotFoundException {
-
-    int bestVariance = MAX_AVG_VARIANCE; // worst variance we'll accept
-    int bestMatch = -1;
-    int max = PATTERNS.length;
-    for (int i = 0; i < max; i++) {
-      int[] pattern = PATTERNS[i];
-      int variance = patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE);
-      if (variance < bestVariance) {
-        bestVariance = variance;
-        bestMatch = i;
-      }
-    }
+    int bestMatch = PATTERN_TABLE.match(counters, MAX_AVG_VARIANCE, MAX_INDIVIDUAL_VARIANCE);
     if (bestMatch >= 0) {
       return bestMatch;
     } else {
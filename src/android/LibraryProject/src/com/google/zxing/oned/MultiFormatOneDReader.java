@@ -18,9 +18,9 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.Reader;
-import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.common.BitArray;
 import com.google.zxing.oned.rss.RSS14Reader;
@@ -90,15 +90,33 @@ public final class MultiFormatOneDReader extends OneDReader {
   public Result decodeRow(int rowNumber,
                           BitArray row,
                           Map<DecodeHintType,?> hints) throws NotFoundException {
+    Result result = tryDecodeRow(rowNumber, row, new DecodeOptions(hints));
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
     for (OneDReader reader : readers) {
-      try {
-        return reader.decodeRow(rowNumber, row, hints);
-      } catch (ReaderException re) {
-        // continue
+      Result result = reader.tryDecodeRow(rowNumber, row, options);
+      if (result != null) {
+        return result;
       }
     }
+    return null;
+  }
 
-    throw NotFoundException.getNotFoundInstance();
+  @Override
+  Result tryDecodeReversedRow(int rowNumber, ReversedRow reversed, DecodeOptions options) {
+    for (OneDReader reader : readers) {
+      Result result = reader.tryDecodeReversedRow(rowNumber, reversed, options);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
   }
 
   @Override
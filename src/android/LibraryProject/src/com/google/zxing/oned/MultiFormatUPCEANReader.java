@@ -18,6 +18,7 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.Reader;
 import com.google.zxing.ReaderException;
@@ -38,6 +39,9 @@ import java.util.Map;
 public final class MultiFormatUPCEANReader extends OneDReader {
 
   private final UPCEANReader[] readers;
+  // Reused from row to row, rather than allocated for each
+  private final int[] startGuardCounters = new int[UPCEANReader.START_END_PATTERN.length];
+  private final int[] startGuardRange = new int[2];
 
   public MultiFormatUPCEANReader(Map<DecodeHintType,?> hints) {
     Collection<BarcodeFormat> possibleFormats = hints == null ? null :
@@ -69,12 +73,25 @@ public final class MultiFormatUPCEANReader extends OneDReader {
   public Result decodeRow(int rowNumber,
                           BitArray row,
                           Map<DecodeHintType,?> hints) throws NotFoundException {
+    Result result = tryDecodeRow(rowNumber, row, new DecodeOptions(hints));
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
     // Compute this location once and reuse it on multiple implementations
-    int[] startGuardPattern = UPCEANReader.findStartGuardPattern(row);
+    int[] startGuardPattern =
+        UPCEANReader.tryFindStartGuardPattern(row, startGuardCounters, startGuardRange);
+    if (startGuardPattern == null) {
+      return null;
+    }
     for (UPCEANReader reader : readers) {
       Result result;
       try {
-        result = reader.decodeRow(rowNumber, row, startGuardPattern, hints);
+        result = reader.decodeRow(rowNumber, row, startGuardPattern, options);
       } catch (ReaderException re) {
         continue;
       }
@@ -93,9 +110,7 @@ public final class MultiFormatUPCEANReader extends OneDReader {
       boolean ean13MayBeUPCA =
           result.getBarcodeFormat() == BarcodeFormat.EAN_13 &&
               result.getText().charAt(0) == '0';
-      Collection<BarcodeFormat> possibleFormats =
-          hints == null ? null : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
-      boolean canReturnUPCA = possibleFormats == null || possibleFormats.contains(BarcodeFormat.UPC_A);
+      boolean canReturnUPCA = options.isPossibleFormat(BarcodeFormat.UPC_A);
 
       if (ean13MayBeUPCA && canReturnUPCA) {
         // Transfer the metdata across
@@ -109,7 +124,12 @@ public final class MultiFormatUPCEANReader extends OneDReader {
       return result;
     }
 
-    throw NotFoundException.getNotFoundInstance();
+    return null;
+  }
+
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    return UPCEANReader.mayHaveReversedStartGuardPattern(reversed, startGuardCounters);
   }
 
   @Override
@@ -18,18 +18,21 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeContext;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
-import com.google.zxing.Reader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
+import com.google.zxing.TryDecodeReader;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.ScanlineSampler;
 
 import java.util.Arrays;
-import java.util.EnumMap;
 import java.util.Map;
 
 /**
@@ -39,49 +42,166 @@ import java.util.Map;
  * @author dswitkin@google.com (Daniel Switkin)
  * @author Sean Owen
  */
-public abstract class OneDReader implements Reader {
+public abstract class OneDReader implements TryDecodeReader {
 
   protected static final int INTEGER_MATH_SHIFT = 8;
   protected static final int PATTERN_MATCH_RESULT_SCALE_FACTOR = 1 << INTEGER_MATH_SHIFT;
 
+  // Keys of the scratch kept in a DecodeContext. A row is kept for each way round the image is
+  // scanned, since the rows of the rotated image are of a different size.
+  private static final Object ROW_KEY = new Object();
+  private static final Object ROTATED_ROW_KEY = new Object();
+  private static final Object REVERSED_ROW_KEY = new Object();
+  private static final Object SCANLINE_SAMPLER_KEY = new Object();
+  private static final Object ROW_VOTER_KEY = new Object();
+  private static final Object ROW_CONSENSUS_KEY = new Object();
+
   @Override
   public Result decode(BinaryBitmap image) throws NotFoundException, FormatException {
     return decode(image, null);
   }
 
-  // Note that we don't try rotation without the try harder flag, even if rotation was supported.
   @Override
   public Result decode(BinaryBitmap image,
                        Map<DecodeHintType,?> hints) throws NotFoundException, FormatException {
+    Result result = tryDecode(image, new DecodeOptions(hints), new DecodeContext());
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  // Note that we don't try rotation without the try harder flag, even if rotation was supported.
+  @Override
+  public Result tryDecode(BinaryBitmap image, DecodeOptions options, DecodeContext context) {
+    ReversedRow reversedRow = (ReversedRow) context.get(REVERSED_ROW_KEY);
+    if (reversedRow == null) {
+      reversedRow = new ReversedRow();
+      context.put(REVERSED_ROW_KEY, reversedRow);
+    }
+    BitArray row = context.getBitArray(ROW_KEY, image.getWidth());
+    Result result = doDecode(image, options, context, row, reversedRow);
+    if (result == null && options.isTryHarder() && image.isRotateSupported()) {
+      result = doDecodeRotated(image, options, context, reversedRow);
+    }
+    if (result == null && options.getScanlineAngles() != null) {
+      result = doDecodeScanlines(image, options, context, reversedRow);
+    }
+    return result;
+  }
+
+  private Result doDecodeRotated(BinaryBitmap image,
+                                 DecodeOptions options,
+                                 DecodeContext context,
+                                 ReversedRow reversedRow) {
+    BinaryBitmap rotatedImage = image.rotateCounterClockwise(context);
+    BitArray row = context.getBitArray(ROTATED_ROW_KEY, rotatedImage.getWidth());
+    Result result = doDecode(rotatedImage, options, context, row, reversedRow);
+    if (result == null) {
+      return null;
+    }
+    // Record that we found it rotated 90 degrees CCW / 270 degrees CW
+    Map<ResultMetadataType,?> metadata = result.getResultMetadata();
+    int orientation = 270;
+    if (metadata != null && metadata.containsKey(ResultMetadataType.ORIENTATION)) {
+      // But if we found it reversed in doDecode(), add in that result here:
+      orientation = (orientation +
+          (Integer) metadata.get(ResultMetadataType.ORIENTATION)) % 360;
+    }
+    result.putMetadata(ResultMetadataType.ORIENTATION, orientation);
+    // Update result points
+    ResultPoint[] points = result.getResultPoints();
+    if (points != null) {
+      int height = rotatedImage.getHeight();
+      for (int i = 0; i < points.length; i++) {
+        points[i] = new ResultPoint(height - points[i].getY() - 1, points[i].getX());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Scans lines at each of {@link DecodeOptions#getScanlineAngles()} in turn, sampled from the
+   * black matrix by a {@link ScanlineSampler}: first the line through the middle of the image at
+   * each angle, then those either side of it, and farther out each time, spaced so as to spread
+   * {@link DecodeOptions#getScanlineBudget()} scanlines evenly over the image.
+   *
+   * @return the barcode found, with its orientation as metadata, or null if there is none
+   */
+  private Result doDecodeScanlines(BinaryBitmap image,
+                                   DecodeOptions options,
+                                   DecodeContext context,
+                                   ReversedRow reversedRow) {
+    BitMatrix matrix;
     try {
-      return doDecode(image, hints);
+      matrix = image.getBlackMatrix();
     } catch (NotFoundException nfe) {
-      boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
-      if (tryHarder && image.isRotateSupported()) {
-        BinaryBitmap rotatedImage = image.rotateCounterClockwise();
-        Result result = doDecode(rotatedImage, hints);
-        // Record that we found it rotated 90 degrees CCW / 270 degrees CW
-        Map<ResultMetadataType,?> metadata = result.getResultMetadata();
-        int orientation = 270;
-        if (metadata != null && metadata.containsKey(ResultMetadataType.ORIENTATION)) {
-          // But if we found it reversed in doDecode(), add in that result here:
-          orientation = (orientation +
-              (Integer) metadata.get(ResultMetadataType.ORIENTATION)) % 360;
+      return null;
+    }
+    int[] angles = options.getScanlineAngles();
+    int budget = options.getScanlineBudget();
+    int linesPerAngle = (budget + angles.length - 1) / angles.length;
+    ScanlineSampler sampler = (ScanlineSampler) context.get(SCANLINE_SAMPLER_KEY);
+    if (sampler == null) {
+      sampler = new ScanlineSampler(matrix);
+      context.put(SCANLINE_SAMPLER_KEY, sampler);
+    } else {
+      sampler.reset(matrix);
+    }
+    RowConsensus consensus = getConsensus(options, context);
+    // Points on scanlines are only known in image coordinates once a barcode is found
+    options = options.withoutResultPointCallback();
+
+    int lineNumber = 0;
+    for (int x = 0; x < linesPerAngle; x++) {
+      int stepsAboveOrBelow = (x + 1) >> 1;
+      boolean isAbove = (x & 0x01) == 0;
+      for (int angle : angles) {
+        if (lineNumber == budget) {
+          return null;
+        }
+        lineNumber++;
+        float spacing = sampler.getExtent(angle) / (linesPerAngle + 1);
+        BitArray line =
+            sampler.sample(angle, spacing * (isAbove ? stepsAboveOrBelow : -stepsAboveOrBelow));
+        if (line == null) {
+          continue;
         }
-        result.putMetadata(ResultMetadataType.ORIENTATION, orientation);
-        // Update result points
-        ResultPoint[] points = result.getResultPoints();
-        if (points != null) {
-          int height = rotatedImage.getHeight();
-          for (int i = 0; i < points.length; i++) {
-            points[i] = new ResultPoint(height - points[i].getY() - 1, points[i].getX());
+        for (int attempt = 0; attempt < 2; attempt++) {
+          Result result;
+          if (attempt == 0) {
+            result = tryDecodeRow(lineNumber, line, options);
+          } else {
+            reversedRow.reset(line);
+            result = tryDecodeReversedRow(lineNumber, reversedRow, options);
+          }
+          if (result == null) {
+            continue;
+          }
+          int size = line.getSize();
+          ResultPoint[] points = result.getResultPoints();
+          if (points != null) {
+            for (int i = 0; i < points.length; i++) {
+              ResultPoint point = points[i];
+              if (attempt == 1) {
+                point = new ResultPoint(size - point.getX() - 1, point.getY());
+              }
+              points[i] = sampler.toImagePoint(point);
+            }
+          }
+          result.putMetadata(ResultMetadataType.ORIENTATION, (angle + attempt * 180) % 360);
+          if (consensus != null) {
+            result = consensus.add(result);
+          }
+          if (result != null) {
+            result.putMetadata(ResultMetadataType.ROWS_SCANNED, lineNumber);
+            return result;
           }
+          break;
         }
-        return result;
-      } else {
-        throw nfe;
       }
     }
+    return null;
   }
 
   @Override
@@ -94,30 +214,40 @@ public abstract class OneDReader implements Reader {
    * middle, and farther out each time. rowStep is the number of rows between each successive
    * attempt above and below the middle. So we'd scan row middle, then middle - rowStep, then
    * middle + rowStep, then middle - (2 * rowStep), etc.
-   * rowStep is bigger as the image is taller, but is always at least 1. We've somewhat arbitrarily
-   * decided that moving up and down by about 1/16 of the image is pretty good; we try more of the
-   * image if "trying harder".
+   * rowStep is bigger as the image is taller, and how many rows are tried at most, are given by
+   * {@link DecodeOptions#getRowStep(int)} and {@link DecodeOptions#getMaxRows(int)}.
+   *
+   * A row which cannot be read may still be voted on by the rows around it, as many as
+   * {@link DecodeOptions#getRowsToVote()}, and a row which can is only accepted once as many rows
+   * as {@link DecodeOptions#getRowsToAgree()} read the same.
+   *
+   * The rows voting are spread evenly over one rowStep centered on the row, so they never reach
+   * the rows scanned either side of it. They are not simply the rows next to it: a smudge or a
+   * highlight is usually several pixels tall and would cover all of those the same way. Nor are
+   * they rowStep apart: over two rowSteps, the bars of a barcode held even a couple of degrees off
+   * level shift by a module or more, and the rows no longer line up.
    *
    * @param image The image to decode
-   * @param hints Any hints that were requested
-   * @return The contents of the decoded barcode
-   * @throws NotFoundException Any spontaneous errors which occur
+   * @param options Any hints that were requested
+   * @param context Scratch kept from image to image
+   * @param row A row as wide as the image to load rows into
+   * @param reversedRow Scratch for reading rows right to left
+   * @return The contents of the decoded barcode, or null if no row could be decoded
    */
   private Result doDecode(BinaryBitmap image,
-                          Map<DecodeHintType,?> hints) throws NotFoundException {
+                          DecodeOptions options,
+                          DecodeContext context,
+                          BitArray row,
+                          ReversedRow reversedRow) {
     int width = image.getWidth();
     int height = image.getHeight();
-    BitArray row = new BitArray(width);
+    RowVoter voter = getVoter(options, context);
+    RowConsensus consensus = getConsensus(options, context);
 
     int middle = height >> 1;
-    boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
-    int rowStep = Math.max(1, height >> (tryHarder ? 8 : 5));
-    int maxLines;
-    if (tryHarder) {
-      maxLines = height; // Look at the whole image, not just the center
-    } else {
-      maxLines = 15; // 15 rows spaced 1/32 apart is roughly the middle half of the image
-    }
+    int rowStep = options.getRowStep(height);
+    int votePitch = Math.max(1, rowStep / options.getRowsToVote());
+    int maxLines = options.getMaxRows(height);
 
     for (int x = 0; x < maxLines; x++) {
 
@@ -137,44 +267,96 @@ public abstract class OneDReader implements Reader {
         continue;
       }
 
-      // While we have the image data in a BitArray, it's fairly cheap to reverse it in place to
-      // handle decoding upside down barcodes.
-      for (int attempt = 0; attempt < 2; attempt++) {
-        if (attempt == 1) { // trying again?
-          row.reverse(); // reverse the row and continue
+      // Read the row left to right, then right to left to handle decoding upside down barcodes.
+      // For the second attempt readers first look for their start pattern mirrored, and the row is
+      // only reversed if one is there. If neither works, try the same again on the row as voted on
+      // by the rows around it, if asked to.
+      BitArray line = row;
+      for (int attempt = 0; attempt < 4; attempt++) {
+        if (attempt == 2) {
+          line = voter == null ? null : voter.vote(image, rowNumber, votePitch);
+          if (line == null) {
+            break;
+          }
+        }
+        Result result;
+        if ((attempt & 0x01) == 0) {
+          // Look for a barcode
+          result = tryDecodeRow(rowNumber, line, options);
+        } else { // trying again?
           // This means we will only ever draw result points *once* in the life of this method
           // since we want to avoid drawing the wrong points after flipping the row, and,
           // don't want to clutter with noise from every single row scan -- just the scans
           // that start on the center line.
-          if (hints != null && hints.containsKey(DecodeHintType.NEED_RESULT_POINT_CALLBACK)) {
-            Map<DecodeHintType,Object> newHints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
-            newHints.putAll(hints);
-            newHints.remove(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
-            hints = newHints;
-          }
+          options = options.withoutResultPointCallback();
+          reversedRow.reset(line);
+          result = tryDecodeReversedRow(rowNumber, reversedRow, options);
         }
-        try {
-          // Look for a barcode
-          Result result = decodeRow(rowNumber, row, hints);
-          // We found our barcode
-          if (attempt == 1) {
-            // But it was upside down, so note that
-            result.putMetadata(ResultMetadataType.ORIENTATION, 180);
-            // And remember to flip the result points horizontally.
-            ResultPoint[] points = result.getResultPoints();
-            if (points != null) {
-              points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
-              points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
-            }
+        if (result == null) {
+          // continue -- just couldn't decode this row
+          continue;
+        }
+        // We found our barcode
+        if ((attempt & 0x01) == 1) {
+          // But it was upside down, so note that
+          result.putMetadata(ResultMetadataType.ORIENTATION, 180);
+          // And remember to flip the result points horizontally.
+          ResultPoint[] points = result.getResultPoints();
+          if (points != null) {
+            points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
+            points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
           }
+        }
+        // But it may take more rows to agree on it
+        if (consensus != null) {
+          result = consensus.add(result);
+        }
+        if (result != null) {
+          result.putMetadata(ResultMetadataType.ROWS_SCANNED, x + 1);
           return result;
-        } catch (ReaderException re) {
-          // continue -- just couldn't decode this row
         }
+        break;
       }
     }
 
-    throw NotFoundException.getNotFoundInstance();
+    return null;
+  }
+
+  /**
+   * @return the voter kept in context, for {@link DecodeOptions#getRowsToVote()} rows, or null if
+   *  rows are not voted on
+   */
+  private static RowVoter getVoter(DecodeOptions options, DecodeContext context) {
+    int rows = options.getRowsToVote();
+    if (rows <= 1) {
+      return null;
+    }
+    RowVoter voter = (RowVoter) context.get(ROW_VOTER_KEY);
+    if (voter == null) {
+      voter = new RowVoter(rows);
+      context.put(ROW_VOTER_KEY, voter);
+    } else {
+      voter.reset(rows);
+    }
+    return voter;
+  }
+
+  /**
+   * @return the consensus kept in context, reset for a new pass, or null if any one row is enough
+   */
+  private static RowConsensus getConsensus(DecodeOptions options, DecodeContext context) {
+    int required = options.getRowsToAgree();
+    if (required <= 1) {
+      return null;
+    }
+    RowConsensus consensus = (RowConsensus) context.get(ROW_CONSENSUS_KEY);
+    if (consensus == null) {
+      consensus = new RowConsensus(required);
+      context.put(ROW_CONSENSUS_KEY, consensus);
+    } else {
+      consensus.reset(required);
+    }
+    return consensus;
   }
 
   /**
@@ -300,4 +482,47 @@ public abstract class OneDReader implements Reader {
   public abstract Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException;
 
+  /**
+   * <p>Like {@link #decodeRow(int, BitArray, Map)}, but returns null rather than throwing when
+   * the row cannot be decoded, for whatever reason. This is what {@link #decode(BinaryBitmap, Map)}
+   * calls on each row, and it takes hints already looked up.</p>
+   *
+   * <p>This implementation catches the exception from decodeRow. Readers override it to look for
+   * their start pattern first and return null straight away when there is none, which is how
+   * most rows end.</p>
+   *
+   * @param rowNumber row number from top of the row
+   * @param row the black/white pixel data of the row
+   * @param options decode hints
+   * @return {@link Result} containing encoded string and start/end of barcode, or null
+   */
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
+    try {
+      return decodeRow(rowNumber, row, options.getHints());
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  /**
+   * Like {@link #tryDecodeRow(int, BitArray, DecodeOptions)} on the row reversed. This
+   * implementation reverses the row only if {@link #mayStartReversed(ReversedRow)} says a barcode
+   * may start there.
+   */
+  Result tryDecodeReversedRow(int rowNumber, ReversedRow row, DecodeOptions options) {
+    if (!mayStartReversed(row)) {
+      return null;
+    }
+    return tryDecodeRow(rowNumber, row.getReversed(), options);
+  }
+
+  /**
+   * Readers which find their start pattern in the row the right way round, mirrored, without
+   * reversing it, say so here. This must only return false when tryDecodeRow would return null for
+   * the reversed row; this implementation always returns true.
+   */
+  boolean mayStartReversed(ReversedRow row) {
+    return true;
+  }
+
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.oned;
+
+import java.util.Arrays;
+
+/**
+ * <p>Matches observed runs against a set of character patterns, such as the 107 of Code 128,
+ * without computing {@link OneDReader#patternMatchVariance(int[], int[], int)} for each of them.</p>
+ *
+ * <p>A pattern whose variance for some run is more than the maximum individual variance can
+ * never be the best match. So the counters are first normalized to module widths: for each run,
+ * the widths which stay within that maximum are worked out, usually just one. Each combination of
+ * widths is looked up in a table built from the patterns up front, and only the patterns found
+ * there are scored, with the same variance function. When runs are ambiguous enough that there are
+ * more than a quarter as many combinations as patterns, all patterns are scored as before. Either
+ * way the result is exactly that of scoring every pattern and keeping the first with the lowest
+ * variance.</p>
+ */
+final class PatternTable {
+
+  private final int[][] patterns;
+  private final int numElements;
+  private final int patternLength;
+  private final int maxWidth;
+  // Index of the first pattern with a given combination of widths, or -1
+  private final int[] indexByWidths;
+
+  /**
+   * @param patterns the patterns, all of the same number of modules over their first numElements
+   *  runs, each of them at least 1 module wide
+   * @param numElements the number of runs matched, which may be less than a pattern's length
+   */
+  PatternTable(int[][] patterns, int numElements) {
+    this.patterns = patterns;
+    this.numElements = numElements;
+    int length = -1;
+    int max = 0;
+    for (int[] pattern : patterns) {
+      int sum = 0;
+      for (int i = 0; i < numElements; i++) {
+        if (pattern[i] < 1) {
+          throw new IllegalArgumentException("Pattern widths must be at least 1");
+        }
+        sum += pattern[i];
+        max = Math.max(max, pattern[i]);
+      }
+      if (length >= 0 && sum != length) {
+        throw new IllegalArgumentException("Patterns must all have the same number of modules");
+      }
+      length = sum;
+    }
+    patternLength = length;
+    maxWidth = max;
+    int size = 1;
+    for (int i = 0; i < numElements; i++) {
+      size *= maxWidth;
+    }
+    indexByWidths = new int[size];
+    Arrays.fill(indexByWidths, -1);
+    for (int d = patterns.length - 1; d >= 0; d--) {
+      int key = 0;
+      for (int i = numElements - 1; i >= 0; i--) {
+        key = key * maxWidth + patterns[d][i] - 1;
+      }
+      indexByWidths[key] = d;
+    }
+  }
+
+  /**
+   * @param counters observed counters, numElements of them
+   * @param maxAvgVariance the average variance a match must be below
+   * @param maxIndividualVariance the most any counter can differ, as for patternMatchVariance
+   * @return index of the first pattern with the lowest variance, or -1 if none is below
+   *  maxAvgVariance
+   */
+  int match(int[] counters, int maxAvgVariance, int maxIndividualVariance) {
+    // Normalize to module widths with the same arithmetic as patternMatchVariance
+    int total = 0;
+    for (int i = 0; i < numElements; i++) {
+      total += counters[i];
+    }
+    if (total < patternLength) {
+      return -1;
+    }
+    int unitBarWidth = (total << OneDReader.INTEGER_MATH_SHIFT) / patternLength;
+    int maxVariance = (maxIndividualVariance * unitBarWidth) >> OneDReader.INTEGER_MATH_SHIFT;
+
+    int combinations = 1;
+    int key = 0;
+    for (int i = numElements - 1; i >= 0; i--) {
+      int low = lowestWidth(counters[i], unitBarWidth, maxVariance);
+      int high = highestWidth(counters[i], unitBarWidth, maxVariance);
+      if (low > high) {
+        // Every pattern differs too much from this run
+        return -1;
+      }
+      combinations *= high - low + 1;
+      key = key * maxWidth + low - 1;
+    }
+
+    if (combinations == 1) {
+      int d = indexByWidths[key];
+      if (d < 0) {
+        return -1;
+      }
+      int variance = OneDReader.patternMatchVariance(counters, patterns[d], maxIndividualVariance);
+      return variance < maxAvgVariance ? d : -1;
+    }
+    if (combinations > patterns.length >> 2) {
+      // Each combination costs about as much as scoring a few patterns
+      return matchAll(counters, maxAvgVariance, maxIndividualVariance);
+    }
+
+    int bestVariance = maxAvgVariance;
+    int bestMatch = -1;
+    for (int combination = 0; combination < combinations; combination++) {
+      // Read the combination as a mixed radix number, a digit per run
+      int remaining = combination;
+      key = 0;
+      for (int i = numElements - 1; i >= 0; i--) {
+        int low = lowestWidth(counters[i], unitBarWidth, maxVariance);
+        int span = highestWidth(counters[i], unitBarWidth, maxVariance) - low + 1;
+        key = key * maxWidth + low - 1 + remaining % span;
+        remaining /= span;
+      }
+      int d = indexByWidths[key];
+      if (d >= 0) {
+        int variance = OneDReader.patternMatchVariance(counters, patterns[d], maxIndividualVariance);
+        if (variance < bestVariance || (variance == bestVariance && bestMatch > d)) {
+          bestVariance = variance;
+          bestMatch = d;
+        }
+      }
+    }
+    return bestMatch;
+  }
+
+  private int matchAll(int[] counters, int maxAvgVariance, int maxIndividualVariance) {
+    int bestVariance = maxAvgVariance; // worst variance we'll accept
+    int bestMatch = -1;
+    for (int d = 0; d < patterns.length; d++) {
+      int variance = OneDReader.patternMatchVariance(counters, patterns[d], maxIndividualVariance);
+      if (variance < bestVariance) {
+        bestVariance = variance;
+        bestMatch = d;
+      }
+    }
+    return bestMatch;
+  }
+
+  /**
+   * @return the narrowest width in modules, at least 1, whose variance from the counter is at most
+   *  maxVariance
+   */
+  private static int lowestWidth(int counter, int unitBarWidth, int maxVariance) {
+    int scaledLow = (counter << OneDReader.INTEGER_MATH_SHIFT) - maxVariance;
+    return scaledLow <= unitBarWidth ? 1 : (scaledLow + unitBarWidth - 1) / unitBarWidth;
+  }
+
+  /**
+   * @return the widest width in modules, at most the widest in any pattern, whose variance from the
+   *  counter is at most maxVariance
+   */
+  private int highestWidth(int counter, int unitBarWidth, int maxVariance) {
+    int scaledHigh = (counter << OneDReader.INTEGER_MATH_SHIFT) + maxVariance;
+    return Math.min(maxWidth, scaledHigh / unitBarWidth);
+  }
+
+  /**
+   * For readers which classify each run as narrow or wide themselves, and so get a character's
+   * encoding as bits.
+   *
+   * @param encodings the encoding of each character
+   * @param bits the number of bits in an encoding
+   * @return a table giving, for each possible encoding, the index of its character, or -1
+   */
+  static int[] indexByEncoding(int[] encodings, int bits) {
+    int[] table = new int[1 << bits];
+    Arrays.fill(table, -1);
+    for (int i = encodings.length - 1; i >= 0; i--) {
+      table[encodings[i]] = i;
+    }
+    return table;
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.oned;
+
+import com.google.zxing.common.BitArray;
+
+/**
+ * <p>A row to be read right to left, for barcodes which are upside down. Readers first look for
+ * their start pattern mirrored in the runs of the row as it is, which are counted once for all of
+ * them; only if one turns up is a reversed copy of the row made for the reader to decode.</p>
+ *
+ * <p>An instance is reused from row to row by {@link OneDReader}, and kept from image to image in
+ * the {@link com.google.zxing.DecodeContext} it is given.</p>
+ */
+final class ReversedRow {
+
+  private BitArray row;
+  private int[] runs;
+  private int runCount;
+  private BitArray reversed;
+  private boolean reversedValid;
+
+  ReversedRow() {
+    runs = new int[64];
+  }
+
+  void reset(BitArray row) {
+    this.row = row;
+    runCount = -1;
+    reversedValid = false;
+  }
+
+  /**
+   * @return the row the right way round, which must not be modified
+   */
+  BitArray getRow() {
+    return row;
+  }
+
+  /**
+   * @return lengths of the runs of white and black pixels of the row the right way round, left to
+   *  right. The first run is white, and has length 0 if the row starts black, so black runs have
+   *  odd indices.
+   */
+  int[] getRuns() {
+    if (runCount < 0) {
+      countRuns();
+    }
+    return runs;
+  }
+
+  /**
+   * @return number of runs in {@link #getRuns()}
+   */
+  int getRunCount() {
+    if (runCount < 0) {
+      countRuns();
+    }
+    return runCount;
+  }
+
+  private void countRuns() {
+    int size = row.getSize();
+    int count = 0;
+    boolean isWhite = true;
+    for (int x = 0; x < size; isWhite = !isWhite) {
+      int next = isWhite ? row.getNextSet(x) : row.getNextUnset(x);
+      if (count == runs.length) {
+        int[] temp = new int[count * 2];
+        System.arraycopy(runs, 0, temp, 0, count);
+        runs = temp;
+      }
+      runs[count++] = next - x;
+      x = next;
+    }
+    runCount = count;
+  }
+
+  /**
+   * @return the row reversed, made on first use; readers may modify it, as they may a row passed
+   *  to {@link OneDReader#tryDecodeRow(int, BitArray, com.google.zxing.DecodeOptions)}
+   */
+  BitArray getReversed() {
+    if (!reversedValid) {
+      int size = row.getSize();
+      if (reversed == null || reversed.getSize() != size) {
+        reversed = new BitArray(size);
+      }
+      System.arraycopy(row.getBitArray(), 0, reversed.getBitArray(), 0, (size + 31) >> 5);
+      reversed.reverse();
+      reversedValid = true;
+    }
+    return reversed;
+  }
+
+  /**
+   * Fills counters with the runs a reader reading right to left would see from the black run at
+   * index last on: counters[0] is runs[last], counters[1] is runs[last - 1], and so on.
+   *
+   * @return false if there are not enough runs, or the one counters would end with reaches the
+   *  edge of the row, so that a reader would never get to the end of it
+   */
+  boolean recordReversedPattern(int last, int[] counters) {
+    int first = last - counters.length + 1;
+    if (first <= 0 || runs[first - 1] == 0) {
+      return false;
+    }
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = runs[last - i];
+    }
+    return true;
+  }
+
+}
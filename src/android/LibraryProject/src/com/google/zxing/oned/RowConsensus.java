@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.oned;
+
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back a result read from one row until enough rows agree on it, for
+ * {@link com.google.zxing.DecodeHintType#ROWS_TO_AGREE}. A misread seldom comes out the same on
+ * several rows, while a good read usually does.
+ *
+ * An instance is kept from image to image, and reset for each pass over the rows.
+ */
+final class RowConsensus {
+
+  private int required;
+  private final List<Result> candidates;
+  private final List<Integer> votes;
+
+  /**
+   * @param required how many rows must decode to the same text and format
+   */
+  RowConsensus(int required) {
+    this.required = required;
+    candidates = new ArrayList<Result>();
+    votes = new ArrayList<Integer>();
+  }
+
+  /**
+   * Forgets the results of the last pass.
+   *
+   * @param required how many rows must decode to the same text and format
+   */
+  void reset(int required) {
+    this.required = required;
+    candidates.clear();
+    votes.clear();
+  }
+
+  /**
+   * @param result result read from another row
+   * @return result, if it makes the required number of rows which agree on it, or else null
+   */
+  Result add(Result result) {
+    if (required <= 1) {
+      return result;
+    }
+    for (int i = 0; i < candidates.size(); i++) {
+      Result candidate = candidates.get(i);
+      if (candidate.getBarcodeFormat() == result.getBarcodeFormat() &&
+          candidate.getText().equals(result.getText())) {
+        int count = votes.get(i) + 1;
+        if (count >= required) {
+          return result;
+        }
+        votes.set(i, count);
+        return null;
+      }
+    }
+    candidates.add(result);
+    votes.add(1);
+    return null;
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.oned;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+
+import java.util.Arrays;
+
+/**
+ * <p>Combines several rows of an image into one by a majority vote per pixel, for
+ * {@link com.google.zxing.DecodeHintType#ROWS_TO_VOTE}. The bars of a barcode line up from row to
+ * row, so a smudge on one row or a highlight on another is outvoted by the rows around it, as long
+ * as the damage is not at the same place on most of them. This is the median of each pixel over the
+ * rows, and so of the runs the readers count, without any reader having to know.</p>
+ *
+ * <p>An instance is kept from image to image, and reuses its arrays from row to row.</p>
+ */
+final class RowVoter {
+
+  private int rows;
+  private BitArray sample;
+  private BitArray voted;
+  private int[] counts;
+
+  /**
+   * @param rows how many rows vote
+   */
+  RowVoter(int rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * @param rows how many rows vote from now on
+   */
+  void reset(int rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * @param image image to take the rows from
+   * @param rowNumber the row in the middle of the rows voting
+   * @param pitch number of rows between the rows voting
+   * @return a row black wherever more than half of the rows voting are, or null if they do not all
+   *  lie in the image, or one cannot be binarized
+   */
+  BitArray vote(BinaryBitmap image, int rowNumber, int pitch) {
+    int first = rowNumber - (rows >> 1) * pitch;
+    int last = first + (rows - 1) * pitch;
+    if (first < 0 || last >= image.getHeight()) {
+      return null;
+    }
+    int width = image.getWidth();
+    int numInts = (width + 31) >> 5;
+    if (voted == null || voted.getSize() != width) {
+      voted = new BitArray(width);
+      counts = new int[numInts << 5];
+    }
+    Arrays.fill(counts, 0);
+
+    for (int y = first; y <= last; y += pitch) {
+      try {
+        sample = image.getBlackRow(y, sample);
+      } catch (NotFoundException nfe) {
+        return null;
+      }
+      int[] bits = sample.getBitArray();
+      for (int i = 0; i < numInts; i++) {
+        // Only the black pixels are counted, one set bit at a time
+        for (int word = bits[i]; word != 0; word &= word - 1) {
+          counts[(i << 5) + Integer.numberOfTrailingZeros(word)]++;
+        }
+      }
+    }
+
+    voted.clear();
+    for (int x = 0; x < width; x++) {
+      if (counts[x] << 1 > rows) {
+        voted.set(x);
+      }
+    }
+    return voted;
+  }
+
+}
@@ -20,6 +20,7 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.Result;
@@ -41,9 +42,9 @@ public final class UPCAReader extends UPCEANReader {
   public Result decodeRow(int rowNumber,
                           BitArray row,
                           int[] startGuardRange,
-                          Map<DecodeHintType,?> hints)
+                          DecodeOptions options)
       throws NotFoundException, FormatException, ChecksumException {
-    return maybeReturnResult(ean13Reader.decodeRow(rowNumber, row, startGuardRange, hints));
+    return maybeReturnResult(ean13Reader.decodeRow(rowNumber, row, startGuardRange, options));
   }
 
   @Override
@@ -19,6 +19,7 @@ package com.google.zxing.oned;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.ReaderException;
@@ -91,24 +92,55 @@ public abstract class UPCEANReader extends OneDReader {
     }
   }
 
+  /**
+   * {@link #L_PATTERNS} and {@link #L_AND_G_PATTERNS}, for matching digits against.
+   */
+  static final PatternTable L_PATTERN_TABLE = new PatternTable(L_PATTERNS, 4);
+  static final PatternTable L_AND_G_PATTERN_TABLE = new PatternTable(L_AND_G_PATTERNS, 4);
+
   private final StringBuilder decodeRowStringBuffer;
   private final UPCEANExtensionSupport extensionReader;
   private final EANManufacturerOrgSupport eanManSupport;
+  // Reused from row to row, rather than allocated for each
+  private final int[] startGuardCounters;
+  private final int[] startGuardRange;
 
   protected UPCEANReader() {
     decodeRowStringBuffer = new StringBuilder(20);
     extensionReader = new UPCEANExtensionSupport();
     eanManSupport = new EANManufacturerOrgSupport();
+    startGuardCounters = new int[START_END_PATTERN.length];
+    startGuardRange = new int[2];
   }
 
-  static int[] findStartGuardPattern(BitArray row) throws NotFoundException {
+  /**
+   * @param row row to search
+   * @param counters array as long as the guard pattern, to count runs in
+   */
+  static int[] findStartGuardPattern(BitArray row, int[] counters) throws NotFoundException {
+    int[] startRange = tryFindStartGuardPattern(row, counters, new int[2]);
+    if (startRange == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return startRange;
+  }
+
+  /**
+   * Like {@link #findStartGuardPattern(BitArray, int[])}, but returns null if there is none.
+   *
+   * @param startRange array of two to fill in with the start and end of the guard pattern; guard
+   *  patterns turn up often in noise, so the caller keeps one from row to row
+   * @return startRange, or null
+   */
+  static int[] tryFindStartGuardPattern(BitArray row, int[] counters, int[] startRange) {
     boolean foundStart = false;
-    int[] startRange = null;
     int nextStart = 0;
-    int[] counters = new int[START_END_PATTERN.length];
     while (!foundStart) {
       Arrays.fill(counters, 0, START_END_PATTERN.length, 0);
-      startRange = findGuardPattern(row, nextStart, false, START_END_PATTERN, counters);
+      if (tryFindGuardPattern(row, nextStart, false, START_END_PATTERN, counters, startRange) ==
+          null) {
+        return null;
+      }
       int start = startRange[0];
       nextStart = startRange[1];
       // Make sure there is a quiet zone at least as big as the start pattern before the barcode.
@@ -122,10 +154,51 @@ public abstract class UPCEANReader extends OneDReader {
     return startRange;
   }
 
+  /**
+   * Looks for what {@link #tryFindStartGuardPattern(BitArray, int[], int[])} would find in the row
+   * reversed: a guard pattern with a quiet zone after it at least as big.
+   */
+  static boolean mayHaveReversedStartGuardPattern(ReversedRow reversed, int[] counters) {
+    BitArray row = reversed.getRow();
+    int width = row.getSize();
+    int[] runs = reversed.getRuns();
+    int runCount = reversed.getRunCount();
+    int patternEnd = 0;
+    for (int last = 0; last < runCount; last++) {
+      patternEnd += runs[last];
+      if ((last & 0x01) == 1 && reversed.recordReversedPattern(last, counters) &&
+          patternMatchVariance(counters, START_END_PATTERN, MAX_INDIVIDUAL_VARIANCE) <
+              MAX_AVG_VARIANCE) {
+        int quietEnd = patternEnd + counters[0] + counters[1] + counters[2];
+        if (quietEnd <= width && row.isRange(patternEnd, quietEnd, false)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  boolean mayStartReversed(ReversedRow reversed) {
+    return mayHaveReversedStartGuardPattern(reversed, startGuardCounters);
+  }
+
   @Override
   public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException {
-    return decodeRow(rowNumber, row, findStartGuardPattern(row), hints);
+    return decodeRow(rowNumber, row, findStartGuardPattern(row, startGuardCounters), hints);
+  }
+
+  @Override
+  public Result tryDecodeRow(int rowNumber, BitArray row, DecodeOptions options) {
+    if (tryFindStartGuardPattern(row, startGuardCounters, startGuardRange) == null) {
+      return null;
+    }
+    try {
+      return decodeRow(rowNumber, row, startGuardRange, options);
+    } catch (ReaderException re) {
+      return null;
+    }
   }
 
   /**
@@ -138,9 +211,20 @@ public abstract class UPCEANReader extends OneDReader {
                           int[] startGuardRange,
                           Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException {
+    return decodeRow(rowNumber, row, startGuardRange, new DecodeOptions(hints));
+  }
+
+  /**
+   * <p>Like {@link #decodeRow(int, BitArray, int[], java.util.Map)}, but takes hints already
+   * looked up. Subclasses which change what that method returns override this one.</p>
+   */
+  public Result decodeRow(int rowNumber,
+                          BitArray row,
+                          int[] startGuardRange,
+                          DecodeOptions options)
+      throws NotFoundException, ChecksumException, FormatException {
 
-    ResultPointCallback resultPointCallback = hints == null ? null :
-        (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+    ResultPointCallback resultPointCallback = options.getResultPointCallback();
 
     if (resultPointCallback != null) {
       resultPointCallback.foundPossibleResultPoint(new ResultPoint(
@@ -276,6 +360,25 @@ public abstract class UPCEANReader extends OneDReader {
                                         boolean whiteFirst,
                                         int[] pattern,
                                         int[] counters) throws NotFoundException {
+    int[] range = tryFindGuardPattern(row, rowOffset, whiteFirst, pattern, counters, new int[2]);
+    if (range == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return range;
+  }
+
+  /**
+   * Like {@link #findGuardPattern(BitArray, int, boolean, int[], int[])}, but fills in range
+   * rather than allocating one, and returns null if the pattern is not found.
+   *
+   * @param range array of two ints which receives the start and end of the pattern
+   */
+  private static int[] tryFindGuardPattern(BitArray row,
+                                           int rowOffset,
+                                           boolean whiteFirst,
+                                           int[] pattern,
+                                           int[] counters,
+                                           int[] range) {
     int patternLength = pattern.length;
     int width = row.getSize();
     boolean isWhite = whiteFirst;
@@ -288,7 +391,9 @@ public abstract class UPCEANReader extends OneDReader {
       } else {
         if (counterPosition == patternLength - 1) {
           if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
-            return new int[]{patternStart, x};
+            range[0] = patternStart;
+            range[1] = x;
+            return range;
           }
           patternStart += counters[0] + counters[1];
           System.arraycopy(counters, 2, counters, 0, patternLength - 2);
@@ -302,7 +407,7 @@ public abstract class UPCEANReader extends OneDReader {
         isWhite = !isWhite;
       }
     }
-    throw NotFoundException.getNotFoundInstance();
+    return null;
   }
 
   /**
@@ -313,24 +418,14 @@ public abstract class UPCEANReader extends OneDReader {
    * @param rowOffset horizontal offset to start decoding from
    * @param patterns the set of patterns to use to decode -- sometimes different encodings
    * for the digits 0-9 are used, and this indicates the encodings for 0 to 9 that should
-   * be used
+   * be used: {@link #L_PATTERN_TABLE} or {@link #L_AND_G_PATTERN_TABLE}
    * @return horizontal offset of first pixel beyond the decoded digit
    * @throws NotFoundException if digit cannot be decoded
    */
-  static int decodeDigit(BitArray row, int[] counters, int rowOffset, int[][] patterns)
+  static int decodeDigit(BitArray row, int[] counters, int rowOffset, PatternTable patterns)
       throws NotFoundException {
     recordPattern(row, rowOffset, counters);
-    int bestVariance = MAX_AVG_VARIANCE; // worst variance we'll accept
-    int bestMatch = -1;
-    int max = patterns.length;
-    for (int i = 0; i < max; i++) {
-      int[] pattern = patterns[i];
-      int variance = patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE);
-      if (variance < bestVariance) {
-        bestVariance = variance;
-        bestMatch = i;
-      }
-    }
+    int bestMatch = patterns.match(counters, MAX_AVG_VARIANCE, MAX_INDIVIDUAL_VARIANCE);
     if (bestMatch >= 0) {
       return bestMatch;
     } else {
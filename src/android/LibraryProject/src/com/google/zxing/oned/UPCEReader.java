@@ -68,7 +68,7 @@ public final class UPCEReader extends UPCEANReader {
     int lgPatternFound = 0;
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
-      int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERNS);
+      int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERN_TABLE);
       result.append((char) ('0' + bestMatch % 10));
       for (int counter : counters) {
         rowOffset += counter;
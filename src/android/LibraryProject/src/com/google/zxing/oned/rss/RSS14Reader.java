@@ -55,6 +55,8 @@ public final class RSS14Reader extends AbstractRSSReader {
 
   private final List<Pair> possibleLeftPairs;
   private final List<Pair> possibleRightPairs;
+  // Finder patterns turn up often in noise, so one array is filled in for each in turn
+  private final int[] startEnd = new int[2];
 
   public RSS14Reader() {
     possibleLeftPairs = new ArrayList<Pair>();
@@ -308,7 +310,9 @@ public final class RSS14Reader extends AbstractRSSReader {
       } else {
         if (counterPosition == 3) {
           if (isFinderPattern(counters)) {
-            return new int[]{patternStart, x};
+            startEnd[0] = patternStart;
+            startEnd[1] = x;
+            return startEnd;
           }
           patternStart += counters[0] + counters[1];
           counters[0] = counters[2];
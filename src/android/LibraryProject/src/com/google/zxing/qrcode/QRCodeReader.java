@@ -19,18 +19,28 @@ package com.google.zxing.qrcode;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeContext;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
+import com.google.zxing.DownsampledLuminanceSource;
 import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
 import com.google.zxing.NotFoundException;
-import com.google.zxing.Reader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
+import com.google.zxing.TryDecodeReader;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.DetectorResult;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.RunLengthMatrix;
 import com.google.zxing.qrcode.decoder.Decoder;
 import com.google.zxing.qrcode.detector.Detector;
+import com.google.zxing.qrcode.detector.FinderPatternInfo;
+import com.google.zxing.qrcode.detector.PyramidDetector;
 
 import java.util.List;
 import java.util.Map;
@@ -40,11 +50,26 @@ import java.util.Map;
  *
  * @author Sean Owen
  */
-public class QRCodeReader implements Reader {
+public class QRCodeReader implements TryDecodeReader {
 
   private static final ResultPoint[] NO_POINTS = new ResultPoint[0];
+  // The coarse level of the pyramid must be at least this large along its shorter side.
+  private static final int MIN_PYRAMID_DIMENSION = 160;
+  // After the coarse level finds nothing, it is skipped for this many images minus one.
+  private static final int PYRAMID_RETRY_INTERVAL = 4;
 
   private final Decoder decoder = new Decoder();
+  // The coarse level and the region around the symbol are rebuilt into the same buffers for every
+  // image.
+  private byte[] pyramidLuminances;
+  private HybridBinarizer pyramidBinarizer;
+  private HybridBinarizer regionBinarizer;
+  private RunLengthMatrix pyramidRuns;
+  private RunLengthMatrix regionRuns;
+  // On an image without a symbol the coarse level only adds to the full resolution search, so
+  // after it finds nothing it is skipped for a few images. After a hit it goes first again.
+  private boolean pyramidHit;
+  private int imagesSincePyramid = PYRAMID_RETRY_INTERVAL;
 
   protected Decoder getDecoder() {
     return decoder;
@@ -66,16 +91,56 @@ public class QRCodeReader implements Reader {
   @Override
   public Result decode(BinaryBitmap image, Map<DecodeHintType,?> hints)
       throws NotFoundException, ChecksumException, FormatException {
+    Result result = tryDecode(image, new DecodeOptions(hints), new DecodeContext());
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  @Override
+  public Result tryDecode(BinaryBitmap image, DecodeOptions options, DecodeContext context)
+      throws ChecksumException, FormatException {
+    Map<DecodeHintType,?> hints = options.getHints();
     DecoderResult decoderResult;
     ResultPoint[] points;
-    if (hints != null && hints.containsKey(DecodeHintType.PURE_BARCODE)) {
-      BitMatrix bits = extractPureBits(image.getBlackMatrix());
-      decoderResult = decoder.decode(bits, hints);
-      points = NO_POINTS;
-    } else {
-      DetectorResult detectorResult = new Detector(image.getBlackMatrix()).detect(hints);
-      decoderResult = decoder.decode(detectorResult.getBits(), hints);
-      points = detectorResult.getPoints();
+    try {
+      if (options.isPureBarcode()) {
+        BitMatrix bits = extractPureBits(image.getBlackMatrix());
+        decoderResult = decoder.decode(bits, hints);
+        points = NO_POINTS;
+      } else {
+        DetectorResult detectorResult = null;
+        decoderResult = null;
+        if (options.isPyramidDetection() &&
+            (pyramidHit || ++imagesSincePyramid >= PYRAMID_RETRY_INTERVAL)) {
+          imagesSincePyramid = 0;
+          pyramidHit = false;
+          try {
+            detectorResult = detectOnPyramid(image, options);
+            if (detectorResult != null) {
+              pyramidHit = true;
+              decoderResult = decoder.decode(detectorResult.getBits(), hints);
+            }
+          } catch (ReaderException re) {
+            // fall back to the full resolution image
+          }
+        }
+        if (decoderResult == null) {
+          detectorResult =
+              new Detector(image.getBlackMatrix(), image.getRunLengthMatrix(context))
+                  .tryDetect(options);
+          if (detectorResult == null) {
+            return null;
+          }
+          decoderResult = decoder.decode(detectorResult.getBits(), hints);
+        }
+        points = detectorResult.getPoints();
+      }
+    } catch (NotFoundException nfe) {
+      // Less common than finding no finder patterns at all: the image could not be binarized, or
+      // the patterns found did not add up to a QR Code.
+      return null;
     }
 
     Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(), points, BarcodeFormat.QR_CODE);
@@ -92,7 +157,66 @@ public class QRCodeReader implements Reader {
 
   @Override
   public void reset() {
-    // do nothing
+    // The pyramid state carries over to the next image: it only decides which detector runs first.
+  }
+
+  /**
+   * Finds the finder patterns on a 2x or 4x downsampled copy of the image, and only then
+   * binarizes the region of the full image around them to locate and sample the code.
+   *
+   * @return null if the image is too small for a coarse level, or no finder patterns turn up on it
+   */
+  private DetectorResult detectOnPyramid(BinaryBitmap image, DecodeOptions options)
+      throws NotFoundException, FormatException {
+    LuminanceSource source = image.getLuminanceSource();
+    int dimension = Math.min(source.getWidth(), source.getHeight());
+    if (dimension < 2 * MIN_PYRAMID_DIMENSION) {
+      return null;
+    }
+    int factor = dimension >= 4 * MIN_PYRAMID_DIMENSION ? 4 : 2;
+    DownsampledLuminanceSource level =
+        new DownsampledLuminanceSource(source, factor, pyramidLuminances);
+    pyramidLuminances = level.getMatrix();
+    if (pyramidBinarizer == null) {
+      pyramidBinarizer = new HybridBinarizer(level);
+    } else {
+      pyramidBinarizer.reset(level);
+    }
+    BitMatrix coarseImage = pyramidBinarizer.getBlackMatrix();
+    pyramidRuns = new RunLengthMatrix(coarseImage, pyramidRuns);
+    FinderPatternInfo coarseInfo =
+        PyramidDetector.findCoarse(coarseImage, pyramidRuns, factor, options);
+    if (coarseInfo == null) {
+      return null;
+    }
+    int[] region =
+        PyramidDetector.getRegion(coarseInfo, factor, source.getWidth(), source.getHeight());
+    LuminanceSource regionSource = cropRegion(source, region);
+    if (regionBinarizer == null) {
+      regionBinarizer = new HybridBinarizer(regionSource);
+    } else {
+      regionBinarizer.reset(regionSource);
+    }
+    BitMatrix regionImage = regionBinarizer.getBlackMatrix();
+    regionRuns = new RunLengthMatrix(regionImage, regionRuns);
+    return new PyramidDetector(regionImage, regionRuns, factor, region[0], region[1])
+        .detect(coarseInfo, options);
+  }
+
+  /**
+   * Crops the region out of the source, through its strided matrix when it cannot crop itself, so
+   * that only the region is binarized either way.
+   */
+  private static LuminanceSource cropRegion(LuminanceSource source, int[] region) {
+    if (source.isCropSupported()) {
+      return source.crop(region[0], region[1], region[2], region[3]);
+    }
+    int stride = source.getMatrixStride();
+    int offset = source.getMatrixOffset();
+    int left = offset % stride;
+    int top = offset / stride;
+    return new PlanarYUVLuminanceSource(source.getStridedMatrix(), stride, top + source.getHeight(),
+        left + region[0], top + region[1], region[2], region[3], false);
   }
 
   /**
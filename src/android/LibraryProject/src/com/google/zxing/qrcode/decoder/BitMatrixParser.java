@@ -159,7 +159,7 @@ final class BitMatrixParser {
     int dimension = bitMatrix.getHeight();
     dataMask.unmaskBitMatrix(bitMatrix, dimension);
 
-    BitMatrix functionPattern = version.buildFunctionPattern();
+    BitMatrix functionPattern = version.getFunctionPattern();
 
     boolean readingUp = true;
     byte[] result = new byte[version.getTotalCodewords()];
@@ -22,7 +22,7 @@ import com.google.zxing.FormatException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.InPlaceReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 import java.util.Map;
@@ -35,10 +35,10 @@ import java.util.Map;
  */
 public final class Decoder {
 
-  private final ReedSolomonDecoder rsDecoder;
+  private final InPlaceReedSolomonDecoder rsDecoder;
 
   public Decoder() {
-    rsDecoder = new ReedSolomonDecoder(GenericGF.QR_CODE_FIELD_256);
+    rsDecoder = new InPlaceReedSolomonDecoder(GenericGF.QR_CODE_FIELD_256);
   }
 
   public DecoderResult decode(boolean[][] image) throws ChecksumException, FormatException {
@@ -46,6 +46,7 @@ public final class Version {
   private final int[] alignmentPatternCenters;
   private final ECBlocks[] ecBlocks;
   private final int totalCodewords;
+  private volatile BitMatrix functionPattern;
 
   private Version(int versionNumber,
                   int[] alignmentPatternCenters,
@@ -133,6 +134,19 @@ public final class Version {
     return null;
   }
 
+  /**
+   * @return the function pattern of this version, built on first use and then shared, so it must
+   *  not be modified
+   */
+  BitMatrix getFunctionPattern() {
+    BitMatrix pattern = functionPattern;
+    if (pattern == null) {
+      pattern = buildFunctionPattern();
+      functionPattern = pattern;
+    }
+    return pattern;
+  }
+
   /**
    * See ISO 18004:2006 Annex E
    */
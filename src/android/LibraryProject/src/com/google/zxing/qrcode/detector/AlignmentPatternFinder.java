@@ -16,9 +16,8 @@
 
 package com.google.zxing.qrcode.detector;
 
-import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPointCallback;
-import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.RunLengthMatrix;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,13 +32,16 @@ import java.util.List;
  * pasted and stripped down here for maximum performance but does unfortunately duplicate
  * some code.</p>
  *
+ * <p>Like {@link FinderPatternFinder}, it walks the runs of black and white pixels of a
+ * {@link RunLengthMatrix} rather than testing pixels one at a time.</p>
+ *
  * <p>This class is thread-safe but not reentrant. Each thread must allocate its own object.</p>
  *
  * @author Sean Owen
  */
 final class AlignmentPatternFinder {
 
-  private final BitMatrix image;
+  private final RunLengthMatrix runs;
   private final List<AlignmentPattern> possibleCenters;
   private final int startX;
   private final int startY;
@@ -52,21 +54,21 @@ final class AlignmentPatternFinder {
   /**
    * <p>Creates a finder that will look in a portion of the whole image.</p>
    *
-   * @param image image to search
+   * @param runs run-length view of the image to search
    * @param startX left column from which to start searching
    * @param startY top row from which to start searching
    * @param width width of region to search
    * @param height height of region to search
    * @param moduleSize estimated module size so far
    */
-  AlignmentPatternFinder(BitMatrix image,
+  AlignmentPatternFinder(RunLengthMatrix runs,
                          int startX,
                          int startY,
                          int width,
                          int height,
                          float moduleSize,
                          ResultPointCallback resultPointCallback) {
-    this.image = image;
+    this.runs = runs;
     this.possibleCenters = new ArrayList<AlignmentPattern>(5);
     this.startX = startX;
     this.startY = startY;
@@ -81,10 +83,9 @@ final class AlignmentPatternFinder {
    * <p>This method attempts to find the bottom-right alignment pattern in the image. It is a bit messy since
    * it's pretty performance-critical and so is written to be fast foremost.</p>
    *
-   * @return {@link AlignmentPattern} if found
-   * @throws NotFoundException if not found
+   * @return {@link AlignmentPattern} if found, or null otherwise
    */
-  AlignmentPattern find() throws NotFoundException {
+  AlignmentPattern find() {
     int startX = this.startX;
     int height = this.height;
     int maxJ = startX + width;
@@ -102,38 +103,35 @@ final class AlignmentPatternFinder {
       // Burn off leading white pixels before anything else; if we start in the middle of
       // a white run, it doesn't make sense to count its length, since we don't know if the
       // white run continued to the left of the start point
-      while (j < maxJ && !image.get(j, i)) {
-        j++;
+      if (!runs.get(j, i)) {
+        j += runs.getRunLengthRight(j, i);
       }
       int currentState = 0;
-      while (j < maxJ) {
-        if (image.get(j, i)) {
-          // Black pixel
-          if (currentState == 1) { // Counting black pixels
-            stateCount[currentState]++;
-          } else { // Counting white pixels
-            if (currentState == 2) { // A winner?
-              if (foundPatternCross(stateCount)) { // Yes
-                AlignmentPattern confirmed = handlePossibleCenter(stateCount, i, j);
-                if (confirmed != null) {
-                  return confirmed;
-                }
+      // Walk the row's runs, cut off at the edge of the region; the first one is black
+      for (boolean black = true; j < maxJ; black = !black) {
+        int length = Math.min(runs.getRunLengthRight(j, i), maxJ - j);
+        if (black) {
+          if (currentState == 2) { // A winner?
+            if (foundPatternCross(stateCount)) { // Yes
+              AlignmentPattern confirmed = handlePossibleCenter(stateCount, i, j);
+              if (confirmed != null) {
+                return confirmed;
               }
-              stateCount[0] = stateCount[2];
-              stateCount[1] = 1;
-              stateCount[2] = 0;
-              currentState = 1;
-            } else {
-              stateCount[++currentState]++;
             }
+            stateCount[0] = stateCount[2];
+            stateCount[1] = length;
+            stateCount[2] = 0;
+          } else {
+            stateCount[1] += length;
           }
-        } else { // White pixel
-          if (currentState == 1) { // Counting black pixels
+          currentState = 1;
+        } else {
+          if (currentState == 1) {
             currentState++;
           }
-          stateCount[currentState]++;
+          stateCount[currentState] += length;
         }
-        j++;
+        j += length;
       }
       if (foundPatternCross(stateCount)) {
         AlignmentPattern confirmed = handlePossibleCenter(stateCount, i, maxJ);
@@ -150,7 +148,7 @@ final class AlignmentPatternFinder {
       return possibleCenters.get(0);
     }
 
-    throw NotFoundException.getNotFoundInstance();
+    return null;
   }
 
   /**
@@ -190,45 +188,42 @@ final class AlignmentPatternFinder {
    */
   private float crossCheckVertical(int startI, int centerJ, int maxCount,
       int originalStateCountTotal) {
-    BitMatrix image = this.image;
+    RunLengthMatrix runs = this.runs;
 
-    int maxI = image.getHeight();
+    int maxI = runs.getHeight();
     int[] stateCount = crossCheckStateCount;
     stateCount[0] = 0;
     stateCount[1] = 0;
     stateCount[2] = 0;
 
-    // Start counting up from center
+    // Start counting up from center; counts stop one past maxCount, as the pixel loops they
+    // replace did
     int i = startI;
-    while (i >= 0 && image.get(centerJ, i) && stateCount[1] <= maxCount) {
-      stateCount[1]++;
-      i--;
+    if (runs.get(centerJ, i)) {
+      stateCount[1] = Math.min(runs.getRunLengthUp(centerJ, i), maxCount + 1);
+      i -= stateCount[1];
     }
     // If already too many modules in this state or ran off the edge:
     if (i < 0 || stateCount[1] > maxCount) {
       return Float.NaN;
     }
-    while (i >= 0 && !image.get(centerJ, i) && stateCount[0] <= maxCount) {
-      stateCount[0]++;
-      i--;
-    }
+    stateCount[0] = Math.min(runs.getRunLengthUp(centerJ, i), maxCount + 1);
     if (stateCount[0] > maxCount) {
       return Float.NaN;
     }
 
     // Now also count down from center
     i = startI + 1;
-    while (i < maxI && image.get(centerJ, i) && stateCount[1] <= maxCount) {
-      stateCount[1]++;
-      i++;
+    if (i < maxI && runs.get(centerJ, i)) {
+      int run = Math.min(runs.getRunLengthDown(centerJ, i), maxCount + 1 - stateCount[1]);
+      stateCount[1] += run;
+      i += run;
     }
     if (i == maxI || stateCount[1] > maxCount) {
       return Float.NaN;
     }
-    while (i < maxI && !image.get(centerJ, i) && stateCount[2] <= maxCount) {
-      stateCount[2]++;
-      i++;
-    }
+    stateCount[2] = Math.min(runs.getRunLengthDown(centerJ, i), maxCount + 1);
+    i += stateCount[2];
     if (stateCount[2] > maxCount) {
       return Float.NaN;
     }
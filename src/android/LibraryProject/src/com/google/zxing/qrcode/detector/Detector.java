@@ -17,6 +17,7 @@
 package com.google.zxing.qrcode.detector;
 
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPoint;
@@ -25,6 +26,7 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DetectorResult;
 import com.google.zxing.common.GridSampler;
 import com.google.zxing.common.PerspectiveTransform;
+import com.google.zxing.common.RunLengthMatrix;
 import com.google.zxing.common.detector.MathUtils;
 import com.google.zxing.qrcode.decoder.Version;
 
@@ -39,20 +41,45 @@ import java.util.Map;
 public class Detector {
 
   private final BitMatrix image;
+  private RunLengthMatrix runs;
   private ResultPointCallback resultPointCallback;
 
   public Detector(BitMatrix image) {
+    this(image, null);
+  }
+
+  /**
+   * @param image image to search
+   * @param runs run-length view of the image shared with other detectors, or null if there is none
+   */
+  public Detector(BitMatrix image, RunLengthMatrix runs) {
     this.image = image;
+    this.runs = runs;
   }
 
   protected final BitMatrix getImage() {
     return image;
   }
 
+  /**
+   * @return the run-length view of the image, built on first use if none was passed in, so that
+   *         the finder and alignment pattern searches share it
+   */
+  protected final RunLengthMatrix getRuns() {
+    if (runs == null) {
+      runs = new RunLengthMatrix(image);
+    }
+    return runs;
+  }
+
   protected final ResultPointCallback getResultPointCallback() {
     return resultPointCallback;
   }
 
+  protected final void setResultPointCallback(ResultPointCallback resultPointCallback) {
+    this.resultPointCallback = resultPointCallback;
+  }
+
   /**
    * <p>Detects a QR Code in an image, simply.</p>
    *
@@ -72,12 +99,31 @@ public class Detector {
    * @throws FormatException if a QR Code cannot be decoded
    */
   public final DetectorResult detect(Map<DecodeHintType,?> hints) throws NotFoundException, FormatException {
+    DetectorResult result = tryDetect(new DecodeOptions(hints));
+    if (result == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return result;
+  }
+
+  /**
+   * <p>Like {@link #detect(Map)}, but returns null if there are no finder patterns in the image,
+   * which is how most images without a QR Code end. It takes hints already looked up.</p>
+   *
+   * @param options hints to detector
+   * @return {@link DetectorResult} encapsulating results of detecting a QR Code, or null
+   * @throws NotFoundException if finder patterns were found, but no QR Code could be located from them
+   * @throws FormatException if a QR Code cannot be decoded
+   */
+  public final DetectorResult tryDetect(DecodeOptions options) throws NotFoundException, FormatException {
 
-    resultPointCallback = hints == null ? null :
-        (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+    resultPointCallback = options.getResultPointCallback();
 
-    FinderPatternFinder finder = new FinderPatternFinder(image, resultPointCallback);
-    FinderPatternInfo info = finder.find(hints);
+    FinderPatternFinder finder = new FinderPatternFinder(image, getRuns(), resultPointCallback);
+    FinderPatternInfo info = finder.tryFind(options);
+    if (info == null) {
+      return null;
+    }
 
     return processFinderPatternInfo(info);
   }
@@ -112,16 +158,11 @@ public class Detector {
       int estAlignmentY = (int) (topLeft.getY() + correctionToTopLeft * (bottomRightY - topLeft.getY()));
 
       // Kind of arbitrary -- expand search radius before giving up
-      for (int i = 4; i <= 16; i <<= 1) {
-        try {
-          alignmentPattern = findAlignmentInRegion(moduleSize,
-              estAlignmentX,
-              estAlignmentY,
-              (float) i);
-          break;
-        } catch (NotFoundException re) {
-          // try next round
-        }
+      for (int i = 4; i <= 16 && alignmentPattern == null; i <<= 1) {
+        alignmentPattern = findAlignmentInRegion(moduleSize,
+            estAlignmentX,
+            estAlignmentY,
+            (float) i);
       }
       // If we didn't find alignment pattern... well try anyway without it
     }
@@ -362,31 +403,29 @@ public class Detector {
    * @param estAlignmentY y coordinate of above
    * @param allowanceFactor number of pixels in all directions to search from the center
    * @return {@link AlignmentPattern} if found, or null otherwise
-   * @throws NotFoundException if an unexpected error occurs during detection
    */
   protected final AlignmentPattern findAlignmentInRegion(float overallEstModuleSize,
                                                          int estAlignmentX,
                                                          int estAlignmentY,
-                                                         float allowanceFactor)
-      throws NotFoundException {
+                                                         float allowanceFactor) {
     // Look for an alignment pattern (3 modules in size) around where it
     // should be
     int allowance = (int) (allowanceFactor * overallEstModuleSize);
     int alignmentAreaLeftX = Math.max(0, estAlignmentX - allowance);
     int alignmentAreaRightX = Math.min(image.getWidth() - 1, estAlignmentX + allowance);
     if (alignmentAreaRightX - alignmentAreaLeftX < overallEstModuleSize * 3) {
-      throw NotFoundException.getNotFoundInstance();
+      return null;
     }
 
     int alignmentAreaTopY = Math.max(0, estAlignmentY - allowance);
     int alignmentAreaBottomY = Math.min(image.getHeight() - 1, estAlignmentY + allowance);
     if (alignmentAreaBottomY - alignmentAreaTopY < overallEstModuleSize * 3) {
-      throw NotFoundException.getNotFoundInstance();
+      return null;
     }
 
     AlignmentPatternFinder alignmentFinder =
         new AlignmentPatternFinder(
-            image,
+            getRuns(),
             alignmentAreaLeftX,
             alignmentAreaTopY,
             alignmentAreaRightX - alignmentAreaLeftX,
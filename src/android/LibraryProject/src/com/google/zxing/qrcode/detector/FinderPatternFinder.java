@@ -17,10 +17,12 @@
 package com.google.zxing.qrcode.detector;
 
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.DecodeOptions;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.RunLengthMatrix;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -45,6 +47,7 @@ public class FinderPatternFinder {
   private static final int INTEGER_MATH_SHIFT = 8;
 
   private final BitMatrix image;
+  private final RunLengthMatrix runs;
   private final List<FinderPattern> possibleCenters;
   private boolean hasSkipped;
   private final int[] crossCheckStateCount;
@@ -60,7 +63,20 @@ public class FinderPatternFinder {
   }
 
   public FinderPatternFinder(BitMatrix image, ResultPointCallback resultPointCallback) {
+    this(image, null, resultPointCallback);
+  }
+
+  /**
+   * @param image image to search
+   * @param runs run-length view of the image, if one was already built for other detectors;
+   *             otherwise, null
+   * @param resultPointCallback callback notified of possible finder patterns, or null
+   */
+  public FinderPatternFinder(BitMatrix image,
+                             RunLengthMatrix runs,
+                             ResultPointCallback resultPointCallback) {
     this.image = image;
+    this.runs = runs == null ? new RunLengthMatrix(image) : runs;
     this.possibleCenters = new ArrayList<FinderPattern>();
     this.crossCheckStateCount = new int[5];
     this.resultPointCallback = resultPointCallback;
@@ -70,12 +86,28 @@ public class FinderPatternFinder {
     return image;
   }
 
+  protected final RunLengthMatrix getRuns() {
+    return runs;
+  }
+
   protected final List<FinderPattern> getPossibleCenters() {
     return possibleCenters;
   }
 
   final FinderPatternInfo find(Map<DecodeHintType,?> hints) throws NotFoundException {
-    boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
+    FinderPatternInfo info = tryFind(new DecodeOptions(hints));
+    if (info == null) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    return info;
+  }
+
+  /**
+   * Like {@link #find(Map)}, but returns null if 3 finder patterns are not found, and takes hints
+   * already looked up.
+   */
+  final FinderPatternInfo tryFind(DecodeOptions options) {
+    boolean tryHarder = options.isTryHarder();
     int maxI = image.getHeight();
     int maxJ = image.getWidth();
     // We are looking for black/white/black/white/black modules in
@@ -92,77 +124,81 @@ public class FinderPatternFinder {
 
     boolean done = false;
     int[] stateCount = new int[5];
+    int[] transitions = runs.getRowTransitions();
     for (int i = iSkip - 1; i < maxI && !done; i += iSkip) {
-      // Get a row of black/white values
+      // Walk the row's runs of black and white pixels
       stateCount[0] = 0;
       stateCount[1] = 0;
       stateCount[2] = 0;
       stateCount[3] = 0;
       stateCount[4] = 0;
       int currentState = 0;
-      for (int j = 0; j < maxJ; j++) {
-        if (image.get(j, i)) {
-          // Black pixel
+      int t = runs.getRowStart(i);
+      int rowEnd = runs.getRowEnd(i);
+      boolean black = false;
+      for (int j = 0; j < maxJ; t++, black = !black) {
+        int runEnd = t < rowEnd ? transitions[t] : maxJ;
+        int length = runEnd - j;
+        int runStart = j;
+        j = runEnd;
+        if (length == 0) {
+          // Row starts with a black pixel
+          continue;
+        }
+        if (black) {
           if ((currentState & 1) == 1) { // Counting white pixels
             currentState++;
           }
-          stateCount[currentState]++;
-        } else { // White pixel
-          if ((currentState & 1) == 0) { // Counting black pixels
-            if (currentState == 4) { // A winner?
-              if (foundPatternCross(stateCount)) { // Yes
-                boolean confirmed = handlePossibleCenter(stateCount, i, j);
-                if (confirmed) {
-                  // Start examining every other line. Checking each line turned out to be too
-                  // expensive and didn't improve performance.
-                  iSkip = 2;
-                  if (hasSkipped) {
-                    done = haveMultiplyConfirmedCenters();
-                  } else {
-                    int rowSkip = findRowSkip();
-                    if (rowSkip > stateCount[2]) {
-                      // Skip rows between row of lower confirmed center
-                      // and top of presumed third confirmed center
-                      // but back up a bit to get a full chance of detecting
-                      // it, entire width of center of finder pattern
-
-                      // Skip by rowSkip, but back off by stateCount[2] (size of last center
-                      // of pattern we saw) to be conservative, and also back off by iSkip which
-                      // is about to be re-added
-                      i += rowSkip - stateCount[2] - iSkip;
-                      j = maxJ - 1;
-                    }
-                  }
-                } else {
-                  stateCount[0] = stateCount[2];
-                  stateCount[1] = stateCount[3];
-                  stateCount[2] = stateCount[4];
-                  stateCount[3] = 1;
-                  stateCount[4] = 0;
-                  currentState = 3;
-                  continue;
-                }
-                // Clear state to start looking again
-                currentState = 0;
-                stateCount[0] = 0;
-                stateCount[1] = 0;
-                stateCount[2] = 0;
-                stateCount[3] = 0;
-                stateCount[4] = 0;
-              } else { // No, shift counts back by two
-                stateCount[0] = stateCount[2];
-                stateCount[1] = stateCount[3];
-                stateCount[2] = stateCount[4];
-                stateCount[3] = 1;
-                stateCount[4] = 0;
-                currentState = 3;
-              }
-            } else {
-              stateCount[++currentState]++;
+          stateCount[currentState] += length;
+        } else if ((currentState & 1) == 1) { // Counting white pixels
+          stateCount[currentState] += length;
+        } else if (currentState != 4) {
+          stateCount[++currentState] += length;
+        } else if (foundPatternCross(stateCount) && handlePossibleCenter(stateCount, i, runStart)) {
+          // A winner, confirmed.
+          // Start examining every other line. Checking each line turned out to be too
+          // expensive and didn't improve performance.
+          iSkip = 2;
+          boolean skipRestOfRow = false;
+          if (hasSkipped) {
+            done = haveMultiplyConfirmedCenters();
+          } else {
+            int rowSkip = findRowSkip();
+            if (rowSkip > stateCount[2]) {
+              // Skip rows between row of lower confirmed center
+              // and top of presumed third confirmed center
+              // but back up a bit to get a full chance of detecting
+              // it, entire width of center of finder pattern
+
+              // Skip by rowSkip, but back off by stateCount[2] (size of last center
+              // of pattern we saw) to be conservative, and also back off by iSkip which
+              // is about to be re-added
+              i += rowSkip - stateCount[2] - iSkip;
+              skipRestOfRow = true;
             }
-          } else { // Counting white pixels
-            stateCount[currentState]++;
           }
+          // Clear state to start looking again
+          currentState = 0;
+          stateCount[0] = 0;
+          stateCount[1] = 0;
+          stateCount[2] = 0;
+          stateCount[3] = 0;
+          stateCount[4] = 0;
+          if (skipRestOfRow) {
+            break;
+          }
+          // The rest of this white run
+          if (length > 1) {
+            currentState = 1;
+            stateCount[1] = length - 1;
+          }
+        } else { // No, shift counts back by two
+          stateCount[0] = stateCount[2];
+          stateCount[1] = stateCount[3];
+          stateCount[2] = stateCount[4];
+          stateCount[3] = length;
+          stateCount[4] = 0;
+          currentState = 3;
         }
       }
       if (foundPatternCross(stateCount)) {
@@ -178,6 +214,9 @@ public class FinderPatternFinder {
     }
 
     FinderPattern[] patternInfo = selectBestPatterns();
+    if (patternInfo == null) {
+      return null;
+    }
     ResultPoint.orderBestPatterns(patternInfo);
 
     return new FinderPatternInfo(patternInfo);
@@ -240,56 +279,48 @@ public class FinderPatternFinder {
    */
   private float crossCheckVertical(int startI, int centerJ, int maxCount,
       int originalStateCountTotal) {
-    BitMatrix image = this.image;
+    RunLengthMatrix runs = this.runs;
 
-    int maxI = image.getHeight();
+    int maxI = runs.getHeight();
     int[] stateCount = getCrossCheckStateCount();
 
     // Start counting up from center
     int i = startI;
-    while (i >= 0 && image.get(centerJ, i)) {
-      stateCount[2]++;
-      i--;
+    if (runs.get(centerJ, i)) {
+      stateCount[2] += runs.getRunLengthUp(centerJ, i);
+      i -= stateCount[2];
     }
     if (i < 0) {
       return Float.NaN;
     }
-    while (i >= 0 && !image.get(centerJ, i) && stateCount[1] <= maxCount) {
-      stateCount[1]++;
-      i--;
-    }
+    stateCount[1] = Math.min(runs.getRunLengthUp(centerJ, i), maxCount + 1);
+    i -= stateCount[1];
     // If already too many modules in this state or ran off the edge:
     if (i < 0 || stateCount[1] > maxCount) {
       return Float.NaN;
     }
-    while (i >= 0 && image.get(centerJ, i) && stateCount[0] <= maxCount) {
-      stateCount[0]++;
-      i--;
-    }
+    stateCount[0] = Math.min(runs.getRunLengthUp(centerJ, i), maxCount + 1);
     if (stateCount[0] > maxCount) {
       return Float.NaN;
     }
 
     // Now also count down from center
     i = startI + 1;
-    while (i < maxI && image.get(centerJ, i)) {
-      stateCount[2]++;
-      i++;
+    if (i < maxI && runs.get(centerJ, i)) {
+      int run = runs.getRunLengthDown(centerJ, i);
+      stateCount[2] += run;
+      i += run;
     }
     if (i == maxI) {
       return Float.NaN;
     }
-    while (i < maxI && !image.get(centerJ, i) && stateCount[3] < maxCount) {
-      stateCount[3]++;
-      i++;
-    }
+    stateCount[3] = Math.min(runs.getRunLengthDown(centerJ, i), maxCount);
+    i += stateCount[3];
     if (i == maxI || stateCount[3] >= maxCount) {
       return Float.NaN;
     }
-    while (i < maxI && image.get(centerJ, i) && stateCount[4] < maxCount) {
-      stateCount[4]++;
-      i++;
-    }
+    stateCount[4] = Math.min(runs.getRunLengthDown(centerJ, i), maxCount);
+    i += stateCount[4];
     if (stateCount[4] >= maxCount) {
       return Float.NaN;
     }
@@ -312,53 +343,45 @@ public class FinderPatternFinder {
    */
   private float crossCheckHorizontal(int startJ, int centerI, int maxCount,
       int originalStateCountTotal) {
-    BitMatrix image = this.image;
+    RunLengthMatrix runs = this.runs;
 
-    int maxJ = image.getWidth();
+    int maxJ = runs.getWidth();
     int[] stateCount = getCrossCheckStateCount();
 
     int j = startJ;
-    while (j >= 0 && image.get(j, centerI)) {
-      stateCount[2]++;
-      j--;
+    if (runs.get(j, centerI)) {
+      stateCount[2] += runs.getRunLengthLeft(j, centerI);
+      j -= stateCount[2];
     }
     if (j < 0) {
       return Float.NaN;
     }
-    while (j >= 0 && !image.get(j, centerI) && stateCount[1] <= maxCount) {
-      stateCount[1]++;
-      j--;
-    }
+    stateCount[1] = Math.min(runs.getRunLengthLeft(j, centerI), maxCount + 1);
+    j -= stateCount[1];
     if (j < 0 || stateCount[1] > maxCount) {
       return Float.NaN;
     }
-    while (j >= 0 && image.get(j, centerI) && stateCount[0] <= maxCount) {
-      stateCount[0]++;
-      j--;
-    }
+    stateCount[0] = Math.min(runs.getRunLengthLeft(j, centerI), maxCount + 1);
     if (stateCount[0] > maxCount) {
       return Float.NaN;
     }
 
     j = startJ + 1;
-    while (j < maxJ && image.get(j, centerI)) {
-      stateCount[2]++;
-      j++;
+    if (j < maxJ && runs.get(j, centerI)) {
+      int run = runs.getRunLengthRight(j, centerI);
+      stateCount[2] += run;
+      j += run;
     }
     if (j == maxJ) {
       return Float.NaN;
     }
-    while (j < maxJ && !image.get(j, centerI) && stateCount[3] < maxCount) {
-      stateCount[3]++;
-      j++;
-    }
+    stateCount[3] = Math.min(runs.getRunLengthRight(j, centerI), maxCount);
+    j += stateCount[3];
     if (j == maxJ || stateCount[3] >= maxCount) {
       return Float.NaN;
     }
-    while (j < maxJ && image.get(j, centerI) && stateCount[4] < maxCount) {
-      stateCount[4]++;
-      j++;
-    }
+    stateCount[4] = Math.min(runs.getRunLengthRight(j, centerI), maxCount);
+    j += stateCount[4];
     if (stateCount[4] >= maxCount) {
       return Float.NaN;
     }
@@ -487,15 +510,15 @@ public class FinderPatternFinder {
   /**
    * @return the 3 best {@link FinderPattern}s from our list of candidates. The "best" are
    *         those that have been detected at least {@link #CENTER_QUORUM} times, and whose module
-   *         size differs from the average among those patterns the least
-   * @throws NotFoundException if 3 such finder patterns do not exist
+   *         size differs from the average among those patterns the least, or null if 3 such
+   *         finder patterns do not exist
    */
-  private FinderPattern[] selectBestPatterns() throws NotFoundException {
+  private FinderPattern[] selectBestPatterns() {
 
     int startSize = possibleCenters.size();
     if (startSize < 3) {
       // Couldn't find enough finder patterns
-      throw NotFoundException.getNotFoundInstance();
+      return null;
     }
 
     // Filter outlier possibilities whose module size is too different
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode.detector;
+
+import com.google.zxing.DecodeOptions;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.common.RunLengthMatrix;
+
+/**
+ * <p>Detects a QR Code coarse to fine. The finder patterns are searched for on a downsampled level
+ * of an image pyramid, which is much cheaper for a symbol large enough to show up there. Their
+ * centers are then scaled up and re-centered on the full resolution image, where the alignment
+ * pattern is located and the grid is sampled as usual. Only the region around the symbol, as given
+ * by {@link #getRegion(FinderPatternInfo, int, int, int)}, needs to be binarized at full
+ * resolution.</p>
+ *
+ * <p>Small symbols may not survive downsampling, so callers should fall back to {@link Detector}
+ * on the full resolution image when this fails.</p>
+ */
+public final class PyramidDetector extends Detector {
+
+  // A finder pattern's center module is 3 modules wide; a run much longer than that is not it.
+  private static final float MAX_CENTER_RUN_MODULES = 5.0f;
+  // Finder pattern centers are 3.5 modules in from the edges of the symbol; leave some more room
+  // for the error of the coarse estimate.
+  private static final float REGION_MARGIN_MODULES = 6.0f;
+
+  private final int factor;
+  private final int left;
+  private final int top;
+
+  /**
+   * @param image full resolution region to sample
+   * @param runs run-length view of the region, or null to build one when it is needed
+   * @param factor how many pixels of the full resolution image along each side make one pixel of
+   *  the coarse image
+   * @param left x coordinate of the region in the full resolution image
+   * @param top y coordinate of the region in the full resolution image
+   */
+  public PyramidDetector(BitMatrix image, RunLengthMatrix runs, int factor, int left, int top) {
+    super(image, runs);
+    this.factor = factor;
+    this.left = left;
+    this.top = top;
+  }
+
+  /**
+   * Finds the finder patterns on the coarse image. This comes first and is static so that the full
+   * resolution image need not be binarized at all when nothing turns up.
+   *
+   * @param coarseImage the downsampled image
+   * @param coarseRuns run-length view of coarseImage
+   * @param factor how many pixels of the full image along each side make one pixel of coarseImage
+   * @param options hints to detector
+   * @return the finder patterns, in coarse image coordinates, or null if none can be found
+   */
+  public static FinderPatternInfo findCoarse(BitMatrix coarseImage,
+                                             RunLengthMatrix coarseRuns,
+                                             int factor,
+                                             DecodeOptions options) {
+    ResultPointCallback callback = options.getResultPointCallback();
+    ResultPointCallback coarseCallback =
+        callback == null ? null : new TransformedResultPointCallback(callback, factor, 0, 0);
+    return new FinderPatternFinder(coarseImage, coarseRuns, coarseCallback).tryFind(options);
+  }
+
+  /**
+   * @param coarseInfo the finder patterns found by
+   *  {@link #findCoarse(BitMatrix, RunLengthMatrix, int, DecodeOptions)}
+   * @param factor the factor the coarse image was downsampled by
+   * @param width width of the full resolution image
+   * @param height height of the full resolution image
+   * @return left, top, width and height of the part of the full resolution image which holds the
+   *  symbol, with a margin
+   */
+  public static int[] getRegion(FinderPatternInfo coarseInfo, int factor, int width, int height) {
+    FinderPattern topLeft = coarseInfo.getTopLeft();
+    FinderPattern topRight = coarseInfo.getTopRight();
+    FinderPattern bottomLeft = coarseInfo.getBottomLeft();
+    float bottomRightX = topRight.getX() - topLeft.getX() + bottomLeft.getX();
+    float bottomRightY = topRight.getY() - topLeft.getY() + bottomLeft.getY();
+    float minX = Math.min(Math.min(topLeft.getX(), topRight.getX()), Math.min(bottomLeft.getX(), bottomRightX));
+    float maxX = Math.max(Math.max(topLeft.getX(), topRight.getX()), Math.max(bottomLeft.getX(), bottomRightX));
+    float minY = Math.min(Math.min(topLeft.getY(), topRight.getY()), Math.min(bottomLeft.getY(), bottomRightY));
+    float maxY = Math.max(Math.max(topLeft.getY(), topRight.getY()), Math.max(bottomLeft.getY(), bottomRightY));
+    float moduleSize = (topLeft.getEstimatedModuleSize() + topRight.getEstimatedModuleSize() +
+        bottomLeft.getEstimatedModuleSize()) / 3.0f;
+    float margin = moduleSize * REGION_MARGIN_MODULES + 1.0f;
+    int left = Math.max(0, (int) ((minX - margin) * factor));
+    int top = Math.max(0, (int) ((minY - margin) * factor));
+    int right = Math.min(width, (int) ((maxX + margin) * factor) + 1);
+    int bottom = Math.min(height, (int) ((maxY + margin) * factor) + 1);
+    return new int[] {left, top, right - left, bottom - top};
+  }
+
+  /**
+   * @param coarseInfo the finder patterns found by
+   *  {@link #findCoarse(BitMatrix, RunLengthMatrix, int, DecodeOptions)}
+   * @param options hints to detector
+   * @return {@link DetectorResult} encapsulating results of detecting a QR Code, with points in
+   *  full resolution image coordinates
+   * @throws NotFoundException if the QR Code cannot be located on the full resolution image
+   * @throws FormatException if a QR Code cannot be decoded
+   */
+  public DetectorResult detect(FinderPatternInfo coarseInfo, DecodeOptions options)
+      throws NotFoundException, FormatException {
+    ResultPointCallback callback = options.getResultPointCallback();
+    setResultPointCallback(callback == null ? null :
+        new TransformedResultPointCallback(callback, 1, left, top));
+    FinderPattern[] patterns = {
+        refine(coarseInfo.getBottomLeft()),
+        refine(coarseInfo.getTopLeft()),
+        refine(coarseInfo.getTopRight()),
+    };
+    DetectorResult result = processFinderPatternInfo(new FinderPatternInfo(patterns));
+    if (left == 0 && top == 0) {
+      return result;
+    }
+    ResultPoint[] points = result.getPoints();
+    ResultPoint[] translated = new ResultPoint[points.length];
+    for (int i = 0; i < points.length; i++) {
+      translated[i] = new ResultPoint(points[i].getX() + left, points[i].getY() + top);
+    }
+    return new DetectorResult(result.getBits(), translated);
+  }
+
+  /**
+   * Scales a finder pattern found on the coarse image up to the full image, and centers it on the
+   * black center module there, first across and then down. A coarse pixel covers factor full
+   * pixels, so the scaled center may be off by up to half of that.
+   */
+  private FinderPattern refine(FinderPattern coarse) {
+    float moduleSize = coarse.getEstimatedModuleSize() * factor;
+    int maxRun = (int) (moduleSize * MAX_CENTER_RUN_MODULES);
+    float x = coarse.getX() * factor - left;
+    float y = coarse.getY() * factor - top;
+    float refinedX = centerOfRun((int) x, (int) y, true, maxRun);
+    if (!Float.isNaN(refinedX)) {
+      x = refinedX;
+    }
+    float refinedY = centerOfRun((int) x, (int) y, false, maxRun);
+    if (!Float.isNaN(refinedY)) {
+      y = refinedY;
+    }
+    return new FinderPattern(x, y, moduleSize);
+  }
+
+  /**
+   * @return the center of the black run through (x, y), across or down, or NaN if (x, y) is white,
+   *  outside the image, or its run is longer than maxRun
+   */
+  private float centerOfRun(int x, int y, boolean across, int maxRun) {
+    BitMatrix image = getImage();
+    int size = across ? image.getWidth() : image.getHeight();
+    int position = across ? x : y;
+    if (x < 0 || y < 0 || x >= image.getWidth() || y >= image.getHeight() || !image.get(x, y)) {
+      return Float.NaN;
+    }
+    int start = position;
+    while (start > 0 && position - start <= maxRun &&
+        (across ? image.get(start - 1, y) : image.get(x, start - 1))) {
+      start--;
+    }
+    int end = position + 1;
+    while (end < size && end - start <= maxRun && (across ? image.get(end, y) : image.get(x, end))) {
+      end++;
+    }
+    if (end - start > maxRun) {
+      return Float.NaN;
+    }
+    return (start + end) / 2.0f;
+  }
+
+  /**
+   * Passes points found on the coarse image or on the region on in full image coordinates.
+   */
+  private static final class TransformedResultPointCallback implements ResultPointCallback {
+
+    private final ResultPointCallback delegate;
+    private final int scale;
+    private final int left;
+    private final int top;
+
+    TransformedResultPointCallback(ResultPointCallback delegate, int scale, int left, int top) {
+      this.delegate = delegate;
+      this.scale = scale;
+      this.left = left;
+      this.top = top;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+      delegate.foundPossibleResultPoint(
+          new ResultPoint(point.getX() * scale + left, point.getY() * scale + top));
+    }
+
+  }
+
+}
@@ -49,6 +49,10 @@ public final class Encoder {
 
   static final String DEFAULT_BYTE_MODE_ENCODING = "ISO-8859-1";
 
+  // Safe to share, and keeps its generators from one block and one symbol to the next
+  private static final ReedSolomonEncoder RS_ENCODER =
+      new ReedSolomonEncoder(GenericGF.QR_CODE_FIELD_256);
+
   private Encoder() {
   }
 
@@ -433,7 +437,7 @@ public final class Encoder {
     for (int i = 0; i < numDataBytes; i++) {
       toEncode[i] = dataBytes[i] & 0xFF;
     }
-    new ReedSolomonEncoder(GenericGF.QR_CODE_FIELD_256).encode(toEncode, numEcBytesInBlock);
+    RS_ENCODER.encode(toEncode, numEcBytesInBlock);
 
     byte[] ecBytes = new byte[numEcBytesInBlock];
     for (int i = 0; i < numEcBytesInBlock; i++) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.camera;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link PreviewBufferPool}: buffers go out to decoders and come back once, frames nobody
+ * can take go straight back to the camera, and buffers the pool did not allocate are never handed
+ * to the camera.
+ */
+public final class PreviewBufferPoolTestCase extends Assert {
+
+  private static final int CAPACITY = 3;
+  private static final int FRAME_SIZE = 640 * 480 * 3 / 2;
+
+  private PreviewBufferPool pool;
+  private byte[][] buffers;
+
+  @Before
+  public void allocate() {
+    pool = new PreviewBufferPool(CAPACITY);
+    buffers = pool.allocate(FRAME_SIZE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNeedsOneBuffer() {
+    new PreviewBufferPool(0);
+  }
+
+  @Test
+  public void testAllocatesRing() {
+    assertEquals(CAPACITY, buffers.length);
+    for (int i = 0; i < buffers.length; i++) {
+      assertEquals(FRAME_SIZE, buffers[i].length);
+      for (int j = 0; j < i; j++) {
+        assertNotSame(buffers[j], buffers[i]);
+      }
+    }
+    assertEquals(FRAME_SIZE, pool.getBufferSize());
+    assertEquals(0, pool.getCheckedOutCount());
+  }
+
+  @Test
+  public void testChecksOutAndReleases() {
+    assertTrue(pool.checkOut(buffers[0]));
+    assertTrue(pool.checkOut(buffers[1]));
+    assertEquals(2, pool.getCheckedOutCount());
+    assertEquals(2L, pool.getFramesDelivered());
+
+    assertTrue(pool.release(buffers[0]));
+    assertEquals(1, pool.getCheckedOutCount());
+    // A second release would queue the buffer with the camera twice
+    assertFalse(pool.release(buffers[0]));
+    // Nor can a buffer still queued with the camera be released
+    assertFalse(pool.release(buffers[2]));
+    assertTrue(pool.release(buffers[1]));
+    assertEquals(0, pool.getCheckedOutCount());
+  }
+
+  @Test
+  public void testDropsFramesWhileBusy() {
+    // Decoders hold two frames, and refuse the third, which goes back to the camera
+    assertTrue(pool.checkOut(buffers[0]));
+    assertTrue(pool.checkOut(buffers[1]));
+    assertTrue(pool.checkOut(buffers[2]));
+    assertTrue(pool.release(buffers[2]));
+    assertTrue(pool.drop(buffers[2]));
+    // With no listener the frame is never checked out, and goes back too
+    assertTrue(pool.drop(buffers[2]));
+    assertEquals(2L, pool.getFramesDropped());
+    assertEquals(3L, pool.getFramesDelivered());
+    assertEquals(2, pool.getCheckedOutCount());
+    // A frame a decoder still holds is not given to the camera
+    assertFalse(pool.drop(buffers[0]));
+    assertEquals(2L, pool.getFramesDropped());
+  }
+
+  @Test
+  public void testRefusesForeignBuffers() {
+    byte[] foreign = new byte[FRAME_SIZE];
+    assertFalse(pool.checkOut(foreign));
+    assertFalse(pool.release(foreign));
+    assertFalse(pool.drop(foreign));
+    assertEquals(0L, pool.getFramesDelivered());
+    assertEquals(0L, pool.getFramesDropped());
+    assertEquals(0, pool.getCheckedOutCount());
+  }
+
+  @Test
+  public void testReplacesBuffersStillDecoding() {
+    assertTrue(pool.checkOut(buffers[0]));
+    byte[][] again = pool.allocate(FRAME_SIZE);
+    // The frame still being decoded is replaced, the others are kept
+    assertNotSame(buffers[0], again[0]);
+    assertSame(buffers[1], again[1]);
+    assertSame(buffers[2], again[2]);
+    assertEquals(0, pool.getCheckedOutCount());
+    // Once its decoder is done, the old buffer no longer belongs to the pool
+    assertFalse(pool.release(buffers[0]));
+    assertFalse(pool.drop(buffers[0]));
+  }
+
+  @Test
+  public void testReplacesBuffersOfOldSize() {
+    byte[][] resized = pool.allocate(FRAME_SIZE * 2);
+    for (int i = 0; i < CAPACITY; i++) {
+      assertEquals(FRAME_SIZE * 2, resized[i].length);
+      // A frame of the old size still in the camera is not queued again
+      assertFalse(pool.checkOut(buffers[i]));
+      assertFalse(pool.drop(buffers[i]));
+    }
+    assertEquals(FRAME_SIZE * 2, pool.getBufferSize());
+  }
+
+}
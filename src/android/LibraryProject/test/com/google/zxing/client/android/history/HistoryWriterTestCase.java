@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link HistoryWriter} and the statements in {@link HistorySql} against a local SQLite
+ * database: writes land in order, batched, with the history trimmed, and a read sees every write
+ * queued before it.
+ */
+public final class HistoryWriterTestCase extends Assert {
+
+  private static final int MAX_ITEMS = 3;
+  private static final String FORMAT = "QR_CODE";
+
+  private JdbcHistoryStore store;
+  private HistoryWriter writer;
+  private long timestamp;
+
+  @Before
+  public void createWriter() throws SQLException {
+    store = new JdbcHistoryStore();
+    writer = new HistoryWriter(store, MAX_ITEMS);
+  }
+
+  @After
+  public void stopWriter() throws InterruptedException, SQLException {
+    writer.interrupt();
+    writer.join();
+    store.close();
+  }
+
+  @Test
+  public void testReplacesPrevious() throws InterruptedException {
+    writer.start();
+    insert("A", true);
+    insert("B", true);
+    insert("A", true);
+    assertEquals("[A, B]", texts(read()));
+  }
+
+  @Test
+  public void testRemembersDuplicates() throws InterruptedException {
+    writer.start();
+    insert("A", false);
+    insert("A", false);
+    assertEquals("[A, A]", texts(read()));
+  }
+
+  @Test
+  public void testTrimsToNewest() throws InterruptedException {
+    writer.start();
+    for (String text : new String[] {"A", "B", "C", "D", "E"}) {
+      insert(text, true);
+    }
+    assertEquals("[E, D, C]", texts(read()));
+  }
+
+  @Test
+  public void testAppendsDetails() throws InterruptedException {
+    writer.start();
+    insert("A", true);
+    insert("B", true);
+    writer.appendDetails("A", "title");
+    writer.appendDetails("A", "price");
+    List<HistoryItem> items = read();
+    assertNull(items.get(0).getDetails());
+    assertEquals("title : price", items.get(1).getDetails());
+    assertEquals("A display : title : price", items.get(1).getDisplayAndDetails());
+  }
+
+  @Test
+  public void testDeletesAtPosition() throws InterruptedException {
+    writer.start();
+    insert("A", true);
+    insert("B", true);
+    insert("C", true);
+    writer.deleteAt(1);
+    writer.deleteAt(5);
+    assertEquals("[C, A]", texts(read()));
+  }
+
+  @Test
+  public void testClears() throws InterruptedException {
+    writer.start();
+    insert("A", true);
+    insert("B", true);
+    writer.clear();
+    assertTrue(read().isEmpty());
+  }
+
+  @Test
+  public void testReadSeesQueuedWrites() throws InterruptedException {
+    // Everything is queued before the writer runs, so the read is behind all of the writes.
+    insert("A", true);
+    insert("B", true);
+    writer.deleteAt(1);
+    insert("C", true);
+    Reader reader = new Reader();
+    writer.read(reader);
+    insert("D", true);
+    writer.start();
+    assertEquals("[C, B]", texts(reader.await()));
+    assertEquals("[D, C, B]", texts(read()));
+  }
+
+  @Test
+  public void testBatchesQueuedWrites() throws InterruptedException {
+    for (int i = 0; i < 10; i++) {
+      insert(String.valueOf(i), true);
+    }
+    writer.start();
+    assertEquals(3, read().size());
+    assertEquals(1, store.getBatches());
+  }
+
+  @Test
+  public void testRollsBackFailedBatch() throws InterruptedException, SQLException {
+    store.close();
+    store = new JdbcHistoryStore() {
+      @Override
+      public void insert(String text,
+                         String format,
+                         String display,
+                         long timestamp,
+                         boolean replacePrevious) {
+        super.insert(text, format, display, timestamp, replacePrevious);
+        if ("fail".equals(text)) {
+          throw new IllegalStateException("disk full");
+        }
+      }
+    };
+    writer = new HistoryWriter(store, MAX_ITEMS);
+    insert("A", true);
+    insert("fail", true);
+    writer.start();
+    assertTrue(read().isEmpty());
+    insert("B", true);
+    assertEquals("[B]", texts(read()));
+    assertEquals(1, store.getAbortedBatches());
+  }
+
+  private void insert(String text, boolean replacePrevious) {
+    writer.insert(text, FORMAT, text + " display", ++timestamp, replacePrevious);
+  }
+
+  private List<HistoryItem> read() throws InterruptedException {
+    Reader reader = new Reader();
+    writer.read(reader);
+    return reader.await();
+  }
+
+  private static String texts(List<HistoryItem> items) {
+    List<String> texts = new ArrayList<String>();
+    for (HistoryItem item : items) {
+      texts.add(item.getResult().getText());
+    }
+    return texts.toString();
+  }
+
+  private static final class Reader implements HistoryCallback<List<HistoryItem>> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile List<HistoryItem> items;
+
+    @Override
+    public void onResult(List<HistoryItem> result) {
+      items = result;
+      done.countDown();
+    }
+
+    List<HistoryItem> await() throws InterruptedException {
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      return items;
+    }
+
+  }
+
+}
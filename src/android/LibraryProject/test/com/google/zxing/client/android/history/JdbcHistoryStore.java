@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android.history;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link HistoryStore} running the statements in {@link HistorySql} on an in-memory SQLite
+ * database through JDBC, as {@link SQLiteHistoryStore} runs them on the device.
+ */
+class JdbcHistoryStore implements HistoryStore {
+
+  private final Connection connection;
+  private final PreparedStatement deletePrevious;
+  private final PreparedStatement insert;
+  private final PreparedStatement appendDetails;
+  private final PreparedStatement trim;
+  private final PreparedStatement deleteAt;
+  private final PreparedStatement clear;
+  private final PreparedStatement query;
+  private int batches;
+  private int abortedBatches;
+
+  JdbcHistoryStore() throws SQLException {
+    connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    Statement statement = connection.createStatement();
+    try {
+      statement.executeUpdate(HistorySql.CREATE_TABLE_SQL);
+    } finally {
+      statement.close();
+    }
+    deletePrevious = connection.prepareStatement(HistorySql.DELETE_PREVIOUS_SQL);
+    insert = connection.prepareStatement(HistorySql.INSERT_SQL);
+    appendDetails = connection.prepareStatement(HistorySql.APPEND_DETAILS_SQL);
+    trim = connection.prepareStatement(HistorySql.TRIM_SQL);
+    deleteAt = connection.prepareStatement(HistorySql.DELETE_AT_SQL);
+    clear = connection.prepareStatement(HistorySql.CLEAR_SQL);
+    query = connection.prepareStatement(HistorySql.QUERY_SQL);
+  }
+
+  synchronized int getBatches() {
+    return batches;
+  }
+
+  synchronized int getAbortedBatches() {
+    return abortedBatches;
+  }
+
+  void close() throws SQLException {
+    connection.close();
+  }
+
+  @Override
+  public void beginBatch() {
+    try {
+      connection.setAutoCommit(false);
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public void commitBatch() {
+    try {
+      connection.commit();
+      connection.setAutoCommit(true);
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+    synchronized (this) {
+      batches++;
+    }
+  }
+
+  @Override
+  public void abortBatch(RuntimeException cause) {
+    try {
+      connection.rollback();
+      connection.setAutoCommit(true);
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+    synchronized (this) {
+      abortedBatches++;
+    }
+  }
+
+  @Override
+  public void insert(String text,
+                     String format,
+                     String display,
+                     long timestamp,
+                     boolean replacePrevious) {
+    try {
+      if (replacePrevious) {
+        deletePrevious.setString(1, text);
+        deletePrevious.executeUpdate();
+      }
+      insert.setString(1, text);
+      insert.setString(2, format);
+      insert.setString(3, display);
+      insert.setLong(4, timestamp);
+      insert.executeUpdate();
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public void appendDetails(String text, String details) {
+    try {
+      appendDetails.setString(1, details);
+      appendDetails.setString(2, text);
+      appendDetails.executeUpdate();
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public void trim(int maxItems) {
+    try {
+      trim.setInt(1, maxItems);
+      trim.executeUpdate();
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public void deleteAt(int position) {
+    try {
+      deleteAt.setInt(1, position);
+      deleteAt.executeUpdate();
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public void clear() {
+    try {
+      clear.executeUpdate();
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+  }
+
+  @Override
+  public List<HistoryItem> query() {
+    List<HistoryItem> items = new ArrayList<HistoryItem>();
+    try {
+      ResultSet rows = query.executeQuery();
+      try {
+        while (rows.next()) {
+          Result result = new Result(rows.getString(1), null, null,
+              BarcodeFormat.valueOf(rows.getString(3)), rows.getLong(4));
+          items.add(new HistoryItem(result, rows.getString(2), rows.getString(5)));
+        }
+      } finally {
+        rows.close();
+      }
+    } catch (SQLException sqle) {
+      throw new IllegalStateException(sqle);
+    }
+    return items;
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.mobishift.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coupons looked up recently, keyed by parkinglotcouponuser id and code. An entry younger than the
+ * TTL answers a lookup without asking the server; older entries are kept around for when the
+ * server cannot be reached. The least recently used entries are evicted beyond the size limit.
+ */
+final class CouponCache {
+
+    private static final class Entry {
+        final CouponRequest.Coupon coupon;
+        final long storedAt;
+
+        Entry(CouponRequest.Coupon coupon, long storedAt){
+            this.coupon = coupon;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    CouponCache(long ttlMillis, final int maxEntries){
+        this.ttlMillis = ttlMillis;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static String key(String id, String code){
+        return id + "__" + code;
+    }
+
+    /**
+     * @return the cached coupon if it was stored less than the TTL ago, otherwise null
+     */
+    synchronized CouponRequest.Coupon getFresh(String key, long now){
+        Entry entry = entries.get(key);
+        return entry != null && now - entry.storedAt < ttlMillis ? entry.coupon : null;
+    }
+
+    /**
+     * @return the cached coupon if it was stored less than maxAgeMillis ago, otherwise null
+     */
+    synchronized CouponRequest.Coupon getNotOlderThan(String key, long now, long maxAgeMillis){
+        Entry entry = entries.get(key);
+        return entry != null && now - entry.storedAt < maxAgeMillis ? entry.coupon : null;
+    }
+
+    /**
+     * @return the cached coupon however old it is, or null
+     */
+    synchronized CouponRequest.Coupon getAny(String key){
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.coupon;
+    }
+
+    synchronized void put(String key, CouponRequest.Coupon coupon, long now){
+        entries.put(key, new Entry(coupon, now));
+    }
+}
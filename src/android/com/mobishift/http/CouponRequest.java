@@ -1,15 +1,21 @@
 package com.mobishift.http;
 
+import android.util.Log;
+
 import com.phonegap.plugins.barcodescanner.BarcodeScanner;
 
+import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import retrofit.Callback;
 import retrofit.RestAdapter;
 import retrofit.RetrofitError;
+import retrofit.client.Client;
 import retrofit.client.Response;
 import retrofit.http.POST;
 import retrofit.http.Path;
@@ -19,81 +25,194 @@ import retrofit.http.Path;
  */
 public class CouponRequest {
 
+    // A looked up coupon is trusted without asking the server again for this long.
+    private static final long CACHE_TTL_MS = 60L * 1000L;
+    private static final int CACHE_SIZE = 256;
+    // Offline, a coupon is only let through on an answer at most this old. The longer the gate is
+    // offline, the likelier the coupon was used at another lane since the server was last asked.
+    private static final long OFFLINE_CHECK_MAX_AGE_MS = 10L * 60L * 1000L;
+
+    private static final String TAG = CouponRequest.class.getSimpleName();
+
     private static CouponRequest couponRequest = null;
 
     private String url;
     private String parkinglot;
     private RestAdapter restAdapter;
     private CouponService couponService;
+    private final CouponCache cache;
+    private final PendingCheckQueue pendingChecks;
 
-    private CouponRequest(){
-        url = BarcodeScanner.HOST_URL;
-        parkinglot = BarcodeScanner.PARKINGLOT;
-        restAdapter = new RestAdapter.Builder().setEndpoint(url).build();
+    private CouponRequest(String url, String parkinglot, Client client){
+        this.url = url;
+        this.parkinglot = parkinglot;
+        RestAdapter.Builder builder = new RestAdapter.Builder().setEndpoint(url);
+        if(client != null){
+            builder.setClient(client);
+        }
+        restAdapter = builder.build();
         couponService = restAdapter.create(CouponService.class);
+        cache = new CouponCache(CACHE_TTL_MS, CACHE_SIZE);
+        pendingChecks = new PendingCheckQueue(new PendingCheckQueue.Sender() {
+            @Override
+            public int send(String id, String code) {
+                return sendPendingCheck(id, code);
+            }
+        });
     }
 
     public static CouponRequest getCouponRequest(){
         if(couponRequest == null){
-            couponRequest = new CouponRequest();
+            couponRequest = new CouponRequest(BarcodeScanner.HOST_URL, BarcodeScanner.PARKINGLOT, null);
         }
         return couponRequest;
     }
 
-    public boolean get(String urlString, final CouponReqeustCallback callback){
-        boolean isValid = true;
-        if(urlString.contains("parkinglotcouponuser=")){
-            String[] strings = urlString.split("parkinglotcouponuser=")[1].split("__");
-            if(strings.length == 2){
-                String id = strings[0];
-                String code = strings[1];
-                couponService.getCoupon(id, parkinglot, code, new Callback<Coupon>() {
-                    @Override
-                    public void success(Coupon coupon, Response response) {
-                        callback.success(coupon);
-                    }
+    /**
+     * Creates a request talking to the server through the given HTTP client, which may be a fake one.
+     */
+    public static CouponRequest create(String url, String parkinglot, Client client){
+        return new CouponRequest(url, parkinglot, client);
+    }
 
-                    @Override
-                    public void failure(RetrofitError retrofitError) {
-                        String message = getFailureMessage(retrofitError);
-                        callback.failure(message);
-                    }
-                });
-            }else{
-                isValid = false;
+    /**
+     * Sets the file checks made while offline are kept in until they reach the server, and starts
+     * sending the ones left there last time.
+     */
+    public void setPendingChecksFile(File file){
+        pendingChecks.setFile(file);
+    }
+
+    /**
+     * @return the checks accepted while offline which the server refused later, oldest first. They
+     *  are kept, also across restarts, until cleared.
+     */
+    public List<RejectedCheck> getRejectedChecks(){
+        return pendingChecks.getRejected();
+    }
+
+    /**
+     * Forgets rejected checks, once the operator has seen them.
+     */
+    public void clearRejectedChecks(Collection<RejectedCheck> checks){
+        pendingChecks.clearRejected(checks);
+    }
+
+    /**
+     * Sets who is told when the server refuses a check accepted while offline, or null for nobody.
+     * The listener is called on a background thread.
+     */
+    public void setRejectedCheckListener(final RejectedCheckListener listener){
+        pendingChecks.setRejectionListener(listener == null ? null : new PendingCheckQueue.RejectionListener() {
+            @Override
+            public void rejected(RejectedCheck check) {
+                listener.rejected(check);
             }
-        }else{
-            isValid = false;
+        });
+    }
+
+    public boolean get(String urlString, final CouponReqeustCallback callback){
+        String[] strings = parse(urlString);
+        if(strings == null){
+            return false;
         }
-        return isValid;
+        final String key = CouponCache.key(strings[0], strings[1]);
+        Coupon cached = cache.getFresh(key, System.currentTimeMillis());
+        if(cached != null){
+            callback.success(cached);
+            return true;
+        }
+        couponService.getCoupon(strings[0], parkinglot, strings[1], new Callback<Coupon>() {
+            @Override
+            public void success(Coupon coupon, Response response) {
+                cache.put(key, coupon, System.currentTimeMillis());
+                pendingChecks.replayNow();
+                callback.success(coupon);
+            }
+
+            @Override
+            public void failure(RetrofitError retrofitError) {
+                // Offline, an older answer is better than none.
+                Coupon stale = retrofitError.getKind() == RetrofitError.Kind.NETWORK ? cache.getAny(key) : null;
+                if(stale != null){
+                    callback.success(stale);
+                }else{
+                    callback.failure(getFailureMessage(retrofitError));
+                }
+            }
+        });
+        return true;
     }
 
     public boolean checkCode(String urlString, final CouponReqeustCallback callback){
-        boolean isValid = true;
-        if(urlString.contains("parkinglotcouponuser=")){
-            String[] strings = urlString.split("parkinglotcouponuser=")[1].split("__");
-            if(strings.length == 2){
-                String id = strings[0];
-                String code = strings[1];
-                couponService.checkCoupon(id, parkinglot, code, new Callback<Coupon>() {
-                    @Override
-                    public void success(Coupon coupon, Response response) {
-                        callback.success(coupon);
-                    }
+        String[] strings = parse(urlString);
+        if(strings == null){
+            return false;
+        }
+        final String id = strings[0];
+        final String code = strings[1];
+        final String key = CouponCache.key(id, code);
+        couponService.checkCoupon(id, parkinglot, code, new Callback<Coupon>() {
+            @Override
+            public void success(Coupon coupon, Response response) {
+                cache.put(key, coupon.asUsed(), System.currentTimeMillis());
+                pendingChecks.replayNow();
+                callback.success(coupon);
+            }
 
-                    @Override
-                    public void failure(RetrofitError retrofitError) {
-                        String message = getFailureMessage(retrofitError);
-                        callback.failure(message);
+            @Override
+            public void failure(RetrofitError retrofitError) {
+                // Offline, a coupon known to be usable, as of recently enough, is accepted now and
+                // checked on the server once it can be reached again.
+                Coupon cached = retrofitError.getKind() == RetrofitError.Kind.NETWORK ?
+                        cache.getNotOlderThan(key, System.currentTimeMillis(), OFFLINE_CHECK_MAX_AGE_MS) : null;
+                if(cached != null && cached.check){
+                    pendingChecks.add(id, code);
+                    cache.put(key, cached.asUsed(), System.currentTimeMillis());
+                    callback.success(cached);
+                }else if(retrofitError.getKind() == RetrofitError.Kind.NETWORK && cache.getAny(key) != null){
+                    callback.failure("抵扣券信息已过期，请联网后再核销");
+                }else{
+                    callback.failure(getFailureMessage(retrofitError));
+                }
+            }
+        });
+        return true;
+    }
+
+    private int sendPendingCheck(String id, String code){
+        try{
+            couponService.checkCouponNow(id, parkinglot, code);
+        }catch (RetrofitError retrofitError){
+            switch (retrofitError.getKind()){
+                case HTTP:
+                    int status = retrofitError.getResponse().getStatus();
+                    if(status >= 400 && status < 500){
+                        // Refused, for instance used at another lane meanwhile; asking again won't help.
+                        Log.w(TAG, "Offline coupon check " + id + "__" + code + " refused: HTTP " + status);
+                        return status;
                     }
-                });
-            }else{
-                isValid = false;
+                    // The server failed; it may well take the check later.
+                    return PendingCheckQueue.RETRY;
+                case CONVERSION:
+                    // The server took the check, only its answer could not be read.
+                    return PendingCheckQueue.SENT;
+                default:
+                    return PendingCheckQueue.RETRY;
             }
-        }else{
-            isValid = false;
         }
-        return isValid;
+        return PendingCheckQueue.SENT;
+    }
+
+    /**
+     * @return the parkinglotcouponuser id and code in a scanned URL, or null if it has none
+     */
+    private static String[] parse(String urlString){
+        if(!urlString.contains("parkinglotcouponuser=")){
+            return null;
+        }
+        String[] strings = urlString.split("parkinglotcouponuser=")[1].split("__");
+        return strings.length == 2 ? strings : null;
     }
 
     private String getFailureMessage(RetrofitError retrofitError){
@@ -122,6 +241,8 @@ public class CouponRequest {
     public interface CouponService{
         @POST("/parking/parkinglotcouponusers/{id}/parkinglot/{parkinglot}/code/{code}/check")
         void checkCoupon(@Path("id") String id,@Path("parkinglot") String parkinglot, @Path("code") String code, Callback<Coupon> cb);
+        @POST("/parking/parkinglotcouponusers/{id}/parkinglot/{parkinglot}/code/{code}/check")
+        Coupon checkCouponNow(@Path("id") String id,@Path("parkinglot") String parkinglot, @Path("code") String code);
         @POST("/parking/parkinglotcouponusers/{id}/parkinglot/{parkinglot}/code/{code}/check?no_use=1")
         void getCoupon(@Path("id") String id,@Path("parkinglot") String parkinglot, @Path("code") String code, Callback<Coupon> cb);
     }
@@ -135,6 +256,21 @@ public class CouponRequest {
         public double origin_price;
         public String parkinglot_coupon_desc;
 
+        /**
+         * @return a copy of this coupon as it looks once used now
+         */
+        Coupon asUsed(){
+            Coupon used = new Coupon();
+            used.parkinglot_coupon_name = parkinglot_coupon_name;
+            used.parkinglot = parkinglot;
+            used.check = false;
+            used.used_at = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(Calendar.getInstance().getTime());
+            used.price = price;
+            used.origin_price = origin_price;
+            used.parkinglot_coupon_desc = parkinglot_coupon_desc;
+            return used;
+        }
+
         public Date getUsedAt(){
             Date date = null;
             if(this.check){
@@ -157,4 +293,8 @@ public class CouponRequest {
         void success(Coupon coupon);
         void failure(String message);
     }
+
+    public interface RejectedCheckListener {
+        void rejected(RejectedCheck check);
+    }
 }
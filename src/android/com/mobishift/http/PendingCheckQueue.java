@@ -0,0 +1,310 @@
+package com.mobishift.http;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coupon checks which could not reach the server. They are kept in a file so they survive the app
+ * being closed, and are sent again in order from a background thread, backing off while the
+ * server stays unreachable or failing. Checks the server refuses are not sent again, but kept in a
+ * second file, next to the first, until they are cleared.
+ */
+final class PendingCheckQueue {
+
+    private static final long INITIAL_BACKOFF_MS = 5000L;
+    private static final long MAX_BACKOFF_MS = 5L * 60L * 1000L;
+    private static final String CHARSET = "UTF-8";
+    private static final String REJECTED_SUFFIX = ".rejected";
+
+    /** {@link Sender#send(String, String)} result: the server recorded the check. */
+    static final int SENT = 0;
+    /** {@link Sender#send(String, String)} result: the check should be sent again later. */
+    static final int RETRY = -1;
+
+    interface Sender {
+        /**
+         * Sends one check synchronously.
+         *
+         * @return {@link #SENT}, {@link #RETRY} if the server could not be reached or failed, or else
+         *  the HTTP status the server refused the check with
+         */
+        int send(String id, String code);
+    }
+
+    interface RejectionListener {
+        /**
+         * Called on the queue's thread when the server refuses a check.
+         */
+        void rejected(RejectedCheck check);
+    }
+
+    private static final class PendingCheck {
+        final String id;
+        final String code;
+
+        PendingCheck(String id, String code){
+            this.id = id;
+            this.code = code;
+        }
+    }
+
+    private final Sender sender;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService executor;
+    private final List<PendingCheck> checks;
+    private final List<RejectedCheck> rejected;
+    private File file;
+    private RejectionListener listener;
+    private long backoffMillis;
+    private ScheduledFuture<?> scheduled;
+
+    PendingCheckQueue(Sender sender){
+        this(sender, INITIAL_BACKOFF_MS, MAX_BACKOFF_MS);
+    }
+
+    /**
+     * @param initialBackoffMillis how long to wait before sending again after the first failure; the
+     *  wait doubles with every further failure in a row
+     * @param maxBackoffMillis longest wait between two attempts
+     */
+    PendingCheckQueue(Sender sender, long initialBackoffMillis, long maxBackoffMillis){
+        this.sender = sender;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "PendingCouponChecks");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        checks = new ArrayList<PendingCheck>();
+        rejected = new ArrayList<RejectedCheck>();
+        backoffMillis = initialBackoffMillis;
+    }
+
+    /**
+     * Sets where the queue is kept, picks up the checks left there last time and starts sending them.
+     */
+    synchronized void setFile(File file){
+        if(file.equals(this.file)){
+            return;
+        }
+        this.file = file;
+        checks.addAll(load(file));
+        rejected.addAll(loadRejected(rejectedFile()));
+        save();
+        saveRejected();
+        replayNow();
+    }
+
+    synchronized void setRejectionListener(RejectionListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * @return the checks the server refused, oldest first
+     */
+    synchronized List<RejectedCheck> getRejected(){
+        return Collections.unmodifiableList(new ArrayList<RejectedCheck>(rejected));
+    }
+
+    synchronized void clearRejected(Collection<RejectedCheck> cleared){
+        rejected.removeAll(cleared);
+        saveRejected();
+    }
+
+    synchronized void add(String id, String code){
+        checks.add(new PendingCheck(id, code));
+        save();
+        if(scheduled == null){
+            schedule(backoffMillis);
+        }
+    }
+
+    /**
+     * Sends the waiting checks right away, for instance because another request just got through.
+     */
+    synchronized void replayNow(){
+        if(checks.isEmpty()){
+            return;
+        }
+        if(scheduled != null){
+            scheduled.cancel(false);
+        }
+        backoffMillis = initialBackoffMillis;
+        schedule(0L);
+    }
+
+    private void schedule(long delayMillis){
+        scheduled = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                replay();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void replay(){
+        while(true){
+            PendingCheck check;
+            synchronized (this){
+                if(checks.isEmpty()){
+                    scheduled = null;
+                    return;
+                }
+                check = checks.get(0);
+            }
+            int result = sender.send(check.id, check.code);
+            RejectedCheck rejection = null;
+            RejectionListener rejectionListener;
+            synchronized (this){
+                if(result == RETRY){
+                    schedule(backoffMillis);
+                    backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+                    return;
+                }
+                checks.remove(check);
+                backoffMillis = initialBackoffMillis;
+                save();
+                if(result != SENT){
+                    rejection = new RejectedCheck(check.id, check.code, result, System.currentTimeMillis());
+                    rejected.add(rejection);
+                    saveRejected();
+                }
+                rejectionListener = listener;
+            }
+            if(rejection != null && rejectionListener != null){
+                rejectionListener.rejected(rejection);
+            }
+        }
+    }
+
+    private static List<PendingCheck> load(File file){
+        List<PendingCheck> loaded = new ArrayList<PendingCheck>();
+        if(!file.exists()){
+            return loaded;
+        }
+        BufferedReader reader = null;
+        try{
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            String line;
+            while((line = reader.readLine()) != null){
+                String[] fields = line.split("\t");
+                if(fields.length == 2){
+                    loaded.add(new PendingCheck(fields[0], fields[1]));
+                }
+            }
+        }catch (IOException ex){
+            // Whatever could be read is kept.
+        }finally {
+            close(reader);
+        }
+        return loaded;
+    }
+
+    private static List<RejectedCheck> loadRejected(File file){
+        List<RejectedCheck> loaded = new ArrayList<RejectedCheck>();
+        if(!file.exists()){
+            return loaded;
+        }
+        BufferedReader reader = null;
+        try{
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            String line;
+            while((line = reader.readLine()) != null){
+                String[] fields = line.split("\t");
+                if(fields.length == 4){
+                    try{
+                        loaded.add(new RejectedCheck(fields[0], fields[1],
+                                Integer.parseInt(fields[2]), Long.parseLong(fields[3])));
+                    }catch (NumberFormatException ex){
+                        // Skip the damaged line.
+                    }
+                }
+            }
+        }catch (IOException ex){
+            // Whatever could be read is kept.
+        }finally {
+            close(reader);
+        }
+        return loaded;
+    }
+
+    private File rejectedFile(){
+        return new File(file.getPath() + REJECTED_SUFFIX);
+    }
+
+    private void save(){
+        if(file == null){
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for(PendingCheck check : checks){
+            lines.append(check.id).append('\t').append(check.code).append('\n');
+        }
+        write(file, lines.toString());
+    }
+
+    private void saveRejected(){
+        if(file == null){
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for(RejectedCheck check : rejected){
+            lines.append(check.getId()).append('\t').append(check.getCode()).append('\t')
+                    .append(check.getStatus()).append('\t').append(check.getRejectedAt()).append('\n');
+        }
+        write(rejectedFile(), lines.toString());
+    }
+
+    /**
+     * Replaces the file's contents through a temporary file, so a crash leaves the old or the new.
+     */
+    private static void write(File file, String contents){
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try{
+            writer = new OutputStreamWriter(new FileOutputStream(temp), CHARSET);
+            writer.write(contents);
+            writer.close();
+            writer = null;
+            if(!temp.renameTo(file)){
+                file.delete();
+                temp.renameTo(file);
+            }
+        }catch (IOException ex){
+            // The checks are still kept in memory; they are only lost if the app dies first.
+        }finally {
+            close(writer);
+        }
+    }
+
+    private static void close(Closeable closeable){
+        if(closeable != null){
+            try{
+                closeable.close();
+            }catch (IOException ex){
+                // do nothing
+            }
+        }
+    }
+}
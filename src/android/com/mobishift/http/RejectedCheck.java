@@ -0,0 +1,42 @@
+package com.mobishift.http;
+
+/**
+ * A coupon check accepted at the gate while offline which the server refused once it could be
+ * reached, for instance because the coupon had already been used at another lane.
+ */
+public final class RejectedCheck {
+
+    private final String id;
+    private final String code;
+    private final int status;
+    private final long rejectedAt;
+
+    RejectedCheck(String id, String code, int status, long rejectedAt){
+        this.id = id;
+        this.code = code;
+        this.status = status;
+        this.rejectedAt = rejectedAt;
+    }
+
+    public String getId(){
+        return id;
+    }
+
+    public String getCode(){
+        return code;
+    }
+
+    /**
+     * @return the HTTP status the server refused the check with
+     */
+    public int getStatus(){
+        return status;
+    }
+
+    /**
+     * @return when the server refused the check, in milliseconds since the epoch
+     */
+    public long getRejectedAt(){
+        return rejectedAt;
+    }
+}
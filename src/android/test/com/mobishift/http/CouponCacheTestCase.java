@@ -0,0 +1,67 @@
+package com.mobishift.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link CouponCache}.
+ */
+public final class CouponCacheTestCase extends Assert {
+
+    private static final long TTL_MS = 1000L;
+
+    // Coupon is an inner class of CouponRequest
+    private final CouponRequest request =
+            CouponRequest.create("http://coupons.invalid", "lot1", new FakeCouponServer());
+
+    @Test
+    public void testFreshOnlyWithinTtl(){
+        CouponCache cache = new CouponCache(TTL_MS, 4);
+        CouponRequest.Coupon coupon = coupon();
+        cache.put("1__A", coupon, 5000L);
+        assertSame(coupon, cache.getFresh("1__A", 5000L));
+        assertSame(coupon, cache.getFresh("1__A", 5000L + TTL_MS - 1));
+        assertNull(cache.getFresh("1__A", 5000L + TTL_MS));
+        assertNull(cache.getFresh("2__B", 5000L));
+    }
+
+    @Test
+    public void testOlderEntriesByAge(){
+        CouponCache cache = new CouponCache(TTL_MS, 4);
+        CouponRequest.Coupon coupon = coupon();
+        cache.put("1__A", coupon, 5000L);
+        assertSame(coupon, cache.getNotOlderThan("1__A", 5000L + 10 * TTL_MS, 11 * TTL_MS));
+        assertNull(cache.getNotOlderThan("1__A", 5000L + 10 * TTL_MS, 10 * TTL_MS));
+        assertSame(coupon, cache.getAny("1__A"));
+        assertNull(cache.getAny("2__B"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed(){
+        CouponCache cache = new CouponCache(TTL_MS, 2);
+        cache.put("1__A", coupon(), 0L);
+        cache.put("2__B", coupon(), 0L);
+        // Looking up A makes B the least recently used
+        assertNotNull(cache.getAny("1__A"));
+        cache.put("3__C", coupon(), 0L);
+        assertNotNull(cache.getAny("1__A"));
+        assertNull(cache.getAny("2__B"));
+        assertNotNull(cache.getAny("3__C"));
+    }
+
+    @Test
+    public void testReplacesEntry(){
+        CouponCache cache = new CouponCache(TTL_MS, 2);
+        cache.put("1__A", coupon(), 0L);
+        CouponRequest.Coupon used = coupon().asUsed();
+        cache.put("1__A", used, 2 * TTL_MS);
+        assertSame(used, cache.getFresh("1__A", 2 * TTL_MS));
+        assertFalse(cache.getFresh("1__A", 2 * TTL_MS).check);
+    }
+
+    private CouponRequest.Coupon coupon(){
+        CouponRequest.Coupon coupon = request.new Coupon();
+        coupon.check = true;
+        return coupon;
+    }
+}
@@ -0,0 +1,121 @@
+package com.mobishift.http;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link CouponRequest} against {@link FakeCouponServer}: fresh lookups are answered from the
+ * cache, and a coupon looked up online is accepted offline and checked on the server once it is
+ * back.
+ */
+public final class CouponRequestTestCase extends Assert {
+
+    private static final long TIMEOUT_MS = 5000L;
+
+    private FakeCouponServer server;
+    private CouponRequest couponRequest;
+
+    @Before
+    public void createRequest(){
+        server = new FakeCouponServer();
+        server.addCoupon("1", "A");
+        server.addCoupon("2", "B");
+        couponRequest = CouponRequest.create("http://coupons.invalid", "lot1", server);
+    }
+
+    @Test
+    public void testAnswersFreshLookupFromCache() throws InterruptedException {
+        assertEquals("usable", lookup("1", "A"));
+        assertEquals("usable", lookup("1", "A"));
+        assertEquals(1, server.getRequests().size());
+    }
+
+    @Test
+    public void testLooksUpStaleOfflineCoupon() throws InterruptedException {
+        assertEquals("usable", lookup("1", "A"));
+        server.setOnline(false);
+        assertEquals("usable", lookup("1", "A"));
+        assertEquals("failed 请检查网络链接", lookup("2", "B"));
+    }
+
+    @Test
+    public void testChecksOfflineCouponOnceOnline() throws InterruptedException {
+        assertEquals("usable", lookup("1", "A"));
+        server.setOnline(false);
+        assertEquals("usable", check("1", "A"));
+        assertFalse(server.isUsed("1", "A"));
+        // Used now, as far as the gate knows
+        assertEquals("used", lookup("1", "A"));
+
+        server.setOnline(true);
+        // Any request that gets through sends the waiting checks
+        assertEquals("usable", lookup("2", "B"));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while(!server.isUsed("1", "A") && System.currentTimeMillis() < deadline){
+            Thread.sleep(10L);
+        }
+        assertTrue(server.isUsed("1", "A"));
+        assertTrue(couponRequest.getRejectedChecks().isEmpty());
+    }
+
+    @Test
+    public void testRefusesOfflineCheckOfUnknownCoupon() throws InterruptedException {
+        server.setOnline(false);
+        assertEquals("failed 请检查网络链接", check("1", "A"));
+        server.setOnline(true);
+        assertEquals("usable", lookup("2", "B"));
+        Thread.sleep(100L);
+        assertFalse(server.isUsed("1", "A"));
+    }
+
+    @Test
+    public void testRefusesOfflineCheckOfUsedCoupon() throws InterruptedException {
+        assertEquals("usable", check("1", "A"));
+        assertTrue(server.isUsed("1", "A"));
+        server.setOnline(false);
+        assertTrue(check("1", "A").startsWith("failed"));
+    }
+
+    private String lookup(String id, String code) throws InterruptedException {
+        return call(id, code, false);
+    }
+
+    private String check(String id, String code) throws InterruptedException {
+        return call(id, code, true);
+    }
+
+    /**
+     * Looks up or checks a coupon and waits for the answer.
+     *
+     * @return "usable" or "used" if the coupon was accepted, or "failed" and the message
+     */
+    private String call(String id, String code, boolean check) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final String[] outcome = new String[1];
+        CouponRequest.CouponReqeustCallback callback = new CouponRequest.CouponReqeustCallback() {
+            @Override
+            public void success(CouponRequest.Coupon coupon) {
+                outcome[0] = coupon.check ? "usable" : "used";
+                done.countDown();
+            }
+
+            @Override
+            public void failure(String message) {
+                outcome[0] = "failed " + message;
+                done.countDown();
+            }
+        };
+        String url = "http://coupons.invalid/?parkinglotcouponuser=" + id + "__" + code;
+        if(check){
+            assertTrue(couponRequest.checkCode(url, callback));
+        }else{
+            assertTrue(couponRequest.get(url, callback));
+        }
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return outcome[0];
+    }
+}
@@ -0,0 +1,108 @@
+package com.mobishift.http;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+
+/**
+ * Stands in for the coupon server, passed to {@link CouponRequest#create(String, String, Client)},
+ * so that the offline behaviour can be tried without a server or a device. It can be taken
+ * offline, made to fail every request with a status, and otherwise answers lookups and checks
+ * like the server, refusing a second use of a coupon with 409.
+ */
+public final class FakeCouponServer implements Client {
+
+    private static final Pattern CHECK_URL = Pattern.compile(
+            ".*/parkinglotcouponusers/([^/]+)/parkinglot/([^/]+)/code/([^/?]+)/check(\\?no_use=1)?");
+
+    private final Set<String> coupons = new HashSet<String>();
+    private final Set<String> used = new HashSet<String>();
+    private final List<String> requests = new ArrayList<String>();
+    private boolean online = true;
+    private int failureStatus;
+
+    public synchronized void addCoupon(String id, String code){
+        coupons.add(CouponCache.key(id, code));
+    }
+
+    /**
+     * Uses a coupon as another lane would.
+     */
+    public synchronized void use(String id, String code){
+        used.add(CouponCache.key(id, code));
+    }
+
+    public synchronized boolean isUsed(String id, String code){
+        return used.contains(CouponCache.key(id, code));
+    }
+
+    /**
+     * @param online false to fail every request as if the server could not be reached
+     */
+    public synchronized void setOnline(boolean online){
+        this.online = online;
+    }
+
+    /**
+     * @param failureStatus HTTP status to answer every request with, or 0 to answer normally
+     */
+    public synchronized void setFailureStatus(int failureStatus){
+        this.failureStatus = failureStatus;
+    }
+
+    /**
+     * @return the requests received so far, as method and URL, including those failed on purpose
+     */
+    public synchronized List<String> getRequests(){
+        return new ArrayList<String>(requests);
+    }
+
+    @Override
+    public synchronized Response execute(Request request) throws IOException {
+        requests.add(request.getMethod() + " " + request.getUrl());
+        if(!online){
+            throw new IOException("Fake coupon server is offline");
+        }
+        if(failureStatus != 0){
+            return respond(request, failureStatus, "{}");
+        }
+        Matcher matcher = CHECK_URL.matcher(request.getUrl());
+        if(!matcher.matches()){
+            return respond(request, 404, "{}");
+        }
+        String key = CouponCache.key(matcher.group(1), matcher.group(3));
+        boolean lookup = matcher.group(4) != null;
+        if(!coupons.contains(key)){
+            return respond(request, 404, "{}");
+        }
+        boolean usable = !used.contains(key);
+        if(!lookup){
+            if(!usable){
+                return respond(request, 409, "{}");
+            }
+            used.add(key);
+        }
+        return respond(request, 200, "{\"parkinglot_coupon_name\":\"Fake coupon\"," +
+                "\"parkinglot\":\"" + matcher.group(2) + "\"," +
+                "\"check\":" + usable + "," +
+                "\"price\":5.0,\"origin_price\":5.0}");
+    }
+
+    private static Response respond(Request request, int status, String json)
+            throws UnsupportedEncodingException {
+        return new Response(request.getUrl(), status, status == 200 ? "OK" : "Fake failure",
+                new ArrayList<Header>(),
+                new TypedByteArray("application/json; charset=UTF-8", json.getBytes("UTF-8")));
+    }
+}
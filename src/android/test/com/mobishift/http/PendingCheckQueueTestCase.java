@@ -0,0 +1,154 @@
+package com.mobishift.http;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link PendingCheckQueue}: checks are sent in order, sent again with a growing wait while
+ * the server cannot take them, kept across restarts, and kept aside once refused.
+ */
+public final class PendingCheckQueueTestCase extends Assert {
+
+    private static final long INITIAL_BACKOFF_MS = 50L;
+    private static final long MAX_BACKOFF_MS = 200L;
+    // Long enough that a queue never sends again while a test runs
+    private static final long NEVER_MS = 60L * 60L * 1000L;
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("pending_coupon_checks", "");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void deleteFile(){
+        new File(file.getPath() + ".rejected").delete();
+        file.delete();
+    }
+
+    @Test
+    public void testSendsChecksInOrder() throws InterruptedException {
+        RecordingSender sender = new RecordingSender(2);
+        PendingCheckQueue queue = new PendingCheckQueue(sender, NEVER_MS, NEVER_MS);
+        queue.setFile(file);
+        queue.add("1", "A");
+        queue.add("2", "B");
+        queue.replayNow();
+        sender.await();
+        assertEquals("[1__A, 2__B]", sender.sent.toString());
+    }
+
+    @Test
+    public void testBacksOffWhileServerFails() throws InterruptedException {
+        // Fails four times, then takes the check
+        RecordingSender sender = new RecordingSender(5);
+        sender.retries = 4;
+        PendingCheckQueue queue = new PendingCheckQueue(sender, INITIAL_BACKOFF_MS, MAX_BACKOFF_MS);
+        queue.add("1", "A");
+        queue.replayNow();
+        sender.await();
+        assertEquals("[1__A, 1__A, 1__A, 1__A, 1__A]", sender.sent.toString());
+        long[] waits = {INITIAL_BACKOFF_MS, 2 * INITIAL_BACKOFF_MS, MAX_BACKOFF_MS, MAX_BACKOFF_MS};
+        for(int i = 0; i < waits.length; i++){
+            long waited = sender.sentAt.get(i + 1) - sender.sentAt.get(i);
+            assertTrue("attempt " + (i + 2) + " after " + waited + " ms", waited >= waits[i]);
+        }
+        assertTrue(queue.getRejected().isEmpty());
+    }
+
+    @Test
+    public void testKeepsChecksAcrossRestarts() throws InterruptedException {
+        PendingCheckQueue before = new PendingCheckQueue(new RecordingSender(1), NEVER_MS, NEVER_MS);
+        before.setFile(file);
+        before.add("1", "A");
+        before.add("2", "B");
+
+        RecordingSender sender = new RecordingSender(2);
+        PendingCheckQueue after = new PendingCheckQueue(sender, NEVER_MS, NEVER_MS);
+        after.setFile(file);
+        sender.await();
+        assertEquals("[1__A, 2__B]", sender.sent.toString());
+    }
+
+    @Test
+    public void testKeepsRefusedChecks() throws InterruptedException {
+        RecordingSender sender = new RecordingSender(2);
+        sender.refusal = 409;
+        PendingCheckQueue queue = new PendingCheckQueue(sender, NEVER_MS, NEVER_MS);
+        final List<RejectedCheck> told = new ArrayList<RejectedCheck>();
+        final CountDownLatch rejected = new CountDownLatch(2);
+        queue.setRejectionListener(new PendingCheckQueue.RejectionListener() {
+            @Override
+            public void rejected(RejectedCheck check) {
+                told.add(check);
+                rejected.countDown();
+            }
+        });
+        queue.setFile(file);
+        queue.add("1", "A");
+        queue.add("2", "B");
+        queue.replayNow();
+        assertTrue(rejected.await(5L, TimeUnit.SECONDS));
+        // A refused check is not sent again
+        assertEquals("[1__A, 2__B]", sender.sent.toString());
+        assertEquals(2, told.size());
+        assertEquals("A", told.get(0).getCode());
+        assertEquals(409, told.get(0).getStatus());
+
+        PendingCheckQueue restarted = new PendingCheckQueue(new RecordingSender(1), NEVER_MS, NEVER_MS);
+        restarted.setFile(file);
+        List<RejectedCheck> kept = restarted.getRejected();
+        assertEquals(2, kept.size());
+        assertEquals("1", kept.get(0).getId());
+        assertEquals("B", kept.get(1).getCode());
+        assertEquals(409, kept.get(1).getStatus());
+
+        restarted.clearRejected(kept.subList(0, 1));
+        PendingCheckQueue cleared = new PendingCheckQueue(new RecordingSender(1), NEVER_MS, NEVER_MS);
+        cleared.setFile(file);
+        assertEquals(1, cleared.getRejected().size());
+        assertEquals("B", cleared.getRejected().get(0).getCode());
+    }
+
+    /**
+     * Takes, fails or refuses checks, and remembers what it was sent and when.
+     */
+    private static final class RecordingSender implements PendingCheckQueue.Sender {
+        final List<String> sent = new ArrayList<String>();
+        final List<Long> sentAt = new ArrayList<Long>();
+        private final CountDownLatch done;
+        int retries;
+        int refusal = PendingCheckQueue.SENT;
+
+        RecordingSender(int expectedSends){
+            done = new CountDownLatch(expectedSends);
+        }
+
+        @Override
+        public synchronized int send(String id, String code) {
+            sent.add(CouponCache.key(id, code));
+            sentAt.add(System.currentTimeMillis());
+            done.countDown();
+            if(retries > 0){
+                retries--;
+                return PendingCheckQueue.RETRY;
+            }
+            return refusal;
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5L, TimeUnit.SECONDS));
+        }
+    }
+}